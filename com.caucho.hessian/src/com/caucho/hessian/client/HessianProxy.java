@@ -153,6 +153,7 @@ public class HessianProxy implements InvocationHandler {
     InputStream is = null;
     URLConnection conn = null;
     HttpURLConnection httpConn = null;
+    boolean isReusable = false;
     
     try {
       if (log.isLoggable(Level.FINER))
@@ -220,12 +221,14 @@ public class HessianProxy implements InvocationHandler {
       Object value = in.readObject(method.getReturnType());
 
       if (value instanceof InputStream) {
-	value = new ResultInputStream(httpConn, is, in, (InputStream) value);
+	value = new ResultInputStream(_factory, httpConn, is, in, (InputStream) value);
 	is = null;
 	httpConn = null;
       }
-      else
+      else {
 	in.completeReply();
+	isReusable = true;
+      }
 
       return value;
     } catch (HessianProtocolException e) {
@@ -240,7 +243,7 @@ public class HessianProxy implements InvocationHandler {
       
       try {
 	if (httpConn != null)
-	  httpConn.disconnect();
+	  _factory.releaseConnection(httpConn, isReusable);
       } catch (Exception e) {
 	log.log(Level.FINE, e.toString(), e);
       }
@@ -309,8 +312,8 @@ public class HessianProxy implements InvocationHandler {
 
       return conn;
     } finally {
-      if (! isValid && conn instanceof HttpURLConnection)
-	((HttpURLConnection) conn).disconnect();
+      if (! isValid && conn != null)
+	_factory.releaseConnection(conn, false);
     }
   }
 
@@ -324,16 +327,19 @@ public class HessianProxy implements InvocationHandler {
 	
 
   static class ResultInputStream extends InputStream {
+    private final HessianProxyFactory _factory;
     private HttpURLConnection _conn;
     private InputStream _connIs;
     private AbstractHessianInput _in;
     private InputStream _hessianIs;
 
-    ResultInputStream(HttpURLConnection conn,
+    ResultInputStream(HessianProxyFactory factory,
+                      HttpURLConnection conn,
 		      InputStream is,
 		      AbstractHessianInput in,
 		      InputStream hessianIs)
     {
+      _factory = factory;
       _conn = conn;
       _connIs = is;
       _in = in;
@@ -385,6 +391,8 @@ public class HessianProxy implements InvocationHandler {
       InputStream hessianIs = _hessianIs;
       _hessianIs = null;
 
+      boolean isReusable = false;
+
       try {
 	if (hessianIs != null)
 	  hessianIs.close();
@@ -395,6 +403,7 @@ public class HessianProxy implements InvocationHandler {
       try {
 	if (in != null) {
 	  in.completeReply();
+	  isReusable = true;
 	  in.close();
 	}
       } catch (Exception e) {
@@ -411,7 +420,7 @@ public class HessianProxy implements InvocationHandler {
 
       try {
 	if (conn != null) {
-	  conn.disconnect();
+	  _factory.releaseConnection(conn, isReusable);
 	}
       } catch (Exception e) {
 	log.log(Level.FINE, e.toString(), e);
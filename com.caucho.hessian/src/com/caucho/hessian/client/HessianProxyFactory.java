@@ -64,6 +64,7 @@ import java.io.PrintWriter;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Hashtable;
@@ -283,7 +284,7 @@ public class HessianProxyFactory implements ServiceProxyFactory, ObjectFactory {
   protected URLConnection openConnection(URL url)
     throws IOException
   {
-    URLConnection conn = url.openConnection();
+    URLConnection conn = createConnection(url);
 
     conn.setDoOutput(true);
 
@@ -306,6 +307,29 @@ public class HessianProxyFactory implements ServiceProxyFactory, ObjectFactory {
     return conn;
   }
 
+  /**
+   * Creates the raw URL connection, before it is configured for the call.
+   */
+  protected URLConnection createConnection(URL url)
+    throws IOException
+  {
+    return url.openConnection();
+  }
+
+  /**
+   * Releases the connection after a call.  If the reply was read completely
+   * the connection may be kept alive for the next call, otherwise it must
+   * be dropped.
+   *
+   * @param conn the connection of the call
+   * @param isReusable true if the reply was read completely
+   */
+  protected void releaseConnection(URLConnection conn, boolean isReusable)
+  {
+    if (conn instanceof HttpURLConnection)
+      ((HttpURLConnection) conn).disconnect();
+  }
+
   /**
    * Creates a new proxy with the specified URL.  The API class uses
    * the java.api.class value from _hessian_
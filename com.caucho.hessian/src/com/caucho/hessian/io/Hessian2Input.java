@@ -84,7 +84,7 @@ public class Hessian2Input
 
   private static Field _detailMessageField;
 
-  private static final int SIZE = 256;
+  private static final int DEFAULT_SIZE = 256;
   private static final int GAP = 16;
   
   // factory for deserializing objects in the input stream
@@ -98,7 +98,7 @@ public class Hessian2Input
   
   // the underlying input stream
   private InputStream _is;
-  private final byte []_buffer = new byte[SIZE];
+  private final byte []_buffer;
   
   // a peek character
   private int _offset;
@@ -129,8 +129,52 @@ public class Hessian2Input
    * @param is the underlying input stream.
    */
   public Hessian2Input(InputStream is)
+  {
+    this(is, DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates a new Hessian input stream with a read buffer of the given
+   * size, initialized with an underlying input stream.
+   *
+   * @param is the underlying input stream.
+   * @param bufferSize the size of the read buffer (at least 256 bytes).
+   */
+  public Hessian2Input(InputStream is, int bufferSize)
+  {
+    if (bufferSize < DEFAULT_SIZE)
+      throw new IllegalArgumentException("buffer size must be at least " + DEFAULT_SIZE);
+
+    _buffer = new byte[bufferSize];
+    _is = is;
+  }
+
+  /**
+   * Initialize the Hessian stream with a new underlying input stream. All
+   * state of a previous message is discarded, so the input can be reused.
+   */
+  @Override
+  public void init(InputStream is)
   {
     _is = is;
+    _offset = 0;
+    _length = 0;
+    _isStreaming = false;
+    _method = null;
+    _chunkReader = null;
+    _chunkInputStream = null;
+    _replyFault = null;
+    _sbuf.setLength(0);
+    _isLastChunk = false;
+    _chunkLength = 0;
+
+    resetReferences();
+
+    if (_classDefs != null)
+      _classDefs.clear();
+
+    if (_types != null)
+      _types.clear();
   }
 
   /**
@@ -2645,7 +2689,7 @@ public class Hessian2Input
     else
       offset = 0;
     
-    int len = _is.read(buffer, offset, SIZE - offset);
+    int len = _is.read(buffer, offset, buffer.length - offset);
 
     if (len <= 0) {
       _length = offset;
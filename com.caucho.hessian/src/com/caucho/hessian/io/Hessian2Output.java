@@ -91,9 +91,11 @@ public class Hessian2Output
   // map of types
   private HashMap _typeRefs;
 
-  private final static int SIZE = 1024;
-  
-  private final byte []_buffer = new byte[SIZE];
+  private final static int DEFAULT_SIZE = 1024;
+  private final static int MAX_SIZE = 0x8000;
+
+  private final int _size;
+  private final byte []_buffer;
   private int _offset;
 
   private boolean _isStreaming;
@@ -105,8 +107,45 @@ public class Hessian2Output
    * @param os the underlying output stream.
    */
   public Hessian2Output(OutputStream os)
+  {
+    this(os, DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates a new Hessian output stream with a buffer of the given size,
+   * initialized with an underlying output stream.
+   *
+   * @param os the underlying output stream.
+   * @param bufferSize the size of the output buffer (1024 to 32768 bytes).
+   */
+  public Hessian2Output(OutputStream os, int bufferSize)
+  {
+    if (bufferSize < DEFAULT_SIZE || bufferSize > MAX_SIZE)
+      throw new IllegalArgumentException("buffer size must be between " + DEFAULT_SIZE + " and " + MAX_SIZE);
+
+    _size = bufferSize;
+    _buffer = new byte[bufferSize];
+    _os = os;
+  }
+
+  /**
+   * Initialize the output with a new underlying stream. All state of a
+   * previous message is discarded, so the output can be reused.
+   */
+  @Override
+  public void init(OutputStream os)
   {
     _os = os;
+    _offset = 0;
+    _isStreaming = false;
+
+    resetReferences();
+
+    if (_classRefs != null)
+      _classRefs.clear();
+
+    if (_typeRefs != null)
+      _typeRefs.clear();
   }
   
   public void setCloseStreamOnClose(boolean isClose)
@@ -153,7 +192,7 @@ public class Hessian2Output
   {
     int offset = _offset;
 
-    if (SIZE < offset + 32) {
+    if (_size < offset + 32) {
       flush();
       offset = _offset;
     }
@@ -235,7 +274,7 @@ public class Hessian2Output
   {
     int offset = _offset;
 
-    if (SIZE < offset + 32) {
+    if (_size < offset + 32) {
       flush();
       offset = _offset;
     }
@@ -562,7 +601,7 @@ public class Hessian2Output
   public void writeMapBegin(String type)
     throws IOException
   {
-    if (SIZE < _offset + 32)
+    if (_size < _offset + 32)
       flush();
     
     _buffer[_offset++] = 'M';
@@ -576,7 +615,7 @@ public class Hessian2Output
   public void writeMapEnd()
     throws IOException
   {
-    if (SIZE < _offset + 32)
+    if (_size < _offset + 32)
       flush();
     
     _buffer[_offset++] = (byte) 'z';
@@ -600,7 +639,7 @@ public class Hessian2Output
     if (refV != null) {
       int ref = refV.intValue();
       
-      if (SIZE < _offset + 32)
+      if (_size < _offset + 32)
 	flush();
 
       _buffer[_offset++] = (byte) 'o';
@@ -613,7 +652,7 @@ public class Hessian2Output
       
       _classRefs.put(type, Integer.valueOf(ref));
       
-      if (SIZE < _offset + 32)
+      if (_size < _offset + 32)
 	flush();
 
       _buffer[_offset++] = (byte) 'O';
@@ -652,14 +691,14 @@ public class Hessian2Output
   public void writeRemote(String type, String url)
     throws IOException
   {
-    if (SIZE < _offset + 32)
+    if (_size < _offset + 32)
       flush();
 
     _buffer[_offset++] = (byte) 'r';
 
     writeType(type);
 
-    if (SIZE < _offset + 32)
+    if (_size < _offset + 32)
       flush();
 
     _buffer[_offset++] = (byte) 'S';
@@ -694,7 +733,7 @@ public class Hessian2Output
     else {
       _typeRefs.put(type, Integer.valueOf(_typeRefs.size()));
 
-      if (SIZE < _offset + 32)
+      if (_size < _offset + 32)
 	flush();
       
       _buffer[_offset++] = (byte) 't';
@@ -717,7 +756,7 @@ public class Hessian2Output
   public void writeBoolean(boolean value)
     throws IOException
   {
-    if (SIZE < _offset + 16)
+    if (_size < _offset + 16)
       flush();
 
     if (value)
@@ -742,7 +781,7 @@ public class Hessian2Output
     int offset = _offset;
     byte []buffer = _buffer;
 
-    if (SIZE <= offset + 16) {
+    if (_size <= offset + 16) {
       flush();
       offset = _offset;
     }
@@ -785,7 +824,7 @@ public class Hessian2Output
     int offset = _offset;
     byte []buffer = _buffer;
 
-    if (SIZE <= offset + 16) {
+    if (_size <= offset + 16) {
       flush();
       offset = _offset;
     }
@@ -844,7 +883,7 @@ public class Hessian2Output
     int offset = _offset;
     byte []buffer = _buffer;
 
-    if (SIZE <= offset + 16) {
+    if (_size <= offset + 16) {
       flush();
       offset = _offset;
     }
@@ -928,7 +967,7 @@ public class Hessian2Output
   public void writeUTCDate(long time)
     throws IOException
   {
-    if (SIZE < _offset + 32)
+    if (_size < _offset + 32)
       flush();
 
     int offset = _offset;
@@ -963,7 +1002,7 @@ public class Hessian2Output
     int offset = _offset;
     byte []buffer = _buffer;
 
-    if (SIZE <= offset + 16) {
+    if (_size <= offset + 16) {
       flush();
       offset = _offset;
     }
@@ -995,7 +1034,7 @@ public class Hessian2Output
     int offset = _offset;
     byte []buffer = _buffer;
 
-    if (SIZE <= offset + 16) {
+    if (_size <= offset + 16) {
       flush();
       offset = _offset;
     }
@@ -1014,7 +1053,7 @@ public class Hessian2Output
 
 	offset = _offset;
 
-	if (SIZE <= offset + 16) {
+	if (_size <= offset + 16) {
 	  flush();
 	  offset = _offset;
 	}
@@ -1039,7 +1078,7 @@ public class Hessian2Output
 
       offset = _offset;
 
-      if (SIZE <= offset + 16) {
+      if (_size <= offset + 16) {
 	flush();
 	offset = _offset;
       }
@@ -1079,7 +1118,7 @@ public class Hessian2Output
     throws IOException
   {
     if (buffer == null) {
-      if (SIZE < _offset + 16)
+      if (_size < _offset + 16)
 	flush();
       
       _buffer[_offset++] = (byte) ('N');
@@ -1088,7 +1127,7 @@ public class Hessian2Output
       while (length > 0x8000) {
         int sublen = 0x8000;
 
-	if (SIZE < _offset + 16)
+	if (_size < _offset + 16)
 	  flush();
 
 	// chunk can't end in high surrogate
@@ -1107,7 +1146,7 @@ public class Hessian2Output
         offset += sublen;
       }
 
-      if (SIZE < _offset + 16)
+      if (_size < _offset + 16)
 	flush();
 	
       if (length <= STRING_DIRECT_MAX) {
@@ -1143,7 +1182,7 @@ public class Hessian2Output
     throws IOException
   {
     if (buffer == null) {
-      if (SIZE < _offset + 16)
+      if (_size < _offset + 16)
 	flush();
 
       _buffer[_offset++] = 'N';
@@ -1172,7 +1211,7 @@ public class Hessian2Output
     throws IOException
   {
     if (buffer == null) {
-      if (SIZE < _offset + 16)
+      if (_size < _offset + 16)
 	flushBuffer();
       
       _buffer[_offset++] = (byte) 'N';
@@ -1180,13 +1219,13 @@ public class Hessian2Output
     else {
       flush();
 
-      while (length > SIZE - _offset - 3) {
-        int sublen = SIZE - _offset - 3;
+      while (length > _size - _offset - 3) {
+        int sublen = _size - _offset - 3;
 
         if (sublen < 16) {
           flushBuffer();
 
-          sublen = SIZE - _offset - 3;
+          sublen = _size - _offset - 3;
 
           if (length < sublen)
             sublen = length;
@@ -1203,7 +1242,7 @@ public class Hessian2Output
         offset += sublen;
       }
 
-      if (SIZE < _offset + 16)
+      if (_size < _offset + 16)
         flushBuffer();
 
       if (length < 0x10) {
@@ -1295,7 +1334,7 @@ public class Hessian2Output
   public void writeRef(int value)
     throws IOException
   {
-    if (SIZE < _offset + 16)
+    if (_size < _offset + 16)
       flush();
     
     if (value < 0x100) {
@@ -1419,7 +1458,7 @@ public class Hessian2Output
   public void printLenString(String v)
     throws IOException
   {
-    if (SIZE < _offset + 16)
+    if (_size < _offset + 16)
       flush();
     
     if (v == null) {
@@ -1458,7 +1497,7 @@ public class Hessian2Output
     byte []buffer = _buffer;
     
     for (int i = 0; i < length; i++) {
-      if (SIZE <= offset + 16) {
+      if (_size <= offset + 16) {
 	_offset = offset;
 	flush();
 	offset = _offset;
@@ -1494,7 +1533,7 @@ public class Hessian2Output
     byte []buffer = _buffer;
     
     for (int i = 0; i < length; i++) {
-      if (SIZE <= offset + 16) {
+      if (_size <= offset + 16) {
 	_offset = offset;
 	flush();
 	offset = _offset;
@@ -1523,7 +1562,7 @@ public class Hessian2Output
   {
     int offset = _offset;
     
-    if (SIZE < offset + 32) {
+    if (_size < offset + 32) {
       _offset = 0;
       _os.write(_buffer, 0, offset);
     }
@@ -1578,7 +1617,7 @@ public class Hessian2Output
     BytesOutputStream()
       throws IOException
     {
-      if (SIZE < _offset + 16) {
+      if (_size < _offset + 16) {
         Hessian2Output.this.flush();
       }
 
@@ -1590,7 +1629,7 @@ public class Hessian2Output
     public void write(int ch)
       throws IOException
     {
-      if (SIZE <= _offset) {
+      if (_size <= _offset) {
         int length = (_offset - _startOffset) - 3;
 
         _buffer[_startOffset] = (byte) 'b';
@@ -1611,7 +1650,7 @@ public class Hessian2Output
       throws IOException
     {
       while (length > 0) {
-        int sublen = SIZE - _offset;
+        int sublen = _size - _offset;
 
         if (length < sublen)
           sublen = length;
@@ -1624,7 +1663,7 @@ public class Hessian2Output
         length -= sublen;
         offset += sublen;
 
-        if (SIZE <= _offset) {
+        if (_size <= _offset) {
           int chunkLength = (_offset - _startOffset) - 3;
 
           _buffer[_startOffset] = (byte) 'b';
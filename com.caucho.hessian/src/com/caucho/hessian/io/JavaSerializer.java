@@ -118,6 +118,14 @@ public class JavaSerializer extends AbstractSerializer
     }
   }
 
+  /**
+   * Returns the serialized fields in the order they are written.
+   */
+  protected Field []getFields()
+  {
+    return _fields;
+  }
+
   private void introspectWriteReplace(Class cl)
   {
     try {
@@ -53,6 +53,8 @@ import com.caucho.burlap.io.BurlapRemoteObject;
 import java.io.*;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.management.*;
@@ -68,9 +70,10 @@ public class SerializerFactory extends AbstractSerializerFactory
   private static Deserializer OBJECT_DESERIALIZER
     = new BasicDeserializer(BasicDeserializer.OBJECT);
   
-  private static HashMap _staticSerializerMap;
-  private static HashMap _staticDeserializerMap;
-  private static HashMap _staticTypeMap;
+  // concurrent, because extensions may replace entries at runtime
+  private static ConcurrentMap _staticSerializerMap;
+  private static ConcurrentMap _staticDeserializerMap;
+  private static ConcurrentMap _staticTypeMap;
 
   protected Serializer _defaultSerializer;
 
@@ -82,9 +85,10 @@ public class SerializerFactory extends AbstractSerializerFactory
   
   private Deserializer _hashMapDeserializer;
   private Deserializer _arrayListDeserializer;
-  private HashMap _cachedSerializerMap;
-  private HashMap _cachedDeserializerMap;
-  private HashMap _cachedTypeDeserializerMap;
+  // per-class caches, read without locking by all serializing threads
+  private final ConcurrentMap _cachedSerializerMap = new ConcurrentHashMap();
+  private final ConcurrentMap _cachedDeserializerMap = new ConcurrentHashMap();
+  private final ConcurrentMap _cachedTypeDeserializerMap = new ConcurrentHashMap();
 
   private boolean _isAllowNonSerializable;
 
@@ -144,14 +148,9 @@ public class SerializerFactory extends AbstractSerializerFactory
     if (serializer != null)
       return serializer;
 
-    if (_cachedSerializerMap != null) {
-      synchronized (_cachedSerializerMap) {
-	serializer = (Serializer) _cachedSerializerMap.get(cl);
-      }
-      
-      if (serializer != null)
-	return serializer;
-    }
+    serializer = (Serializer) _cachedSerializerMap.get(cl);
+    if (serializer != null)
+      return serializer;
 
     for (int i = 0;
 	 serializer == null && _factories != null && i < _factories.size();
@@ -216,14 +215,10 @@ public class SerializerFactory extends AbstractSerializerFactory
     if (serializer == null)
       serializer = getDefaultSerializer(cl);
 
-    if (_cachedSerializerMap == null)
-      _cachedSerializerMap = new HashMap(8);
+    // a concurrent lookup may have won the race, use its serializer
+    Serializer cached = (Serializer) _cachedSerializerMap.putIfAbsent(cl, serializer);
 
-    synchronized (_cachedSerializerMap) {
-      _cachedSerializerMap.put(cl, serializer);
-    }
-
-    return serializer;
+    return cached != null ? cached : serializer;
   }
 
   /**
@@ -264,14 +259,9 @@ public class SerializerFactory extends AbstractSerializerFactory
     if (deserializer != null)
       return deserializer;
 
-    if (_cachedDeserializerMap != null) {
-      synchronized (_cachedDeserializerMap) {
-	deserializer = (Deserializer) _cachedDeserializerMap.get(cl);
-      }
-      
-      if (deserializer != null)
-	return deserializer;
-    }
+    deserializer = (Deserializer) _cachedDeserializerMap.get(cl);
+    if (deserializer != null)
+      return deserializer;
 
 
     for (int i = 0;
@@ -307,14 +297,10 @@ public class SerializerFactory extends AbstractSerializerFactory
     else
       deserializer = getDefaultDeserializer(cl);
 
-    if (_cachedDeserializerMap == null)
-      _cachedDeserializerMap = new HashMap(8);
-
-    synchronized (_cachedDeserializerMap) {
-      _cachedDeserializerMap.put(cl, deserializer);
-    }
+    // a concurrent lookup may have won the race, use its deserializer
+    Deserializer cached = (Deserializer) _cachedDeserializerMap.putIfAbsent(cl, deserializer);
 
-    return deserializer;
+    return cached != null ? cached : deserializer;
   }
 
   /**
@@ -479,14 +465,9 @@ public class SerializerFactory extends AbstractSerializerFactory
 
     Deserializer deserializer;
     
-    if (_cachedTypeDeserializerMap != null) {
-      synchronized (_cachedTypeDeserializerMap) {
-	deserializer = (Deserializer) _cachedTypeDeserializerMap.get(type);
-      }
-
-      if (deserializer != null)
-	return deserializer;
-    }
+    deserializer = (Deserializer) _cachedTypeDeserializerMap.get(type);
+    if (deserializer != null)
+      return deserializer;
 
 
     deserializer = (Deserializer) _staticTypeMap.get(type);
@@ -515,12 +496,11 @@ public class SerializerFactory extends AbstractSerializerFactory
     }
 
     if (deserializer != null) {
-      if (_cachedTypeDeserializerMap == null)
-	_cachedTypeDeserializerMap = new HashMap(8);
+      Deserializer cached
+	= (Deserializer) _cachedTypeDeserializerMap.putIfAbsent(type, deserializer);
 
-      synchronized (_cachedTypeDeserializerMap) {
-	_cachedTypeDeserializerMap.put(type, deserializer);
-      }
+      if (cached != null)
+	deserializer = cached;
     }
 
     return deserializer;
@@ -536,9 +516,9 @@ public class SerializerFactory extends AbstractSerializerFactory
   }
 
   static {
-    _staticSerializerMap = new HashMap();
-    _staticDeserializerMap = new HashMap();
-    _staticTypeMap = new HashMap();
+    _staticSerializerMap = new ConcurrentHashMap();
+    _staticDeserializerMap = new ConcurrentHashMap();
+    _staticTypeMap = new ConcurrentHashMap();
 
     addBasic(void.class, "void", BasicSerializer.NULL);
     
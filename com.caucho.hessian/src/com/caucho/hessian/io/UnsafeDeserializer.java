@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2001-2008 Caucho Technology, Inc.  All rights reserved.
+ *
+ * The Apache Software License, Version 1.1
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution, if
+ *    any, must include the following acknowlegement:
+ *       "This product includes software developed by the
+ *        Caucho Technology (http://www.caucho.com/)."
+ *    Alternately, this acknowlegement may appear in the software itself,
+ *    if and wherever such third-party acknowlegements normally appear.
+ *
+ * 4. The names "Burlap", "Resin", and "Caucho" must not be used to
+ *    endorse or promote products derived from this software without prior
+ *    written permission. For written permission, please contact
+ *    info@caucho.com.
+ *
+ * 5. Products derived from this software may not be called "Resin"
+ *    nor may "Resin" appear in their names without prior written
+ *    permission of Caucho Technology.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL CAUCHO TECHNOLOGY OR ITS CONTRIBUTORS
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY,
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR
+ * BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN
+ * IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.caucho.hessian.io;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+
+import sun.misc.Unsafe;
+
+/**
+ * Deserializing an object for known object types. Same as the
+ * {@link JavaDeserializer}, but the fields are written through their
+ * {@code sun.misc.Unsafe} offsets instead of {@code java.lang.reflect.Field}.
+ */
+public class UnsafeDeserializer extends JavaDeserializer
+{
+  private static final Unsafe UNSAFE = UnsafeAccess.UNSAFE;
+
+  public UnsafeDeserializer(Class cl)
+  {
+    super(cl);
+  }
+
+  /**
+   * Returns true if the deserializer can be used in this JVM.
+   */
+  public static boolean isEnabled()
+  {
+    return UnsafeAccess.isAvailable();
+  }
+
+  /**
+   * Creates a map of the classes fields.
+   */
+  protected HashMap getFieldMap(Class cl)
+  {
+    HashMap fieldMap = new HashMap();
+
+    for (; cl != null; cl = cl.getSuperclass()) {
+      Field []fields = cl.getDeclaredFields();
+      for (int i = 0; i < fields.length; i++) {
+        Field field = fields[i];
+
+        if (Modifier.isTransient(field.getModifiers())
+            || Modifier.isStatic(field.getModifiers()))
+          continue;
+        else if (fieldMap.get(field.getName()) != null)
+          continue;
+
+        Class type = field.getType();
+        long offset = UNSAFE.objectFieldOffset(field);
+        FieldDeserializer deser;
+
+        if (String.class.equals(type))
+          deser = new StringFieldDeserializer(field, offset);
+        else if (byte.class.equals(type))
+          deser = new ByteFieldDeserializer(field, offset);
+        else if (short.class.equals(type))
+          deser = new ShortFieldDeserializer(field, offset);
+        else if (int.class.equals(type))
+          deser = new IntFieldDeserializer(field, offset);
+        else if (long.class.equals(type))
+          deser = new LongFieldDeserializer(field, offset);
+        else if (float.class.equals(type))
+          deser = new FloatFieldDeserializer(field, offset);
+        else if (double.class.equals(type))
+          deser = new DoubleFieldDeserializer(field, offset);
+        else if (boolean.class.equals(type))
+          deser = new BooleanFieldDeserializer(field, offset);
+        else if (char.class.equals(type))
+          deser = new CharFieldDeserializer(field, offset);
+        else if (java.sql.Date.class.equals(type))
+          deser = new SqlDateFieldDeserializer(field, offset);
+        else if (java.sql.Timestamp.class.equals(type))
+          deser = new SqlTimestampFieldDeserializer(field, offset);
+        else if (java.sql.Time.class.equals(type))
+          deser = new SqlTimeFieldDeserializer(field, offset);
+        else
+          deser = new ObjectFieldDeserializer(field, offset);
+
+        fieldMap.put(field.getName(), deser);
+      }
+    }
+
+    return fieldMap;
+  }
+
+  abstract static class UnsafeFieldDeserializer extends FieldDeserializer {
+    protected final Field _field;
+    protected final long _offset;
+
+    UnsafeFieldDeserializer(Field field, long offset)
+    {
+      _field = field;
+      _offset = offset;
+    }
+  }
+
+  static class ObjectFieldDeserializer extends UnsafeFieldDeserializer {
+    ObjectFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      Object value = null;
+
+      try {
+        value = in.readObject(_field.getType());
+
+        if (value != null && ! _field.getType().isInstance(value)) {
+          // the same check the reflective Field.set() does
+          throw new IllegalArgumentException();
+        }
+
+        UNSAFE.putObject(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class BooleanFieldDeserializer extends UnsafeFieldDeserializer {
+    BooleanFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      boolean value = false;
+
+      try {
+        value = in.readBoolean();
+
+        UNSAFE.putBoolean(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class ByteFieldDeserializer extends UnsafeFieldDeserializer {
+    ByteFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      int value = 0;
+
+      try {
+        value = in.readInt();
+
+        UNSAFE.putByte(obj, _offset, (byte) value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class ShortFieldDeserializer extends UnsafeFieldDeserializer {
+    ShortFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      int value = 0;
+
+      try {
+        value = in.readInt();
+
+        UNSAFE.putShort(obj, _offset, (short) value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class IntFieldDeserializer extends UnsafeFieldDeserializer {
+    IntFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      int value = 0;
+
+      try {
+        value = in.readInt();
+
+        UNSAFE.putInt(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class LongFieldDeserializer extends UnsafeFieldDeserializer {
+    LongFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      long value = 0;
+
+      try {
+        value = in.readLong();
+
+        UNSAFE.putLong(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class FloatFieldDeserializer extends UnsafeFieldDeserializer {
+    FloatFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      double value = 0;
+
+      try {
+        value = in.readDouble();
+
+        UNSAFE.putFloat(obj, _offset, (float) value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class DoubleFieldDeserializer extends UnsafeFieldDeserializer {
+    DoubleFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      double value = 0;
+
+      try {
+        value = in.readDouble();
+
+        UNSAFE.putDouble(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class CharFieldDeserializer extends UnsafeFieldDeserializer {
+    CharFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      Object value = null;
+
+      try {
+        value = in.readObject(char.class);
+
+        UNSAFE.putChar(obj, _offset, ((Character) value).charValue());
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class StringFieldDeserializer extends UnsafeFieldDeserializer {
+    StringFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      String value = null;
+
+      try {
+        value = in.readString();
+
+        UNSAFE.putObject(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class SqlDateFieldDeserializer extends UnsafeFieldDeserializer {
+    SqlDateFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      java.sql.Date value = null;
+
+      try {
+        java.util.Date date = (java.util.Date) in.readObject();
+        if (date != null)
+          value = new java.sql.Date(date.getTime());
+
+        UNSAFE.putObject(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class SqlTimestampFieldDeserializer extends UnsafeFieldDeserializer {
+    SqlTimestampFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      java.sql.Timestamp value = null;
+
+      try {
+        java.util.Date date = (java.util.Date) in.readObject();
+        if (date != null)
+          value = new java.sql.Timestamp(date.getTime());
+
+        UNSAFE.putObject(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+
+  static class SqlTimeFieldDeserializer extends UnsafeFieldDeserializer {
+    SqlTimeFieldDeserializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void deserialize(AbstractHessianInput in, Object obj)
+      throws IOException
+    {
+      java.sql.Time value = null;
+
+      try {
+        java.util.Date date = (java.util.Date) in.readObject();
+        if (date != null)
+          value = new java.sql.Time(date.getTime());
+
+        UNSAFE.putObject(obj, _offset, value);
+      } catch (Exception e) {
+        logDeserializeError(_field, obj, value, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2001-2008 Caucho Technology, Inc.  All rights reserved.
+ *
+ * The Apache Software License, Version 1.1
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in
+ *    the documentation and/or other materials provided with the
+ *    distribution.
+ *
+ * 3. The end-user documentation included with the redistribution, if
+ *    any, must include the following acknowlegement:
+ *       "This product includes software developed by the
+ *        Caucho Technology (http://www.caucho.com/)."
+ *    Alternately, this acknowlegement may appear in the software itself,
+ *    if and wherever such third-party acknowlegements normally appear.
+ *
+ * 4. The names "Burlap", "Resin", and "Caucho" must not be used to
+ *    endorse or promote products derived from this software without prior
+ *    written permission. For written permission, please contact
+ *    info@caucho.com.
+ *
+ * 5. Products derived from this software may not be called "Resin"
+ *    nor may "Resin" appear in their names without prior written
+ *    permission of Caucho Technology.
+ *
+ * THIS SOFTWARE IS PROVIDED ``AS IS'' AND ANY EXPRESSED OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED.  IN NO EVENT SHALL CAUCHO TECHNOLOGY OR ITS CONTRIBUTORS
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY,
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT
+ * OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR
+ * BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN
+ * IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.caucho.hessian.io;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * Serializing an object for known object types. Same format as the
+ * {@link JavaSerializer}, but the fields are read through their
+ * {@code sun.misc.Unsafe} offsets instead of {@code java.lang.reflect.Field}.
+ */
+public class UnsafeSerializer extends JavaSerializer
+{
+  private static final Unsafe UNSAFE = UnsafeAccess.UNSAFE;
+
+  private final FieldSerializer []_fieldSerializers;
+
+  public UnsafeSerializer(Class cl)
+  {
+    super(cl);
+
+    Field []fields = getFields();
+
+    _fieldSerializers = new FieldSerializer[fields.length];
+
+    for (int i = 0; i < fields.length; i++) {
+      _fieldSerializers[i] = getFieldSerializer(fields[i]);
+    }
+  }
+
+  /**
+   * Returns true if the serializer can be used in this JVM.
+   */
+  public static boolean isEnabled()
+  {
+    return UnsafeAccess.isAvailable();
+  }
+
+  public void writeInstance(Object obj, AbstractHessianOutput out)
+    throws IOException
+  {
+    for (int i = 0; i < _fieldSerializers.length; i++) {
+      _fieldSerializers[i].serialize(out, obj);
+    }
+  }
+
+  private static FieldSerializer getFieldSerializer(Field field)
+  {
+    Class type = field.getType();
+    long offset = UNSAFE.objectFieldOffset(field);
+
+    if (int.class.equals(type))
+      return new IntFieldSerializer(field, offset);
+    else if (byte.class.equals(type))
+      return new ByteFieldSerializer(field, offset);
+    else if (short.class.equals(type))
+      return new ShortFieldSerializer(field, offset);
+    else if (long.class.equals(type))
+      return new LongFieldSerializer(field, offset);
+    else if (double.class.equals(type))
+      return new DoubleFieldSerializer(field, offset);
+    else if (float.class.equals(type))
+      return new FloatFieldSerializer(field, offset);
+    else if (boolean.class.equals(type))
+      return new BooleanFieldSerializer(field, offset);
+    else if (char.class.equals(type))
+      return new CharFieldSerializer(field, offset);
+    else if (String.class.equals(type))
+      return new StringFieldSerializer(field, offset);
+    else if (java.util.Date.class.equals(type)
+             || java.sql.Date.class.equals(type)
+             || java.sql.Timestamp.class.equals(type)
+             || java.sql.Time.class.equals(type))
+      return new DateFieldSerializer(field, offset);
+    else
+      return new ObjectFieldSerializer(field, offset);
+  }
+
+  abstract static class FieldSerializer {
+    protected final Field _field;
+    protected final long _offset;
+
+    FieldSerializer(Field field, long offset)
+    {
+      _field = field;
+      _offset = offset;
+    }
+
+    abstract void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException;
+  }
+
+  static class ObjectFieldSerializer extends FieldSerializer {
+    ObjectFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      try {
+        out.writeObject(UNSAFE.getObject(obj, _offset));
+      } catch (RuntimeException e) {
+        throw new RuntimeException(e.getMessage() + "\n Java field: " + _field,
+                                   e);
+      } catch (IOException e) {
+        throw new IOExceptionWrapper(e.getMessage() + "\n Java field: " + _field,
+                                     e);
+      }
+    }
+  }
+
+  static class BooleanFieldSerializer extends FieldSerializer {
+    BooleanFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeBoolean(UNSAFE.getBoolean(obj, _offset));
+    }
+  }
+
+  static class ByteFieldSerializer extends FieldSerializer {
+    ByteFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeInt(UNSAFE.getByte(obj, _offset));
+    }
+  }
+
+  static class ShortFieldSerializer extends FieldSerializer {
+    ShortFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeInt(UNSAFE.getShort(obj, _offset));
+    }
+  }
+
+  static class IntFieldSerializer extends FieldSerializer {
+    IntFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeInt(UNSAFE.getInt(obj, _offset));
+    }
+  }
+
+  static class LongFieldSerializer extends FieldSerializer {
+    LongFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeLong(UNSAFE.getLong(obj, _offset));
+    }
+  }
+
+  static class FloatFieldSerializer extends FieldSerializer {
+    FloatFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeDouble(UNSAFE.getFloat(obj, _offset));
+    }
+  }
+
+  static class DoubleFieldSerializer extends FieldSerializer {
+    DoubleFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeDouble(UNSAFE.getDouble(obj, _offset));
+    }
+  }
+
+  static class CharFieldSerializer extends FieldSerializer {
+    CharFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      // written as object, like the JavaSerializer does
+      out.writeObject(Character.valueOf(UNSAFE.getChar(obj, _offset)));
+    }
+  }
+
+  static class StringFieldSerializer extends FieldSerializer {
+    StringFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      out.writeString((String) UNSAFE.getObject(obj, _offset));
+    }
+  }
+
+  static class DateFieldSerializer extends FieldSerializer {
+    DateFieldSerializer(Field field, long offset)
+    {
+      super(field, offset);
+    }
+
+    void serialize(AbstractHessianOutput out, Object obj)
+      throws IOException
+    {
+      java.util.Date value = (java.util.Date) UNSAFE.getObject(obj, _offset);
+
+      if (value == null)
+        out.writeNull();
+      else
+        out.writeUTCDate(value.getTime());
+    }
+  }
+}
@@ -97,6 +97,24 @@ public class HessianSkeleton extends AbstractSkeleton {
     super(apiClass);
   }
 
+  /**
+   * Returns the service object.
+   */
+  public Object getService()
+  {
+    return _service;
+  }
+
+  /**
+   * Returns the method by the name passed by the protocol, or null.
+   *
+   * @param mangledName the (mangled) method name
+   */
+  public Method findMethod(String mangledName)
+  {
+    return getMethod(mangledName);
+  }
+
   /**
    * Invoke the object with the request from the input stream.
    *
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.async;
+
+/**
+ * Carries thread bound state (e.g. the subject or the session) from the thread
+ * that calls an asynchronous remote service proxy to the thread that executes
+ * the remote call, so that the call hooks see the same state as for a
+ * synchronous call.
+ * <p>
+ * Implementations are registered as OSGi services.
+ */
+public interface ICallContextPropagator {
+
+	/**
+	 * Capture the state of the calling thread.
+	 * 
+	 * @return the captured state (may be {@code null})
+	 */
+	Object capture();
+
+	/**
+	 * Attach the captured state to the current (executing) thread.
+	 * 
+	 * @param captured
+	 *            the state returned by {@link #capture()}
+	 * @return the previous state of the current thread that will be passed to
+	 *         {@link #detach(Object)}
+	 */
+	Object attach(Object captured);
+
+	/**
+	 * Restore the state of the current (executing) thread after the call.
+	 * 
+	 * @param previous
+	 *            the state returned by {@link #attach(Object)}
+	 */
+	void detach(Object previous);
+
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.batch;
+
+import java.util.List;
+
+/**
+ * Sends a list of {@link RemoteCall}s to the server in one round trip.
+ * <p>
+ * An {@code IRemoteServiceFactory} that implements this interface supports
+ * {@link RemoteServiceBatch}es for the proxies it creates.
+ */
+public interface IRemoteCallBatchExecutor {
+
+	/**
+	 * Execute the given calls in one round trip and set the result or the
+	 * failure of each call. All calls target the same server.
+	 *
+	 * @param calls
+	 *            the calls in the order they have been recorded
+	 * @throws Exception
+	 *             if the round trip as a whole failed
+	 */
+	void execute(List<RemoteCall> calls) throws Exception;
+
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.batch;
+
+import java.lang.reflect.Method;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+
+/**
+ * One call on a remote service proxy that has been recorded by a
+ * {@link RemoteServiceBatch}.
+ */
+public class RemoteCall {
+
+	private final RemoteServiceDescription serviceDescription;
+	private final Method method;
+	private final Object[] args;
+	private final IRemoteCallBatchExecutor executor;
+	private Object result;
+	private Throwable failure;
+	private boolean done;
+
+	/**
+	 * @param serviceDescription
+	 *            the description of the called remote service
+	 * @param method
+	 *            the called method
+	 * @param args
+	 *            the arguments of the call (may be {@code null})
+	 * @param executor
+	 *            the executor that sends the call, {@code null} if the call
+	 *            has already been executed
+	 */
+	public RemoteCall(final RemoteServiceDescription serviceDescription, final Method method, final Object[] args,
+			final IRemoteCallBatchExecutor executor) {
+		this.serviceDescription = serviceDescription;
+		this.method = method;
+		this.args = args == null ? new Object[0] : args;
+		this.executor = executor;
+	}
+
+	public RemoteServiceDescription getServiceDescription() {
+		return serviceDescription;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public Object[] getArgs() {
+		return args;
+	}
+
+	IRemoteCallBatchExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return {@code true} if the result (or the failure) of the call is known
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	public void setResult(final Object result) {
+		this.result = result;
+		this.failure = null;
+		this.done = true;
+	}
+
+	public void setFailure(final Throwable failure) {
+		this.result = null;
+		this.failure = failure;
+		this.done = true;
+	}
+
+	/**
+	 * Get the result of the call. The exception thrown by the remote service
+	 * is rethrown if it is unchecked or declared by the method, any other
+	 * exception is wrapped into a {@code RemoteFailure}.
+	 *
+	 * @return the result
+	 * @throws Exception
+	 *             the exception thrown by the remote call
+	 * @throws IllegalStateException
+	 *             if the call has not been executed yet
+	 */
+	public Object getResult() throws Exception {
+		if (!done) {
+			throw new IllegalStateException("The remote call " + this + " has not been executed."); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (failure == null) {
+			return result;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		for (final Class<?> exceptionType : method.getExceptionTypes()) {
+			if (exceptionType.isAssignableFrom(failure.getClass())) {
+				throw (Exception) failure;
+			}
+		}
+		throw new RemoteFailure("Error while invoking remote service", failure); //$NON-NLS-1$
+	}
+
+	/**
+	 * The value a proxy returns for a call that has only been recorded, i.e.
+	 * {@code null} or the default value of a primitive return type.
+	 *
+	 * @return the placeholder value
+	 */
+	public Object getPlaceholderResult() {
+		final Class<?> type = method.getReturnType();
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		}
+		if (type == boolean.class) {
+			return Boolean.FALSE;
+		}
+		if (type == char.class) {
+			return Character.valueOf((char) 0);
+		}
+		if (type == byte.class) {
+			return Byte.valueOf((byte) 0);
+		}
+		if (type == short.class) {
+			return Short.valueOf((short) 0);
+		}
+		if (type == int.class) {
+			return Integer.valueOf(0);
+		}
+		if (type == long.class) {
+			return Long.valueOf(0);
+		}
+		if (type == float.class) {
+			return Float.valueOf(0);
+		}
+		return Double.valueOf(0);
+	}
+
+	@Override
+	public String toString() {
+		return serviceDescription.getServiceInterfaceClassName() + "." + method.getName(); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.batch;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+
+/**
+ * Collects the calls made on remote service proxies by the current thread and
+ * sends them to the server in one round trip instead of one round trip per
+ * call.
+ * <p>
+ * While a batch is active, calls on remote service proxies are only recorded
+ * and return {@code null} (or the default value of a primitive return type).
+ * The results are available after {@link #execute()}:
+ *
+ * <pre>
+ * final RemoteServiceBatch batch = RemoteServiceBatch.begin();
+ * try {
+ * 	customerService.findCustomer(&quot;4711&quot;);
+ * 	contractService.findContracts(&quot;4711&quot;);
+ * 	batch.execute();
+ * } finally {
+ * 	batch.end();
+ * }
+ * final Customer customer = (Customer) batch.getResult(0);
+ * final Contract[] contracts = (Contract[]) batch.getResult(1);
+ * </pre>
+ *
+ * Calls whose protocol does not support batches are executed immediately, they
+ * still get their index in the batch. The calls are executed on the server in
+ * the order they have been recorded.
+ */
+public final class RemoteServiceBatch {
+
+	/**
+	 * The name of the remote method that carries a batch.
+	 */
+	public static final String METHOD_NAME = "_riena_batch"; //$NON-NLS-1$
+
+	private static final ThreadLocal<RemoteServiceBatch> CURRENT = new ThreadLocal<RemoteServiceBatch>();
+
+	private final List<RemoteCall> calls = new ArrayList<RemoteCall>();
+	private boolean executed;
+
+	private RemoteServiceBatch() {
+		// use begin()
+	}
+
+	/**
+	 * Start recording the remote calls of the current thread.
+	 *
+	 * @return the new batch
+	 * @throws IllegalStateException
+	 *             if a batch is already active on the current thread
+	 */
+	public static RemoteServiceBatch begin() {
+		if (CURRENT.get() != null) {
+			throw new IllegalStateException("A remote service batch is already active on this thread."); //$NON-NLS-1$
+		}
+		final RemoteServiceBatch batch = new RemoteServiceBatch();
+		CURRENT.set(batch);
+		return batch;
+	}
+
+	/**
+	 * @return the batch recording the remote calls of the current thread or
+	 *         {@code null}
+	 */
+	public static RemoteServiceBatch current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Record a call. This is called by the remote service proxies.
+	 *
+	 * @param call
+	 *            the call
+	 */
+	public void add(final RemoteCall call) {
+		if (executed) {
+			throw new IllegalStateException("The remote service batch has already been executed."); //$NON-NLS-1$
+		}
+		calls.add(call);
+	}
+
+	/**
+	 * @return the number of recorded calls
+	 */
+	public int size() {
+		return calls.size();
+	}
+
+	/**
+	 * @return the recorded calls
+	 */
+	public List<RemoteCall> getCalls() {
+		return Collections.unmodifiableList(calls);
+	}
+
+	/**
+	 * Stop recording and send all recorded calls. Calls to the same server are
+	 * sent in one round trip. If a round trip fails, all its calls fail with a
+	 * {@code RemoteFailure}.
+	 *
+	 * @throws IllegalStateException
+	 *             if the batch has already been executed
+	 */
+	public void execute() {
+		if (executed) {
+			throw new IllegalStateException("The remote service batch has already been executed."); //$NON-NLS-1$
+		}
+		end();
+		executed = true;
+		for (final List<RemoteCall> group : groupByServer().values()) {
+			final IRemoteCallBatchExecutor executor = group.get(0).getExecutor();
+			try {
+				executor.execute(group);
+			} catch (final Exception e) {
+				failAll(group, e instanceof RemoteFailure ? e : new RemoteFailure(
+						"Error while invoking remote service batch", e)); //$NON-NLS-1$
+			}
+			failAll(group, new RemoteFailure("No result for the call in the remote service batch")); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Stop recording without sending the recorded calls (if they have not been
+	 * executed yet). It is safe to call this method more than once.
+	 */
+	public void end() {
+		if (CURRENT.get() == this) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Get the result of the call with the given index.
+	 *
+	 * @param index
+	 *            the index of the call in the order of recording
+	 * @return the result of the call
+	 * @throws Exception
+	 *             the exception of the remote call (see
+	 *             {@link RemoteCall#getResult()})
+	 */
+	public Object getResult(final int index) throws Exception {
+		return calls.get(index).getResult();
+	}
+
+	private Map<String, List<RemoteCall>> groupByServer() {
+		final Map<String, List<RemoteCall>> groups = new LinkedHashMap<String, List<RemoteCall>>();
+		for (final RemoteCall call : calls) {
+			if (call.isDone()) {
+				continue;
+			}
+			final String key = getServerKey(call.getServiceDescription());
+			List<RemoteCall> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<RemoteCall>();
+				groups.put(key, group);
+			}
+			group.add(call);
+		}
+		return groups;
+	}
+
+	private static String getServerKey(final RemoteServiceDescription rsd) {
+		final String url = rsd.getURL();
+		if (url == null) {
+			return rsd.getProtocol();
+		}
+		try {
+			final URL parsed = new URL(url);
+			return rsd.getProtocol() + ':' + parsed.getProtocol() + "://" + parsed.getAuthority(); //$NON-NLS-1$
+		} catch (final MalformedURLException e) {
+			return rsd.getProtocol() + ':' + url;
+		}
+	}
+
+	private static void failAll(final List<RemoteCall> calls, final Throwable failure) {
+		for (final RemoteCall call : calls) {
+			if (!call.isDone()) {
+				call.setFailure(failure);
+			}
+		}
+	}
+
+}
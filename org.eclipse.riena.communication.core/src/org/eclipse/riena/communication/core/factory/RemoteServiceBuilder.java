@@ -37,6 +37,10 @@ import org.eclipse.riena.internal.communication.core.Activator;
  * {@link org.eclipse.riena.communication.core.publisher.IServicePublisher} and
  * {@link IRemoteServiceFactory}
  * <li>
+ * <li>'riena.async.interface' - (optional) defines an asynchronous variant of
+ * the interface whose methods return a {@code Future} (see
+ * {@link RemoteServiceFactory#createAsyncProxy(Class, Class, Object)}). The
+ * asynchronous proxy becomes registered as OSGi Service with this name.</li>
  * </ul>
  * <p>
  * Usage e.g.
@@ -58,6 +62,8 @@ import org.eclipse.riena.internal.communication.core.Activator;
 public class RemoteServiceBuilder {
 
 	private IRemoteServiceRegistration rsReg;
+	private ServiceRegistration asyncReg;
+	private Object asyncProxy;
 
 	/**
 	 * Create a instance of RemoteServiceBuilder
@@ -87,11 +93,28 @@ public class RemoteServiceBuilder {
 			rsReg = Companion.per(RemoteServiceFactory.class).createAndRegisterProxy(serviceClass, path, protocol,
 					Activator.getDefault().getContext());
 
+			final String asyncClassName = (String) context.getProperties().get(
+					RSDPublisherProperties.PROP_ASYNC_INTERFACE);
+			if (asyncClassName != null && rsReg != null) {
+				registerAsyncProxy(serviceClass, asyncClassName);
+			}
 		} catch (final ClassNotFoundException e) {
 			throw new RemoteFailure("RemoteServiceBuilder could not load class '" + serviceClassName + "'", e); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 	}
 
+	private void registerAsyncProxy(final Class<?> serviceClass, final String asyncClassName) {
+		try {
+			final Class<?> asyncClass = Class.forName(asyncClassName);
+			final Object asyncProxy = Companion.per(RemoteServiceFactory.class).createAsyncProxy(asyncClass,
+					serviceClass, rsReg.getReference().getServiceInstance());
+			this.asyncProxy = asyncProxy;
+			asyncReg = Activator.getDefault().getContext().registerService(asyncClassName, asyncProxy, null);
+		} catch (final ClassNotFoundException e) {
+			throw new RemoteFailure("RemoteServiceBuilder could not load class '" + asyncClassName + "'", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
 	/**
 	 * Unregister the "remote" service from the
 	 * {@link org.eclipse.riena.communication.core.IRemoteServiceRegistry}.
@@ -101,6 +124,14 @@ public class RemoteServiceBuilder {
 	 * @param service
 	 */
 	public void ungetService(final Bundle bundle, final ServiceRegistration reg, final Object service) {
+		if (asyncReg != null) {
+			asyncReg.unregister();
+			asyncReg = null;
+		}
+		if (asyncProxy != null) {
+			Companion.per(RemoteServiceFactory.class).disposeAsyncProxy(asyncProxy);
+			asyncProxy = null;
+		}
 		if (rsReg != null) {
 			rsReg.unregister();
 			rsReg = null;
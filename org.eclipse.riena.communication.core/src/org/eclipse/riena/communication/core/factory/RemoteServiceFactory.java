@@ -32,13 +32,16 @@ import org.eclipse.riena.communication.core.IRemoteServiceRegistration;
 import org.eclipse.riena.communication.core.IRemoteServiceRegistry;
 import org.eclipse.riena.communication.core.RemoteFailure;
 import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.IRemoteCallBatchExecutor;
 import org.eclipse.riena.core.Log4r;
 import org.eclipse.riena.core.RienaStatus;
 import org.eclipse.riena.core.util.Iter;
 import org.eclipse.riena.core.util.Orderer;
 import org.eclipse.riena.core.wire.InjectExtension;
 import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.core.wire.Wire;
 import org.eclipse.riena.internal.communication.core.Activator;
+import org.eclipse.riena.internal.communication.core.factory.AsyncCallProxy;
 import org.eclipse.riena.internal.communication.core.factory.CallHooksProxy;
 import org.eclipse.riena.internal.communication.core.factory.ICallInterceptorExtension;
 import org.eclipse.riena.internal.communication.core.factory.IRemoteServiceFactoryExtension;
@@ -200,6 +203,65 @@ public class RemoteServiceFactory {
 		return createProxy(createDescription(interfaceClass, url, protocol, context.getBundle()));
 	}
 
+	/**
+	 * Creates an asynchronous variant of a (remote) service. Every method of
+	 * the asynchronous interface must return a {@code java.util.concurrent.Future}
+	 * and have a counterpart with the same name and parameter types in the
+	 * service interface, e.g.
+	 * 
+	 * <pre>
+	 * public interface ICustomerServiceAsync {
+	 * 	Future&lt;Customer&gt; findCustomer(String id);
+	 * }
+	 * </pre>
+	 * 
+	 * The calls are executed by a shared, bounded thread pool (see
+	 * {@link AsyncCallProxy#RIENA_ASYNC_THREADS_PROPERTY}). The call hooks and
+	 * interceptors of the service proxy are executed for every call, thread
+	 * bound state is carried over by the registered
+	 * {@code ICallContextPropagator} services. When the asynchronous proxy is
+	 * no longer needed it must be released with
+	 * {@link #disposeAsyncProxy(Object)}.
+	 * 
+	 * @param asyncInterface
+	 *            the asynchronous interface
+	 * @param serviceInterface
+	 *            the service interface
+	 * @param service
+	 *            the service (proxy) implementing the service interface
+	 * @return the asynchronous proxy
+	 * @throws RemoteFailure
+	 *             if the asynchronous interface does not match the service
+	 *             interface
+	 * @since 6.0
+	 */
+	public <T> T createAsyncProxy(final Class<T> asyncInterface, final Class<?> serviceInterface,
+			final Object service) {
+		final AsyncCallProxy asyncCallProxy = new AsyncCallProxy(asyncInterface, serviceInterface, service);
+		asyncCallProxy.setWirePuller(Wire.instance(asyncCallProxy).andStart(Activator.getDefault().getContext()));
+		return asyncInterface.cast(asyncCallProxy.createProxy());
+	}
+
+	/**
+	 * Release an asynchronous proxy created by
+	 * {@link #createAsyncProxy(Class, Class, Object)}, i.e. stop tracking the
+	 * {@code ICallContextPropagator} services for it. Other objects are
+	 * ignored.
+	 * 
+	 * @param asyncProxy
+	 *            the asynchronous proxy
+	 * @since 6.0
+	 */
+	public void disposeAsyncProxy(final Object asyncProxy) {
+		if (asyncProxy == null || !Proxy.isProxyClass(asyncProxy.getClass())) {
+			return;
+		}
+		final InvocationHandler handler = Proxy.getInvocationHandler(asyncProxy);
+		if (handler instanceof AsyncCallProxy) {
+			((AsyncCallProxy) handler).dispose();
+		}
+	}
+
 	private RemoteServiceDescription createDescription(final Class<?> interfaceClass, final String url,
 			final String protocol, final Bundle bundle) {
 		return new RemoteServiceDescription(interfaceClass, url, protocol, bundle);
@@ -240,6 +302,9 @@ public class RemoteServiceFactory {
 		final CallHooksProxy callHooksProxy = new CallHooksProxy(rsr.getServiceInstance());
 		callHooksProxy.setRemoteServiceDescription(rsd);
 		callHooksProxy.setMessageContextAccessor(factory.getMessageContextAccessor());
+		if (factory instanceof IRemoteCallBatchExecutor) {
+			callHooksProxy.setBatchExecutor((IRemoteCallBatchExecutor) factory);
+		}
 		final Object serviceProxy = Proxy.newProxyInstance(rsd.getServiceInterfaceClass().getClassLoader(),
 				new Class[] { rsd.getServiceInterfaceClass() }, callHooksProxy);
 		rsr.setServiceInstance(createInterceptorChain(rsd.getServiceInterfaceClass(), serviceProxy));
@@ -31,6 +31,7 @@ public class CallContext {
 
 	private final RemoteServiceDescription rsd;
 	private final String methodName;
+	private final Method method;
 	private HashMap<String, String> properties;
 	private final ICallMessageContext messageContext;
 	private boolean hasRemoteFailure;
@@ -39,6 +40,20 @@ public class CallContext {
 			final ICallMessageContext messageContext) {
 		this.rsd = rsd;
 		this.methodName = methodName;
+		this.method = null;
+		this.messageContext = messageContext;
+	}
+
+	/**
+	 * Create the context of a call of the given method.
+	 * 
+	 * @since 6.0
+	 */
+	public CallContext(final RemoteServiceDescription rsd, final Method method,
+			final ICallMessageContext messageContext) {
+		this.rsd = rsd;
+		this.methodName = method.getName();
+		this.method = method;
 		this.messageContext = messageContext;
 	}
 
@@ -74,10 +89,14 @@ public class CallContext {
 	 * 
 	 * @return
 	 * @throws UnsupportedOperationException
-	 *             if more than one method with the method name are found. That
-	 *             is currently not supported.
+	 *             if the called method is not known and more than one method
+	 *             with the method name are found. That is currently not
+	 *             supported.
 	 */
 	public Method getMethod() {
+		if (method != null) {
+			return method;
+		}
 		final Class<?> interf = getInterfaceClass();
 		final Method[] methods = interf.getMethods();
 		Method foundMethod = null;
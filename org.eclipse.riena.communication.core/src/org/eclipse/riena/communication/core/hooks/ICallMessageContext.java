@@ -91,6 +91,20 @@ public interface ICallMessageContext {
 	 */
 	void fireWriteEvent(int bytesSent);
 
+	/**
+	 * @return the number of bytes written to the server so far in this remote
+	 *         service call
+	 * @since 6.0
+	 */
+	int getBytesWritten();
+
+	/**
+	 * @return the number of bytes read from the server so far in this remote
+	 *         service call
+	 * @since 6.0
+	 */
+	int getBytesRead();
+
 	/**
 	 * @return methodName of the current remote service call
 	 */
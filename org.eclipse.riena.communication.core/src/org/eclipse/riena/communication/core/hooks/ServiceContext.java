@@ -28,16 +28,22 @@ import org.eclipse.riena.communication.core.RemoteServiceDescription;
  * registered in the beforeService and afterService method. ServiceHooks can
  * store their own information with setProperty and read it with getProperty
  * between beforeService and afterService if required.
- * 
+ * <p>
+ * The request headers read through this context are read once and shared by
+ * all ServiceHooks of the call. Cookies can be looked up by name without
+ * creating {@code Cookie} objects for all of them.
  */
 public class ServiceContext {
 
+	private static final String COOKIE = "Cookie"; //$NON-NLS-1$
+
 	private final RemoteServiceDescription rsd;
 	private final Method method;
 	private final Object service;
 	private final IServiceMessageContext messageContext;
 	private Throwable targetException;
 	private HashMap<String, Object> properties;
+	private HashMap<String, List<String>> requestHeaders;
 
 	public ServiceContext(final RemoteServiceDescription rsd, final Method method, final Object service,
 			final IServiceMessageContext messageContext) {
@@ -140,7 +146,7 @@ public class ServiceContext {
 	 * @return
 	 */
 	public Cookie[] getCookies() {
-		final List<String> cookieValues = messageContext.getRequestHeaderValue("Cookie"); //$NON-NLS-1$
+		final List<String> cookieValues = getRequestHeaderValues(COOKIE);
 		if (cookieValues == null || cookieValues.size() == 0) {
 			return null;
 		}
@@ -151,6 +157,67 @@ public class ServiceContext {
 		return cookies.toArray(new Cookie[cookies.size()]);
 	}
 
+	/**
+	 * Returns the value of a cookie that was transferred as part of the remote
+	 * service call. Only the cookie headers are scanned, no {@code Cookie}
+	 * objects are created. If the cookie is sent more than once the last value
+	 * is returned (as the callers of {@link #getCookies()} did so far).
+	 * 
+	 * @param name
+	 *            the name of the cookie
+	 * @return the value or {@code null} if there is no such cookie
+	 * @since 6.0
+	 */
+	public String getCookieValue(final String name) {
+		final List<String> cookieHeaders = getRequestHeaderValues(COOKIE);
+		if (cookieHeaders == null) {
+			return null;
+		}
+		String value = null;
+		for (final String header : cookieHeaders) {
+			// a header may contain several cookies: name1=value1; name2=value2
+			int start = 0;
+			while (start < header.length()) {
+				int end = header.indexOf(';', start);
+				if (end == -1) {
+					end = header.length();
+				}
+				while (start < end && header.charAt(start) == ' ') {
+					start++;
+				}
+				if (end - start > name.length() && header.charAt(start + name.length()) == '='
+						&& header.startsWith(name, start)) {
+					value = header.substring(start + name.length() + 1, end);
+				}
+				start = end + 1;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the values of a request header. The header is read from the
+	 * {@code IServiceMessageContext} only once per call.
+	 * 
+	 * @param name
+	 *            the name of the header
+	 * @return the values or {@code null} if there is no message context
+	 * @since 6.0
+	 */
+	public List<String> getRequestHeaderValues(final String name) {
+		if (messageContext == null) {
+			return null;
+		}
+		if (requestHeaders == null) {
+			requestHeaders = new HashMap<String, List<String>>(4);
+		} else if (requestHeaders.containsKey(name)) {
+			return requestHeaders.get(name);
+		}
+		final List<String> values = messageContext.getRequestHeaderValue(name);
+		requestHeaders.put(name, values);
+		return values;
+	}
+
 	/**
 	 * Adds a new Set-Cookie on the service side, which is sent back to the
 	 * client when the remote service call returns
@@ -40,5 +40,13 @@ public final class RSDPublisherProperties {
 
 	public static final String PROP_INTERFACE = "riena.interface"; //$NON-NLS-1$
 
+	/**
+	 * Defines the optional asynchronous variant of the interface of a remote
+	 * service proxy (see {@code RemoteServiceFactory#createAsyncProxy})
+	 * 
+	 * @since 6.0
+	 */
+	public static final String PROP_ASYNC_INTERFACE = "riena.async.interface"; //$NON-NLS-1$
+
 	public static final String PROP_URL = "riena.url"; //$NON-NLS-1$
 }
@@ -12,11 +12,18 @@ package org.eclipse.riena.communication.core.zipsupport;
 
 class BufferEntry {
 
-	int BUFFERSIZE = 8192;
+	/**
+	 * System property with the size of the pooled stream buffers (default
+	 * 8192 bytes).
+	 */
+	static final String RIENA_COMMUNICATION_BUFFERSIZE_PROPERTY = "riena.communication.buffersize"; //$NON-NLS-1$
+
+	static final int BUFFERSIZE = Math.max(512, Integer.getInteger(RIENA_COMMUNICATION_BUFFERSIZE_PROPERTY, 8192));
+
 	byte[] buffer;
 
 	BufferEntry() {
 		super();
 		buffer = new byte[BUFFERSIZE];
 	}
-}
\ No newline at end of file
+}
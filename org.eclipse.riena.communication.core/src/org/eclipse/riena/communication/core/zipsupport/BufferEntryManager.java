@@ -10,22 +10,186 @@
  *******************************************************************************/
 package org.eclipse.riena.communication.core.zipsupport;
 
-import java.util.LinkedList;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+/**
+ * Pools stream buffers and the GZIP {@code Deflater}s and {@code Inflater}s
+ * per thread. Server and client threads usually run one remote call after the
+ * other, so the resources released by a call are picked up by the next call
+ * on the same thread without any locking.
+ * <p>
+ * Virtual threads (Java 21 and later) run a single call each, a pool per
+ * thread would never be reused. They share one bounded pool instead.
+ */
 class BufferEntryManager {
 
-	private static LinkedList<BufferEntry> cachedBuffers = new LinkedList<BufferEntry>();
+	/** maximum number of pooled instances of each kind per thread */
+	private static final int MAX_POOLED = 4;
+	/** maximum number of pooled instances of each kind shared by virtual threads */
+	private static final int MAX_SHARED = 64;
 
-	static synchronized BufferEntry getBuffer() {
-		if (cachedBuffers.size() == 0) {
-			return new BufferEntry();
-		} else {
-			return cachedBuffers.removeLast();
+	private static final ThreadLocal<Pool> POOLS = new ThreadLocal<Pool>() {
+		@Override
+		protected Pool initialValue() {
+			return new Pool(MAX_POOLED);
+		}
+	};
+	private static final Pool SHARED = new Pool(MAX_SHARED);
+	private static final Method IS_VIRTUAL = getIsVirtualMethod();
+
+	private static final AtomicLong CREATED_BUFFERS = new AtomicLong();
+	private static final AtomicLong CREATED_DEFLATERS = new AtomicLong();
+	private static final AtomicLong CREATED_INFLATERS = new AtomicLong();
+
+	static BufferEntry getBuffer() {
+		final BufferEntry entry = getPool().pollBuffer();
+		if (entry != null) {
+			return entry;
+		}
+		CREATED_BUFFERS.incrementAndGet();
+		return new BufferEntry();
+	}
+
+	static void putBuffer(final BufferEntry entry) {
+		getPool().offerBuffer(entry);
+	}
+
+	/**
+	 * @return a {@code Deflater} producing raw deflate data (GZIP framing is
+	 *         written by the caller)
+	 */
+	static Deflater getDeflater() {
+		return getDeflater(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param level
+	 *            the compression level (0-9 or
+	 *            {@code Deflater.DEFAULT_COMPRESSION})
+	 * @return a {@code Deflater} producing raw deflate data with the given
+	 *         compression level (GZIP framing is written by the caller)
+	 */
+	static Deflater getDeflater(final int level) {
+		final Deflater deflater = getPool().pollDeflater();
+		if (deflater == null) {
+			CREATED_DEFLATERS.incrementAndGet();
+			return new Deflater(level, true);
+		}
+		deflater.setLevel(level);
+		return deflater;
+	}
+
+	static void putDeflater(final Deflater deflater) {
+		deflater.reset();
+		if (!getPool().offerDeflater(deflater)) {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * @return an {@code Inflater} consuming raw deflate data (GZIP framing is
+	 *         read by the caller)
+	 */
+	static Inflater getInflater() {
+		final Inflater inflater = getPool().pollInflater();
+		if (inflater != null) {
+			return inflater;
+		}
+		CREATED_INFLATERS.incrementAndGet();
+		return new Inflater(true);
+	}
+
+	static void putInflater(final Inflater inflater) {
+		inflater.reset();
+		if (!getPool().offerInflater(inflater)) {
+			inflater.end();
+		}
+	}
+
+	static String getStatistic() {
+		return "Created buffers / deflaters / inflaters " + CREATED_BUFFERS.get() + " / " + CREATED_DEFLATERS.get() //$NON-NLS-1$ //$NON-NLS-2$
+				+ " / " + CREATED_INFLATERS.get(); //$NON-NLS-1$
+	}
+
+	private static Pool getPool() {
+		return isVirtual(Thread.currentThread()) ? SHARED : POOLS.get();
+	}
+
+	private static boolean isVirtual(final Thread thread) {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return Boolean.TRUE.equals(IS_VIRTUAL.invoke(thread));
+		} catch (final Exception e) {
+			return false;
 		}
 	}
 
-	synchronized static void putBuffer(final BufferEntry entry) {
-		cachedBuffers.addLast(entry);
+	/**
+	 * @return {@code Thread.isVirtual()} of a Java 21+ runtime or {@code null}
+	 */
+	private static Method getIsVirtualMethod() {
+		try {
+			return Thread.class.getMethod("isVirtual"); //$NON-NLS-1$
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A bounded pool. The locks are uncontended for the pools per thread.
+	 */
+	private static class Pool {
+		private final int capacity;
+		private final ArrayDeque<BufferEntry> buffers;
+		private final ArrayDeque<Deflater> deflaters;
+		private final ArrayDeque<Inflater> inflaters;
+
+		Pool(final int capacity) {
+			this.capacity = capacity;
+			buffers = new ArrayDeque<BufferEntry>(capacity);
+			deflaters = new ArrayDeque<Deflater>(capacity);
+			inflaters = new ArrayDeque<Inflater>(capacity);
+		}
+
+		synchronized BufferEntry pollBuffer() {
+			return buffers.pollLast();
+		}
+
+		synchronized void offerBuffer(final BufferEntry entry) {
+			if (buffers.size() < capacity) {
+				buffers.addLast(entry);
+			}
+		}
+
+		synchronized Deflater pollDeflater() {
+			return deflaters.pollLast();
+		}
+
+		synchronized boolean offerDeflater(final Deflater deflater) {
+			if (deflaters.size() < capacity) {
+				deflaters.addLast(deflater);
+				return true;
+			}
+			return false;
+		}
+
+		synchronized Inflater pollInflater() {
+			return inflaters.pollLast();
+		}
+
+		synchronized boolean offerInflater(final Inflater inflater) {
+			if (inflaters.size() < capacity) {
+				inflaters.addLast(inflater);
+				return true;
+			}
+			return false;
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the figures of the messages written by
+ * {@link ThresholdGZIPOutputStream}s: how many have been compressed or sent
+ * as they are, the compression ratio and the time spent compressing. All
+ * counters are atomic, one instance may be shared by concurrent streams.
+ */
+public class CompressionStatistics {
+
+	private final AtomicLong compressedMessages = new AtomicLong();
+	private final AtomicLong uncompressedMessages = new AtomicLong();
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+	private final AtomicLong rawBytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	private final AtomicLong compressionNanos = new AtomicLong();
+
+	/**
+	 * Record a message that has been sent without compression.
+	 *
+	 * @param size
+	 *            the size of the message
+	 */
+	public void recordUncompressed(final long size) {
+		uncompressedMessages.incrementAndGet();
+		uncompressedBytes.addAndGet(size);
+	}
+
+	/**
+	 * Record a compressed message.
+	 *
+	 * @param raw
+	 *            the size of the message before compression
+	 * @param compressed
+	 *            the size of the message after compression (including the
+	 *            GZIP framing)
+	 * @param nanos
+	 *            the time spent compressing
+	 */
+	public void recordCompressed(final long raw, final long compressed, final long nanos) {
+		compressedMessages.incrementAndGet();
+		rawBytes.addAndGet(raw);
+		compressedBytes.addAndGet(compressed);
+		compressionNanos.addAndGet(nanos);
+	}
+
+	public long getCompressedMessages() {
+		return compressedMessages.get();
+	}
+
+	public long getUncompressedMessages() {
+		return uncompressedMessages.get();
+	}
+
+	/**
+	 * @return the total size of the messages sent without compression
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+
+	/**
+	 * @return the total size of the compressed messages before compression
+	 */
+	public long getRawBytes() {
+		return rawBytes.get();
+	}
+
+	/**
+	 * @return the total size of the compressed messages after compression
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * @return the total time spent compressing in nanoseconds
+	 */
+	public long getCompressionNanos() {
+		return compressionNanos.get();
+	}
+
+	/**
+	 * @return the size of the compressed messages after compression divided
+	 *         by their size before compression; 1 if nothing has been
+	 *         compressed yet
+	 */
+	public double getCompressionRatio() {
+		final long raw = rawBytes.get();
+		return raw == 0 ? 1.0 : (double) compressedBytes.get() / raw;
+	}
+
+	public String getStatistic() {
+		return "Compressed / Uncompressed / Ratio / Compression ms " //$NON-NLS-1$
+				+ compressedMessages.get() + " / " + uncompressedMessages.get() + " / " //$NON-NLS-1$ //$NON-NLS-2$
+				+ Math.round(getCompressionRatio() * 1000) / 1000.0 + " / " + compressionNanos.get() / 1000000; //$NON-NLS-1$
+	}
+
+}
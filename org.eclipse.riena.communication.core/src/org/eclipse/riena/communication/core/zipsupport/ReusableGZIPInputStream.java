@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * A GZIP decompressing input stream which takes its {@code Inflater} and its
+ * buffer from a per thread pool and returns them as soon as the end of the
+ * compressed data is reached (or the stream is closed) instead of allocating
+ * new ones for every remote call (as {@code GZIPInputStream} does).
+ * <p>
+ * Only a single GZIP member is read, which is what
+ * {@link ReusableGZIPOutputStream} and {@code GZIPOutputStream} write.
+ */
+public class ReusableGZIPInputStream extends InflaterInputStream {
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final CRC32 crc = new CRC32();
+	private BufferEntry entry;
+
+	public ReusableGZIPInputStream(final InputStream in) throws IOException {
+		super(in, BufferEntryManager.getInflater(), 1);
+		entry = BufferEntryManager.getBuffer();
+		this.buf = entry.buffer;
+		try {
+			readHeader();
+		} catch (final IOException e) {
+			release();
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (entry == null) {
+			// end of stream reached or closed
+			return -1;
+		}
+		final int n = super.read(b, off, len);
+		if (n == -1) {
+			try {
+				readTrailer();
+			} finally {
+				release();
+			}
+		} else {
+			crc.update(b, off, n);
+		}
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return entry == null ? 0 : super.available();
+	}
+
+	/**
+	 * Closes the underlying stream and returns the {@code Inflater} and the
+	 * buffer to the pool (if not already done).
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			in.close();
+		} finally {
+			release();
+		}
+	}
+
+	private void release() {
+		if (entry == null) {
+			return;
+		}
+		BufferEntryManager.putInflater(inf);
+		this.buf = null;
+		BufferEntryManager.putBuffer(entry);
+		entry = null;
+	}
+
+	private void readHeader() throws IOException {
+		if (readUShort(in) != GZIPInputStream.GZIP_MAGIC) {
+			throw new ZipException("Not in GZIP format"); //$NON-NLS-1$
+		}
+		if (readUByte(in) != Deflater.DEFLATED) {
+			throw new ZipException("Unsupported compression method"); //$NON-NLS-1$
+		}
+		final int flags = readUByte(in);
+		// modification time, extra flags and OS type
+		skipBytes(6);
+		if ((flags & FEXTRA) == FEXTRA) {
+			skipBytes(readUShort(in));
+		}
+		if ((flags & FNAME) == FNAME) {
+			while (readUByte(in) != 0) {
+				continue;
+			}
+		}
+		if ((flags & FCOMMENT) == FCOMMENT) {
+			while (readUByte(in) != 0) {
+				continue;
+			}
+		}
+		if ((flags & FHCRC) == FHCRC) {
+			skipBytes(2);
+		}
+	}
+
+	private void readTrailer() throws IOException {
+		// the trailer may already be (partially) in the inflater's input buffer
+		final int remaining = inf.getRemaining();
+		int offset = len - remaining;
+		final byte[] trailer = new byte[8];
+		int count = 0;
+		while (count < trailer.length && offset < len) {
+			trailer[count++] = buf[offset++];
+		}
+		while (count < trailer.length) {
+			final int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Unexpected end of GZIP trailer"); //$NON-NLS-1$
+			}
+			trailer[count++] = (byte) b;
+		}
+		if (getInt(trailer, 0) != crc.getValue() || getInt(trailer, 4) != (inf.getBytesWritten() & 0xffffffffL)) {
+			throw new ZipException("Corrupt GZIP trailer"); //$NON-NLS-1$
+		}
+	}
+
+	private static long getInt(final byte[] b, final int off) {
+		return ((b[off] & 0xffL) | ((b[off + 1] & 0xffL) << 8) | ((b[off + 2] & 0xffL) << 16) | ((b[off + 3] & 0xffL) << 24));
+	}
+
+	private int readUShort(final InputStream is) throws IOException {
+		final int b = readUByte(is);
+		return (readUByte(is) << 8) | b;
+	}
+
+	private int readUByte(final InputStream is) throws IOException {
+		final int b = is.read();
+		if (b == -1) {
+			throw new EOFException("Unexpected end of GZIP header"); //$NON-NLS-1$
+		}
+		return b;
+	}
+
+	private void skipBytes(final int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			readUByte(in);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A GZIP compressing output stream which takes its {@code Deflater} and its
+ * buffer from a per thread pool and returns them as soon as the stream is
+ * finished instead of allocating new ones for every remote call (as
+ * {@code GZIPOutputStream} does).
+ */
+public class ReusableGZIPOutputStream extends DeflaterOutputStream {
+
+	private static final byte[] HEADER = { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	private final CRC32 crc = new CRC32();
+	private BufferEntry entry;
+
+	public ReusableGZIPOutputStream(final OutputStream out) throws IOException {
+		this(out, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out
+	 *            the underlying stream
+	 * @param level
+	 *            the compression level (0-9 or
+	 *            {@code Deflater.DEFAULT_COMPRESSION})
+	 * @throws IOException
+	 */
+	public ReusableGZIPOutputStream(final OutputStream out, final int level) throws IOException {
+		super(out, BufferEntryManager.getDeflater(level), 1);
+		entry = BufferEntryManager.getBuffer();
+		this.buf = entry.buffer;
+		out.write(HEADER);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (entry == null) {
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+		super.write(b, off, len);
+		crc.update(b, off, len);
+	}
+
+	/**
+	 * Finishes writing compressed data and writes the GZIP trailer without
+	 * closing the underlying stream. The {@code Deflater} and the buffer are
+	 * returned to the pool, nothing can be written afterwards.
+	 */
+	@Override
+	public void finish() throws IOException {
+		if (entry == null) {
+			return;
+		}
+		try {
+			super.finish();
+			writeInt((int) crc.getValue());
+			writeInt((int) def.getBytesRead());
+		} finally {
+			BufferEntryManager.putDeflater(def);
+			this.buf = null;
+			BufferEntryManager.putBuffer(entry);
+			entry = null;
+		}
+	}
+
+	/**
+	 * Finishes the GZIP stream and closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeInt(final int value) throws IOException {
+		// GZIP uses little endian byte order
+		out.write(value & 0xff);
+		out.write((value >> 8) & 0xff);
+		out.write((value >> 16) & 0xff);
+		out.write((value >> 24) & 0xff);
+	}
+
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that only compresses messages larger than a threshold.
+ * <p>
+ * The first bytes are held back in a pooled buffer. If the message ends
+ * before the threshold is exceeded it is written as it is, otherwise the
+ * stream switches to a {@link ReusableGZIPOutputStream} and streams the rest
+ * of the message compressed. The receiver tells both cases apart by the GZIP
+ * magic (as {@code GZippingHttpURLConnectionWrapper} and the hessian
+ * dispatcher servlet already do).
+ * <p>
+ * Subclasses may override {@link #beforeCompression()}, e.g. to set a content
+ * encoding header while the response is not yet committed.
+ */
+public class ThresholdGZIPOutputStream extends OutputStream {
+
+	private final CountingOutputStream out;
+	private final int threshold;
+	private final int level;
+	private final CompressionStatistics statistics;
+	private final byte[] single = new byte[1];
+	private BufferEntry pending;
+	private int count;
+	private ReusableGZIPOutputStream gzip;
+	private long rawBytes;
+	private long nanos;
+	private boolean finished;
+
+	/**
+	 * @param out
+	 *            the underlying stream
+	 * @param threshold
+	 *            messages up to this size are not compressed (capped at the
+	 *            size of the pooled buffers, see
+	 *            {@code riena.communication.buffersize})
+	 * @param level
+	 *            the compression level (0-9 or
+	 *            {@code Deflater.DEFAULT_COMPRESSION})
+	 * @param statistics
+	 *            the statistics to update when the message is finished; may
+	 *            be {@code null}
+	 */
+	public ThresholdGZIPOutputStream(final OutputStream out, final int threshold, final int level,
+			final CompressionStatistics statistics) {
+		this.out = new CountingOutputStream(out);
+		this.threshold = Math.min(Math.max(0, threshold), BufferEntry.BUFFERSIZE);
+		this.level = level;
+		this.statistics = statistics;
+		this.pending = BufferEntryManager.getBuffer();
+	}
+
+	/**
+	 * Called once, right before the first compressed byte is written.
+	 *
+	 * @throws IOException
+	 */
+	protected void beforeCompression() throws IOException {
+	}
+
+	/**
+	 * @return {@code true} if the message is (being) compressed
+	 */
+	public boolean isCompressed() {
+		return gzip != null;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (finished) {
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+		if (gzip == null) {
+			if (count + len <= threshold) {
+				System.arraycopy(b, off, pending.buffer, count, len);
+				count += len;
+				return;
+			}
+			startCompression();
+		}
+		final long start = System.nanoTime();
+		gzip.write(b, off, len);
+		nanos += System.nanoTime() - start;
+		rawBytes += len;
+	}
+
+	/**
+	 * Flushes the compressed data written so far. Data held back below the
+	 * threshold is not flushed, it is only written when the decision whether
+	 * to compress has been made.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (gzip != null) {
+			gzip.flush();
+		}
+	}
+
+	/**
+	 * Writes the message (compressed or not) without closing the underlying
+	 * stream and updates the statistics. Nothing can be written afterwards.
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			if (gzip == null) {
+				out.write(pending.buffer, 0, count);
+				if (statistics != null) {
+					statistics.recordUncompressed(count);
+				}
+			} else {
+				final long start = System.nanoTime();
+				gzip.finish();
+				nanos += System.nanoTime() - start;
+				if (statistics != null) {
+					statistics.recordCompressed(rawBytes, out.count, nanos);
+				}
+			}
+		} finally {
+			releasePending();
+		}
+	}
+
+	/**
+	 * Finishes the message and closes the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void startCompression() throws IOException {
+		beforeCompression();
+		final long start = System.nanoTime();
+		gzip = new ReusableGZIPOutputStream(out, level);
+		gzip.write(pending.buffer, 0, count);
+		nanos += System.nanoTime() - start;
+		rawBytes = count;
+		releasePending();
+	}
+
+	private void releasePending() {
+		if (pending != null) {
+			BufferEntryManager.putBuffer(pending);
+			pending = null;
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.core.factory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.async.ICallContextPropagator;
+import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.core.wire.WirePuller;
+
+/**
+ * The invocation handler of an asynchronous remote service proxy. Every method
+ * of the asynchronous interface returns a {@link Future} and is mapped to the
+ * method of the (synchronous) service interface with the same name and
+ * parameter types. The call of the synchronous proxy - including its call
+ * hooks and interceptors - is executed on a shared, bounded thread pool.
+ */
+public class AsyncCallProxy implements InvocationHandler {
+
+	/**
+	 * System property with the number of threads executing asynchronous
+	 * remote calls (default 8).
+	 */
+	public static final String RIENA_ASYNC_THREADS_PROPERTY = "riena.communication.async.threads"; //$NON-NLS-1$
+	/**
+	 * System property with the number of asynchronous remote calls that may
+	 * wait for a thread (default 256). Further calls are rejected with a
+	 * {@link RemoteFailure}.
+	 */
+	public static final String RIENA_ASYNC_QUEUE_SIZE_PROPERTY = "riena.communication.async.queuesize"; //$NON-NLS-1$
+
+	private final Class<?> asyncInterface;
+	private final Object service;
+	private final Map<Method, Method> syncMethods;
+	private final List<ICallContextPropagator> propagators = new CopyOnWriteArrayList<ICallContextPropagator>();
+	private WirePuller wirePuller;
+
+	/**
+	 * @param asyncInterface
+	 *            the asynchronous interface
+	 * @param serviceInterface
+	 *            the synchronous service interface
+	 * @param service
+	 *            the synchronous service (proxy)
+	 * @throws RemoteFailure
+	 *             if a method of the asynchronous interface does not return a
+	 *             {@code Future} or has no counterpart in the service
+	 *             interface
+	 */
+	public AsyncCallProxy(final Class<?> asyncInterface, final Class<?> serviceInterface, final Object service) {
+		this.asyncInterface = asyncInterface;
+		this.service = service;
+		this.syncMethods = mapMethods(asyncInterface, serviceInterface);
+	}
+
+	/**
+	 * Create the asynchronous proxy.
+	 *
+	 * @return the proxy implementing the asynchronous interface
+	 */
+	public Object createProxy() {
+		return Proxy.newProxyInstance(asyncInterface.getClassLoader(), new Class[] { asyncInterface }, this);
+	}
+
+	/**
+	 * Remember the wiring of this proxy so that it can be stopped by
+	 * {@link #dispose()}.
+	 * 
+	 * @param wirePuller
+	 *            the started wiring
+	 */
+	public synchronized void setWirePuller(final WirePuller wirePuller) {
+		this.wirePuller = wirePuller;
+	}
+
+	/**
+	 * Stop the wiring of this proxy. The proxy remains usable but does no
+	 * longer propagate any call context.
+	 */
+	public synchronized void dispose() {
+		if (wirePuller != null) {
+			wirePuller.stop();
+			wirePuller = null;
+		}
+	}
+
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return invokeObjectMethod(proxy, method, args);
+		}
+		final Method syncMethod = syncMethods.get(method);
+		final Object[] captured = new Object[propagators.size()];
+		final ICallContextPropagator[] callPropagators = propagators.toArray(new ICallContextPropagator[captured.length]);
+		for (int i = 0; i < callPropagators.length; i++) {
+			captured[i] = callPropagators[i].capture();
+		}
+		try {
+			return Executor.INSTANCE.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					final Object[] previous = new Object[callPropagators.length];
+					for (int i = 0; i < callPropagators.length; i++) {
+						previous[i] = callPropagators[i].attach(captured[i]);
+					}
+					try {
+						return syncMethod.invoke(service, args);
+					} catch (final InvocationTargetException e) {
+						if (e.getTargetException() instanceof Exception) {
+							throw (Exception) e.getTargetException();
+						}
+						throw (Error) e.getTargetException();
+					} finally {
+						for (int i = callPropagators.length - 1; i >= 0; i--) {
+							callPropagators[i].detach(previous[i]);
+						}
+					}
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			throw new RemoteFailure("Too many pending asynchronous remote calls for " + asyncInterface.getName(), e); //$NON-NLS-1$
+		}
+	}
+
+	@InjectService
+	public void bind(final ICallContextPropagator propagator) {
+		propagators.add(propagator);
+	}
+
+	public void unbind(final ICallContextPropagator propagator) {
+		propagators.remove(propagator);
+	}
+
+	private Object invokeObjectMethod(final Object proxy, final Method method, final Object[] args) {
+		if (method.getName().equals("equals")) { //$NON-NLS-1$
+			return proxy == args[0];
+		}
+		if (method.getName().equals("hashCode")) { //$NON-NLS-1$
+			return System.identityHashCode(proxy);
+		}
+		return "AsyncProxy[" + asyncInterface.getName() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static Map<Method, Method> mapMethods(final Class<?> asyncInterface, final Class<?> serviceInterface) {
+		final Map<Method, Method> methods = new HashMap<Method, Method>();
+		for (final Method method : asyncInterface.getMethods()) {
+			if (!Future.class.isAssignableFrom(method.getReturnType())) {
+				throw new RemoteFailure("The method " + method + " of the asynchronous interface " //$NON-NLS-1$ //$NON-NLS-2$
+						+ asyncInterface.getName() + " must return a " + Future.class.getName()); //$NON-NLS-1$
+			}
+			try {
+				methods.put(method, serviceInterface.getMethod(method.getName(), method.getParameterTypes()));
+			} catch (final NoSuchMethodException e) {
+				throw new RemoteFailure("The method " + method + " of the asynchronous interface " //$NON-NLS-1$ //$NON-NLS-2$
+						+ asyncInterface.getName() + " has no counterpart in " + serviceInterface.getName(), e); //$NON-NLS-1$
+			}
+		}
+		return methods;
+	}
+
+	/**
+	 * The thread pool shared by all asynchronous proxies, created on first
+	 * use.
+	 */
+	private static final class Executor {
+
+		private static final ExecutorService INSTANCE = create();
+
+		private static ExecutorService create() {
+			final int threads = Math.max(1, Integer.getInteger(RIENA_ASYNC_THREADS_PROPERTY, 8));
+			final int queueSize = Math.max(1, Integer.getInteger(RIENA_ASYNC_QUEUE_SIZE_PROPERTY, 256));
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+						private final AtomicInteger count = new AtomicInteger();
+
+						public Thread newThread(final Runnable runnable) {
+							final Thread thread = new Thread(runnable,
+									"Riena-AsyncRemoteCall-" + count.incrementAndGet()); //$NON-NLS-1$
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+}
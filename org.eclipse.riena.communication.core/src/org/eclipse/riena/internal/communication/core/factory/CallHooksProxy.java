@@ -12,7 +12,9 @@ package org.eclipse.riena.internal.communication.core.factory;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import javax.security.auth.Subject;
 
@@ -23,6 +25,9 @@ import org.eclipse.equinox.log.Logger;
 
 import org.eclipse.riena.communication.core.RemoteFailure;
 import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.IRemoteCallBatchExecutor;
+import org.eclipse.riena.communication.core.batch.RemoteCall;
+import org.eclipse.riena.communication.core.batch.RemoteServiceBatch;
 import org.eclipse.riena.communication.core.hooks.AbstractHooksProxy;
 import org.eclipse.riena.communication.core.hooks.CallContext;
 import org.eclipse.riena.communication.core.hooks.ICallHook;
@@ -33,11 +38,12 @@ import org.eclipse.riena.core.wire.InjectService;
 import org.eclipse.riena.core.wire.Wire;
 import org.eclipse.riena.internal.communication.core.Activator;
 
-public class CallHooksProxy extends AbstractHooksProxy {
+public class CallHooksProxy extends AbstractHooksProxy implements IRemoteCallBatchExecutor {
 
-	private final HashSet<ICallHook> callHooks = new HashSet<ICallHook>();
+	private final Set<ICallHook> callHooks = new CopyOnWriteArraySet<ICallHook>();
 	private RemoteServiceDescription rsd;
 	private ICallMessageContextAccessor mca;
+	private IRemoteCallBatchExecutor batchExecutor;
 	private final static Logger LOGGER = Log4r.getLogger(Activator.getDefault(), CallHooksProxy.class);
 
 	public CallHooksProxy(final Object proxiedInstance) {
@@ -47,12 +53,70 @@ public class CallHooksProxy extends AbstractHooksProxy {
 
 	@Override
 	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		final RemoteServiceBatch batch = RemoteServiceBatch.current();
+		if (batch == null || method.getDeclaringClass() == Object.class) {
+			return invokeRemote(proxy, method, args);
+		}
+		if (batchExecutor != null) {
+			// only record the call, it will be sent with the batch
+			final RemoteCall call = new RemoteCall(rsd, method, args, this);
+			batch.add(call);
+			return call.getPlaceholderResult();
+		}
+		// the protocol does not support batches, execute the call immediately
+		final RemoteCall call = new RemoteCall(rsd, method, args, null);
+		batch.add(call);
+		try {
+			final Object result = invokeRemote(proxy, method, args);
+			call.setResult(result);
+			return result;
+		} catch (final Throwable t) {
+			call.setFailure(t);
+			throw t;
+		}
+	}
+
+	/**
+	 * Execute the recorded calls of a {@link RemoteServiceBatch} with the
+	 * protocol specific batch executor. The call hooks see the batch as one
+	 * call of the method {@link RemoteServiceBatch#METHOD_NAME}.
+	 */
+	public void execute(final List<RemoteCall> calls) throws Exception {
+		ICallMessageContext mc = null;
+		if (mca != null) {
+			mc = mca.createMessageContext(getProxiedInstance(), RemoteServiceBatch.METHOD_NAME, null);
+		}
+
+		final CallContext context = new CallContext(rsd, RemoteServiceBatch.METHOD_NAME, mc);
+		for (final ICallHook callHook : callHooks) {
+			callHook.beforeCall(context);
+		}
+
+		final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(rsd.getServiceClassLoader());
+		try {
+			batchExecutor.execute(calls);
+		} catch (final Exception e) {
+			context.setRemoteFailure(true);
+			throw e;
+		} finally {
+			Thread.currentThread().setContextClassLoader(oldClassLoader);
+			if (mc != null) {
+				mc.fireEndCall();
+			}
+			for (final ICallHook callHook : callHooks) {
+				callHook.afterCall(context);
+			}
+		}
+	}
+
+	private Object invokeRemote(final Object proxy, final Method method, final Object[] args) throws Throwable {
 		ICallMessageContext mc = null;
 		if (mca != null) {
 			mc = mca.createMessageContext(getProxiedInstance(), method.getName(), null);
 		}
 
-		final CallContext context = new CallContext(rsd, method.getName(), mc);
+		final CallContext context = new CallContext(rsd, method, mc);
 		if (callHooks.size() > 0) {
 			// call before service hook
 			for (final ICallHook callHook : callHooks) {
@@ -126,6 +190,15 @@ public class CallHooksProxy extends AbstractHooksProxy {
 		this.mca = mca;
 	}
 
+	/**
+	 * @param batchExecutor
+	 *            the protocol specific executor for batched calls;
+	 *            {@code null} if the protocol does not support batches
+	 */
+	public void setBatchExecutor(final IRemoteCallBatchExecutor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
 	@Override
 	public Subject getSubject() {
 		return null;
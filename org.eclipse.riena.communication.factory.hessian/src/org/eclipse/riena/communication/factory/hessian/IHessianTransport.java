@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.factory.hessian;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * The transport used by the Hessian remote service proxies to talk to the
+ * server. It provides the connection for each remote call and gets it back
+ * when the call is done, so that an implementation can pool and reuse the
+ * underlying sockets.
+ * <p>
+ * A transport can be contributed with the {@code transport} attribute of the
+ * extension point
+ * {@code org.eclipse.riena.communication.factory.hessian.configuration}.
+ * <p>
+ * Implementations must be thread safe.
+ */
+public interface IHessianTransport {
+
+	/**
+	 * Open the connection for one remote call. The connection is configured
+	 * (headers, timeouts, ...) by the caller.
+	 *
+	 * @param url
+	 *            the url of the remote service (including the query of the
+	 *            call)
+	 * @return the connection
+	 * @throws IOException
+	 *             if the connection could not be opened
+	 */
+	URLConnection openConnection(URL url) throws IOException;
+
+	/**
+	 * Release the connection of a remote call. This is called exactly once for
+	 * each connection returned by {@link #openConnection(URL)}, after the
+	 * streams of the call have been closed.
+	 *
+	 * @param connection
+	 *            the connection of the call
+	 * @param reusable
+	 *            {@code true} if the reply has been read completely so that the
+	 *            connection may be kept alive for further calls;
+	 *            {@code false} if the call failed and the connection should be
+	 *            dropped
+	 */
+	void releaseConnection(URLConnection connection, boolean reusable);
+
+}
@@ -20,9 +20,10 @@ import java.security.Permission;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.riena.communication.core.zipsupport.ReusableBufferedInputStream;
+import org.eclipse.riena.communication.core.zipsupport.ReusableGZIPInputStream;
+import org.eclipse.riena.communication.core.zipsupport.ReusableGZIPOutputStream;
 
 /**
  * Simply wraps a {@code HttpURLConnection} for the only purpose to gzip the
@@ -31,7 +32,7 @@ import org.eclipse.riena.communication.core.zipsupport.ReusableBufferedInputStre
 public class GZippingHttpURLConnectionWrapper extends HttpURLConnection {
 
 	private final HttpURLConnection connection;
-	private GZIPOutputStream myGZIPOutputStream;
+	private ReusableGZIPOutputStream myGZIPOutputStream;
 
 	public GZippingHttpURLConnectionWrapper(final HttpURLConnection connection) {
 		super(null);
@@ -213,7 +214,7 @@ public class GZippingHttpURLConnectionWrapper extends HttpURLConnection {
 			final int readMAGIC = zipTestInputStream.read() + zipTestInputStream.read() * 256;
 			zipTestInputStream.reset();
 			if (readMAGIC == GZIPInputStream.GZIP_MAGIC) {
-				return new GZIPInputStream(zipTestInputStream);
+				return new ReusableGZIPInputStream(zipTestInputStream);
 			}
 		}
 		return zipTestInputStream;
@@ -221,14 +222,21 @@ public class GZippingHttpURLConnectionWrapper extends HttpURLConnection {
 
 	@Override
 	public OutputStream getOutputStream() throws IOException {
-		myGZIPOutputStream = new GZIPOutputStream(connection.getOutputStream());
+		myGZIPOutputStream = new ReusableGZIPOutputStream(connection.getOutputStream());
 		return myGZIPOutputStream;
 	}
 
-	public GZIPOutputStream getUsedGZIPOutputStream() {
+	public ReusableGZIPOutputStream getUsedGZIPOutputStream() {
 		return myGZIPOutputStream;
 	}
 
+	/**
+	 * @return the wrapped connection
+	 */
+	HttpURLConnection getWrappedConnection() {
+		return connection;
+	}
+
 	@Override
 	public String toString() {
 		return connection.toString();
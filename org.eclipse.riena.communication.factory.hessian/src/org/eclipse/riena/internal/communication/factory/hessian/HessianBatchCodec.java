@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.List;
+
+import com.caucho.hessian.io.AbstractHessianInput;
+import com.caucho.hessian.io.AbstractHessianOutput;
+import com.caucho.services.server.AbstractSkeleton;
+
+import org.eclipse.riena.communication.core.batch.RemoteCall;
+import org.eclipse.riena.communication.core.batch.RemoteServiceBatch;
+
+/**
+ * Client side encoding of a {@link RemoteServiceBatch} in Hessian.
+ * <p>
+ * The batch is one Hessian call of the method
+ * {@link RemoteServiceBatch#METHOD_NAME}, marked with the http header
+ * {@value #BATCH_HEADER}. Its arguments are the number of calls followed by
+ * service path, method name, number of arguments and the arguments of each
+ * call. The reply contains the number of calls followed by a success flag and
+ * the result (or the exception) of each call.
+ */
+public final class HessianBatchCodec {
+
+	/**
+	 * The http header that marks a batch request.
+	 */
+	public static final String BATCH_HEADER = "X-Riena-Batch"; //$NON-NLS-1$
+
+	private HessianBatchCodec() {
+		// utility
+	}
+
+	/**
+	 * Write the batch request.
+	 *
+	 * @param out
+	 *            the Hessian output
+	 * @param calls
+	 *            the calls of the batch
+	 * @param overloadEnabled
+	 *            whether method names are mangled
+	 * @throws IOException
+	 */
+	public static void writeRequest(final AbstractHessianOutput out, final List<RemoteCall> calls,
+			final boolean overloadEnabled) throws IOException {
+		out.startCall(RemoteServiceBatch.METHOD_NAME);
+		out.writeInt(calls.size());
+		for (final RemoteCall call : calls) {
+			final Method method = call.getMethod();
+			out.writeString(new URL(RemoteServiceFactoryHessian.getURL(call.getServiceDescription())).getPath());
+			if (overloadEnabled && method.getParameterTypes().length > 0) {
+				out.writeString(AbstractSkeleton.mangleName(method, false));
+			} else {
+				out.writeString(method.getName());
+			}
+			out.writeInt(call.getArgs().length);
+			for (final Object arg : call.getArgs()) {
+				out.writeObject(arg);
+			}
+		}
+		out.completeCall();
+	}
+
+	/**
+	 * Read the batch reply and set the result or failure of each call.
+	 * Results are deserialized with the class loader of their service.
+	 *
+	 * @param in
+	 *            the Hessian input
+	 * @param calls
+	 *            the calls of the batch
+	 * @throws Throwable
+	 *             if the reply is a fault or can not be read
+	 */
+	public static void readReply(final AbstractHessianInput in, final List<RemoteCall> calls) throws Throwable {
+		in.startReply();
+		final int count = in.readInt();
+		if (count != calls.size()) {
+			throw new IOException("Expected " + calls.size() + " results in the batch reply but got " + count); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			for (final RemoteCall call : calls) {
+				Thread.currentThread().setContextClassLoader(call.getServiceDescription().getServiceClassLoader());
+				if (in.readBoolean()) {
+					call.setResult(in.readObject(call.getMethod().getReturnType()));
+				} else {
+					call.setFailure((Throwable) in.readObject());
+				}
+			}
+		} finally {
+			Thread.currentThread().setContextClassLoader(oldClassLoader);
+		}
+		in.completeReply();
+	}
+
+}
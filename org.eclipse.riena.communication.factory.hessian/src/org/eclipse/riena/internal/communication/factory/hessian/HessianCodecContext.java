@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.caucho.hessian.io.AbstractHessianInput;
+import com.caucho.hessian.io.AbstractHessianOutput;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.SerializerFactory;
+
+/**
+ * Holds one {@code Hessian2Input} and one {@code Hessian2Output} per thread so
+ * that consecutive remote calls on the same (worker) thread reuse the codec
+ * objects and their buffers instead of allocating new ones.
+ * <p>
+ * A caller acquires the input and the output for the duration of one call and
+ * must {@link #release release} them when the call is done. If the pooled
+ * instance is still in use (e.g. by a nested call on the same thread or by a
+ * call that failed before releasing it) a new instance takes its place.
+ * <p>
+ * The buffer sizes can be configured with the system properties
+ * {@value #RIENA_HESSIAN_OUTPUT_BUFFERSIZE_PROPERTY} and
+ * {@value #RIENA_HESSIAN_INPUT_BUFFERSIZE_PROPERTY}.
+ */
+public final class HessianCodecContext {
+
+	/**
+	 * System property with the size of the Hessian output buffer (1024 to
+	 * 32768 bytes, default 1024).
+	 */
+	public static final String RIENA_HESSIAN_OUTPUT_BUFFERSIZE_PROPERTY = "riena.hessian.output.buffersize"; //$NON-NLS-1$
+	/**
+	 * System property with the size of the Hessian input buffer (at least 256
+	 * bytes, default 256).
+	 */
+	public static final String RIENA_HESSIAN_INPUT_BUFFERSIZE_PROPERTY = "riena.hessian.input.buffersize"; //$NON-NLS-1$
+
+	private static final int OUTPUT_BUFFER_SIZE = Math.min(0x8000,
+			Math.max(1024, Integer.getInteger(RIENA_HESSIAN_OUTPUT_BUFFERSIZE_PROPERTY, 1024)));
+	private static final int INPUT_BUFFER_SIZE = Math.max(256,
+			Integer.getInteger(RIENA_HESSIAN_INPUT_BUFFERSIZE_PROPERTY, 256));
+
+	private static final ThreadLocal<HessianCodecContext> CONTEXTS = new ThreadLocal<HessianCodecContext>() {
+		@Override
+		protected HessianCodecContext initialValue() {
+			return new HessianCodecContext();
+		}
+	};
+
+	private Hessian2Input input;
+	private Hessian2Output output;
+	private boolean inputInUse;
+	private boolean outputInUse;
+
+	private HessianCodecContext() {
+		// per thread only
+	}
+
+	/**
+	 * @return the codec context of the current thread
+	 */
+	public static HessianCodecContext get() {
+		return CONTEXTS.get();
+	}
+
+	/**
+	 * Get a {@code Hessian2Input} reading from the given stream.
+	 *
+	 * @param is
+	 *            the underlying input stream
+	 * @param serializerFactory
+	 *            the serializer factory to use
+	 * @return the (reused) input
+	 */
+	public Hessian2Input getInput(final InputStream is, final SerializerFactory serializerFactory) {
+		if (input == null || inputInUse) {
+			input = new Hessian2Input(is, INPUT_BUFFER_SIZE);
+		} else {
+			input.init(is);
+		}
+		inputInUse = true;
+		input.setSerializerFactory(serializerFactory);
+		return input;
+	}
+
+	/**
+	 * Get a {@code Hessian2Output} writing into the given stream.
+	 *
+	 * @param os
+	 *            the underlying output stream
+	 * @param serializerFactory
+	 *            the serializer factory to use
+	 * @return the (reused) output
+	 */
+	public Hessian2Output getOutput(final OutputStream os, final SerializerFactory serializerFactory) {
+		if (output == null || outputInUse) {
+			output = new Hessian2Output(os, OUTPUT_BUFFER_SIZE);
+		} else {
+			output.init(os);
+		}
+		outputInUse = true;
+		output.setSerializerFactory(serializerFactory);
+		return output;
+	}
+
+	/**
+	 * Release the input and output acquired by the current call, so that the
+	 * next call on this thread can reuse them.
+	 *
+	 * @param in
+	 *            the input returned by {@link #getInput}, may be {@code null}
+	 * @param out
+	 *            the output returned by {@link #getOutput}, may be
+	 *            {@code null}
+	 */
+	public void release(final AbstractHessianInput in, final AbstractHessianOutput out) {
+		if (in != null && in == input) {
+			inputInUse = false;
+		}
+		if (out != null && out == output) {
+			outputInUse = false;
+		}
+	}
+
+	/**
+	 * @return the configured size of the Hessian output buffer
+	 */
+	public static int getOutputBufferSize() {
+		return OUTPUT_BUFFER_SIZE;
+	}
+
+	/**
+	 * @return the configured size of the Hessian input buffer
+	 */
+	public static int getInputBufferSize() {
+		return INPUT_BUFFER_SIZE;
+	}
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.riena.internal.communication.factory.hessian;
 
+import org.eclipse.riena.communication.factory.hessian.IHessianTransport;
 import org.eclipse.riena.core.injector.extension.DefaultValue;
 import org.eclipse.riena.core.injector.extension.ExtensionInterface;
 
@@ -28,4 +29,12 @@ public interface IRemoteServiceFactoryHessianExtension {
 	@DefaultValue("0")
 	int getConnectTimeout();
 
+	/**
+	 * Create the transport for the remote calls.
+	 * 
+	 * @return the transport or {@code null} if the default transport should be
+	 *         used
+	 */
+	IHessianTransport createTransport();
+
 }
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.communication.factory.hessian.IHessianTransport;
+import org.eclipse.riena.core.Log4r;
+
+/**
+ * Default {@link IHessianTransport}. It keeps the connections of successful
+ * calls alive, i.e. the sockets go back into the keep-alive cache of the JDK
+ * instead of being closed after each call, and it optionally caps the number
+ * of concurrent connections per host.
+ * <p>
+ * The cap is configured with the system property
+ * {@value #RIENA_MAX_CONNECTIONS_PER_HOST_PROPERTY}; by default there is none.
+ * With a cap, a call that does not get a connection within
+ * {@value #RIENA_CONNECTION_WAIT_PROPERTY} milliseconds (default 0, i.e. no
+ * waiting) fails with an {@code IOException}. The number of idle connections
+ * kept alive per host is controlled by the JDK system property
+ * {@code http.maxConnections}.
+ */
+public class PooledHessianTransport implements IHessianTransport {
+
+	/**
+	 * System property with the maximum number of concurrent connections per
+	 * host; 0 (the default) for no limit.
+	 */
+	public static final String RIENA_MAX_CONNECTIONS_PER_HOST_PROPERTY = "riena.communication.hessian.maxconnectionsperhost"; //$NON-NLS-1$
+	/**
+	 * System property with the time (in milliseconds) a call waits for a
+	 * connection if all connections to the host are in use.
+	 */
+	public static final String RIENA_CONNECTION_WAIT_PROPERTY = "riena.communication.hessian.connectionwait"; //$NON-NLS-1$
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), PooledHessianTransport.class);
+
+	private final int maxConnectionsPerHost;
+	private final long connectionWait;
+	private final ConcurrentMap<String, Semaphore> permitsPerHost = new ConcurrentHashMap<String, Semaphore>();
+	private final ConcurrentMap<URLConnection, Semaphore> leases = new ConcurrentHashMap<URLConnection, Semaphore>();
+
+	public PooledHessianTransport() {
+		this(Integer.getInteger(RIENA_MAX_CONNECTIONS_PER_HOST_PROPERTY, 0), Long.getLong(
+				RIENA_CONNECTION_WAIT_PROPERTY, 0));
+	}
+
+	/**
+	 * @param maxConnectionsPerHost
+	 *            the maximum number of concurrent connections per host; 0 for
+	 *            no limit
+	 * @param connectionWait
+	 *            the time (in milliseconds) to wait for a connection
+	 */
+	public PooledHessianTransport(final int maxConnectionsPerHost, final long connectionWait) {
+		if (maxConnectionsPerHost < 0) {
+			throw new IllegalArgumentException("maxConnectionsPerHost must not be negative"); //$NON-NLS-1$
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		this.connectionWait = connectionWait;
+	}
+
+	public URLConnection openConnection(final URL url) throws IOException {
+		if (maxConnectionsPerHost == 0) {
+			return url.openConnection();
+		}
+		final Semaphore permits = getPermits(url);
+		final boolean acquired;
+		try {
+			acquired = permits.tryAcquire(connectionWait, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getHost()); //$NON-NLS-1$
+		}
+		if (!acquired) {
+			LOGGER.log(LogService.LOG_WARNING, "All " + maxConnectionsPerHost + " connections to '" + url.getHost() //$NON-NLS-1$ //$NON-NLS-2$
+					+ "' are in use."); //$NON-NLS-1$
+			throw new IOException("All " + maxConnectionsPerHost + " connections to '" + url.getHost() //$NON-NLS-1$ //$NON-NLS-2$
+					+ "' are in use for more than " + connectionWait + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		boolean leased = false;
+		try {
+			final URLConnection connection = url.openConnection();
+			if (connection instanceof HttpURLConnection) {
+				leases.put(connection, permits);
+				leased = true;
+			}
+			return connection;
+		} finally {
+			if (!leased) {
+				permits.release();
+			}
+		}
+	}
+
+	public void releaseConnection(final URLConnection connection, final boolean reusable) {
+		final Semaphore permits = leases.remove(connection);
+		if (permits != null) {
+			permits.release();
+		}
+		if (!reusable && connection instanceof HttpURLConnection) {
+			((HttpURLConnection) connection).disconnect();
+		}
+	}
+
+	private Semaphore getPermits(final URL url) {
+		final String key = url.getProtocol() + "://" + url.getHost() + ':' + url.getPort(); //$NON-NLS-1$
+		Semaphore permits = permitsPerHost.get(key);
+		if (permits == null) {
+			final Semaphore newPermits = new Semaphore(maxConnectionsPerHost, true);
+			permits = permitsPerHost.putIfAbsent(key, newPermits);
+			if (permits == null) {
+				permits = newPermits;
+			}
+		}
+		return permits;
+	}
+
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+
+/**
+ * Counts the bytes read from the underlying stream and reports them to the
+ * {@code ICallMessageContext}. Bulk reads are reported as one block, the
+ * context coalesces the blocks into progress events.
+ */
+public class ProgressCountingInputStream extends FilterInputStream {
+
+	private final ICallMessageContext messageContext;
+
+	public ProgressCountingInputStream(final InputStream in, final ICallMessageContext messageContext) {
+		super(in);
+		this.messageContext = messageContext;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = in.read();
+		if (b != -1) {
+			messageContext.fireReadEvent(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int count = in.read(b, off, len);
+		if (count > 0) {
+			messageContext.fireReadEvent(count);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		final long count = in.skip(n);
+		if (count > 0) {
+			messageContext.fireReadEvent((int) count);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean markSupported() {
+		// a reset would count the same bytes twice
+		return false;
+	}
+
+}
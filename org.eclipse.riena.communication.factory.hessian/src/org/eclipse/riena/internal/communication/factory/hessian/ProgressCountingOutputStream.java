@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+
+/**
+ * Counts the bytes written to the underlying stream and reports them to the
+ * {@code ICallMessageContext}. Bulk writes are passed on (and reported) as one
+ * block, the context coalesces the blocks into progress events.
+ */
+public class ProgressCountingOutputStream extends FilterOutputStream {
+
+	private final ICallMessageContext messageContext;
+
+	public ProgressCountingOutputStream(final OutputStream out, final ICallMessageContext messageContext) {
+		super(out);
+		this.messageContext = messageContext;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		out.write(b);
+		messageContext.fireWriteEvent(1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		out.write(b, off, len);
+		if (len > 0) {
+			messageContext.fireWriteEvent(len);
+		}
+	}
+
+}
@@ -12,6 +12,7 @@ package org.eclipse.riena.internal.communication.factory.hessian;
 
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.URL;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -19,13 +20,17 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.riena.communication.core.IRemoteServiceReference;
+import org.eclipse.riena.communication.core.RemoteFailure;
 import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.IRemoteCallBatchExecutor;
+import org.eclipse.riena.communication.core.batch.RemoteCall;
 import org.eclipse.riena.communication.core.factory.IRemoteServiceFactory;
 import org.eclipse.riena.communication.core.factory.RemoteServiceReference;
 import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
 import org.eclipse.riena.communication.core.hooks.ICallMessageContextAccessor;
 import org.eclipse.riena.communication.core.progressmonitor.IRemoteProgressMonitorList;
 import org.eclipse.riena.communication.core.progressmonitor.IRemoteProgressMonitorRegistry;
+import org.eclipse.riena.communication.factory.hessian.IHessianTransport;
 import org.eclipse.riena.core.wire.InjectExtension;
 import org.eclipse.riena.core.wire.InjectService;
 
@@ -37,9 +42,12 @@ import org.eclipse.riena.core.wire.InjectService;
  * RemoteServiceFactoryHessian becomes registered as OSGi Service with name
  * {@link IRemoteServiceFactory#ID}. The OSGi Service set the property
  * "riena.protocol=hessian".
+ * <p>
+ * The proxies support {@code RemoteServiceBatch}es, all calls of a batch to
+ * the same server are sent in one Hessian request.
  * 
  */
-public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
+public class RemoteServiceFactoryHessian implements IRemoteServiceFactory, IRemoteCallBatchExecutor {
 	private IRemoteProgressMonitorRegistry remoteProgressMonitorRegistry;
 	private final ICallMessageContextAccessor messageContextAccessor;
 	private final RienaHessianProxyFactory rienaHessianProxyFactory;
@@ -47,6 +55,24 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 	private final static SecureRandom RANDOM = new SecureRandom();
 	private final static long BASE_LONG = 115825100000L; // some BASE_LONG time in millisec around 14.9.2006 18:40 (arbitrary picked) just to make the long a short number
 
+	/**
+	 * System property with the number of transferred bytes after which a
+	 * progress event is fired (default 4096).
+	 */
+	public static final String RIENA_PROGRESS_BYTES_PROPERTY = "riena.communication.progress.bytes"; //$NON-NLS-1$
+	/**
+	 * System property with the interval (in milliseconds) after which a progress
+	 * event is fired even if fewer bytes than
+	 * {@value #RIENA_PROGRESS_BYTES_PROPERTY} have been transferred, as long as
+	 * at least {@link IRemoteProgressMonitorList#BYTE_COUNT_INCR} bytes are
+	 * pending (default 200).
+	 */
+	public static final String RIENA_PROGRESS_INTERVAL_PROPERTY = "riena.communication.progress.interval"; //$NON-NLS-1$
+
+	private final static int PROGRESS_BYTES = Math.max(IRemoteProgressMonitorList.BYTE_COUNT_INCR,
+			Integer.getInteger(RIENA_PROGRESS_BYTES_PROPERTY, 4096));
+	private final static long PROGRESS_INTERVAL = Long.getLong(RIENA_PROGRESS_INTERVAL_PROPERTY, 200);
+
 	public RemoteServiceFactoryHessian() {
 		messageContextAccessor = new CallMsgCtxAcc();
 		rienaHessianProxyFactory = new RienaHessianProxyFactory();
@@ -54,10 +80,7 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 	}
 
 	public IRemoteServiceReference createProxy(final RemoteServiceDescription endpoint) {
-		String url = endpoint.getURL();
-		if (url == null) {
-			url = "http://localhost/" + PROTOCOL + endpoint.getPath(); //$NON-NLS-1$
-		}
+		final String url = getURL(endpoint);
 		try {
 			final Object proxy = rienaHessianProxyFactory.create(endpoint.getServiceInterfaceClass(), url,
 					new ClassLoader() {
@@ -79,6 +102,29 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 		}
 	}
 
+	public void execute(final List<RemoteCall> calls) throws Exception {
+		try {
+			rienaHessianProxyFactory.executeBatch(new URL(getURL(calls.get(0).getServiceDescription())), calls);
+		} catch (final Exception e) {
+			throw e;
+		} catch (final Throwable t) {
+			throw new RemoteFailure("Error while invoking remote service batch", t); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @param endpoint
+	 *            the description of the remote service
+	 * @return the url of the remote service
+	 */
+	static String getURL(final RemoteServiceDescription endpoint) {
+		final String url = endpoint.getURL();
+		if (url == null) {
+			return "http://localhost/" + PROTOCOL + endpoint.getPath(); //$NON-NLS-1$
+		}
+		return url;
+	}
+
 	@InjectExtension(min = 0, max = 1)
 	public void update(final IRemoteServiceFactoryHessianExtension extension) {
 		if (extension == null) {
@@ -91,6 +137,10 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 		if (extension.getConnectTimeout() > 0) {
 			rienaHessianProxyFactory.setConnectTimeout(extension.getConnectTimeout());
 		}
+		final IHessianTransport transport = extension.createTransport();
+		if (transport != null) {
+			rienaHessianProxyFactory.setTransport(transport);
+		}
 	}
 
 	@InjectService(useRanking = true)
@@ -136,6 +186,7 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 			private int bytesWritten;
 			private int totalBytesWritten = 0;
 			private boolean firstEvent = true;
+			private long lastEventTime;
 			private final String methodName;
 			private String requestId = null;
 
@@ -189,60 +240,101 @@ public class RemoteServiceFactoryHessian implements IRemoteServiceFactory {
 			public void fireStartCall() {
 				//				List<String> list = RienaHessianProxyFactory.getHttpURLConnection().getRequestProperties().get(
 				//						"Content-Length"); //$NON-NLS-1$
-				remoteProgressMonitorList.fireStartEvent();
+				if (remoteProgressMonitorList != null) {
+					remoteProgressMonitorList.fireStartEvent();
+				}
 				firstEvent = false;
 
 			}
 
 			public void fireEndCall() {
 				// if no communication happened than this was a local call (like for equals or hashCode)
-				if (totalBytesRead == 0 && totalBytesWritten == 0 && bytesRead == 0 && bytesWritten == 0) {
+				if (remoteProgressMonitorList == null || totalBytesRead == 0 && totalBytesWritten == 0 && bytesRead == 0
+						&& bytesWritten == 0) {
 					return;
 				}
 				if (bytesRead != 0) {
-					internalFireReadEvent();
+					internalFireReadEvent(true);
 				}
 				remoteProgressMonitorList.fireEndEvent(totalBytesRead + totalBytesWritten);
 			}
 
 			public void fireReadEvent(final int parmBytesRead) {
+				if (remoteProgressMonitorList == null) {
+					// only count the bytes, nobody listens to progress events
+					totalBytesRead += parmBytesRead;
+					return;
+				}
 				if (firstEvent) {
 					remoteProgressMonitorList.fireStartEvent();
 					firstEvent = false;
 				}
 
 				if (bytesWritten != 0) {
-					internalFireWriteEvent();
+					internalFireWriteEvent(true);
 				}
 				bytesRead += parmBytesRead;
-				if (bytesRead >= IRemoteProgressMonitorList.BYTE_COUNT_INCR) {
-					internalFireReadEvent();
+				if (isEventDue(bytesRead)) {
+					internalFireReadEvent(false);
+				}
+			}
+
+			/**
+			 * Progress events are coalesced: an event is due when enough bytes
+			 * are pending or when some bytes are pending and the last event is
+			 * long enough ago. Except for the last event of a direction the
+			 * reported totals stay multiples of
+			 * {@link IRemoteProgressMonitorList#BYTE_COUNT_INCR}.
+			 */
+			private boolean isEventDue(final int pendingBytes) {
+				if (pendingBytes >= PROGRESS_BYTES) {
+					return true;
 				}
+				return pendingBytes >= IRemoteProgressMonitorList.BYTE_COUNT_INCR
+						&& System.currentTimeMillis() - lastEventTime >= PROGRESS_INTERVAL;
 			}
 
-			private void internalFireReadEvent() {
-				totalBytesRead += bytesRead;
-				bytesRead = 0;
+			private void internalFireReadEvent(final boolean complete) {
+				final int reported = complete ? bytesRead : bytesRead - bytesRead
+						% IRemoteProgressMonitorList.BYTE_COUNT_INCR;
+				lastEventTime = System.currentTimeMillis();
+				totalBytesRead += reported;
+				bytesRead -= reported;
 				remoteProgressMonitorList.fireReadEvent(-1, totalBytesRead);
 			}
 
 			public void fireWriteEvent(final int parmBytesWritten) {
+				if (remoteProgressMonitorList == null) {
+					totalBytesWritten += parmBytesWritten;
+					return;
+				}
 				if (firstEvent) {
 					fireStartCall();
 				}
 
 				bytesWritten += parmBytesWritten;
-				if (bytesWritten >= IRemoteProgressMonitorList.BYTE_COUNT_INCR) {
-					internalFireWriteEvent();
+				if (isEventDue(bytesWritten)) {
+					internalFireWriteEvent(false);
 				}
 			}
 
-			private void internalFireWriteEvent() {
-				totalBytesWritten += bytesWritten;
-				bytesWritten = 0;
+			private void internalFireWriteEvent(final boolean complete) {
+				final int reported = complete ? bytesWritten : bytesWritten - bytesWritten
+						% IRemoteProgressMonitorList.BYTE_COUNT_INCR;
+				lastEventTime = System.currentTimeMillis();
+				totalBytesWritten += reported;
+				bytesWritten -= reported;
 				remoteProgressMonitorList.fireWriteEvent(-1, totalBytesWritten);
 			}
 
+			public int getBytesWritten() {
+				return totalBytesWritten + bytesWritten;
+			}
+
+			public int getBytesRead() {
+				return totalBytesRead + bytesRead;
+			}
+
 			/*
 			 * (non-Javadoc)
 			 * 
@@ -18,15 +18,18 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
 
+import com.caucho.hessian.client.HessianConnectionException;
 import com.caucho.hessian.client.HessianProxyFactory;
 import com.caucho.hessian.io.AbstractHessianInput;
 import com.caucho.hessian.io.AbstractHessianOutput;
 import com.caucho.hessian.io.Hessian2Output;
 
+import org.eclipse.riena.communication.core.batch.RemoteCall;
 import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
 import org.eclipse.riena.communication.core.hooks.ICallMessageContextAccessor;
+import org.eclipse.riena.communication.core.zipsupport.ReusableGZIPOutputStream;
+import org.eclipse.riena.communication.factory.hessian.IHessianTransport;
 import org.eclipse.riena.internal.communication.factory.hessian.serializer.RienaSerializerFactory;
 
 public class RienaHessianProxyFactory extends HessianProxyFactory {
@@ -35,8 +38,10 @@ public class RienaHessianProxyFactory extends HessianProxyFactory {
 	private static boolean transferDataChunked = false; // set chunking to FALSE by default overwriting the hessian default
 	private int connectTimeout = -1;
 	private boolean isZipClientRequest = false;
+	private volatile IHessianTransport transport = new PooledHessianTransport();
 
 	private final static ThreadLocal<HttpURLConnection> CONNECTIONS = new ThreadLocal<HttpURLConnection>();
+	private final static ThreadLocal<RienaHessian2Output> OUTPUTS = new ThreadLocal<RienaHessian2Output>();
 
 	public RienaHessianProxyFactory() {
 		super();
@@ -80,6 +85,31 @@ public class RienaHessianProxyFactory extends HessianProxyFactory {
 		this.isZipClientRequest = isZipClientRequest;
 	}
 
+	/**
+	 * Set the transport for the remote calls.
+	 * 
+	 * @param transport
+	 *            the transport; {@code null} restores the default transport
+	 */
+	public void setTransport(final IHessianTransport transport) {
+		this.transport = transport != null ? transport : new PooledHessianTransport();
+	}
+
+	@Override
+	protected URLConnection createConnection(final URL url) throws IOException {
+		return transport.openConnection(url);
+	}
+
+	@Override
+	protected void releaseConnection(final URLConnection connection, final boolean isReusable) {
+		if (connection instanceof GZippingHttpURLConnectionWrapper) {
+			transport.releaseConnection(((GZippingHttpURLConnectionWrapper) connection).getWrappedConnection(),
+					isReusable);
+		} else {
+			transport.releaseConnection(connection, isReusable);
+		}
+	}
+
 	@Override
 	protected URLConnection openConnection(final URL url) throws IOException {
 		URLConnection connection;
@@ -90,7 +120,8 @@ public class RienaHessianProxyFactory extends HessianProxyFactory {
 			if (requestId != null) {
 				methodName = methodName + "&" + requestId; //$NON-NLS-1$
 			}
-			connection = super.openConnection(new URL(url.toString() + "?" + methodName)); //$NON-NLS-1$
+			// avoid reparsing the whole url string for every call, the authority (with the user info) is taken from the url
+			connection = super.openConnection(new URL(url, url.getFile() + '?' + methodName));
 		} else {
 			connection = super.openConnection(url);
 		}
@@ -115,44 +146,60 @@ public class RienaHessianProxyFactory extends HessianProxyFactory {
 		return connection;
 	}
 
+	/**
+	 * Send the given calls in one request and set their results.
+	 * 
+	 * @param url
+	 *            the url of the server (calls contain their service path)
+	 * @param calls
+	 *            the calls
+	 * @throws Throwable
+	 *             if the request failed as a whole
+	 */
+	public void executeBatch(final URL url, final List<RemoteCall> calls) throws Throwable {
+		final URLConnection connection = openConnection(url);
+		boolean isReusable = false;
+		InputStream is = null;
+		try {
+			connection.setRequestProperty(HessianBatchCodec.BATCH_HEADER, "1"); //$NON-NLS-1$
+			if (isChunkedPost() && connection instanceof HttpURLConnection) {
+				((HttpURLConnection) connection).setChunkedStreamingMode(8 * 1024);
+			}
+			final AbstractHessianOutput out = getHessianOutput(connection.getOutputStream());
+			HessianBatchCodec.writeRequest(out, calls, isOverloadEnabled());
+			out.flush();
+
+			if (connection instanceof HttpURLConnection) {
+				final int code = ((HttpURLConnection) connection).getResponseCode();
+				if (code != HttpURLConnection.HTTP_OK) {
+					throw new HessianConnectionException(code + ": " //$NON-NLS-1$
+							+ ((HttpURLConnection) connection).getResponseMessage());
+				}
+			}
+			is = connection.getInputStream();
+			HessianBatchCodec.readReply(getHessianInput(is), calls);
+			isReusable = true;
+		} finally {
+			if (is != null) {
+				is.close();
+			}
+			releaseConnection(connection, isReusable);
+		}
+	}
+
 	@Override
 	public AbstractHessianInput getHessianInput(final InputStream is) {
 		final ICallMessageContext messageContext = mca.getMessageContext();
 
-		if (messageContext.getProgressMonitorList() == null) {
-			return super.getHessianInput(is);
-		} else {
-			return super.getHessianInput(new InputStream() {
-
-				@Override
-				public int read() throws IOException {
-					final int b = is.read();
-					if (b != -1) {
-						messageContext.fireReadEvent(1);
-					}
-					return b;
-				}
-
-			});
-		}
+		// always count, the message context only fires progress events if there are progress monitors
+		return super.getHessianInput(new ProgressCountingInputStream(is, messageContext));
 	}
 
 	@Override
 	public AbstractHessianOutput getHessianOutput(final OutputStream os) {
 		final ICallMessageContext messageContext = mca.getMessageContext();
 
-		if (messageContext.getProgressMonitorList() == null) {
-			return getHessianOutputImpl(os, os);
-		} else {
-			return getHessianOutputImpl(os, new OutputStream() {
-
-				@Override
-				public void write(final int b) throws IOException {
-					os.write(b);
-					messageContext.fireWriteEvent(1);
-				}
-			});
-		}
+		return getHessianOutputImpl(os, new ProgressCountingOutputStream(os, messageContext));
 	}
 
 	public void setCallMessageContextAccessor(final ICallMessageContextAccessor mca) {
@@ -173,36 +220,48 @@ public class RienaHessianProxyFactory extends HessianProxyFactory {
 	 */
 	private AbstractHessianOutput getHessianOutputImpl(final OutputStream originalOutputStream,
 			final OutputStream outputStreamData) {
-		AbstractHessianOutput out;
-
-		if (/* _isHessian2Request */true) {
-			out = new Hessian2Output(outputStreamData) {
-
-				@Override
-				public void completeCall() throws IOException {
-					super.completeCall();
-					this.flush();
-					final HttpURLConnection urlConnection = CONNECTIONS.get();
-					if (urlConnection instanceof GZippingHttpURLConnectionWrapper) {
-						final GZIPOutputStream gzipOut = ((GZippingHttpURLConnectionWrapper) urlConnection)
-								.getUsedGZIPOutputStream();
-						gzipOut.finish();
-					}
-					outputStreamData.flush();
-				}
-			};
-			//		else {
-			//			HessianOutput out1 = new HessianOutput(outputStreamParameter);
-			//			out = out1;
-			//
-			//			if (/* _isHessian2Reply */true)
-			//				out1.setVersion(2);
-			//		}
+		RienaHessian2Output out = OUTPUTS.get();
+		if (out == null || out.inUse) {
+			out = new RienaHessian2Output(outputStreamData);
+			OUTPUTS.set(out);
+		} else {
+			out.init(outputStreamData);
 		}
-
+		out.inUse = true;
 		out.setSerializerFactory(getSerializerFactory());
 
 		return out;
 	}
 
+	/**
+	 * A {@code Hessian2Output} that finishes the (gzipped) request when the
+	 * call is complete. One instance (and its buffer) is reused for all calls
+	 * of a thread; it becomes available again once the call has been written.
+	 */
+	private static final class RienaHessian2Output extends Hessian2Output {
+
+		private boolean inUse;
+
+		private RienaHessian2Output(final OutputStream os) {
+			super(os, HessianCodecContext.getOutputBufferSize());
+		}
+
+		@Override
+		public void completeCall() throws IOException {
+			try {
+				super.completeCall();
+				this.flush();
+				final HttpURLConnection urlConnection = CONNECTIONS.get();
+				if (urlConnection instanceof GZippingHttpURLConnectionWrapper) {
+					final ReusableGZIPOutputStream gzipOut = ((GZippingHttpURLConnectionWrapper) urlConnection)
+							.getUsedGZIPOutputStream();
+					gzipOut.finish();
+				}
+				_os.flush();
+			} finally {
+				inUse = false;
+			}
+		}
+	}
+
 }
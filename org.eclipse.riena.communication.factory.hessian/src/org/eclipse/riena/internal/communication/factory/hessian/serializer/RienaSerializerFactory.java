@@ -11,8 +11,8 @@
 package org.eclipse.riena.internal.communication.factory.hessian.serializer;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.caucho.hessian.io.AbstractSerializerFactory;
 import com.caucho.hessian.io.Deserializer;
@@ -33,12 +33,15 @@ import org.eclipse.riena.internal.communication.factory.hessian.Activator;
  * {@code AbstractSerializerFactory} but internally (not visible to hessian) it
  * manages a configurable, ordered list of
  * {@code AbstractRienaSerializerFactory}.
+ * <p>
+ * The lookups are not synchronized, the list of factories is replaced as a
+ * whole on updates.
  * 
  * @since 4.0
  */
 public class RienaSerializerFactory extends AbstractSerializerFactory {
 
-	private List<AbstractRienaSerializerFactory> serializerFactories = Collections.emptyList();
+	private volatile List<AbstractRienaSerializerFactory> serializerFactories = Collections.emptyList();
 
 	public RienaSerializerFactory() {
 		Wire.instance(this).andStart(Activator.getDefault().getContext());
@@ -46,12 +49,10 @@ public class RienaSerializerFactory extends AbstractSerializerFactory {
 
 	@Override
 	public Deserializer getDeserializer(final Class cl) throws HessianProtocolException {
-		synchronized (this) {
-			for (final AbstractSerializerFactory serializerFactory : serializerFactories) {
-				final Deserializer deserializer = serializerFactory.getDeserializer(cl);
-				if (deserializer != null) {
-					return deserializer;
-				}
+		for (final AbstractSerializerFactory serializerFactory : serializerFactories) {
+			final Deserializer deserializer = serializerFactory.getDeserializer(cl);
+			if (deserializer != null) {
+				return deserializer;
 			}
 		}
 		return null;
@@ -59,12 +60,10 @@ public class RienaSerializerFactory extends AbstractSerializerFactory {
 
 	@Override
 	public Serializer getSerializer(final Class cl) throws HessianProtocolException {
-		synchronized (this) {
-			for (final AbstractSerializerFactory serializerFactory : serializerFactories) {
-				final Serializer serializer = serializerFactory.getSerializer(cl);
-				if (serializer != null) {
-					return serializer;
-				}
+		for (final AbstractSerializerFactory serializerFactory : serializerFactories) {
+			final Serializer serializer = serializerFactory.getSerializer(cl);
+			if (serializer != null) {
+				return serializer;
 			}
 		}
 		return null;
@@ -81,9 +80,9 @@ public class RienaSerializerFactory extends AbstractSerializerFactory {
 		// order ..
 		final List<AbstractRienaSerializerFactory> tempOrdered = orderer.getOrderedObjects();
 		// .. get those static maps from the hessian {@code SerializerFactory} ..
-		final HashMap<Class<?>, ?> staticDeserializerMap = ReflectionUtils.getHidden(SerializerFactory.class,
+		final Map<Class<?>, ?> staticDeserializerMap = ReflectionUtils.getHidden(SerializerFactory.class,
 				"_staticDeserializerMap"); //$NON-NLS-1$
-		final HashMap<Class<?>, ?> staticSerializerMap = ReflectionUtils.getHidden(SerializerFactory.class,
+		final Map<Class<?>, ?> staticSerializerMap = ReflectionUtils.getHidden(SerializerFactory.class,
 				"_staticSerializerMap"); //$NON-NLS-1$
 
 		synchronized (this) {
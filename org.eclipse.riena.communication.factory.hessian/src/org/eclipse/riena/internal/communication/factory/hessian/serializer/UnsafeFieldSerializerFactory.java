@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian.serializer;
+
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import com.caucho.hessian.io.Deserializer;
+import com.caucho.hessian.io.HessianProtocolException;
+import com.caucho.hessian.io.HessianRemoteObject;
+import com.caucho.hessian.io.Serializer;
+import com.caucho.hessian.io.UnsafeDeserializer;
+import com.caucho.hessian.io.UnsafeSerializer;
+
+import org.eclipse.riena.communication.factory.hessian.serializer.AbstractRienaSerializerFactory;
+
+/**
+ * Replaces the reflective default (de)serialization of the hessian
+ * {@code JavaSerializer} and {@code JavaDeserializer} with the
+ * {@code UnsafeSerializer} and {@code UnsafeDeserializer}. Both produce the
+ * same wire format, but access the fields through their memory offsets instead
+ * of {@code java.lang.reflect.Field}.
+ * <p>
+ * The factory must be enabled with the system property
+ * {@value #RIENA_HESSIAN_UNSAFE_FIELD_ACCESS_PROPERTY} and is only active if
+ * the JVM provides {@code sun.misc.Unsafe}. It only handles the 'plain' classes
+ * which hessian would pass to its default (de)serializer; all the other types
+ * (collections, maps, arrays, enums, exceptions, ...) and all the
+ * {@code java.*} and {@code javax.*} classes are left to the other factories.
+ */
+public class UnsafeFieldSerializerFactory extends AbstractRienaSerializerFactory {
+
+	/**
+	 * System property that enables the {@code UnsafeFieldSerializerFactory}
+	 * (default false).
+	 */
+	public static final String RIENA_HESSIAN_UNSAFE_FIELD_ACCESS_PROPERTY = "riena.hessian.unsafefieldaccess"; //$NON-NLS-1$
+
+	private static final Class<?>[] EXCLUDED_TYPES = { Map.class, Collection.class, Throwable.class,
+			InputStream.class, Iterator.class, Enumeration.class, Calendar.class, Locale.class, Enum.class,
+			HessianRemoteObject.class };
+
+	private final boolean enabled = Boolean.getBoolean(RIENA_HESSIAN_UNSAFE_FIELD_ACCESS_PROPERTY)
+			&& UnsafeSerializer.isEnabled();
+
+	@Override
+	public Deserializer getDeserializer(final Class cl) throws HessianProtocolException {
+		if (!isHandled(cl)) {
+			return null;
+		}
+		return new UnsafeDeserializer(cl);
+	}
+
+	@Override
+	public Serializer getSerializer(final Class cl) throws HessianProtocolException {
+		if (!isHandled(cl)) {
+			return null;
+		}
+		return new UnsafeSerializer(cl);
+	}
+
+	private boolean isHandled(final Class<?> cl) {
+		if (!enabled || cl.isArray() || cl.isPrimitive() || cl.isInterface()) {
+			return false;
+		}
+		final String name = cl.getName();
+		if (name.startsWith("java.") || name.startsWith("javax.")) { //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+		for (final Class<?> excluded : EXCLUDED_TYPES) {
+			if (excluded.isAssignableFrom(cl)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
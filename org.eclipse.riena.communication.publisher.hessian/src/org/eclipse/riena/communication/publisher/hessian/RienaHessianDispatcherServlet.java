@@ -15,8 +15,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.GenericServlet;
 import javax.servlet.ServletConfig;
@@ -38,12 +38,19 @@ import org.osgi.service.log.LogService;
 import org.eclipse.equinox.log.Logger;
 
 import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.zipsupport.CompressionStatistics;
 import org.eclipse.riena.communication.core.zipsupport.ReusableBufferedInputStream;
+import org.eclipse.riena.communication.core.zipsupport.ReusableGZIPInputStream;
+import org.eclipse.riena.communication.core.zipsupport.ThresholdGZIPOutputStream;
 import org.eclipse.riena.core.Log4r;
 import org.eclipse.riena.core.exception.IExceptionHandlerManager;
 import org.eclipse.riena.core.service.Service;
+import org.eclipse.riena.internal.communication.factory.hessian.HessianBatchCodec;
+import org.eclipse.riena.internal.communication.factory.hessian.HessianCodecContext;
 import org.eclipse.riena.internal.communication.factory.hessian.serializer.RienaSerializerFactory;
 import org.eclipse.riena.internal.communication.publisher.hessian.Activator;
+import org.eclipse.riena.internal.communication.publisher.hessian.HessianBatchDispatcher;
+import org.eclipse.riena.internal.communication.publisher.hessian.HessianInvocationExecutor;
 import org.eclipse.riena.internal.communication.publisher.hessian.HessianRemoteServicePublisher;
 import org.eclipse.riena.internal.communication.publisher.hessian.MessageContext;
 import org.eclipse.riena.internal.communication.publisher.hessian.MessageContextHolder;
@@ -54,7 +61,50 @@ import org.eclipse.riena.internal.communication.publisher.hessian.MessageContext
 @SuppressWarnings("serial")
 public class RienaHessianDispatcherServlet extends GenericServlet {
 
+	/**
+	 * System property with the size in bytes up to which replies to clients
+	 * requesting compression are sent uncompressed (default 512).
+	 */
+	public static final String RIENA_COMPRESSION_THRESHOLD_PROPERTY = "riena.communication.compression.threshold"; //$NON-NLS-1$
+	/**
+	 * System property with the {@code Deflater} level (0-9) of compressed
+	 * replies, e.g. 1 for the fastest compression (default
+	 * {@code Deflater.DEFAULT_COMPRESSION}).
+	 */
+	public static final String RIENA_COMPRESSION_LEVEL_PROPERTY = "riena.communication.compression.level"; //$NON-NLS-1$
+	/**
+	 * System property; if {@code true} the invocations are executed on
+	 * virtual threads (or a thread pool on runtimes without virtual threads)
+	 * and the container thread is released (default {@code false}). Requires
+	 * a servlet 3.0 container and the servlet registered as async supported,
+	 * otherwise the invocations run on the container threads.
+	 * 
+	 * @since 6.0
+	 */
+	public static final String RIENA_HESSIAN_ASYNC_PROPERTY = "riena.communication.hessian.async"; //$NON-NLS-1$
+	/**
+	 * System property with the maximum number of threads executing
+	 * invocations in async mode if no virtual threads are available (default
+	 * 200).
+	 * 
+	 * @since 6.0
+	 */
+	public static final String RIENA_HESSIAN_ASYNC_MAX_THREADS_PROPERTY = "riena.communication.hessian.async.maxthreads"; //$NON-NLS-1$
+	/**
+	 * System property with the timeout in milliseconds of an asynchronous
+	 * request (default 0, i.e. no timeout).
+	 * 
+	 * @since 6.0
+	 */
+	public static final String RIENA_HESSIAN_ASYNC_TIMEOUT_PROPERTY = "riena.communication.hessian.async.timeout"; //$NON-NLS-1$
+
+	private static final String X_HESSIAN_GZIP = "x-hessian-gzip"; //$NON-NLS-1$
+
 	private SerializerFactory serializerFactory = null;
+	private int compressionThreshold;
+	private int compressionLevel;
+	private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+	private HessianInvocationExecutor invocationExecutor;
 
 	private final static Logger LOGGER = Log4r.getLogger(Activator.getDefault(), RienaHessianDispatcherServlet.class);
 
@@ -65,24 +115,70 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 		serializerFactory = new SerializerFactory();
 		serializerFactory.setAllowNonSerializable(true);
 		serializerFactory.addFactory(new RienaSerializerFactory());
+		compressionThreshold = Integer.getInteger(RIENA_COMPRESSION_THRESHOLD_PROPERTY, 512);
+		compressionLevel = getCompressionLevel();
+		if (Boolean.getBoolean(RIENA_HESSIAN_ASYNC_PROPERTY)) {
+			invocationExecutor = new HessianInvocationExecutor(Integer.getInteger(
+					RIENA_HESSIAN_ASYNC_MAX_THREADS_PROPERTY, 200), Long.getLong(RIENA_HESSIAN_ASYNC_TIMEOUT_PROPERTY, 0));
+		}
 
 		LOGGER.log(LogService.LOG_DEBUG, "initialized"); //$NON-NLS-1$
 	}
 
+	private static int getCompressionLevel() {
+		final int level = Integer.getInteger(RIENA_COMPRESSION_LEVEL_PROPERTY, Deflater.DEFAULT_COMPRESSION);
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			LOGGER.log(LogService.LOG_WARNING, "Invalid compression level " + level + " in system property '" //$NON-NLS-1$ //$NON-NLS-2$
+					+ RIENA_COMPRESSION_LEVEL_PROPERTY + "', using the default compression."); //$NON-NLS-1$
+			return Deflater.DEFAULT_COMPRESSION;
+		}
+		return level;
+	}
+
 	@Override
 	public void service(final ServletRequest req, final ServletResponse res) throws ServletException, IOException {
 
 		final HttpServletRequest httpReq = (HttpServletRequest) req;
 		final HttpServletResponse httpRes = (HttpServletResponse) res;
+		final MessageContext messageContext = new MessageContext(httpReq, httpRes);
+
+		if (invocationExecutor != null && invocationExecutor.isAsyncSupported(httpReq)) {
+			invocationExecutor.executeAsync(httpReq, messageContext, new Runnable() {
+				public void run() {
+					try {
+						dispatch(httpReq, httpRes);
+					} catch (final Exception e) {
+						// there is no container thread left to report it
+						LOGGER.log(LogService.LOG_ERROR, "asynchronous invocation failed", e); //$NON-NLS-1$
+						if (!httpRes.isCommitted()) {
+							try {
+								httpRes.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+							} catch (final IOException e1) {
+								LOGGER.log(LogService.LOG_DEBUG, "sending the error failed", e1); //$NON-NLS-1$
+							}
+						}
+					}
+				}
+			});
+			return;
+		}
 
 		// set the message context
-		MessageContextHolder.setMessageContext(new MessageContext(httpReq, httpRes));
+		MessageContextHolder.setMessageContext(messageContext);
+		try {
+			dispatch(httpReq, httpRes);
+		} finally {
+			MessageContextHolder.setMessageContext(null);
+		}
+	}
 
+	private void dispatch(final HttpServletRequest httpReq, final HttpServletResponse httpRes)
+			throws ServletException, IOException {
 		final HessianRemoteServicePublisher publisher = getPublisher();
 		if (publisher == null) {
 			if (httpReq.getMethod().equals("GET")) { //$NON-NLS-1$
 				if (httpReq.getRemoteHost().equals("127.0.0.1")) { //$NON-NLS-1$
-					final PrintWriter pw = new PrintWriter(res.getOutputStream());
+					final PrintWriter pw = new PrintWriter(httpRes.getOutputStream());
 					pw.write("no webservices available"); //$NON-NLS-1$
 					pw.flush();
 					pw.close();
@@ -105,7 +201,7 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 		log("call " + rsd); //$NON-NLS-1$
 		if (httpReq.getMethod().equals("GET")) { //$NON-NLS-1$
 			if (httpReq.getRemoteHost().equals("127.0.0.1")) { //$NON-NLS-1$
-				final PrintWriter pw = new PrintWriter(res.getOutputStream());
+				final PrintWriter pw = new PrintWriter(httpRes.getOutputStream());
 				if (rsd == null) {
 					pw.write("call received from browser, no remote service registered with this URL"); //$NON-NLS-1$
 				} else {
@@ -125,7 +221,7 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 		}
 
 		final String gzip = httpReq.getHeader("Content-Encoding"); //$NON-NLS-1$
-		final boolean gzipFlag = "x-hessian-gzip".equals(gzip); //$NON-NLS-1$
+		final boolean gzipFlag = X_HESSIAN_GZIP.equals(gzip);
 		boolean inputWasGZIP = false;
 
 		InputStream requestInputStream = httpReq.getInputStream();
@@ -137,11 +233,11 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 				inputWasGZIP = (readMAGIC == GZIPInputStream.GZIP_MAGIC);
 				tempInput.reset();
 			}
-			requestInputStream = inputWasGZIP ? new GZIPInputStream(tempInput) : tempInput;
+			requestInputStream = inputWasGZIP ? new ReusableGZIPInputStream(tempInput) : tempInput;
 		}
 
-		final Hessian2Input inp = new Hessian2Input(requestInputStream);
-		inp.setSerializerFactory(serializerFactory);
+		final HessianCodecContext codecContext = HessianCodecContext.get();
+		final Hessian2Input inp = codecContext.getInput(requestInputStream, serializerFactory);
 		inp.setCloseStreamOnClose(true);
 
 		final int code = inp.read();
@@ -151,34 +247,40 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 		final int major = inp.read();
 		inp.read(); // read/skip the minor version - not used currently
 
-		//if (inputWasGZIP) {
-		if (gzipFlag) {
-			httpRes.setHeader("Content-Encoding", "x-hessian-gzip"); //$NON-NLS-1$//$NON-NLS-2$
-		}
-
 		OutputStream outputStream = httpRes.getOutputStream();
 
-		//if (inputWasGZIP) {
+		// the client accepts compressed replies, but small replies are not worth it
+		ThresholdGZIPOutputStream compressingStream = null;
 		if (gzipFlag) {
-			outputStream = new GZIPOutputStream(outputStream);
+			compressingStream = new ThresholdGZIPOutputStream(outputStream, compressionThreshold, compressionLevel,
+					compressionStatistics) {
+				@Override
+				protected void beforeCompression() {
+					httpRes.setHeader("Content-Encoding", X_HESSIAN_GZIP); //$NON-NLS-1$
+				}
+			};
+			outputStream = compressingStream;
 		}
 
 		AbstractHessianOutput out;
 		if (major >= 2) {
-			out = new Hessian2Output(outputStream);
+			out = codecContext.getOutput(outputStream, serializerFactory);
 			((Hessian2Output) out).setCloseStreamOnClose(true);
 		} else {
 			out = new HessianOutput(outputStream);
+			out.setSerializerFactory(serializerFactory);
 		}
 
-		out.setSerializerFactory(serializerFactory);
-
 		// TODO TCCL causes problems wit log4j: http://articles.qos.ch/classloader.html
 		//		final ClassLoader original = Thread.currentThread().getContextClassLoader();
 		try {
 			//			Thread.currentThread().setContextClassLoader(new ServiceClassLoader(original, rsd.getBundle()));
-			final HessianSkeleton sk = new HessianSkeleton(rsd.getService(), rsd.getServiceInterfaceClass());
-			sk.invoke(inp, out);
+			if (major >= 2 && httpReq.getHeader(HessianBatchCodec.BATCH_HEADER) != null) {
+				new HessianBatchDispatcher(publisher, contextPath).invoke(inp, out);
+			} else {
+				final HessianSkeleton sk = publisher.getSkeleton(rsd);
+				sk.invoke(inp, out);
+			}
 		} catch (final Throwable t) {
 			Throwable t2 = t;
 			while (t2.getCause() != null) {
@@ -188,12 +290,38 @@ public class RienaHessianDispatcherServlet extends GenericServlet {
 			Service.get(IExceptionHandlerManager.class).handleException(t2);
 			throw new ServletException(t);
 		} finally {
-			inp.close();
-			out.close(); // Hessian2Output forgets to close if the service throws an exception
+			try {
+				inp.close();
+				out.close(); // Hessian2Output forgets to close if the service throws an exception
+				if (compressingStream != null) {
+					// HessianOutput (version 1) only flushes on close
+					compressingStream.finish();
+				}
+			} finally {
+				codecContext.release(inp, out);
+			}
 			//			Thread.currentThread().setContextClassLoader(original);
 		}
 	}
 
+	@Override
+	public void destroy() {
+		LOGGER.log(LogService.LOG_DEBUG, "reply compression: " + compressionStatistics.getStatistic()); //$NON-NLS-1$
+		if (invocationExecutor != null) {
+			LOGGER.log(LogService.LOG_DEBUG, "invocations: " + invocationExecutor.getStatistic()); //$NON-NLS-1$
+			invocationExecutor.shutdown();
+			invocationExecutor = null;
+		}
+		super.destroy();
+	}
+
+	/**
+	 * @return the statistics of the compressed and uncompressed replies
+	 */
+	public CompressionStatistics getCompressionStatistics() {
+		return compressionStatistics;
+	}
+
 	/**
 	 * 
 	 * @return the publisher
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.publisher.hessian;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import com.caucho.hessian.io.AbstractHessianInput;
+import com.caucho.hessian.io.AbstractHessianOutput;
+import com.caucho.hessian.server.HessianSkeleton;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.RemoteServiceBatch;
+import org.eclipse.riena.core.Log4r;
+
+/**
+ * Server side of a {@code RemoteServiceBatch} sent by the Hessian client (see
+ * {@code HessianBatchCodec}). All calls of the batch are read first and then
+ * invoked in the order they have been recorded. A call to an unknown service
+ * or method fails without affecting the other calls of the batch.
+ */
+public class HessianBatchDispatcher {
+
+	private final HessianRemoteServicePublisher publisher;
+	private final String contextPath;
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), HessianBatchDispatcher.class);
+
+	/**
+	 * @param publisher
+	 *            the publisher of the services
+	 * @param contextPath
+	 *            the context path of the servlet
+	 */
+	public HessianBatchDispatcher(final HessianRemoteServicePublisher publisher, final String contextPath) {
+		this.publisher = publisher;
+		this.contextPath = contextPath;
+	}
+
+	/**
+	 * Read the batch, invoke its calls and write the results. The call header
+	 * ('c' major minor) must already have been read from {@code in}.
+	 *
+	 * @param in
+	 *            the Hessian input
+	 * @param out
+	 *            the Hessian output
+	 * @throws IOException
+	 */
+	public void invoke(final AbstractHessianInput in, final AbstractHessianOutput out) throws IOException {
+		while (in.readHeader() != null) {
+			in.readObject();
+		}
+		final String methodName = in.readMethod();
+		if (!RemoteServiceBatch.METHOD_NAME.equals(methodName)) {
+			throw new IOException("Expected the method " + RemoteServiceBatch.METHOD_NAME + " but got " + methodName); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final int count = in.readInt();
+		final Call[] calls = new Call[count];
+		for (int i = 0; i < count; i++) {
+			calls[i] = readCall(in);
+		}
+		in.completeCall();
+
+		for (final Call call : calls) {
+			call.invoke();
+		}
+
+		out.startReply();
+		out.writeInt(count);
+		for (final Call call : calls) {
+			out.writeBoolean(call.failure == null);
+			out.writeObject(call.failure == null ? call.result : call.failure);
+		}
+		out.completeReply();
+	}
+
+	private Call readCall(final AbstractHessianInput in) throws IOException {
+		final Call call = new Call();
+		String path = in.readString();
+		final String mangledName = in.readString();
+		final int argc = in.readInt();
+
+		if (contextPath != null && contextPath.length() > 1 && path.startsWith(contextPath)) {
+			path = path.substring(contextPath.length());
+		}
+		final RemoteServiceDescription rsd = publisher.findService(path);
+		if (rsd == null) {
+			call.failure = new RemoteFailure("No remote service registered with the url " + path); //$NON-NLS-1$
+		} else {
+			call.skeleton = publisher.getSkeleton(rsd);
+			call.method = call.skeleton.findMethod(mangledName);
+			if (call.method == null) {
+				call.failure = new RemoteFailure("The service " + rsd.getServiceInterfaceClassName() //$NON-NLS-1$
+						+ " has no method named: " + mangledName); //$NON-NLS-1$
+			}
+		}
+
+		call.args = new Object[argc];
+		final Class<?>[] parameterTypes = call.method != null ? call.method.getParameterTypes() : null;
+		for (int i = 0; i < argc; i++) {
+			if (parameterTypes != null && i < parameterTypes.length) {
+				call.args[i] = in.readObject(parameterTypes[i]);
+			} else {
+				call.args[i] = in.readObject();
+			}
+		}
+		if (call.failure == null && argc != parameterTypes.length) {
+			call.failure = new RemoteFailure("Wrong number of arguments for the method " + mangledName); //$NON-NLS-1$
+		}
+		return call;
+	}
+
+	private static class Call {
+
+		private HessianSkeleton skeleton;
+		private Method method;
+		private Object[] args;
+		private Object result;
+		private Throwable failure;
+
+		private void invoke() {
+			if (failure != null) {
+				return;
+			}
+			try {
+				result = method.invoke(skeleton.getService(), args);
+			} catch (final InvocationTargetException e) {
+				failure = e.getTargetException();
+			} catch (final Throwable t) {
+				failure = t;
+			}
+			if (failure != null) {
+				LOGGER.log(LogService.LOG_DEBUG, "Remote call " + method + " in batch failed", failure); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.publisher.hessian;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletRequest;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+
+/**
+ * Executes Hessian invocations on threads of their own instead of the servlet
+ * container threads.
+ * <p>
+ * The invocations run on virtual threads if the Java runtime provides them
+ * (Java 21 and later), otherwise on a bounded pool of daemon threads. If the
+ * pool is exhausted the invocation runs on the calling thread.
+ * <p>
+ * The container thread is only released if the servlet container supports
+ * asynchronous requests (servlet 3.0 and later) and the servlet has been
+ * registered as async supported. Both are resolved at runtime, this bundle
+ * still only requires servlet 2.4; if they are missing the dispatcher servlet
+ * invokes on the container thread as before.
+ * <p>
+ * Each invocation sets the {@code MessageContextHolder} on its worker thread
+ * and clears it afterwards. The subject and session thread locals are set and
+ * cleared by the service hooks within the invocation, i.e. on the same worker
+ * thread.
+ */
+public class HessianInvocationExecutor {
+
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final long asyncTimeout;
+	private final Method isAsyncSupported;
+	private final Method startAsync;
+	private final Method setTimeout;
+	private final Method complete;
+
+	private final AtomicLong statOffloaded = new AtomicLong();
+	private final AtomicLong statInline = new AtomicLong();
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), HessianInvocationExecutor.class);
+
+	/**
+	 * @param maxThreads
+	 *            maximum number of threads if no virtual threads are available
+	 * @param asyncTimeout
+	 *            timeout in milliseconds of an asynchronous request; 0 for none
+	 */
+	public HessianInvocationExecutor(final int maxThreads, final long asyncTimeout) {
+		final ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+		this.virtualThreads = virtualThreadExecutor != null;
+		this.executor = virtualThreads ? virtualThreadExecutor : newThreadPool(maxThreads);
+		this.asyncTimeout = asyncTimeout;
+		Method isAsyncSupportedMethod = null;
+		Method startAsyncMethod = null;
+		Method setTimeoutMethod = null;
+		Method completeMethod = null;
+		try {
+			isAsyncSupportedMethod = ServletRequest.class.getMethod("isAsyncSupported"); //$NON-NLS-1$
+			startAsyncMethod = ServletRequest.class.getMethod("startAsync"); //$NON-NLS-1$
+			final Class<?> asyncContextClass = startAsyncMethod.getReturnType();
+			setTimeoutMethod = asyncContextClass.getMethod("setTimeout", long.class); //$NON-NLS-1$
+			completeMethod = asyncContextClass.getMethod("complete"); //$NON-NLS-1$
+		} catch (final NoSuchMethodException e) {
+			LOGGER.log(LogService.LOG_WARNING,
+					"The servlet API does not support asynchronous requests, invocations run on the container threads"); //$NON-NLS-1$
+			isAsyncSupportedMethod = null;
+		}
+		this.isAsyncSupported = isAsyncSupportedMethod;
+		this.startAsync = startAsyncMethod;
+		this.setTimeout = setTimeoutMethod;
+		this.complete = completeMethod;
+		LOGGER.log(LogService.LOG_INFO, "Hessian invocations run on " //$NON-NLS-1$
+				+ (virtualThreads ? "virtual threads" : "a pool of up to " + maxThreads + " threads")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * @return {@code true} if the invocations run on virtual threads
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @param request
+	 *            the request
+	 * @return {@code true} if the container thread of this request can be
+	 *         released
+	 */
+	public boolean isAsyncSupported(final ServletRequest request) {
+		if (isAsyncSupported == null) {
+			return false;
+		}
+		try {
+			return Boolean.TRUE.equals(isAsyncSupported.invoke(request));
+		} catch (final Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Puts the request into asynchronous mode and executes the invocation on a
+	 * worker thread. The request is completed after the invocation.
+	 *
+	 * @param request
+	 *            a request for which {@link #isAsyncSupported(ServletRequest)}
+	 *            is {@code true}
+	 * @param messageContext
+	 *            the message context of the invocation
+	 * @param invocation
+	 *            the invocation
+	 */
+	public void executeAsync(final ServletRequest request, final MessageContext messageContext,
+			final Runnable invocation) {
+		final Object asyncContext;
+		try {
+			asyncContext = startAsync.invoke(request);
+			setTimeout.invoke(asyncContext, asyncTimeout);
+		} catch (final Exception e) {
+			throw new IllegalStateException("Starting an asynchronous request failed", e); //$NON-NLS-1$
+		}
+		execute(messageContext, new Runnable() {
+			public void run() {
+				try {
+					invocation.run();
+				} finally {
+					try {
+						complete.invoke(asyncContext);
+					} catch (final Exception e) {
+						LOGGER.log(LogService.LOG_ERROR, "Completing an asynchronous request failed", e); //$NON-NLS-1$
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Executes the invocation on a worker thread (or the calling thread if no
+	 * worker is available) with the given message context.
+	 *
+	 * @param messageContext
+	 *            the message context of the invocation
+	 * @param invocation
+	 *            the invocation
+	 */
+	public void execute(final MessageContext messageContext, final Runnable invocation) {
+		final Runnable scoped = new Runnable() {
+			public void run() {
+				MessageContextHolder.setMessageContext(messageContext);
+				try {
+					invocation.run();
+				} finally {
+					MessageContextHolder.setMessageContext(null);
+				}
+			}
+		};
+		try {
+			executor.execute(scoped);
+			statOffloaded.incrementAndGet();
+		} catch (final RejectedExecutionException e) {
+			statInline.incrementAndGet();
+			final MessageContext callerContext = MessageContextHolder.getMessageContext();
+			try {
+				scoped.run();
+			} finally {
+				MessageContextHolder.setMessageContext(callerContext);
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting invocations; running invocations are finished.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public String getStatistic() {
+		return "Offloaded / Inline " + statOffloaded.get() + " / " + statInline.get(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @return the virtual thread executor of a Java 21+ runtime or
+	 *         {@code null}
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); //$NON-NLS-1$
+			return (ExecutorService) factory.invoke(null);
+		} catch (final Exception e) {
+			return null;
+		}
+	}
+
+	private static ExecutorService newThreadPool(final int maxThreads) {
+		return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "Riena-HessianInvoker-" + count.incrementAndGet()); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+}
@@ -16,6 +16,10 @@ import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.caucho.hessian.server.HessianSkeleton;
 
 import org.osgi.service.log.LogService;
 
@@ -42,12 +46,14 @@ public class HessianRemoteServicePublisher implements IServicePublisher {
 	private final IServiceMessageContextAccessor mca = new MsgCxtAcc();
 
 	private final HashMap<String, RemoteServiceDescription> webServiceDescriptions;
+	private final ConcurrentMap<RemoteServiceDescription, HessianSkeleton> skeletons;
 
 	private final static Logger LOGGER = Log4r.getLogger(Activator.getDefault(), HessianRemoteServicePublisher.class);
 	private final static String PORT = System.getProperty("org.eclipse.equinox.http.jetty.http.port"); // get the jetty PORT //$NON-NLS-1$
 
 	public HessianRemoteServicePublisher() {
 		webServiceDescriptions = new HashMap<String, RemoteServiceDescription>();
+		skeletons = new ConcurrentHashMap<RemoteServiceDescription, HessianSkeleton>();
 	}
 
 	/*
@@ -102,6 +108,7 @@ public class HessianRemoteServicePublisher implements IServicePublisher {
 	 */
 	public synchronized void unpublishService(final RemoteServiceDescription rsd) {
 		webServiceDescriptions.remove(SERVLET_PATH + rsd.getPath());
+		skeletons.remove(rsd);
 		LOGGER.log(LogService.LOG_DEBUG, "unpublished web service. " + rsd); //$NON-NLS-1$
 		LOGGER.log(LogService.LOG_DEBUG, "web service count: " + webServiceDescriptions.size()); //$NON-NLS-1$
 	}
@@ -121,6 +128,34 @@ public class HessianRemoteServicePublisher implements IServicePublisher {
 		return rsd;
 	}
 
+	/**
+	 * Get the {@code HessianSkeleton} for the given published service. The
+	 * skeleton is created on first access and reused for all subsequent calls
+	 * until the service gets unpublished.
+	 * 
+	 * @param rsd
+	 *            the description of a published service
+	 * @return the skeleton dispatching calls to the service
+	 */
+	public HessianSkeleton getSkeleton(final RemoteServiceDescription rsd) {
+		HessianSkeleton skeleton = skeletons.get(rsd);
+		if (skeleton == null) {
+			skeleton = new HessianSkeleton(rsd.getService(), rsd.getServiceInterfaceClass());
+			final HessianSkeleton previous = skeletons.putIfAbsent(rsd, skeleton);
+			if (previous != null) {
+				skeleton = previous;
+			} else if (!isPublished(rsd)) {
+				// the service has been unpublished meanwhile, do not keep its skeleton
+				skeletons.remove(rsd, skeleton);
+			}
+		}
+		return skeleton;
+	}
+
+	private synchronized boolean isPublished(final RemoteServiceDescription rsd) {
+		return webServiceDescriptions.get(SERVLET_PATH + rsd.getPath()) == rsd;
+	}
+
 	public IServiceMessageContextAccessor getMessageContextAccessor() {
 		return mca;
 	}
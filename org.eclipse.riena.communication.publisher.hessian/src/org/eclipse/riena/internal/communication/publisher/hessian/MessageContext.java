@@ -11,6 +11,7 @@
 package org.eclipse.riena.internal.communication.publisher.hessian;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
@@ -33,7 +34,10 @@ public class MessageContext implements IServiceMessageContext {
 
 	public List<String> getRequestHeaderValue(final String name) {
 		final Enumeration<String> enumeration = httpReq.getHeaders(name);
-		final List<String> hValues = new ArrayList<String>();
+		if (enumeration == null || !enumeration.hasMoreElements()) {
+			return Collections.emptyList();
+		}
+		final List<String> hValues = new ArrayList<String>(2);
 		while (enumeration.hasMoreElements()) {
 			final String value = enumeration.nextElement();
 			hValues.add(value);
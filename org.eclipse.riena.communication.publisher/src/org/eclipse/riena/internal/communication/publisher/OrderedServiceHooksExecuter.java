@@ -10,7 +10,6 @@
  *******************************************************************************/
 package org.eclipse.riena.internal.communication.publisher;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.riena.communication.core.hooks.IServiceHook;
@@ -24,8 +23,8 @@ import org.eclipse.riena.core.wire.InjectExtension;
  */
 public class OrderedServiceHooksExecuter implements IServiceHook {
 
-	private List<IServiceHook> orderedServiceHooks;
-	private List<IServiceHook> reversedServiceHooks;
+	private volatile IServiceHook[] orderedServiceHooks = new IServiceHook[0];
+	private volatile IServiceHook[] reversedServiceHooks = new IServiceHook[0];
 
 	/**
 	 * {@inheritDoc}
@@ -53,14 +52,13 @@ public class OrderedServiceHooksExecuter implements IServiceHook {
 					extension.getPostHooks());
 		}
 		final List<IServiceHook> tempOrdered = orderer.getOrderedObjects();
-		final List<IServiceHook> tempReverse = new ArrayList<IServiceHook>(tempOrdered.size());
+		final IServiceHook[] tempReverse = new IServiceHook[tempOrdered.size()];
+		int i = 0;
 		for (final IServiceHook hook : Iter.ableReverse(tempOrdered)) {
-			tempReverse.add(hook);
-		}
-		synchronized (this) {
-			this.orderedServiceHooks = tempOrdered;
-			this.reversedServiceHooks = tempReverse;
+			tempReverse[i++] = hook;
 		}
+		this.orderedServiceHooks = tempOrdered.toArray(new IServiceHook[tempOrdered.size()]);
+		this.reversedServiceHooks = tempReverse;
 	}
 
 }
@@ -30,6 +30,8 @@ import org.eclipse.riena.core.wire.Wire;
 public class ServiceHooksProxy extends AbstractHooksProxy implements InvocationHandler {
 
 	private final Set<IServiceHook> serviceHooks = new HashSet<IServiceHook>();
+	/** the hooks as array, rebuilt on (un)bind, so that a call does not iterate the set */
+	private volatile IServiceHook[] serviceHooksArray = new IServiceHook[0];
 	private RemoteServiceDescription rsd;
 	private IServiceMessageContextAccessor mca;
 	private Subject subject;
@@ -54,12 +56,13 @@ public class ServiceHooksProxy extends AbstractHooksProxy implements InvocationH
 		}
 
 		ServiceContext context = null;
+		final IServiceHook[] hooks = serviceHooksArray;
 		// only create context (it might be expensive), if you have serviceHooks
-		if (serviceHooks.size() > 0) {
+		if (hooks.length > 0) {
 			context = new ServiceContext(rsd, method, getServiceInstance(), mc);
 
 			// call before service hook
-			for (final IServiceHook sHook : serviceHooks) {
+			for (final IServiceHook sHook : hooks) {
 				sHook.beforeService(context);
 			}
 
@@ -79,7 +82,7 @@ public class ServiceHooksProxy extends AbstractHooksProxy implements InvocationH
 		} finally {
 			// context might be null, but serviceHooks were injected during invoke
 			if (context != null) {
-				for (final IServiceHook sHook : serviceHooks) {
+				for (final IServiceHook sHook : hooks) {
 					sHook.afterService(context);
 				}
 				if (context.getTargetException() != null) {
@@ -91,11 +94,17 @@ public class ServiceHooksProxy extends AbstractHooksProxy implements InvocationH
 
 	@InjectService
 	public void bind(final IServiceHook serviceHook) {
-		serviceHooks.add(serviceHook);
+		synchronized (serviceHooks) {
+			serviceHooks.add(serviceHook);
+			serviceHooksArray = serviceHooks.toArray(new IServiceHook[serviceHooks.size()]);
+		}
 	}
 
 	public void unbind(final IServiceHook serviceHook) {
-		serviceHooks.remove(serviceHook);
+		synchronized (serviceHooks) {
+			serviceHooks.remove(serviceHook);
+			serviceHooksArray = serviceHooks.toArray(new IServiceHook[serviceHooks.size()]);
+		}
 	}
 
 	public Object getServiceInstance() {
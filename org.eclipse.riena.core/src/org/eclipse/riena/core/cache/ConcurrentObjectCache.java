@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+import org.eclipse.riena.internal.core.Activator;
+
+/**
+ * Concurrent implementation of {@link IGenericObjectCache} (alternative to
+ * {@link GenericObjectCache} for caches that are accessed by many threads).
+ * <p>
+ * Beyond the description in the interface, this implementation
+ * <ul>
+ * <li>never takes a global lock on get/put/remove, entries live in a
+ * {@code ConcurrentHashMap} and each entry carries its own expiry
+ * timestamp,</li>
+ * <li>holds its values with hard references and bounds the number of entries
+ * by a maximum size; once the maximum size is exceeded the entries chosen by
+ * the {@link EvictionPolicy} are removed,</li>
+ * <li>keeps its statistics in atomic counters.</li>
+ * </ul>
+ * Because values are never released by the GC the minimum size is always
+ * satisfied; it is only kept to fulfill the interface.
+ */
+public class ConcurrentObjectCache<K, V> implements IGenericObjectCache<K, V> {
+
+	/**
+	 * Strategy for choosing the entries to remove when the cache exceeds its
+	 * maximum size.
+	 */
+	public enum EvictionPolicy {
+		/** evict the least recently used entries */
+		LRU,
+		/** evict the least frequently used entries */
+		LFU
+	}
+
+	/** default maximum number of entries */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private final static Logger LOGGER = Log4r.getLogger(Activator.getDefault(), ConcurrentObjectCache.class);
+
+	private final ConcurrentHashMap<K, Entry<V>> cacheEntries;
+	private final EvictionPolicy evictionPolicy;
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	/** timeout in milliseconds * */
+	private volatile long timeout;
+	private volatile int minimumSize;
+	private volatile int maximumSize;
+	private final AtomicLong statHit = new AtomicLong();
+	private final AtomicLong statNotFound = new AtomicLong();
+	private final AtomicLong statTimeout = new AtomicLong();
+	private final AtomicLong statEvicted = new AtomicLong();
+	private String name = "ConcurrentCache : "; //$NON-NLS-1$
+
+	/**
+	 * Create a LRU cache with the default maximum size.
+	 */
+	public ConcurrentObjectCache() {
+		this(EvictionPolicy.LRU, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Create a cache with the given eviction policy and maximum size.
+	 *
+	 * @param evictionPolicy
+	 *            the policy to choose the entries to evict
+	 * @param maximumSize
+	 *            the maximum number of entries
+	 */
+	public ConcurrentObjectCache(final EvictionPolicy evictionPolicy, final int maximumSize) {
+		super();
+		LOGGER.log(LogService.LOG_DEBUG, "creating new ConcurrentObjectCache instance, policy = " + evictionPolicy //$NON-NLS-1$
+				+ ", maximumSize = " + maximumSize); //$NON-NLS-1$
+		if (evictionPolicy == null) {
+			throw new IllegalArgumentException("evictionPolicy must not be null"); //$NON-NLS-1$
+		}
+		this.evictionPolicy = evictionPolicy;
+		cacheEntries = new ConcurrentHashMap<K, Entry<V>>();
+		setMaximumSize(maximumSize);
+		// default timeout 1 minute
+		setTimeout(60000);
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#setName(java.lang.String)
+	 */
+	public void setName(final String name) {
+		this.name = name + " : "; //$NON-NLS-1$
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.eclipse.riena.core.cache.IGenericObjectCache#get(java.lang.Object)
+	 */
+	public V get(final K key) {
+		final Entry<V> entry = cacheEntries.get(key);
+		if (entry == null) {
+			statNotFound.incrementAndGet();
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - entry.created > timeout) {
+			// only remove the expired entry, not a fresh one put concurrently
+			cacheEntries.remove(key, entry);
+			statTimeout.incrementAndGet();
+			return null;
+		}
+		entry.touch(now);
+		statHit.incrementAndGet();
+		return entry.value;
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#put(Object,
+	 *      java.lang.Object)
+	 */
+	public void put(final K key, final V value) {
+		cacheEntries.put(key, new Entry<V>(value, System.currentTimeMillis()));
+		if (cacheEntries.size() > maximumSize) {
+			evict();
+		}
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#remove(Object)
+	 */
+	public void remove(final K key) {
+		cacheEntries.remove(key);
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#clear()
+	 */
+	public void clear() {
+		LOGGER.log(LogService.LOG_DEBUG, "clear"); //$NON-NLS-1$
+		cacheEntries.clear();
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#size()
+	 */
+	public int size() {
+		return cacheEntries.size();
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#getSize()
+	 */
+	public int getSize() {
+		return size();
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#setTimeout(int)
+	 */
+	public void setTimeout(final int milliseconds) {
+		LOGGER.log(LogService.LOG_DEBUG, "setTimeout = " + milliseconds); //$NON-NLS-1$
+		timeout = milliseconds;
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#getTimeout()
+	 */
+	public int getTimeout() {
+		return (int) timeout;
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#setMinimumSize(int)
+	 */
+	public void setMinimumSize(final int minSize) {
+		LOGGER.log(LogService.LOG_DEBUG, "setMinSize = " + minSize); //$NON-NLS-1$
+		minimumSize = minSize;
+	}
+
+	/**
+	 * @see org.eclipse.riena.core.cache.IGenericObjectCache#getMinimumSize()
+	 */
+	public int getMinimumSize() {
+		return minimumSize;
+	}
+
+	/**
+	 * Set the maximum number of entries held in the cache.
+	 *
+	 * @param maxSize
+	 *            the maximum number of entries; must be greater than 0
+	 */
+	public void setMaximumSize(final int maxSize) {
+		LOGGER.log(LogService.LOG_DEBUG, "setMaxSize = " + maxSize); //$NON-NLS-1$
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maximum size must be greater than 0"); //$NON-NLS-1$
+		}
+		maximumSize = maxSize;
+	}
+
+	/**
+	 * @return the maximum number of entries held in the cache
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return the eviction policy of this cache
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	public String getStatistic() {
+		return name + "Hit / NotFound / Timeout / Evicted " //$NON-NLS-1$
+				+ statHit.get() + " / " + statNotFound.get() + " / " + statTimeout.get() + " / " + statEvicted.get(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Shrink the cache below its maximum size. Only one thread evicts at a
+	 * time, all other threads continue without waiting. Expired entries are
+	 * removed first, then the entries chosen by the eviction policy. Each
+	 * eviction run frees some headroom so that not every put has to evict.
+	 */
+	private void evict() {
+		if (!evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			final int target = maximumSize - Math.max(1, maximumSize / 10);
+			final long now = System.currentTimeMillis();
+			final List<Candidate<K, V>> candidates = new ArrayList<Candidate<K, V>>(cacheEntries.size());
+			int removed = 0;
+			for (final Map.Entry<K, Entry<V>> mapEntry : cacheEntries.entrySet()) {
+				if (now - mapEntry.getValue().created > timeout) {
+					if (cacheEntries.remove(mapEntry.getKey(), mapEntry.getValue())) {
+						statTimeout.incrementAndGet();
+					}
+				} else {
+					candidates.add(new Candidate<K, V>(mapEntry.getKey(), mapEntry.getValue()));
+				}
+			}
+			int excess = cacheEntries.size() - target;
+			if (excess > 0) {
+				Collections.sort(candidates, getEvictionOrder());
+				for (int i = 0; i < candidates.size() && excess > 0; i++) {
+					final Candidate<K, V> candidate = candidates.get(i);
+					if (cacheEntries.remove(candidate.key, candidate.entry)) {
+						excess--;
+						removed++;
+					}
+				}
+				statEvicted.addAndGet(removed);
+			}
+			LOGGER.log(LogService.LOG_DEBUG, name + "evicted " + removed + " entries"); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private Comparator<Candidate<K, V>> getEvictionOrder() {
+		return new Comparator<Candidate<K, V>>() {
+			public int compare(final Candidate<K, V> c1, final Candidate<K, V> c2) {
+				if (evictionPolicy == EvictionPolicy.LFU && c1.frequency != c2.frequency) {
+					return c1.frequency < c2.frequency ? -1 : 1;
+				}
+				return c1.lastAccess < c2.lastAccess ? -1 : (c1.lastAccess == c2.lastAccess ? 0 : 1);
+			}
+		};
+	}
+
+	/**
+	 * The usage data of an entry at the start of an eviction run. Concurrent
+	 * accesses keep changing the entry, so sorting must use this snapshot to
+	 * stay consistent.
+	 */
+	private static final class Candidate<K, V> {
+		private final K key;
+		private final Entry<V> entry;
+		private final long lastAccess;
+		private final int frequency;
+
+		private Candidate(final K key, final Entry<V> entry) {
+			this.key = key;
+			this.entry = entry;
+			this.lastAccess = entry.lastAccess;
+			this.frequency = entry.frequency.get();
+		}
+	}
+
+	/**
+	 * A cached value together with its creation time and usage data.
+	 */
+	private static final class Entry<V> {
+		private final V value;
+		private final long created;
+		private volatile long lastAccess;
+		private final AtomicInteger frequency = new AtomicInteger();
+
+		private Entry(final V value, final long created) {
+			this.value = value;
+			this.created = created;
+			this.lastAccess = created;
+		}
+
+		private void touch(final long now) {
+			lastAccess = now;
+			frequency.incrementAndGet();
+		}
+	}
+}
@@ -14,9 +14,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.osgi.service.log.LogService;
 
@@ -37,30 +41,90 @@ import org.eclipse.riena.monitor.common.Collectible;
 /**
  * The {@code Aggregator} aggregates all collectibles from the collectors. Each
  * collectible may trigger the transmission of the collectibles.
+ * <p>
+ * The collectors hand over the collectibles through a bounded lock-free
+ * {@code RingBuffer} to a single worker thread that puts them into the store.
+ * If the ring buffer is full the {@link OverflowPolicy} decides whether the
+ * collector waits or a collectible is dropped. The accepted and dropped
+ * collectibles are counted per category.
  */
 public class Aggregator implements IAggregator {
 
+	/**
+	 * System property with the capacity of the ring buffer (default 4096,
+	 * rounded up to a power of two).
+	 */
+	public static final String RIENA_MONITOR_AGGREGATOR_CAPACITY_PROPERTY = "riena.monitor.aggregator.capacity"; //$NON-NLS-1$
+	/**
+	 * System property with the {@link OverflowPolicy} if the ring buffer is
+	 * full, one of {@code block}, {@code dropoldest} or {@code dropnewest}
+	 * (default {@code dropoldest}). The collectors run on arbitrary threads,
+	 * e.g. the UI thread, so {@code block} should be used with care.
+	 */
+	public static final String RIENA_MONITOR_AGGREGATOR_OVERFLOW_PROPERTY = "riena.monitor.aggregator.overflow"; //$NON-NLS-1$
+
+	/**
+	 * What to do with a collectible if the ring buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The collector waits until the worker has made room. A collectible
+		 * collected by the worker thread itself (e.g. a log entry of the
+		 * store) is dropped instead.
+		 */
+		BLOCK,
+		/**
+		 * The oldest collectible in the ring buffer is dropped.
+		 */
+		DROP_OLDEST,
+		/**
+		 * The new collectible is dropped.
+		 */
+		DROP_NEWEST
+	}
+
 	private IClientInfoProvider clientInfoProvider;
-	private IStore store;
-	private ISender sender;
+	private volatile IStore store;
+	private volatile ISender sender;
 	private ICollector[] collectors;
-	private boolean workerStop;
-	private boolean started;
-	private final BlockingQueue<Runnable> workQueue;
+	private volatile boolean started;
+	private final RingBuffer<Collectible<?>> ringBuffer;
+	private final OverflowPolicy overflowPolicy;
+	private final Queue<String> transferTriggers = new ConcurrentLinkedQueue<String>();
+	private final ConcurrentMap<String, CategoryCounters> counters = new ConcurrentHashMap<String, CategoryCounters>();
 	private final Map<String, Category> nameCategories = new HashMap<String, Category>();
 	private final Map<ICollector, Category> collectorCategories = new HashMap<ICollector, Category>();
-	private final CountDownLatch workSignal;
+	private volatile Worker worker;
+
+	private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
 
 	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), Aggregator.class);
 
 	public Aggregator() {
-		workSignal = new CountDownLatch(1);
-		workQueue = new LinkedBlockingQueue<Runnable>();
-		startWorker();
+		this(Integer.getInteger(RIENA_MONITOR_AGGREGATOR_CAPACITY_PROPERTY, 4096), getOverflowPolicy(System
+				.getProperty(RIENA_MONITOR_AGGREGATOR_OVERFLOW_PROPERTY, "dropoldest"))); //$NON-NLS-1$
 	}
 
-	private void startWorker() {
-		new Thread(new Worker(), "Client Monitoring Aggregator Worker").start(); //$NON-NLS-1$
+	/**
+	 * @param capacity
+	 *            the capacity of the ring buffer
+	 * @param overflowPolicy
+	 *            what to do if the ring buffer is full
+	 */
+	public Aggregator(final int capacity, final OverflowPolicy overflowPolicy) {
+		Assert.isLegal(overflowPolicy != null, "overflowPolicy must not be null"); //$NON-NLS-1$
+		ringBuffer = new RingBuffer<Collectible<?>>(capacity);
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	private static OverflowPolicy getOverflowPolicy(final String name) {
+		for (final OverflowPolicy policy : OverflowPolicy.values()) {
+			if (policy.name().replace("_", "").equalsIgnoreCase(name)) { //$NON-NLS-1$ //$NON-NLS-2$
+				return policy;
+			}
+		}
+		LOGGER.log(LogService.LOG_WARNING, "Unknown overflow policy " + name + ", using " + OverflowPolicy.DROP_OLDEST); //$NON-NLS-1$ //$NON-NLS-2$
+		return OverflowPolicy.DROP_OLDEST;
 	}
 
 	/*
@@ -87,9 +151,10 @@ public class Aggregator implements IAggregator {
 		for (final ICollector collector : Iter.able(collectors)) {
 			collector.start(this, collectorCategories.get(collector), clientInfoProvider);
 		}
-		workerStop = false;
+		// a stopped worker ends, the collectibles left in the ring buffer are stored by the new one
+		worker = new Worker();
+		worker.start();
 		started = true;
-		workSignal.countDown();
 	}
 
 	/*
@@ -99,11 +164,11 @@ public class Aggregator implements IAggregator {
 		if (!started) {
 			return;
 		}
+		started = false;
 		stopWorker();
 		stopCollectors();
 		stopSender();
 		stopStore();
-		started = false;
 	}
 
 	@InjectExtension(min = 0, max = 1)
@@ -135,7 +200,11 @@ public class Aggregator implements IAggregator {
 	}
 
 	private void stopWorker() {
-		workerStop = true;
+		final Worker currentWorker = worker;
+		if (currentWorker != null) {
+			currentWorker.stopped = true;
+			LockSupport.unpark(currentWorker);
+		}
 	}
 
 	private void stopCollectors() {
@@ -180,79 +249,177 @@ public class Aggregator implements IAggregator {
 	/*
 	 * {@inheritDoc}
 	 */
-	public synchronized void collect(final Collectible<?> collectible) {
+	public void collect(final Collectible<?> collectible) {
 		if (!started) {
 			return;
 		}
-		final boolean elementAdded = workQueue.offer(new CollectTask(store, collectible));
-		Assert.isTrue(elementAdded);
+		final CategoryCounters categoryCounters = getCounters(collectible.getCategory());
+		if (ringBuffer.offer(collectible) || offerOnOverflow(collectible)) {
+			categoryCounters.accepted.incrementAndGet();
+			signalWorker();
+		} else {
+			categoryCounters.dropped.incrementAndGet();
+		}
+	}
+
+	private boolean offerOnOverflow(final Collectible<?> collectible) {
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			do {
+				final Collectible<?> oldest = ringBuffer.poll();
+				if (oldest != null) {
+					getCounters(oldest.getCategory()).dropped.incrementAndGet();
+				}
+			} while (!ringBuffer.offer(collectible));
+			return true;
+		case BLOCK:
+			if (Thread.currentThread() == worker) {
+				// waiting for itself
+				return false;
+			}
+			do {
+				signalWorker();
+				LockSupport.parkNanos(this, BLOCK_WAIT_NANOS);
+				if (!started) {
+					return false;
+				}
+			} while (!ringBuffer.offer(collectible));
+			return true;
+		default:
+			return false;
+		}
 	}
 
 	/*
 	 * {@inheritDoc}
 	 */
-	public synchronized void triggerTransfer(final String category) {
+	public void triggerTransfer(final String category) {
 		if (store == null || sender == null) {
 			return;
 		}
-		final boolean elementAdded = workQueue.offer(new TriggerTransferTask(store, sender, category));
-		Assert.isTrue(elementAdded);
+		transferTriggers.add(category);
+		signalWorker();
 	}
 
-	private class Worker implements Runnable {
+	/**
+	 * @param category
+	 *            the category name
+	 * @return the number of collectibles of the category that have been put
+	 *         into the ring buffer
+	 */
+	public long getAcceptedCollectibles(final String category) {
+		final CategoryCounters categoryCounters = counters.get(category);
+		return categoryCounters == null ? 0 : categoryCounters.accepted.get();
+	}
 
-		/*
-		 * {@inheritDoc}
-		 */
-		public void run() {
-			try {
-				workSignal.await();
-			} catch (final InterruptedException e) {
-				Thread.currentThread().interrupt();
-				return;
-			}
+	/**
+	 * @param category
+	 *            the category name
+	 * @return the number of collectibles of the category that have been
+	 *         dropped because the ring buffer was full
+	 */
+	public long getDroppedCollectibles(final String category) {
+		final CategoryCounters categoryCounters = counters.get(category);
+		return categoryCounters == null ? 0 : categoryCounters.dropped.get();
+	}
 
-			while (!workerStop) {
-				try {
-					final Runnable runnable = workQueue.take();
-					runnable.run();
-				} catch (final InterruptedException e) {
-					Thread.currentThread().interrupt();
-					break;
-				}
-			}
+	public String getStatistic() {
+		final StringBuilder bob = new StringBuilder("Accepted / Dropped:"); //$NON-NLS-1$
+		for (final Map.Entry<String, CategoryCounters> entry : counters.entrySet()) {
+			bob.append(' ').append(entry.getKey()).append(' ').append(entry.getValue().accepted.get()).append(" / ") //$NON-NLS-1$
+					.append(entry.getValue().dropped.get());
 		}
+		return bob.toString();
 	}
 
-	private static final class CollectTask implements Runnable {
-		private final IStore store;
-		private final Collectible<?> collectible;
-
-		public CollectTask(final IStore store, final Collectible<?> collectible) {
-			Assert.isLegal(store != null, "store must be not null"); //$NON-NLS-1$
-			this.store = store;
-			this.collectible = collectible;
+	private CategoryCounters getCounters(final String category) {
+		CategoryCounters categoryCounters = counters.get(category);
+		if (categoryCounters == null) {
+			final CategoryCounters created = new CategoryCounters();
+			categoryCounters = counters.putIfAbsent(category, created);
+			if (categoryCounters == null) {
+				categoryCounters = created;
+			}
 		}
+		return categoryCounters;
+	}
 
-		public void run() {
-			store.collect(collectible);
+	private void signalWorker() {
+		final Worker currentWorker = worker;
+		if (currentWorker != null && currentWorker.waiting) {
+			LockSupport.unpark(currentWorker);
 		}
 	}
 
-	private static final class TriggerTransferTask implements Runnable {
-		private final IStore store;
-		private final ISender sender;
-		private final String category;
+	/**
+	 * Puts the collectibles into the store. Each start of the aggregator
+	 * creates a new worker.
+	 */
+	private class Worker extends Thread {
 
-		public TriggerTransferTask(final IStore store, final ISender sender, final String category) {
-			this.store = store;
-			this.sender = sender;
-			this.category = category;
+		private volatile boolean stopped;
+		private volatile boolean waiting;
+
+		public Worker() {
+			super("Client Monitoring Aggregator Worker"); //$NON-NLS-1$
 		}
 
+		/*
+		 * {@inheritDoc}
+		 */
+		@Override
 		public void run() {
-			store.prepareTransferables(category);
-			sender.triggerTransfer(category);
+			while (!stopped) {
+				// a trigger is served before further collectibles, producers may keep the buffer filled
+				final String category = transferTriggers.poll();
+				if (category != null) {
+					// the collectibles offered before the trigger must be stored first, but
+					// only as many as are pending now
+					for (int count = ringBuffer.size(); count > 0; count--) {
+						final Collectible<?> pending = ringBuffer.poll();
+						if (pending == null) {
+							break;
+						}
+						collect(pending);
+					}
+					triggerTransfer(category);
+					continue;
+				}
+				final Collectible<?> collectible = ringBuffer.poll();
+				if (collectible != null) {
+					collect(collectible);
+					continue;
+				}
+				waiting = true;
+				if (ringBuffer.isEmpty() && transferTriggers.isEmpty() && !stopped) {
+					LockSupport.park(this);
+				}
+				waiting = false;
+				if (Thread.interrupted()) {
+					break;
+				}
+			}
 		}
+
+		private void collect(final Collectible<?> collectible) {
+			final IStore currentStore = store;
+			if (currentStore != null) {
+				currentStore.collect(collectible);
+			}
+		}
+
+		private void triggerTransfer(final String category) {
+			final IStore currentStore = store;
+			final ISender currentSender = sender;
+			if (currentStore != null && currentSender != null) {
+				currentStore.prepareTransferables(category);
+				currentSender.triggerTransfer(category);
+			}
+		}
+	}
+
+	private static final class CategoryCounters {
+		private final AtomicLong accepted = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
 	}
 }
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.monitor.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * A bounded lock-free queue for many producers and consumers on a ring of
+ * pre-allocated slots.
+ * <p>
+ * Each slot has a sequence number telling whether it may be written or read
+ * for the current lap; producers and consumers claim a position with a CAS on
+ * the enqueue or dequeue counter. Neither {@code offer()} nor {@code poll()}
+ * allocates or blocks.
+ */
+public class RingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final AtomicLong enqueuePosition = new AtomicLong();
+	private final AtomicLong dequeuePosition = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            the minimum capacity, it is rounded up to a power of two
+	 */
+	public RingBuffer(final int capacity) {
+		Assert.isLegal(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30"); //$NON-NLS-1$
+		final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		mask = size - 1;
+		elements = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @param element
+	 *            the element, must not be {@code null}
+	 * @return {@code false} if the buffer is full
+	 */
+	public boolean offer(final E element) {
+		while (true) {
+			final long position = enqueuePosition.get();
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (enqueuePosition.compareAndSet(position, position + 1)) {
+					elements.set(index, element);
+					// publishes the element for the consumer
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest element or {@code null} if the buffer is empty
+	 */
+	public E poll() {
+		while (true) {
+			final long position = dequeuePosition.get();
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (dequeuePosition.compareAndSet(position, position + 1)) {
+					final E element = elements.get(index);
+					elements.set(index, null);
+					// frees the slot for the producer of the next lap
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+			} else if (difference < 0) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * @return the (approximate) number of elements
+	 */
+	public int size() {
+		return (int) Math.max(0, Math.min(enqueuePosition.get() - dequeuePosition.get(), capacity()));
+	}
+
+	/**
+	 * @return {@code true} if the buffer is (approximately) empty
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+}
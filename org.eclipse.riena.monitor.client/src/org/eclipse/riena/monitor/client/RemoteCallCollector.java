@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.client;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExecutableExtension;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import org.eclipse.riena.communication.core.hooks.CallContext;
+import org.eclipse.riena.communication.core.hooks.ICallHook;
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+import org.eclipse.riena.core.util.Literal;
+import org.eclipse.riena.core.util.Millis;
+import org.eclipse.riena.core.util.PropertiesUtils;
+import org.eclipse.riena.internal.monitor.client.Activator;
+import org.eclipse.riena.monitor.common.IReceiver;
+import org.eclipse.riena.monitor.common.RemoteCallMetrics;
+
+/**
+ * Collects metrics of the remote service calls. The collector registers itself
+ * as {@code ICallHook} while it is started and measures latency, transferred
+ * bytes and remote failures per service method.
+ * <p>
+ * Instead of an item per call it collects a {@code RemoteCallMetrics} per
+ * service method that has been called within an interval.
+ * <p>
+ * Example extension:
+ * 
+ * <pre>
+ * &lt;extension point=&quot;org.eclipse.riena.monitor.client.collectors&quot;&gt;
+ *    &lt;collector
+ *          category=&quot;RemoteCallCollector&quot;
+ *          class=&quot;org.eclipse.riena.monitor.client.RemoteCallCollector: interval=5 m; triggerTransfer=true&quot;
+ *          maxItems=&quot;1000&quot;&gt;
+ *    &lt;/collector&gt;
+ * &lt;/extension&gt;
+ * </pre>
+ * 
+ * The interval is given as defined by {@link Millis#valueOf(String)} (default
+ * 5 minutes). If triggerTransfer is {@code true} (the default) a transfer is
+ * triggered after each interval with calls.
+ *
+ * @since 6.0
+ */
+public class RemoteCallCollector extends AbstractCollector implements ICallHook, IExecutableExtension {
+
+	private long interval = Millis.minutes(5);
+	private boolean transfer = true;
+	private final ConcurrentMap<String, MethodMetrics> metrics = new ConcurrentHashMap<String, MethodMetrics>();
+	private long intervalStart = System.currentTimeMillis();
+	private ServiceRegistration callHookRegistration;
+	private Snapshooter snapshooter;
+
+	private static final String INTERVAL = "interval"; //$NON-NLS-1$
+	private static final String INTERVAL_DEFAULT = "5 m"; //$NON-NLS-1$
+	private static final String TRIGGER_TRANSFER = "triggerTransfer"; //$NON-NLS-1$
+	private static final String TRIGGER_TRANSFER_DEFAULT = Boolean.TRUE.toString();
+	private static final String START_PROPERTY = "riena.monitor.callStart"; //$NON-NLS-1$
+	private static final String SEPARATOR = "#"; //$NON-NLS-1$
+	private static final Set<String> OBJECT_METHODS = new HashSet<String>();
+
+	static {
+		for (final Method method : Object.class.getMethods()) {
+			OBJECT_METHODS.add(method.getName());
+		}
+	}
+
+	public void setInitializationData(final IConfigurationElement config, final String propertyName, final Object data)
+			throws CoreException {
+		try {
+			final Map<String, String> properties = PropertiesUtils.asMap(data,
+					Literal.map(INTERVAL, INTERVAL_DEFAULT).map(TRIGGER_TRANSFER, TRIGGER_TRANSFER_DEFAULT));
+			interval = Millis.valueOf(properties.get(INTERVAL));
+			transfer = Boolean.parseBoolean(properties.get(TRIGGER_TRANSFER));
+		} catch (final IllegalArgumentException e) {
+			throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Bad configuration.", e)); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		intervalStart = System.currentTimeMillis();
+		if (Activator.getDefault() != null) {
+			final BundleContext context = Activator.getDefault().getContext();
+			callHookRegistration = context.registerService(ICallHook.class.getName(), this, null);
+		}
+		snapshooter = new Snapshooter();
+		snapshooter.schedule(interval);
+	}
+
+	@Override
+	protected void doStop() {
+		if (callHookRegistration != null) {
+			callHookRegistration.unregister();
+			callHookRegistration = null;
+		}
+		snapshooter.cancel();
+		snapshooter = null;
+		snapshot();
+	}
+
+	public void beforeCall(final CallContext context) {
+		context.setProperty(START_PROPERTY, Long.toString(System.nanoTime()));
+	}
+
+	public void afterCall(final CallContext context) {
+		final String start = context.getProperty(START_PROPERTY);
+		if (start == null || IReceiver.class.getName().equals(context.getInterfaceName())) {
+			// the transfer of the collectibles is not measured, it would always trigger another transfer
+			return;
+		}
+		if (isObjectMethod(context)) {
+			// the methods of Object are not called remotely (like equals or hashCode)
+			return;
+		}
+		final long latency = (System.nanoTime() - Long.parseLong(start)) / 1000000;
+		final ICallMessageContext messageContext = context.getMessageContext();
+		final int bytesSent = messageContext != null ? messageContext.getBytesWritten() : 0;
+		final int bytesReceived = messageContext != null ? messageContext.getBytesRead() : 0;
+		getMetrics(context.getInterfaceName(), context.getMethodName()).add(latency, bytesSent, bytesReceived,
+				context.hasRemoteFailure());
+	}
+
+	private static boolean isObjectMethod(final CallContext context) {
+		final Method method;
+		try {
+			method = context.getMethod();
+		} catch (final UnsupportedOperationException e) {
+			// overloaded methods of the service interface
+			return false;
+		}
+		if (method != null) {
+			return method.getDeclaringClass() == Object.class;
+		}
+		// the service interface has no method of that name
+		return OBJECT_METHODS.contains(context.getMethodName());
+	}
+
+	/**
+	 * Collect the metrics of the methods called since the last snapshot.
+	 */
+	synchronized void snapshot() {
+		final long intervalEnd = System.currentTimeMillis();
+		boolean collected = false;
+		for (final Map.Entry<String, MethodMetrics> entry : metrics.entrySet()) {
+			final String key = entry.getKey();
+			final RemoteCallMetrics snapshot = entry.getValue().snapshot(key.substring(0, key.indexOf(SEPARATOR)),
+					key.substring(key.indexOf(SEPARATOR) + 1), intervalStart, intervalEnd);
+			if (snapshot != null) {
+				collect(snapshot);
+				collected = true;
+			}
+		}
+		intervalStart = intervalEnd;
+		if (collected && transfer && isReady()) {
+			triggerTransfer();
+		}
+	}
+
+	private MethodMetrics getMetrics(final String serviceName, final String methodName) {
+		final String key = serviceName + SEPARATOR + methodName;
+		final MethodMetrics methodMetrics = metrics.get(key);
+		if (methodMetrics != null) {
+			return methodMetrics;
+		}
+		final MethodMetrics newMethodMetrics = new MethodMetrics();
+		final MethodMetrics existing = metrics.putIfAbsent(key, newMethodMetrics);
+		return existing != null ? existing : newMethodMetrics;
+	}
+
+	/**
+	 * The counters of one service method. A snapshot resets each counter on its
+	 * own, so a call completing during a snapshot may be split between two
+	 * intervals.
+	 */
+	private static final class MethodMetrics {
+
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong bytesSent = new AtomicLong();
+		private final AtomicLong bytesReceived = new AtomicLong();
+		private final AtomicLong totalLatency = new AtomicLong();
+		private final AtomicLong maxLatency = new AtomicLong();
+		private final AtomicLongArray latencyHistogram = new AtomicLongArray(RemoteCallMetrics.getLatencyBucketCount());
+
+		private void add(final long latency, final int sent, final int received, final boolean failed) {
+			calls.incrementAndGet();
+			if (failed) {
+				failures.incrementAndGet();
+			}
+			bytesSent.addAndGet(sent);
+			bytesReceived.addAndGet(received);
+			totalLatency.addAndGet(latency);
+			long max = maxLatency.get();
+			while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+				max = maxLatency.get();
+			}
+			latencyHistogram.incrementAndGet(RemoteCallMetrics.getLatencyBucket(latency));
+		}
+
+		/**
+		 * @return the metrics since the last snapshot or {@code null} if there
+		 *         have been no calls
+		 */
+		private RemoteCallMetrics snapshot(final String serviceName, final String methodName,
+				final long intervalStart, final long intervalEnd) {
+			final long snapshotCalls = calls.getAndSet(0);
+			if (snapshotCalls == 0) {
+				return null;
+			}
+			final long[] histogram = new long[latencyHistogram.length()];
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] = latencyHistogram.getAndSet(i, 0);
+			}
+			return new RemoteCallMetrics(serviceName, methodName, intervalStart, intervalEnd, snapshotCalls,
+					failures.getAndSet(0), bytesSent.getAndSet(0), bytesReceived.getAndSet(0),
+					totalLatency.getAndSet(0), maxLatency.getAndSet(0), histogram);
+		}
+	}
+
+	/**
+	 * Takes a snapshot periodically.
+	 */
+	private class Snapshooter extends Job {
+
+		public Snapshooter() {
+			super("RemoteCallCollectorSnapshooter"); //$NON-NLS-1$
+			setUser(false);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(final IProgressMonitor monitor) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			snapshot();
+			// reschedule for periodic work
+			schedule(interval);
+			return Status.OK_STATUS;
+		}
+	}
+
+}
@@ -0,0 +1,617 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.client;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExecutableExtension;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+import org.eclipse.riena.core.RienaLocations;
+import org.eclipse.riena.core.RienaStatus;
+import org.eclipse.riena.core.util.CipherUtils;
+import org.eclipse.riena.core.util.IOUtils;
+import org.eclipse.riena.core.util.Literal;
+import org.eclipse.riena.core.util.PropertiesUtils;
+import org.eclipse.riena.core.util.StringUtils;
+import org.eclipse.riena.core.util.VariableManagerUtil;
+import org.eclipse.riena.internal.monitor.client.Activator;
+import org.eclipse.riena.monitor.common.Collectible;
+
+/**
+ * This store implements a file based {@code IStore} for the client monitoring
+ * that appends the {@code Collectible}s to a few segment files per category
+ * instead of writing a file for each {@code Collectible} as the
+ * {@code SimpleStore} does.
+ * <p>
+ * The collectibles are buffered in blocks. A full block is compressed,
+ * encrypted and appended to the current segment of its category as one record
+ * (length, number of collectibles and checksum followed by the block). A
+ * segment is sealed when it exceeds the segment size or holds a quarter of the
+ * maximum items of its category. Preparing the transferables seals the
+ * current segment and hands off all sealed segments as a whole, a transferred
+ * segment is deleted when all its collectibles have been committed. If a
+ * category holds more than its maximum items its oldest segments are dropped.
+ * <p>
+ * Collectibles still in the buffer are written with {@code flush()},
+ * {@code prepareTransferables()} and {@code close()}. A block cut off by a
+ * crash fails its checksum and is dropped when the store is reopened.
+ * <p>
+ * The store expects the following configuration that can be passed with its
+ * definition in an extension:
+ * <ul>
+ * <li>storePath - an optional file path for the store (default value is within
+ * the riena data area). The {@code VarableManagerUtil} will perform a string
+ * substitution on storePath.</li>
+ * <li>segmentSize - the size in bytes after which a segment is sealed
+ * (default 262144)</li>
+ * <li>blockSize - the size in bytes of the uncompressed collectibles buffered
+ * before they are written as one block (default 16384)</li>
+ * </ul>
+ * Example extension:
+ *
+ * <pre>
+ * &lt;extension point=&quot;org.eclipse.riena.monitor.client.store&quot;&gt;
+ *     &lt;store
+ *           name=&quot;SegmentedStore&quot;
+ *           class=&quot;org.eclipse.riena.monitor.client.SegmentedStore:segmentSize=131072&quot;&gt;
+ *     &lt;/store&gt;
+ * &lt;/extension&gt;
+ * </pre>
+ *
+ * @since 6.0
+ */
+public class SegmentedStore implements IStore, IExecutableExtension {
+
+	private File storeFolder;
+	private String storePathName;
+	private int segmentSize;
+	private int blockSize;
+	private Map<String, Category> categories = new HashMap<String, Category>();
+	private final Map<String, CategoryLog> logs = new HashMap<String, CategoryLog>();
+	private long nextSequence;
+	private Cipher encrypt;
+	private Cipher decrypt;
+
+	private static final String SEGMENT_FILE_EXTENSION = ".seg"; //$NON-NLS-1$
+	private static final String TRANSFER_FILE_EXTENSION = ".trans"; //$NON-NLS-1$
+	private static final String CATEGORY_DELIMITER = "#"; //$NON-NLS-1$
+	private static final int RECORD_HEADER_SIZE = 12;
+
+	private static final String STORE_PATH = "storePath"; //$NON-NLS-1$
+	private static final String SEGMENT_SIZE = "segmentSize"; //$NON-NLS-1$
+	private static final String BLOCK_SIZE = "blockSize"; //$NON-NLS-1$
+	private static final String SEGMENT_SIZE_DEFAULT = "262144"; //$NON-NLS-1$
+	private static final String BLOCK_SIZE_DEFAULT = "16384"; //$NON-NLS-1$
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), SegmentedStore.class);
+
+	public void setInitializationData(final IConfigurationElement config, final String propertyName, final Object data)
+			throws CoreException {
+		try {
+			final Map<String, String> properties = PropertiesUtils.asMap(data,
+					Literal.map(SEGMENT_SIZE, SEGMENT_SIZE_DEFAULT).map(BLOCK_SIZE, BLOCK_SIZE_DEFAULT));
+			segmentSize = Integer.parseInt(properties.get(SEGMENT_SIZE));
+			Assert.isLegal(segmentSize > 0, "segmentSize must be greater than 0."); //$NON-NLS-1$
+			blockSize = Integer.parseInt(properties.get(BLOCK_SIZE));
+			Assert.isLegal(blockSize > 0, "blockSize must be greater than 0."); //$NON-NLS-1$
+			storePathName = VariableManagerUtil.substitute(properties.get(STORE_PATH));
+		} catch (final IllegalArgumentException e) {
+			throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Bad configuration.", e)); //$NON-NLS-1$
+		}
+		initStore();
+	}
+
+	private void initStore() {
+		storeFolder = StringUtils.isGiven(storePathName) ? new File(storePathName) : new File(
+				RienaLocations.getDataArea(Activator.getDefault().getBundle()), "segmentedstore"); //$NON-NLS-1$
+		if (!storeFolder.isDirectory()) {
+			final boolean directoryCreated = storeFolder.mkdirs();
+			Assert.isTrue(directoryCreated);
+		}
+		try {
+			encrypt = CipherUtils.getCipher(SimpleStore.KEY, Cipher.ENCRYPT_MODE);
+			decrypt = CipherUtils.getCipher(SimpleStore.KEY, Cipher.DECRYPT_MODE);
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalArgumentException("Could not generate keys for encryption.", e); //$NON-NLS-1$
+		}
+		LOGGER.log(LogService.LOG_DEBUG, "SegmentedStore at " + storeFolder); //$NON-NLS-1$
+		if (RienaStatus.isDevelopment()) {
+			// This only for debugging/development so that old files do not bother us
+			LOGGER.log(LogService.LOG_DEBUG, "SegmentedStore in development mode, trying to clean-up store."); //$NON-NLS-1$
+			for (final File file : storeFolder.listFiles()) {
+				if (!file.delete()) {
+					LOGGER.log(LogService.LOG_DEBUG, " - failed deleting file: " + file); //$NON-NLS-1$
+					file.deleteOnExit();
+				}
+			}
+		}
+		loadSegments();
+	}
+
+	/**
+	 * Find the segments of a previous session, the segments being collected
+	 * are sealed now.
+	 */
+	private void loadSegments() {
+		final List<Segment> segments = new ArrayList<Segment>();
+		for (final File file : storeFolder.listFiles()) {
+			final String name = file.getName();
+			final int categoryDelimiterIndex = name.lastIndexOf(CATEGORY_DELIMITER);
+			final boolean transfer = name.endsWith(TRANSFER_FILE_EXTENSION);
+			if (categoryDelimiterIndex == -1 || !(transfer || name.endsWith(SEGMENT_FILE_EXTENSION))) {
+				continue;
+			}
+			try {
+				final long sequence = Long.parseLong(name.substring(categoryDelimiterIndex + 1, name.lastIndexOf('.')));
+				final Segment segment = new Segment(name.substring(0, categoryDelimiterIndex), sequence, file);
+				segment.transfer = transfer;
+				scan(segment);
+				segments.add(segment);
+				nextSequence = Math.max(nextSequence, sequence + 1);
+			} catch (final NumberFormatException e) {
+				continue;
+			}
+		}
+		Collections.sort(segments, new Comparator<Segment>() {
+			public int compare(final Segment segment1, final Segment segment2) {
+				return segment1.sequence < segment2.sequence ? -1 : segment1.sequence == segment2.sequence ? 0 : 1;
+			}
+		});
+		for (final Segment segment : segments) {
+			final CategoryLog log = getLog(segment.category);
+			(segment.transfer ? log.transfer : log.sealed).add(segment);
+		}
+	}
+
+	public synchronized void open(final Map<String, Category> categories) {
+		Assert.isNotNull(categories, "categories must not be null"); //$NON-NLS-1$
+		this.categories = categories;
+		for (final CategoryLog log : logs.values()) {
+			enforceMaxItems(log);
+		}
+	}
+
+	public synchronized void close() {
+		flush();
+	}
+
+	public synchronized void flush() {
+		for (final CategoryLog log : logs.values()) {
+			writeBlock(log);
+		}
+	}
+
+	public synchronized boolean collect(final Collectible<?> collectible) {
+		final CategoryLog log = getLog(collectible.getCategory());
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final ObjectOutputStream objectos = new ObjectOutputStream(bos);
+			objectos.writeObject(collectible);
+			objectos.close();
+			log.block.writeInt(bos.size());
+			bos.writeTo(log.block);
+			log.blockCollectibles++;
+		} catch (final IOException e) {
+			LOGGER.log(LogService.LOG_DEBUG, "Error storing collectible: " + e.getMessage(), e); //$NON-NLS-1$
+			return false;
+		}
+		if (log.blockBuffer.size() >= blockSize) {
+			writeBlock(log);
+		}
+		return true;
+	}
+
+	public synchronized void prepareTransferables(final String category) {
+		final CategoryLog log = logs.get(category);
+		if (log == null) {
+			return;
+		}
+		writeBlock(log);
+		seal(log);
+		for (final Segment segment : log.sealed) {
+			final File transfer = new File(storeFolder, segment.getFileName(TRANSFER_FILE_EXTENSION));
+			if (segment.file.renameTo(transfer)) {
+				segment.file = transfer;
+				segment.transfer = true;
+				log.transfer.add(segment);
+			} else {
+				LOGGER.log(LogService.LOG_WARNING, "Could not rename " + segment.file + " to " + transfer + "."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+		}
+		log.sealed.removeAll(log.transfer);
+	}
+
+	public synchronized List<Collectible<?>> retrieveTransferables(final String category) {
+		final List<Collectible<?>> collectibles = new ArrayList<Collectible<?>>();
+		final CategoryLog log = logs.get(category);
+		if (log == null) {
+			return collectibles;
+		}
+		final Iterator<Segment> iterator = log.transfer.iterator();
+		while (iterator.hasNext()) {
+			final Segment segment = iterator.next();
+			final List<Collectible<?>> segmentCollectibles = new ArrayList<Collectible<?>>();
+			read(segment, segmentCollectibles);
+			if (segment.uncommitted == null) {
+				segment.uncommitted = new HashSet<UUID>();
+				for (final Collectible<?> collectible : segmentCollectibles) {
+					segment.uncommitted.add(collectible.getUUID());
+				}
+			}
+			// a retry must not send the collectibles that have been committed already
+			for (final Collectible<?> collectible : segmentCollectibles) {
+				if (segment.uncommitted.contains(collectible.getUUID())) {
+					collectibles.add(collectible);
+				}
+			}
+			if (segment.uncommitted.isEmpty()) {
+				delete(segment.file);
+				iterator.remove();
+			}
+		}
+		return collectibles;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A transferred segment is deleted as soon as all of its collectibles have
+	 * been committed.
+	 */
+	public synchronized void commitTransferred(final List<Collectible<?>> collectibles) {
+		final Set<UUID> committed = new HashSet<UUID>(collectibles.size());
+		for (final Collectible<?> collectible : collectibles) {
+			committed.add(collectible.getUUID());
+		}
+		for (final CategoryLog log : logs.values()) {
+			final Iterator<Segment> iterator = log.transfer.iterator();
+			while (iterator.hasNext()) {
+				final Segment segment = iterator.next();
+				if (segment.uncommitted == null) {
+					continue;
+				}
+				segment.uncommitted.removeAll(committed);
+				if (segment.uncommitted.isEmpty()) {
+					delete(segment.file);
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the decryptor for retrieving a block of collectibles.
+	 * <p>
+	 * <b>Note: </b>This hook method is intended to be overwritten to provide a
+	 * better encrypted storage on the local file system on the client.
+	 * Otherwise a simple encryption will be used.
+	 *
+	 * @param is
+	 * @return
+	 */
+	protected InputStream getDecryptor(final InputStream is) {
+		return new CipherInputStream(is, decrypt);
+	}
+
+	/**
+	 * Get the encryptor for storing a block of collectibles.
+	 * <p>
+	 * <b>Note: </b>This hook method is intended to be overwritten to provide a
+	 * better encrypted storage on the local file system on the client.
+	 * Otherwise a simple encryption will be used.
+	 *
+	 * @param os
+	 * @return
+	 */
+	protected OutputStream getEncryptor(final OutputStream os) {
+		return new CipherOutputStream(os, encrypt);
+	}
+
+	/**
+	 * Get the compressor for storing a block of collectibles.
+	 * <p>
+	 * <b>Note: </b>This hook method may be overwritten to provide another
+	 * compressing technology. This method uses
+	 * DeflaterOutputStream/InputStream.
+	 *
+	 * @param os
+	 * @return
+	 * @throws IOException
+	 */
+	protected OutputStream getCompressor(final OutputStream os) throws IOException {
+		return new DeflaterOutputStream(os);
+	}
+
+	/**
+	 * Get the decompressor for retrieving a block of collectibles.
+	 *
+	 * @param is
+	 * @return
+	 * @throws IOException
+	 */
+	protected InputStream getDecompressor(final InputStream is) throws IOException {
+		return new InflaterInputStream(is);
+	}
+
+	private CategoryLog getLog(final String category) {
+		CategoryLog log = logs.get(category);
+		if (log == null) {
+			log = new CategoryLog(category);
+			logs.put(category, log);
+		}
+		return log;
+	}
+
+	/**
+	 * Append the buffered collectibles as one record to the current segment.
+	 */
+	private void writeBlock(final CategoryLog log) {
+		if (log.blockCollectibles == 0) {
+			return;
+		}
+		if (log.current == null) {
+			final long sequence = nextSequence++;
+			log.current = new Segment(log.category, sequence, new File(storeFolder, log.category + CATEGORY_DELIMITER
+					+ sequence + SEGMENT_FILE_EXTENSION));
+		}
+		final Segment segment = log.current;
+		final int collectibles = log.blockCollectibles;
+		DataOutputStream out = null;
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(log.blockBuffer.size() / 2);
+			final OutputStream compressor = getCompressor(getEncryptor(bos));
+			log.blockBuffer.writeTo(compressor);
+			compressor.close();
+			final byte[] block = bos.toByteArray();
+			final CRC32 crc = new CRC32();
+			crc.update(block);
+
+			out = new DataOutputStream(new FileOutputStream(segment.file, true));
+			out.writeInt(block.length);
+			out.writeInt(collectibles);
+			out.writeInt((int) crc.getValue());
+			out.write(block);
+			out.close();
+			segment.size += RECORD_HEADER_SIZE + block.length;
+			segment.collectibles += collectibles;
+		} catch (final IOException e) {
+			IOUtils.close(out);
+			LOGGER.log(LogService.LOG_WARNING, "Error storing " + collectibles + " collectibles: " + e.getMessage(), e); //$NON-NLS-1$ //$NON-NLS-2$
+			// a partially written record would hide all following records, continue with a new segment
+			seal(log);
+		} finally {
+			log.blockBuffer.reset();
+			log.blockCollectibles = 0;
+		}
+		if (segment.size >= segmentSize || segment.collectibles >= getMaxItems(log.category) / 4) {
+			seal(log);
+		}
+		enforceMaxItems(log);
+	}
+
+	private void seal(final CategoryLog log) {
+		if (log.current == null) {
+			return;
+		}
+		if (log.current.file.exists()) {
+			log.sealed.add(log.current);
+		}
+		log.current = null;
+	}
+
+	/**
+	 * Drop the oldest sealed segments of the category until it does not hold
+	 * more than its maximum items.
+	 */
+	private void enforceMaxItems(final CategoryLog log) {
+		final int maxItems = getMaxItems(log.category);
+		int items = log.current == null ? 0 : log.current.collectibles;
+		for (final Segment segment : log.sealed) {
+			items += segment.collectibles;
+		}
+		while (items > maxItems && !log.sealed.isEmpty()) {
+			final Segment oldest = log.sealed.removeFirst();
+			LOGGER.log(LogService.LOG_DEBUG, "Dropping " + oldest.collectibles + " collectibles of category " //$NON-NLS-1$ //$NON-NLS-2$
+					+ log.category);
+			delete(oldest.file);
+			items -= oldest.collectibles;
+		}
+	}
+
+	private int getMaxItems(final String category) {
+		final Category cat = categories.get(category);
+		return cat == null ? Integer.MAX_VALUE : cat.getMaxItems();
+	}
+
+	/**
+	 * Count the collectibles of the segment by reading the record headers
+	 * only. An incomplete record at the end is cut off.
+	 */
+	private void scan(final Segment segment) {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(segment.file, "rw"); //$NON-NLS-1$
+			final long length = raf.length();
+			long position = 0;
+			while (position + RECORD_HEADER_SIZE <= length) {
+				raf.seek(position);
+				final int blockLength = raf.readInt();
+				final int collectibles = raf.readInt();
+				if (blockLength < 0 || collectibles < 0 || position + RECORD_HEADER_SIZE + blockLength > length) {
+					break;
+				}
+				segment.collectibles += collectibles;
+				position += RECORD_HEADER_SIZE + blockLength;
+			}
+			if (position < length) {
+				LOGGER.log(LogService.LOG_INFO, "Truncating incomplete segment " + segment.file); //$NON-NLS-1$
+				raf.setLength(position);
+			}
+			segment.size = position;
+		} catch (final IOException e) {
+			LOGGER.log(LogService.LOG_WARNING, "Error reading segment " + segment.file + ": " + e.getMessage(), e); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			IOUtils.close(raf);
+		}
+	}
+
+	/**
+	 * Read the collectibles of the segment, a record with a bad checksum ends
+	 * the segment.
+	 */
+	private void read(final Segment segment, final List<Collectible<?>> collectibles) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+			while (true) {
+				final int blockLength;
+				try {
+					blockLength = in.readInt();
+				} catch (final EOFException e) {
+					break;
+				}
+				final int count = in.readInt();
+				final int checksum = in.readInt();
+				final byte[] block = new byte[blockLength];
+				in.readFully(block);
+				final CRC32 crc = new CRC32();
+				crc.update(block);
+				if ((int) crc.getValue() != checksum) {
+					LOGGER.log(LogService.LOG_WARNING, "Bad checksum in segment " + segment.file); //$NON-NLS-1$
+					break;
+				}
+				final DataInputStream blockIn = new DataInputStream(getDecompressor(getDecryptor(new ByteArrayInputStream(
+						block))));
+				try {
+					for (int i = 0; i < count; i++) {
+						final byte[] data = new byte[blockIn.readInt()];
+						blockIn.readFully(data);
+						final Collectible<?> collectible = getCollectible(data);
+						if (collectible != null) {
+							collectibles.add(collectible);
+						}
+					}
+				} finally {
+					// resets the cipher for the next block
+					IOUtils.close(blockIn);
+				}
+			}
+		} catch (final IOException e) {
+			LOGGER.log(LogService.LOG_DEBUG, "Error retrieving collectibles: " + e.getMessage(), e); //$NON-NLS-1$
+		} finally {
+			IOUtils.close(in);
+		}
+	}
+
+	private Collectible<?> getCollectible(final byte[] data) {
+		try {
+			final ObjectInputStream objectis = new ObjectInputStream(new ByteArrayInputStream(data));
+			return (Collectible<?>) objectis.readObject();
+		} catch (final Exception e) {
+			LOGGER.log(LogService.LOG_DEBUG, "Error retrieving collectible: " + e.getMessage(), e); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	/**
+	 * Try to delete the given file. If it is not deletable try to delete on
+	 * jvm exit.
+	 *
+	 * @param file
+	 */
+	private void delete(final File file) {
+		if (!file.delete() && file.exists()) {
+			file.deleteOnExit();
+		}
+	}
+
+	/**
+	 * The segments and the buffered block of one category.
+	 */
+	private static final class CategoryLog {
+
+		private final String category;
+		private final LinkedList<Segment> sealed = new LinkedList<Segment>();
+		private final List<Segment> transfer = new ArrayList<Segment>();
+		private Segment current;
+		private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+		private final DataOutputStream block = new DataOutputStream(blockBuffer);
+		private int blockCollectibles;
+
+		private CategoryLog(final String category) {
+			this.category = category;
+		}
+	}
+
+	private static final class Segment {
+
+		private final String category;
+		private final long sequence;
+		private File file;
+		private long size;
+		private int collectibles;
+		private boolean transfer;
+		private Set<UUID> uncommitted;
+
+		private Segment(final String category, final long sequence, final File file) {
+			this.category = category;
+			this.sequence = sequence;
+			this.file = file;
+		}
+
+		private String getFileName(final String extension) {
+			return category + CATEGORY_DELIMITER + sequence + extension;
+		}
+	}
+
+}
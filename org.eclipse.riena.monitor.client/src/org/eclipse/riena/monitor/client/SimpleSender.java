@@ -10,10 +10,18 @@
  *******************************************************************************/
 package org.eclipse.riena.monitor.client;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.osgi.service.log.LogService;
 
@@ -40,11 +48,24 @@ import org.eclipse.riena.monitor.common.IReceiver;
  * This simple sender implements {@code ISender} that uses rienas (remote)
  * services to communicate with the server.
  * <p>
+ * The transferable {@code Collectible}s are sent in batches, each batch is
+ * committed as soon as the receiver has accepted it. If a batch fails the
+ * remaining {@code Collectible}s are retried with an exponential backoff, i.e.
+ * the waiting time doubles with each failure (with a random jitter, so that
+ * many clients do not retry at the same time).
+ * <p>
  * The simple sender expects the following configuration that can be passed with
  * its definition in an extension:
  * <ul>
- * <li>retryTime - defines the time in minutes that will be waited for a retry
+ * <li>retryTime - defines the maximum time that will be waited for a retry
  * when a send has failed. (default value is 15 minutes if not defined)</li>
+ * <li>initialRetryTime - defines the time that will be waited for the first
+ * retry. (default value is 30 seconds if not defined)</li>
+ * <li>batchSize - the maximum number of {@code Collectible}s sent with one
+ * call (default value is 500)</li>
+ * <li>batchBytes - the maximum (serialized) size in bytes of the
+ * {@code Collectible}s sent with one call; a single larger {@code Collectible}
+ * is sent on its own (default value is 262144)</li>
  * </ul>
  * Periods of time can be specified as a string conforming to
  * {@link Millis#valueOf(String)}.<br>
@@ -65,9 +86,25 @@ public class SimpleSender implements ISender, IExecutableExtension {
 	private IReceiver receiver;
 	private boolean started;
 	private long retryTime;
+	private long initialRetryTime;
+	private int batchSize;
+	private int batchBytes;
 	private final Map<String, Sender> senders = new HashMap<String, Sender>();
+	private final ConcurrentMap<String, Integer> backlogs = new ConcurrentHashMap<String, Integer>();
+	private final Random random = new Random();
 	private static final String RETRY_TIME = "retryTime"; //$NON-NLS-1$
 	private static final String RETRY_TIME_DEFAULT = "15 m"; //$NON-NLS-1$
+	private static final String INITIAL_RETRY_TIME = "initialRetryTime"; //$NON-NLS-1$
+	private static final String INITIAL_RETRY_TIME_DEFAULT = "30 s"; //$NON-NLS-1$
+	private static final String BATCH_SIZE = "batchSize"; //$NON-NLS-1$
+	private static final String BATCH_SIZE_DEFAULT = "500"; //$NON-NLS-1$
+	private static final String BATCH_BYTES = "batchBytes"; //$NON-NLS-1$
+	private static final String BATCH_BYTES_DEFAULT = "262144"; //$NON-NLS-1$
+
+	private final AtomicLong statSentCollectibles = new AtomicLong();
+	private final AtomicLong statSentBatches = new AtomicLong();
+	private final AtomicLong statFailedBatches = new AtomicLong();
+	private final AtomicLong statSendNanos = new AtomicLong();
 
 	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), SimpleSender.class);
 
@@ -75,9 +112,17 @@ public class SimpleSender implements ISender, IExecutableExtension {
 			throws CoreException {
 		Map<String, String> properties = null;
 		try {
-			properties = PropertiesUtils.asMap(data, Literal.map(RETRY_TIME, RETRY_TIME_DEFAULT));
+			properties = PropertiesUtils.asMap(data,
+					Literal.map(RETRY_TIME, RETRY_TIME_DEFAULT).map(INITIAL_RETRY_TIME, INITIAL_RETRY_TIME_DEFAULT)
+							.map(BATCH_SIZE, BATCH_SIZE_DEFAULT).map(BATCH_BYTES, BATCH_BYTES_DEFAULT));
 			retryTime = Millis.valueOf(properties.get(RETRY_TIME));
 			Assert.isLegal(retryTime > 0, "retryTime must be greater than 0."); //$NON-NLS-1$
+			initialRetryTime = Math.min(Millis.valueOf(properties.get(INITIAL_RETRY_TIME)), retryTime);
+			Assert.isLegal(initialRetryTime > 0, "initialRetryTime must be greater than 0."); //$NON-NLS-1$
+			batchSize = Integer.parseInt(properties.get(BATCH_SIZE));
+			Assert.isLegal(batchSize > 0, "batchSize must be greater than 0."); //$NON-NLS-1$
+			batchBytes = Integer.parseInt(properties.get(BATCH_BYTES));
+			Assert.isLegal(batchBytes > 0, "batchBytes must be greater than 0."); //$NON-NLS-1$
 		} catch (final IllegalArgumentException e) {
 			throw configurationException("Bad configuration.", e); //$NON-NLS-1$
 		}
@@ -140,10 +185,194 @@ public class SimpleSender implements ISender, IExecutableExtension {
 		sender.tryIt(0);
 	}
 
+	/**
+	 * @return the number of retrieved {@code Collectible}s that have not been
+	 *         transferred yet
+	 * @since 6.0
+	 */
+	public int getBacklog() {
+		int backlog = 0;
+		for (final Integer categoryBacklog : backlogs.values()) {
+			backlog += categoryBacklog;
+		}
+		return backlog;
+	}
+
+	/**
+	 * @return the number of transferred {@code Collectible}s
+	 * @since 6.0
+	 */
+	public long getSentCollectibles() {
+		return statSentCollectibles.get();
+	}
+
+	/**
+	 * @return the number of accepted batches
+	 * @since 6.0
+	 */
+	public long getSentBatches() {
+		return statSentBatches.get();
+	}
+
+	/**
+	 * @return the number of failed batches
+	 * @since 6.0
+	 */
+	public long getFailedBatches() {
+		return statFailedBatches.get();
+	}
+
+	/**
+	 * @return the transferred {@code Collectible}s per second while sending
+	 * @since 6.0
+	 */
+	public long getThroughput() {
+		final long nanos = statSendNanos.get();
+		return nanos == 0 ? 0 : statSentCollectibles.get() * 1000000000L / nanos;
+	}
+
+	/**
+	 * @since 6.0
+	 */
+	public String getStatistic() {
+		return "Backlog / Sent / Batches / Failed batches / Collectibles per second " //$NON-NLS-1$
+				+ getBacklog() + " / " + statSentCollectibles.get() + " / " + statSentBatches.get() + " / " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ statFailedBatches.get() + " / " + getThroughput(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Send the transferable {@code Collectible}s of the category in batches.
+	 * 
+	 * @return {@code false} if a batch failed
+	 */
+	boolean transfer(final String category) {
+		final IReceiver currentReceiver = receiver;
+		if (currentReceiver == null) {
+			LOGGER.log(LogService.LOG_DEBUG, "Sender(" + category + ") no receiver"); //$NON-NLS-1$ //$NON-NLS-2$
+			return true;
+		}
+		final List<Collectible<?>> transferables = store.retrieveTransferables(category);
+		// the estimated (serialized) sizes, 0 if not yet estimated
+		final long[] sizes = new long[transferables.size()];
+		int from = 0;
+		try {
+			while (from < transferables.size()) {
+				backlogs.put(category, transferables.size() - from);
+				final int to = endOfBatch(transferables, sizes, from);
+				final List<Collectible<?>> batch = new ArrayList<Collectible<?>>(transferables.subList(from, to));
+				LOGGER.log(LogService.LOG_DEBUG, "sender transfer " + batch.size() + " of " //$NON-NLS-1$ //$NON-NLS-2$
+						+ (transferables.size() - from) + " transferables:"); //$NON-NLS-1$
+				for (final Collectible<?> transferable : batch) {
+					LOGGER.log(LogService.LOG_DEBUG, " - " + transferable.toLogString()); //$NON-NLS-1$
+				}
+				final long start = System.nanoTime();
+				try {
+					if (!currentReceiver.take(System.currentTimeMillis(), batch)) {
+						throw new RuntimeException("Retry sending later because receiver rejected it."); //$NON-NLS-1$
+					}
+				} catch (final Throwable t) {
+					statFailedBatches.incrementAndGet();
+					LOGGER.log(LogService.LOG_DEBUG, "sending failed with: " + condense(t)); //$NON-NLS-1$
+					return false;
+				}
+				statSendNanos.addAndGet(System.nanoTime() - start);
+				store.commitTransferred(batch);
+				statSentBatches.incrementAndGet();
+				statSentCollectibles.addAndGet(batch.size());
+				from = to;
+			}
+			return true;
+		} finally {
+			backlogs.put(category, transferables.size() - from);
+		}
+	}
+
+	/**
+	 * @return the waiting time before the retry after the given number of
+	 *         consecutive failures
+	 */
+	long getRetryDelay(final int failures) {
+		long delay = initialRetryTime;
+		for (int i = 1; i < failures && delay < retryTime; i++) {
+			delay *= 2;
+		}
+		delay = Math.min(delay, retryTime);
+		// half of the delay is random, so that many clients do not retry at the same time
+		return delay / 2 + (long) (random.nextDouble() * (delay - delay / 2));
+	}
+
+	/**
+	 * The size of each {@code Collectible} is only estimated once, the one
+	 * exceeding a batch starts the next batch.
+	 */
+	private int endOfBatch(final List<Collectible<?>> transferables, final long[] sizes, final int from) {
+		final int max = Math.min(transferables.size(), from + batchSize);
+		long bytes = 0;
+		int to = from;
+		while (to < max) {
+			if (sizes[to] == 0) {
+				sizes[to] = ByteCounter.sizeOf(transferables.get(to));
+			}
+			bytes += sizes[to];
+			if (bytes > batchBytes && to > from) {
+				break;
+			}
+			to++;
+		}
+		return to;
+	}
+
+	private final static String CAUSED_BY = " Caused by: "; //$NON-NLS-1$
+
+	private static String condense(Throwable throwable) {
+		final StringBuilder bob = new StringBuilder();
+		do {
+			bob.append(throwable.toString()).append(CAUSED_BY);
+			throwable = throwable.getCause();
+		} while (throwable != null);
+		bob.setLength(bob.length() - CAUSED_BY.length());
+		return bob.toString();
+	}
+
+	/**
+	 * Counts the bytes of the serialized {@code Collectible}s.
+	 */
+	private static final class ByteCounter extends OutputStream {
+
+		private long count;
+
+		/**
+		 * @return the serialized size of the {@code Collectible}, at least 1
+		 */
+		private static long sizeOf(final Collectible<?> collectible) {
+			final ByteCounter counter = new ByteCounter();
+			try {
+				final ObjectOutputStream objectos = new ObjectOutputStream(counter);
+				objectos.writeObject(collectible);
+				objectos.close();
+			} catch (final IOException e) {
+				// not serializable, the receiver will fail on it
+				LOGGER.log(LogService.LOG_DEBUG, "Error serializing collectible: " + e.getMessage()); //$NON-NLS-1$
+			}
+			return Math.max(1, counter.count);
+		}
+
+		@Override
+		public void write(final int b) {
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			count += len;
+		}
+	}
+
 	private final class Sender extends Job {
 
 		private final String category;
 		private boolean retrying;
+		private int failures;
 
 		private Sender(final String category) {
 			super("SimpleSender"); //$NON-NLS-1$
@@ -168,54 +397,18 @@ public class SimpleSender implements ISender, IExecutableExtension {
 		protected IStatus run(final IProgressMonitor monitor) {
 			LOGGER.log(LogService.LOG_DEBUG, "Sender(" + category + ") started with" + (retrying ? "" : "out") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 					+ " retry"); //$NON-NLS-1$
-			if (receiver == null) {
-				LOGGER.log(LogService.LOG_DEBUG, "Sender(" + category + ") ended (no receiver)"); //$NON-NLS-1$ //$NON-NLS-2$
-				return Status.OK_STATUS;
-			}
-			final List<Collectible<?>> transferables = store.retrieveTransferables(category);
-			if (transferables.size() == 0) {
-				LOGGER.log(LogService.LOG_DEBUG, "Sender(" + category + ") ended (nothing to send)"); //$NON-NLS-1$ //$NON-NLS-2$
-				return Status.OK_STATUS;
+			if (transfer(category)) {
+				retrying = false;
+				failures = 0;
+			} else {
+				final long retryDelay = getRetryDelay(++failures);
+				LOGGER.log(LogService.LOG_DEBUG, "retrying in " + retryDelay + " milli seconds"); //$NON-NLS-1$ //$NON-NLS-2$
+				retrying = true;
+				schedule(retryDelay);
 			}
-			transfer(transferables);
 			LOGGER.log(LogService.LOG_DEBUG, "Sender(" + category + ") ended"); //$NON-NLS-1$ //$NON-NLS-2$
 			return Status.OK_STATUS;
 		}
-
-		/**
-		 * 
-		 */
-		private void transfer(final List<Collectible<?>> transferables) {
-			LOGGER.log(LogService.LOG_DEBUG, "sender transfer " + transferables.size() + " transferables:"); //$NON-NLS-1$ //$NON-NLS-2$
-			for (final Collectible<?> transferable : transferables) {
-				LOGGER.log(LogService.LOG_DEBUG, " - " + transferable.toLogString()); //$NON-NLS-1$
-			}
-			try {
-				if (receiver.take(System.currentTimeMillis(), transferables)) {
-					store.commitTransferred(transferables);
-					retrying = false;
-				} else {
-					throw new RuntimeException("Retry sending later because receiver rejected it."); //$NON-NLS-1$
-				}
-			} catch (final Throwable t) {
-				LOGGER.log(LogService.LOG_DEBUG, "sending failed with: " + condense(t)); //$NON-NLS-1$
-				LOGGER.log(LogService.LOG_DEBUG, "retrying in " + retryTime + " milli seconds"); //$NON-NLS-1$ //$NON-NLS-2$
-				retrying = true;
-				schedule(retryTime);
-			}
-		}
-
-		private final static String CAUSED_BY = " Caused by: "; //$NON-NLS-1$
-
-		private String condense(Throwable throwable) {
-			final StringBuilder bob = new StringBuilder();
-			do {
-				bob.append(throwable.toString()).append(CAUSED_BY);
-				throwable = throwable.getCause();
-			} while (throwable != null);
-			bob.setLength(bob.length() - CAUSED_BY.length());
-			return bob.toString();
-		}
 	}
 
 }
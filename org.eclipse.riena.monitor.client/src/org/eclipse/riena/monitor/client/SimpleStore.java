@@ -109,7 +109,7 @@ public class SimpleStore implements IStore, IExecutableExtension {
 	private static final String CLEANUP_DELAY = "cleanupDelay"; //$NON-NLS-1$
 	private static final String STORE_PATH = "storePath"; //$NON-NLS-1$
 	private static final String CLEANUP_DELAY_DEFAULT = "1 h"; //$NON-NLS-1$
-	private static final byte[] KEY = new byte[8];
+	static final byte[] KEY = new byte[8];
 
 	static {
 		final long first = "This is not very clever :-)".hashCode(); //$NON-NLS-1$
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.common;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * The aggregated metrics of the remote calls of one service method within a
+ * time interval: number of calls and failures, transferred bytes and a
+ * latency histogram.
+ * <p>
+ * The histogram has a bucket for each bound of
+ * {@link #getLatencyBucketBounds()}, counting the calls with a latency up to
+ * (and including) that bound in milliseconds, and a last bucket for the
+ * slower calls.
+ *
+ * @since 6.0
+ */
+public class RemoteCallMetrics implements Serializable {
+
+	private static final long[] LATENCY_BUCKET_BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+			10000, 30000 };
+
+	private final String serviceName;
+	private final String methodName;
+	private final long intervalStart;
+	private final long intervalEnd;
+	private final long calls;
+	private final long failures;
+	private final long bytesSent;
+	private final long bytesReceived;
+	private final long totalLatency;
+	private final long maxLatency;
+	private final long[] latencyHistogram;
+
+	private static final long serialVersionUID = -2937512893476109523L;
+
+	@SuppressWarnings("unused")
+	private RemoteCallMetrics() {
+		// just4Hessian
+		this.serviceName = null;
+		this.methodName = null;
+		this.intervalStart = 0;
+		this.intervalEnd = 0;
+		this.calls = 0;
+		this.failures = 0;
+		this.bytesSent = 0;
+		this.bytesReceived = 0;
+		this.totalLatency = 0;
+		this.maxLatency = 0;
+		this.latencyHistogram = null;
+	}
+
+	/**
+	 * @param serviceName
+	 *            the name of the service interface
+	 * @param methodName
+	 *            the name of the method
+	 * @param intervalStart
+	 *            start of the interval
+	 * @param intervalEnd
+	 *            end of the interval
+	 * @param calls
+	 *            number of calls
+	 * @param failures
+	 *            number of calls that ended with a remote failure
+	 * @param bytesSent
+	 *            bytes written to the server
+	 * @param bytesReceived
+	 *            bytes read from the server
+	 * @param totalLatency
+	 *            sum of the latencies in milliseconds
+	 * @param maxLatency
+	 *            maximum latency in milliseconds
+	 * @param latencyHistogram
+	 *            the number of calls per latency bucket
+	 */
+	public RemoteCallMetrics(final String serviceName, final String methodName, final long intervalStart,
+			final long intervalEnd, final long calls, final long failures, final long bytesSent,
+			final long bytesReceived, final long totalLatency, final long maxLatency, final long[] latencyHistogram) {
+		this.serviceName = serviceName;
+		this.methodName = methodName;
+		this.intervalStart = intervalStart;
+		this.intervalEnd = intervalEnd;
+		this.calls = calls;
+		this.failures = failures;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.totalLatency = totalLatency;
+		this.maxLatency = maxLatency;
+		this.latencyHistogram = latencyHistogram.clone();
+	}
+
+	/**
+	 * @return the upper bounds (milliseconds) of the latency buckets except
+	 *         the last one
+	 */
+	public static long[] getLatencyBucketBounds() {
+		return LATENCY_BUCKET_BOUNDS.clone();
+	}
+
+	/**
+	 * @param latency
+	 *            the latency in milliseconds
+	 * @return the index of the latency bucket
+	 */
+	public static int getLatencyBucket(final long latency) {
+		int bucket = 0;
+		while (bucket < LATENCY_BUCKET_BOUNDS.length && latency > LATENCY_BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+		return bucket;
+	}
+
+	/**
+	 * @return the number of latency buckets
+	 */
+	public static int getLatencyBucketCount() {
+		return LATENCY_BUCKET_BOUNDS.length + 1;
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public long getIntervalStart() {
+		return intervalStart;
+	}
+
+	public long getIntervalEnd() {
+		return intervalEnd;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the ratio of failed calls (0..1)
+	 */
+	public double getFailureRate() {
+		return calls == 0 ? 0 : (double) failures / calls;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * @return the sum of the latencies in milliseconds
+	 */
+	public long getTotalLatency() {
+		return totalLatency;
+	}
+
+	/**
+	 * @return the average latency in milliseconds
+	 */
+	public long getAverageLatency() {
+		return calls == 0 ? 0 : totalLatency / calls;
+	}
+
+	/**
+	 * @return the maximum latency in milliseconds
+	 */
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	/**
+	 * @return the number of calls per latency bucket
+	 */
+	public long[] getLatencyHistogram() {
+		return latencyHistogram.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "RemoteCallMetrics [service=" + serviceName + ", method=" + methodName + ", interval=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ new Date(intervalStart) + " - " + new Date(intervalEnd) + ", calls=" + calls + ", failures=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ failures + ", bytesSent=" + bytesSent + ", bytesReceived=" + bytesReceived + ", averageLatency=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ getAverageLatency() + ", maxLatency=" + maxLatency + ", latencyHistogram=" //$NON-NLS-1$ //$NON-NLS-2$
+				+ Arrays.toString(latencyHistogram) + "]"; //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.common.receiver;
+
+/**
+ * The criteria of a query on the {@link PartitionedFileReceiver}. Criteria
+ * that are not set match all collectibles, e.g.
+ *
+ * <pre>
+ * new CollectibleQuery().from(start).to(end).category(&quot;LogCollectible&quot;).maxLevel(LogService.LOG_WARNING);
+ * </pre>
+ *
+ * @since 6.0
+ */
+public class CollectibleQuery {
+
+	private long from = Long.MIN_VALUE;
+	private long to = Long.MAX_VALUE;
+	private String clientInfo;
+	private String category;
+	private int maxLevel;
+
+	/**
+	 * @param from
+	 *            the minimum collection time (inclusive)
+	 * @return this query
+	 */
+	public CollectibleQuery from(final long from) {
+		this.from = from;
+		return this;
+	}
+
+	/**
+	 * @param to
+	 *            the maximum collection time (exclusive)
+	 * @return this query
+	 */
+	public CollectibleQuery to(final long to) {
+		this.to = to;
+		return this;
+	}
+
+	/**
+	 * @param clientInfo
+	 *            the client info of the collectibles
+	 * @return this query
+	 */
+	public CollectibleQuery clientInfo(final String clientInfo) {
+		this.clientInfo = clientInfo;
+		return this;
+	}
+
+	/**
+	 * @param category
+	 *            the category of the collectibles
+	 * @return this query
+	 */
+	public CollectibleQuery category(final String category) {
+		this.category = category;
+		return this;
+	}
+
+	/**
+	 * Restrict the result to log entries with the given or a more severe level
+	 * ({@code LogService.LOG_ERROR} is the most severe). Collectibles without
+	 * a log entry as payload do not match.
+	 *
+	 * @param maxLevel
+	 *            the least severe log level
+	 * @return this query
+	 */
+	public CollectibleQuery maxLevel(final int maxLevel) {
+		this.maxLevel = maxLevel;
+		return this;
+	}
+
+	public long getFrom() {
+		return from;
+	}
+
+	public long getTo() {
+		return to;
+	}
+
+	public String getClientInfo() {
+		return clientInfo;
+	}
+
+	public String getCategory() {
+		return category;
+	}
+
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	boolean matches(final long time, final String clientInfo, final String category, final int level) {
+		return time >= from && time < to && (this.clientInfo == null || this.clientInfo.equals(clientInfo))
+				&& (this.category == null || this.category.equals(category))
+				&& (maxLevel <= 0 || level > 0 && level <= maxLevel);
+	}
+
+	@Override
+	public String toString() {
+		return "CollectibleQuery [from=" + from + ", to=" + to + ", clientInfo=" + clientInfo + ", category=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ category + ", maxLevel=" + maxLevel + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
@@ -0,0 +1,402 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.common.receiver;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.riena.core.util.IOUtils;
+import org.eclipse.riena.monitor.common.Collectible;
+
+/**
+ * The collectibles of one time slice: a data file with the serialized
+ * collectibles and an index file with an entry (time, client info, category,
+ * log level and the position in the data file) for each of them.
+ * <p>
+ * The index is kept in memory, with lists of the entries per client info and
+ * per category; the data file is only read for the selected entries. An entry
+ * is appended to the index after its collectible has been written, so an
+ * index entry pointing behind the end of the data file (a crash) is dropped,
+ * as is a damaged index record and everything after it.
+ * <p>
+ * A partition is loaded (its files opened and its index read) when it is
+ * used and may be unloaded again to release its resources.
+ */
+final class Partition {
+
+	/** orders the uses of all partitions */
+	private static final AtomicLong USES = new AtomicLong();
+
+	private final long start;
+	private final File dataFile;
+	private final File indexFile;
+	private RandomAccessFile data;
+	private RandomAccessFile index;
+	private final List<IndexEntry> entries = new ArrayList<IndexEntry>();
+	private final Map<String, List<IndexEntry>> clientEntries = new HashMap<String, List<IndexEntry>>();
+	private final Map<String, List<IndexEntry>> categoryEntries = new HashMap<String, List<IndexEntry>>();
+	private final Set<UUID> uuids = new HashSet<UUID>();
+	private volatile long lastUse;
+
+	Partition(final File folder, final long start) {
+		this.start = start;
+		this.dataFile = new File(folder, getFileName(start, PartitionedFileReceiver.DATA_FILE_EXTENSION));
+		this.indexFile = new File(folder, getFileName(start, PartitionedFileReceiver.INDEX_FILE_EXTENSION));
+	}
+
+	static String getFileName(final long start, final String extension) {
+		return PartitionedFileReceiver.FILE_PREFIX + start + extension;
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	/**
+	 * Append the collectibles that are not yet in this partition. If writing a
+	 * collectible fails the files are cut back behind the previous one and it
+	 * is not regarded as stored, i.e. a retry appends it.
+	 *
+	 * @return the number of appended collectibles
+	 */
+	synchronized int append(final List<SerializedCollectible> collectibles) throws IOException {
+		open();
+		int appended = 0;
+		for (final SerializedCollectible collectible : collectibles) {
+			final IndexEntry entry = collectible.entry;
+			if (uuids.contains(entry.uuid)) {
+				// a retry of a batch that has been stored before
+				continue;
+			}
+			final long dataLength = data.length();
+			final long indexLength = index.length();
+			try {
+				entry.offset = dataLength;
+				data.seek(entry.offset);
+				data.write(collectible.data);
+				final byte[] indexRecord = entry.toBytes();
+				index.seek(indexLength);
+				index.writeInt(indexRecord.length);
+				index.write(indexRecord);
+			} catch (final IOException e) {
+				truncate(dataLength, indexLength);
+				throw e;
+			}
+			uuids.add(entry.uuid);
+			add(entry);
+			appended++;
+		}
+		return appended;
+	}
+
+	/**
+	 * @return the entries matching the query in the order they have been
+	 *         appended
+	 */
+	synchronized List<IndexEntry> select(final CollectibleQuery query) throws IOException {
+		open();
+		List<IndexEntry> candidates = entries;
+		if (query.getClientInfo() != null) {
+			candidates = get(clientEntries, query.getClientInfo());
+		}
+		if (query.getCategory() != null) {
+			final List<IndexEntry> byCategory = get(categoryEntries, query.getCategory());
+			if (byCategory.size() < candidates.size()) {
+				candidates = byCategory;
+			}
+		}
+		final List<IndexEntry> selected = new ArrayList<IndexEntry>();
+		for (final IndexEntry entry : candidates) {
+			if (query.matches(entry.time, entry.clientInfo, entry.category, entry.level)) {
+				selected.add(entry);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * @return the collectible of the entry or {@code null} if it can not be
+	 *         deserialized
+	 */
+	Collectible<?> read(final IndexEntry entry) throws IOException {
+		final byte[] bytes = new byte[entry.length];
+		synchronized (this) {
+			open();
+			data.seek(entry.offset);
+			data.readFully(bytes);
+		}
+		try {
+			return (Collectible<?>) new CollectibleInputStream(new ByteArrayInputStream(bytes)).readObject();
+		} catch (final ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return {@code true} if the files are open and the index is in memory
+	 */
+	synchronized boolean isLoaded() {
+		return data != null;
+	}
+
+	/**
+	 * @return a number that is greater for a later use
+	 */
+	long getLastUse() {
+		return lastUse;
+	}
+
+	/**
+	 * Close the files and drop the index from memory. The partition is loaded
+	 * again when it is used.
+	 */
+	synchronized void unload() {
+		close();
+		entries.clear();
+		clientEntries.clear();
+		categoryEntries.clear();
+		uuids.clear();
+	}
+
+	synchronized void close() {
+		IOUtils.close(data);
+		IOUtils.close(index);
+		data = null;
+		index = null;
+	}
+
+	private void open() throws IOException {
+		lastUse = USES.incrementAndGet();
+		if (data != null) {
+			return;
+		}
+		final RandomAccessFile openedData = new RandomAccessFile(dataFile, "rw"); //$NON-NLS-1$
+		RandomAccessFile openedIndex = null;
+		boolean loaded = false;
+		try {
+			openedIndex = new RandomAccessFile(indexFile, "rw"); //$NON-NLS-1$
+			if (entries.isEmpty()) {
+				load(openedData.length(), openedIndex);
+			}
+			loaded = true;
+		} finally {
+			if (!loaded) {
+				IOUtils.close(openedData);
+				IOUtils.close(openedIndex);
+				unload();
+			}
+		}
+		data = openedData;
+		index = openedIndex;
+	}
+
+	/**
+	 * Remove an incompletely written collectible; if that fails too the
+	 * incomplete index record is dropped when the partition is loaded again.
+	 */
+	private void truncate(final long dataLength, final long indexLength) {
+		try {
+			index.setLength(indexLength);
+			data.setLength(dataLength);
+		} catch (final IOException e) {
+			unload();
+		}
+	}
+
+	/**
+	 * Read the index up to its end or up to the first damaged record or entry
+	 * without its collectible; the index file is cut back behind the last
+	 * valid record.
+	 */
+	private void load(final long dataLength, final RandomAccessFile indexToLoad) throws IOException {
+		final long indexLength = indexToLoad.length();
+		long validLength = 0;
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			while (true) {
+				final byte[] indexRecord;
+				try {
+					final int recordLength = in.readInt();
+					if (recordLength <= 0 || recordLength > indexLength - validLength - 4) {
+						break;
+					}
+					indexRecord = new byte[recordLength];
+					in.readFully(indexRecord);
+				} catch (final EOFException e) {
+					break;
+				}
+				final IndexEntry entry = IndexEntry.fromBytes(indexRecord);
+				if (entry == null || entry.offset + entry.length > dataLength) {
+					break;
+				}
+				uuids.add(entry.uuid);
+				add(entry);
+				validLength += 4 + indexRecord.length;
+			}
+		} finally {
+			in.close();
+		}
+		if (validLength < indexLength) {
+			indexToLoad.setLength(validLength);
+		}
+	}
+
+	private void add(final IndexEntry entry) {
+		entries.add(entry);
+		if (entry.clientInfo != null) {
+			getOrCreate(clientEntries, entry.clientInfo).add(entry);
+		}
+		getOrCreate(categoryEntries, entry.category).add(entry);
+	}
+
+	private static List<IndexEntry> get(final Map<String, List<IndexEntry>> map, final String key) {
+		final List<IndexEntry> list = map.get(key);
+		return list == null ? Collections.<IndexEntry> emptyList() : list;
+	}
+
+	private static List<IndexEntry> getOrCreate(final Map<String, List<IndexEntry>> map, final String key) {
+		List<IndexEntry> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<IndexEntry>();
+			map.put(key, list);
+		}
+		return list;
+	}
+
+	/**
+	 * A collectible serialized outside of the partition lock.
+	 */
+	static final class SerializedCollectible {
+
+		private final IndexEntry entry;
+		private final byte[] data;
+
+		SerializedCollectible(final IndexEntry entry, final byte[] data) {
+			this.entry = entry;
+			this.data = data;
+		}
+	}
+
+	static final class IndexEntry {
+
+		private long offset;
+		private final int length;
+		private final long time;
+		private final String clientInfo;
+		private final String category;
+		private final int level;
+		private final UUID uuid;
+
+		IndexEntry(final int length, final long time, final String clientInfo, final String category,
+				final int level, final UUID uuid) {
+			this.length = length;
+			this.time = time;
+			this.clientInfo = clientInfo;
+			this.category = category;
+			this.level = level;
+			this.uuid = uuid;
+		}
+
+		private byte[] toBytes() throws IOException {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeLong(offset);
+			out.writeInt(length);
+			out.writeLong(time);
+			out.writeBoolean(clientInfo != null);
+			if (clientInfo != null) {
+				out.writeUTF(clientInfo);
+			}
+			out.writeUTF(category);
+			out.writeInt(level);
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+			out.close();
+			return bos.toByteArray();
+		}
+
+		/**
+		 * @return the entry or {@code null} if the record is damaged
+		 */
+		private static IndexEntry fromBytes(final byte[] bytes) throws IOException {
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+			try {
+				final long offset = in.readLong();
+				final int length = in.readInt();
+				final long time = in.readLong();
+				final String clientInfo = in.readBoolean() ? in.readUTF().intern() : null;
+				final String category = in.readUTF().intern();
+				final int level = in.readInt();
+				final UUID uuid = new UUID(in.readLong(), in.readLong());
+				if (offset < 0 || length < 0 || in.available() != 0) {
+					return null;
+				}
+				final IndexEntry entry = new IndexEntry(length, time, clientInfo, category, level, uuid);
+				entry.offset = offset;
+				return entry;
+			} catch (final EOFException e) {
+				return null;
+			} catch (final UTFDataFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Resolves the payload classes with the class loader of this bundle and,
+	 * if that fails, with the context class loader.
+	 */
+	private static class CollectibleInputStream extends ObjectInputStream {
+
+		CollectibleInputStream(final InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return super.resolveClass(desc);
+			} catch (final ClassNotFoundException e) {
+				final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+				if (contextClassLoader == null) {
+					throw e;
+				}
+				return Class.forName(desc.getName(), false, contextClassLoader);
+			}
+		}
+	}
+
+}
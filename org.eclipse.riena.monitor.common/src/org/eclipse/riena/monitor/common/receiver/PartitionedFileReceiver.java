@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.common.receiver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+import org.eclipse.riena.monitor.common.Collectible;
+import org.eclipse.riena.monitor.common.IReceiver;
+import org.eclipse.riena.monitor.common.LogEntryTransferObject;
+import org.eclipse.riena.monitor.common.receiver.Partition.IndexEntry;
+import org.eclipse.riena.monitor.common.receiver.Partition.SerializedCollectible;
+
+/**
+ * An {@code IReceiver} for the server that stores the collectibles in files
+ * partitioned by their collection time and answers queries on them.
+ * <p>
+ * Each partition (one hour by default) consists of a data file with the
+ * serialized collectibles and an index file. The index of a partition is held
+ * in memory with lists per client info and per category, so a query only
+ * reads the collectibles it returns; they are read one at a time while the
+ * result is iterated.
+ * <p>
+ * Only a limited number of partitions is loaded (their files open and their
+ * index in memory) at a time; the least recently used partition is unloaded
+ * when another one is loaded.
+ * <p>
+ * Batches of different partitions are stored concurrently. The collectibles
+ * are serialized before the partition is locked, so the lock is only held
+ * while appending to the files. A batch that is sent again (e.g. because the
+ * acknowledge got lost) is not stored twice.
+ *
+ * @since 6.0
+ */
+public class PartitionedFileReceiver implements IReceiver {
+
+	/**
+	 * The default length of a partition (one hour).
+	 */
+	public static final long DEFAULT_PARTITION_LENGTH = TimeUnit.HOURS.toMillis(1);
+	/**
+	 * The default maximum number of loaded partitions.
+	 */
+	public static final int DEFAULT_MAX_LOADED_PARTITIONS = 8;
+
+	static final String FILE_PREFIX = "collectibles-"; //$NON-NLS-1$
+	static final String DATA_FILE_EXTENSION = ".data"; //$NON-NLS-1$
+	static final String INDEX_FILE_EXTENSION = ".idx"; //$NON-NLS-1$
+
+	private final File folder;
+	private final long partitionLength;
+	private final int maxLoadedPartitions;
+	private final ConcurrentMap<Long, Partition> partitions = new ConcurrentHashMap<Long, Partition>();
+
+	private final AtomicLong statReceived = new AtomicLong();
+	private final AtomicLong statStored = new AtomicLong();
+	private final AtomicLong statFailed = new AtomicLong();
+
+	private static final Logger LOGGER = Log4r.getLogger(PartitionedFileReceiver.class);
+
+	/**
+	 * @param folder
+	 *            the folder of the partition files; existing partitions are
+	 *            taken over
+	 */
+	public PartitionedFileReceiver(final File folder) {
+		this(folder, DEFAULT_PARTITION_LENGTH);
+	}
+
+	/**
+	 * @param folder
+	 *            the folder of the partition files; existing partitions are
+	 *            taken over
+	 * @param partitionLength
+	 *            the time span of a partition in milliseconds; must not change
+	 *            for an existing folder
+	 */
+	public PartitionedFileReceiver(final File folder, final long partitionLength) {
+		this(folder, partitionLength, DEFAULT_MAX_LOADED_PARTITIONS);
+	}
+
+	/**
+	 * @param folder
+	 *            the folder of the partition files; existing partitions are
+	 *            taken over
+	 * @param partitionLength
+	 *            the time span of a partition in milliseconds; must not change
+	 *            for an existing folder
+	 * @param maxLoadedPartitions
+	 *            the maximum number of partitions whose files are open and
+	 *            whose index is held in memory
+	 */
+	public PartitionedFileReceiver(final File folder, final long partitionLength, final int maxLoadedPartitions) {
+		Assert.isLegal(folder != null, "folder must not be null"); //$NON-NLS-1$
+		Assert.isLegal(partitionLength > 0, "partitionLength must be greater than 0"); //$NON-NLS-1$
+		Assert.isLegal(maxLoadedPartitions > 0, "maxLoadedPartitions must be greater than 0"); //$NON-NLS-1$
+		this.folder = folder;
+		this.partitionLength = partitionLength;
+		this.maxLoadedPartitions = maxLoadedPartitions;
+		folder.mkdirs();
+		Assert.isLegal(folder.isDirectory(), "folder " + folder + " is not a directory"); //$NON-NLS-1$ //$NON-NLS-2$
+		final String[] fileNames = folder.list();
+		if (fileNames != null) {
+			for (final String fileName : fileNames) {
+				if (fileName.startsWith(FILE_PREFIX) && fileName.endsWith(DATA_FILE_EXTENSION)) {
+					try {
+						final long start = Long.parseLong(fileName.substring(FILE_PREFIX.length(), fileName.length()
+								- DATA_FILE_EXTENSION.length()));
+						partitions.put(start, new Partition(folder, start));
+					} catch (final NumberFormatException e) {
+						LOGGER.log(LogService.LOG_WARNING, "Ignoring unexpected file " + fileName + " in " + folder); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+			}
+		}
+		LOGGER.log(LogService.LOG_INFO, "Storing collectibles in " + folder + " with " + partitions.size() //$NON-NLS-1$ //$NON-NLS-2$
+				+ " existing partitions"); //$NON-NLS-1$
+	}
+
+	public boolean take(final long senderTime, final List<Collectible<?>> collectibles) {
+		statReceived.addAndGet(collectibles.size());
+		final Map<Long, List<SerializedCollectible>> batches = new LinkedHashMap<Long, List<SerializedCollectible>>();
+		try {
+			for (final Collectible<?> collectible : collectibles) {
+				final Long start = getPartitionStart(collectible.getCollectionTime());
+				List<SerializedCollectible> batch = batches.get(start);
+				if (batch == null) {
+					batch = new ArrayList<SerializedCollectible>();
+					batches.put(start, batch);
+				}
+				batch.add(serialize(collectible));
+			}
+			for (final Map.Entry<Long, List<SerializedCollectible>> batch : batches.entrySet()) {
+				final Partition partition = getPartition(batch.getKey());
+				final boolean loaded = partition.isLoaded();
+				statStored.addAndGet(partition.append(batch.getValue()));
+				if (!loaded) {
+					unloadLeastRecentlyUsed();
+				}
+			}
+			return true;
+		} catch (final IOException e) {
+			statFailed.addAndGet(collectibles.size());
+			LOGGER.log(LogService.LOG_ERROR, "Storing " + collectibles.size() + " collectibles failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+	}
+
+	/**
+	 * Query the stored collectibles. The collectibles are read while iterating
+	 * the result, partition by partition in the order of time; within a
+	 * partition they are in the order they have been received.
+	 * <p>
+	 * Collectibles that can not be read (e.g. the payload class is missing)
+	 * are skipped.
+	 *
+	 * @param query
+	 *            the criteria
+	 * @return the matching collectibles
+	 */
+	public Iterator<Collectible<?>> query(final CollectibleQuery query) {
+		Assert.isLegal(query != null, "query must not be null"); //$NON-NLS-1$
+		final List<Partition> selected = new ArrayList<Partition>();
+		for (final Partition partition : partitions.values()) {
+			final long start = partition.getStart();
+			if (start < query.getTo() && start + partitionLength > query.getFrom()) {
+				selected.add(partition);
+			}
+		}
+		Collections.sort(selected, new Comparator<Partition>() {
+			public int compare(final Partition p1, final Partition p2) {
+				return p1.getStart() < p2.getStart() ? -1 : p1.getStart() == p2.getStart() ? 0 : 1;
+			}
+		});
+		return new QueryIterator(query, selected.iterator(), this);
+	}
+
+	/**
+	 * @return the number of loaded partitions
+	 */
+	public int getLoadedPartitions() {
+		int loaded = 0;
+		for (final Partition partition : partitions.values()) {
+			if (partition.isLoaded()) {
+				loaded++;
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * @return the number of stored collectibles
+	 */
+	public long getStoredCollectibles() {
+		return statStored.get();
+	}
+
+	public String getStatistic() {
+		return "Received / Stored / Failed / Partitions " + statReceived.get() + " / " + statStored.get() + " / " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ statFailed.get() + " / " + partitions.size(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Close the files of all partitions. They are opened again if needed.
+	 */
+	public void close() {
+		for (final Partition partition : partitions.values()) {
+			partition.close();
+		}
+	}
+
+	/**
+	 * Unload the least recently used partitions exceeding the maximum number
+	 * of loaded partitions.
+	 */
+	private void unloadLeastRecentlyUsed() {
+		final List<Partition> loaded = new ArrayList<Partition>();
+		final Map<Partition, Long> lastUses = new HashMap<Partition, Long>();
+		for (final Partition partition : partitions.values()) {
+			if (partition.isLoaded()) {
+				loaded.add(partition);
+				// a snapshot, the partitions may be used concurrently
+				lastUses.put(partition, partition.getLastUse());
+			}
+		}
+		if (loaded.size() <= maxLoadedPartitions) {
+			return;
+		}
+		Collections.sort(loaded, new Comparator<Partition>() {
+			public int compare(final Partition p1, final Partition p2) {
+				final long lastUse1 = lastUses.get(p1);
+				final long lastUse2 = lastUses.get(p2);
+				return lastUse1 < lastUse2 ? -1 : lastUse1 == lastUse2 ? 0 : 1;
+			}
+		});
+		for (final Partition partition : loaded.subList(0, loaded.size() - maxLoadedPartitions)) {
+			partition.unload();
+		}
+	}
+
+	private Long getPartitionStart(final long time) {
+		return time - (time % partitionLength + partitionLength) % partitionLength;
+	}
+
+	private Partition getPartition(final Long start) {
+		final Partition partition = partitions.get(start);
+		if (partition != null) {
+			return partition;
+		}
+		final Partition newPartition = new Partition(folder, start);
+		final Partition existing = partitions.putIfAbsent(start, newPartition);
+		return existing != null ? existing : newPartition;
+	}
+
+	private static SerializedCollectible serialize(final Collectible<?> collectible) throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+		final ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(collectible);
+		oos.close();
+		final byte[] data = bos.toByteArray();
+		final Object payload = collectible.getPayload();
+		final int level = payload instanceof LogEntryTransferObject ? ((LogEntryTransferObject) payload).getLevel()
+				: 0;
+		return new SerializedCollectible(new IndexEntry(data.length, collectible.getCollectionTime(),
+				collectible.getClientInfo(), collectible.getCategory(), level, collectible.getUUID()), data);
+	}
+
+	/**
+	 * Selects the index entries of one partition at a time and reads the
+	 * collectibles of the selected entries one at a time.
+	 */
+	private static final class QueryIterator implements Iterator<Collectible<?>> {
+
+		private final CollectibleQuery query;
+		private final Iterator<Partition> partitions;
+		private final PartitionedFileReceiver receiver;
+		private Partition partition;
+		private Iterator<IndexEntry> entries = Collections.<IndexEntry> emptyList().iterator();
+		private Collectible<?> next;
+
+		private QueryIterator(final CollectibleQuery query, final Iterator<Partition> partitions,
+				final PartitionedFileReceiver receiver) {
+			this.query = query;
+			this.partitions = partitions;
+			this.receiver = receiver;
+		}
+
+		public boolean hasNext() {
+			while (next == null) {
+				while (!entries.hasNext()) {
+					if (!partitions.hasNext()) {
+						return false;
+					}
+					partition = partitions.next();
+					final boolean loaded = partition.isLoaded();
+					try {
+						entries = partition.select(query).iterator();
+						if (!loaded) {
+							receiver.unloadLeastRecentlyUsed();
+						}
+					} catch (final IOException e) {
+						LOGGER.log(LogService.LOG_ERROR, "Reading the index of partition " + partition.getStart() //$NON-NLS-1$
+								+ " failed", e); //$NON-NLS-1$
+					}
+				}
+				try {
+					next = partition.read(entries.next());
+				} catch (final IOException e) {
+					LOGGER.log(LogService.LOG_ERROR, "Reading a collectible of partition " + partition.getStart() //$NON-NLS-1$
+							+ " failed", e); //$NON-NLS-1$
+				}
+			}
+			return true;
+		}
+
+		public Collectible<?> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final Collectible<?> result = next;
+			next = null;
+			return result;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -12,6 +12,7 @@ package org.eclipse.riena.internal.security.common;
 
 import org.osgi.framework.BundleContext;
 
+import org.eclipse.riena.communication.core.async.ICallContextPropagator;
 import org.eclipse.riena.communication.core.hooks.ICallHook;
 import org.eclipse.riena.core.RienaConstants;
 import org.eclipse.riena.core.RienaPlugin;
@@ -50,6 +51,7 @@ public class Activator extends RienaPlugin {
 		createSessionHolder();
 		createSecurityCallHook();
 		createSubjectHolder();
+		createSecurityContextPropagator();
 		createPermissionCache();
 		createSentinelService();
 	}
@@ -71,6 +73,13 @@ public class Activator extends RienaPlugin {
 		getContext().registerService(ICallHook.class.getName(), hook, null);
 	}
 
+	private void createSecurityContextPropagator() {
+		final ICallContextPropagator propagator = new SecurityContextPropagator();
+		Wire.instance(propagator).andStart();
+
+		getContext().registerService(ICallContextPropagator.class.getName(), propagator, null);
+	}
+
 	private void createSentinelService() {
 		final ISentinelService sentinelService = new SentinelServiceImpl();
 		Wire.instance(sentinelService).andStart();
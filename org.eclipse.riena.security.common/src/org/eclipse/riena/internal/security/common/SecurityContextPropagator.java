@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.security.common;
+
+import javax.security.auth.Subject;
+
+import org.eclipse.riena.communication.core.async.ICallContextPropagator;
+import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.security.common.ISubjectHolder;
+import org.eclipse.riena.security.common.session.ISessionHolder;
+import org.eclipse.riena.security.common.session.Session;
+
+/**
+ * Carries the subject and the session of the calling thread to the thread
+ * executing an asynchronous remote call. This matters for the thread bound
+ * holders (server side); the values of the holders of the client are the same
+ * on all threads and stay untouched.
+ */
+public class SecurityContextPropagator implements ICallContextPropagator {
+
+	private ISubjectHolder subjectHolder;
+	private ISessionHolder sessionHolder;
+
+	@InjectService(useRanking = true)
+	public void bind(final ISubjectHolder subjectHolder) {
+		this.subjectHolder = subjectHolder;
+	}
+
+	public void unbind(final ISubjectHolder subjectHolder) {
+		if (this.subjectHolder == subjectHolder) {
+			this.subjectHolder = null;
+		}
+	}
+
+	@InjectService(useRanking = true)
+	public void bind(final ISessionHolder sessionHolder) {
+		this.sessionHolder = sessionHolder;
+	}
+
+	public void unbind(final ISessionHolder sessionHolder) {
+		if (this.sessionHolder == sessionHolder) {
+			this.sessionHolder = null;
+		}
+	}
+
+	public Object capture() {
+		return new State(subjectHolder != null ? subjectHolder.getSubject() : null,
+				sessionHolder != null ? sessionHolder.getSession() : null);
+	}
+
+	public Object attach(final Object captured) {
+		final State previous = (State) capture();
+		apply((State) captured, previous);
+		return previous;
+	}
+
+	public void detach(final Object previous) {
+		apply((State) previous, (State) capture());
+	}
+
+	private void apply(final State state, final State current) {
+		if (subjectHolder != null && state.subject != current.subject) {
+			subjectHolder.setSubject(state.subject);
+		}
+		if (sessionHolder != null && state.session != current.session) {
+			sessionHolder.setSession(state.session);
+		}
+	}
+
+	private static final class State {
+
+		private final Subject subject;
+		private final Session session;
+
+		private State(final Subject subject, final Session session) {
+			this.subject = subject;
+			this.session = session;
+		}
+	}
+
+}
@@ -15,44 +15,69 @@ import java.security.Permissions;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.security.auth.Subject;
 
 import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.security.common.ISubjectChangeListener;
 import org.eclipse.riena.security.common.ISubjectHolder;
+import org.eclipse.riena.security.common.SubjectChangeEvent;
 import org.eclipse.riena.security.common.authorization.IAuthorizationService;
 import org.eclipse.riena.security.common.authorization.IPermissionCache;
 import org.eclipse.riena.security.common.authorization.ISentinelService;
 
 /**
  * An implementation of the {@code ISentinelService} which will be registered as 'default' OSGi service that can be overwritten.
+ * <p>
+ * The permissions of all principals of a subject are merged once and kept per principal set together with the results of the
+ * checks done so far. A merged entry is only used as long as the {@code IPermissionCache} still returns the same
+ * {@code Permissions} instances for its principals, i.e. a purge, a timeout or an update of the permission cache invalidates
+ * it. All entries are dropped when the subject changes.
  */
 public class SentinelServiceImpl implements ISentinelService {
 
+	private static final int MAX_MERGED_PERMISSIONS = 256;
+	private static final int MAX_RESULTS = 1024;
+
 	private IPermissionCache permCache;
 	private ISubjectHolder subjectHolder;
 	private IAuthorizationService authService;
+	private final ConcurrentMap<Set<Principal>, MergedPermissions> mergedPermissions = new ConcurrentHashMap<Set<Principal>, MergedPermissions>();
+	private final ISubjectChangeListener subjectChangeListener = new ISubjectChangeListener() {
+		public void changed(final SubjectChangeEvent event) {
+			mergedPermissions.clear();
+		}
+	};
 
 	@InjectService
 	public void bind(final IPermissionCache permCache) {
 		this.permCache = permCache;
+		mergedPermissions.clear();
 	}
 
 	public void unbind(final IPermissionCache permCache) {
 		if (permCache == this.permCache) {
 			this.permCache = null;
+			mergedPermissions.clear();
 		}
 	}
 
 	@InjectService
 	public void bind(final ISubjectHolder subjectHolder) {
 		this.subjectHolder = subjectHolder;
+		subjectHolder.addSubjectChangeListener(subjectChangeListener);
+		mergedPermissions.clear();
 	}
 
 	public void unbind(final ISubjectHolder subjectHolder) {
 		if (subjectHolder == this.subjectHolder) {
+			subjectHolder.removeSubjectChangeListener(subjectChangeListener);
 			this.subjectHolder = null;
+			mergedPermissions.clear();
 		}
 	}
 
@@ -77,14 +102,32 @@ public class SentinelServiceImpl implements ISentinelService {
 	public boolean checkAccess(final Permission permission) {
 		final Subject subject = getSubjectHolder().getSubject();
 		if (subject != null) {
-			final Permissions permissions = getPermissions(subject);
-			final boolean result = permissions.implies(permission);
-			return result;
+			return getMergedPermissions(subject).implies(permission);
 		} else {
 			return false;
 		}
 	}
 
+	/**
+	 * Check whether the current user is granted the given {@code permissions}. The merged permissions are looked up (and
+	 * if necessary retrieved from the {@code IAuthorizationService}) only once.
+	 * 
+	 * @param permissions
+	 *            permissions to be checked
+	 * @return for each permission true if granted; otherwise false
+	 */
+	public boolean[] checkAccess(final Permission[] permissions) {
+		final boolean[] result = new boolean[permissions.length];
+		final Subject subject = getSubjectHolder().getSubject();
+		if (subject != null) {
+			final MergedPermissions merged = getMergedPermissions(subject);
+			for (int i = 0; i < permissions.length; i++) {
+				result[i] = merged.implies(permissions[i]);
+			}
+		}
+		return result;
+	}
+
 	protected IPermissionCache getPermissionCache() {
 		return permCache;
 	}
@@ -94,47 +137,124 @@ public class SentinelServiceImpl implements ISentinelService {
 	}
 
 	/**
-	 * Get Permissions for a specific Subject
+	 * Get the merged permissions of a subject, reusing the merged permissions of an earlier call if the permissions of its
+	 * principals did not change.
+	 */
+	private MergedPermissions getMergedPermissions(final Subject subject) {
+		final Set<Principal> principals = new HashSet<Principal>(subject.getPrincipals());
+		final IPermissionCache thePermCache = getPermissionCache();
+		final MergedPermissions cached = mergedPermissions.get(principals);
+		if (cached != null && cached.isCurrent(thePermCache)) {
+			return cached;
+		}
+		final Principal[] principalArray = principals.toArray(new Principal[principals.size()]);
+		final Permissions[] sources = new Permissions[principalArray.length];
+		final Permissions merged = getPermissions(principalArray, sources);
+		final MergedPermissions result = new MergedPermissions(principalArray, sources, merged);
+		if (merged != null) {
+			if (mergedPermissions.size() >= MAX_MERGED_PERMISSIONS) {
+				mergedPermissions.clear();
+			}
+			mergedPermissions.put(principals, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get Permissions for the principals of a specific Subject
 	 * 
-	 * @param subject
-	 * @return
+	 * @param principals
+	 * @param sources
+	 *            receives the {@code Permissions} of each principal
+	 * @return the merged permissions or {@code null} if the permissions of some principals could not be retrieved
 	 */
-	private Permissions getPermissions(final Subject subject) {
-		final Set<Principal> principals = subject.getPrincipals();
+	private Permissions getPermissions(final Principal[] principals, final Permissions[] sources) {
 		final Permissions allPerms = new Permissions();
-		final ArrayList<Principal> missingPrincipals = new ArrayList<Principal>();
+		final ArrayList<Integer> missingPrincipals = new ArrayList<Integer>();
 		final IPermissionCache thePermCache = getPermissionCache();
 
 		// iterate over the principals in the subject and try to find an entry in the PermissionCache
 		// add principals for which there are no permissions into the missingPrincipals ArrayList
-		for (final Principal principal : principals) {
-			final Permissions perms = thePermCache.getPermissions(principal);
+		for (int i = 0; i < principals.length; i++) {
+			final Permissions perms = thePermCache.getPermissions(principals[i]);
 			if (perms == null) {
-				missingPrincipals.add(principal);
+				missingPrincipals.add(i);
 			} else {
 				// if we find permissions add them to the pool of permissions
-				final Enumeration<Permission> permEnum = perms.elements();
-				while (permEnum.hasMoreElements()) {
-					allPerms.add(permEnum.nextElement());
-				}
+				sources[i] = perms;
+				addAll(allPerms, perms);
 			}
 		}
 
 		// if there are principals with no permissions, retrieve them from the server
 		if (missingPrincipals.size() > 0) {
 			if (authService == null) {
-				return new Permissions();
+				return null;
 			}
-			final Permissions[] permissionsArray = authService.getPermissions(missingPrincipals.toArray(new Principal[missingPrincipals.size()]));
-			for (int i = 0; i < missingPrincipals.size(); i++) {
-				thePermCache.putPermissions(missingPrincipals.get(i), permissionsArray[i]);
-				final Enumeration<Permission> permEnum = permissionsArray[i].elements();
-				while (permEnum.hasMoreElements()) {
-					allPerms.add(permEnum.nextElement());
-				}
+			final Principal[] missing = new Principal[missingPrincipals.size()];
+			for (int i = 0; i < missing.length; i++) {
+				missing[i] = principals[missingPrincipals.get(i)];
+			}
+			final Permissions[] permissionsArray = authService.getPermissions(missing);
+			for (int i = 0; i < missing.length; i++) {
+				thePermCache.putPermissions(missing[i], permissionsArray[i]);
+				sources[missingPrincipals.get(i)] = permissionsArray[i];
+				addAll(allPerms, permissionsArray[i]);
 			}
 		}
 		return allPerms;
 	}
 
+	private static void addAll(final Permissions target, final Permissions source) {
+		final Enumeration<Permission> permEnum = source.elements();
+		while (permEnum.hasMoreElements()) {
+			target.add(permEnum.nextElement());
+		}
+	}
+
+	/**
+	 * The merged permissions of a set of principals and the results of the checks done with them.
+	 * <p>
+	 * {@code Permissions} already keeps a {@code PermissionCollection} per permission class, so {@code implies()} only
+	 * looks at the permissions of the same type. The results are kept additionally since most permissions (e.g. those of
+	 * the UI filters) are checked over and over again.
+	 */
+	private static final class MergedPermissions {
+
+		private final Principal[] principals;
+		private final Permissions[] sources;
+		private final Permissions merged;
+		private final ConcurrentMap<Permission, Boolean> results = new ConcurrentHashMap<Permission, Boolean>();
+
+		private MergedPermissions(final Principal[] principals, final Permissions[] sources, final Permissions merged) {
+			this.principals = principals;
+			this.sources = sources;
+			this.merged = merged;
+		}
+
+		private boolean isCurrent(final IPermissionCache permCache) {
+			for (int i = 0; i < principals.length; i++) {
+				if (permCache.getPermissions(principals[i]) != sources[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean implies(final Permission permission) {
+			if (merged == null) {
+				return false;
+			}
+			final Boolean cached = results.get(permission);
+			if (cached != null) {
+				return cached;
+			}
+			final boolean result = merged.implies(permission);
+			if (results.size() < MAX_RESULTS) {
+				results.put(permission, result);
+			}
+			return result;
+		}
+	}
+
 }
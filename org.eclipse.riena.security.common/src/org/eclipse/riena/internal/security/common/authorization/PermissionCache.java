@@ -12,17 +12,44 @@ package org.eclipse.riena.internal.security.common.authorization;
 
 import java.security.Permissions;
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.Set;
 
 import javax.security.auth.Subject;
 
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
 import org.eclipse.riena.core.cache.GenericObjectCache;
 import org.eclipse.riena.core.util.ContainerModel;
 import org.eclipse.riena.core.wire.InjectExtension;
+import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.internal.security.common.Activator;
 import org.eclipse.riena.security.common.authorization.IPermissionCache;
+import org.eclipse.riena.security.common.authorization.IPermissionInvalidationReceiver;
+import org.eclipse.riena.security.common.authorization.IPermissionInvalidationTransport;
 
+/**
+ * The default {@code IPermissionCache}.
+ * <p>
+ * A purge removes the permissions locally and, if an
+ * {@code IPermissionInvalidationTransport} is available, sends the names of
+ * the purged principals to the other nodes of the cluster. Purges received
+ * from other nodes are only applied locally.
+ */
 public class PermissionCache implements IPermissionCache {
 
 	private final GenericObjectCache<String, Permissions> permCache = new GenericObjectCache<String, Permissions>();
+	private volatile IPermissionInvalidationTransport transport;
+	private final IPermissionInvalidationReceiver receiver = new IPermissionInvalidationReceiver() {
+		public void received(final String[] principalNames) {
+			purge(principalNames);
+		}
+	};
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), PermissionCache.class);
 
 	public PermissionCache() {
 		super();
@@ -47,9 +74,53 @@ public class PermissionCache implements IPermissionCache {
 	}
 
 	public void purgePermissions(final Subject subject) {
+		final Set<Principal> principals = subject.getPrincipals();
+		final String[] principalNames = new String[principals.size()];
+		int i = 0;
+		for (final Principal principal : principals) {
+			principalNames[i++] = principal.getName();
+		}
+		purge(principalNames);
+		send(principalNames);
 	}
 
 	public void purgePermissions(final Principal principal) {
+		final String[] principalNames = new String[] { principal.getName() };
+		purge(principalNames);
+		send(principalNames);
+	}
+
+	@InjectService(useRanking = true)
+	public void bind(final IPermissionInvalidationTransport transport) {
+		this.transport = transport;
+		transport.setReceiver(receiver);
+	}
+
+	public void unbind(final IPermissionInvalidationTransport transport) {
+		if (this.transport == transport) {
+			transport.setReceiver(null);
+			this.transport = null;
+		}
+	}
+
+	private void purge(final String[] principalNames) {
+		for (final String principalName : principalNames) {
+			permCache.remove(principalName);
+		}
+	}
+
+	private void send(final String[] principalNames) {
+		final IPermissionInvalidationTransport theTransport = transport;
+		if (theTransport == null || principalNames.length == 0) {
+			return;
+		}
+		try {
+			theTransport.send(principalNames);
+		} catch (final RuntimeException e) {
+			// the local purge has been done, the other nodes fall back on the timeout
+			LOGGER.log(LogService.LOG_ERROR, "Sending the purge of the permissions of " //$NON-NLS-1$
+					+ Arrays.toString(principalNames) + " failed", e); //$NON-NLS-1$
+		}
 	}
 
 	@InjectExtension(min = 0, max = 1)
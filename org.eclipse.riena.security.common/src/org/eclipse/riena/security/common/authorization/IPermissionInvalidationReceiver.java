@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.common.authorization;
+
+/**
+ * Receives the purges of permissions done on other nodes of a cluster.
+ * 
+ * @see IPermissionInvalidationTransport
+ */
+public interface IPermissionInvalidationReceiver {
+
+	/**
+	 * The permissions of the given principals have been purged on another node.
+	 * 
+	 * @param principalNames
+	 *            names of the principals
+	 */
+	void received(String[] principalNames);
+
+}
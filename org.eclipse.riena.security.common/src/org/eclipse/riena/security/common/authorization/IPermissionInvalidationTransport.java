@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.common.authorization;
+
+/**
+ * Delivers the purges of an {@code IPermissionCache} to the permission caches
+ * of the other nodes of a cluster.
+ * <p>
+ * The permission cache sends the names of the principals whose permissions
+ * have been purged locally. The transport delivers them to the receiver of
+ * every other node; it must not deliver them back to the sending node. How
+ * this is done (JMS, multicast, a shared database, ...) is up to the
+ * implementation, which is registered as an OSGi service.
+ */
+public interface IPermissionInvalidationTransport {
+
+	/**
+	 * Send the names of principals whose permissions have been purged to the
+	 * other nodes.
+	 * 
+	 * @param principalNames
+	 *            names of the principals
+	 */
+	void send(String[] principalNames);
+
+	/**
+	 * Set the receiver for the invalidations sent by the other nodes.
+	 * 
+	 * @param receiver
+	 *            the receiver or {@code null} to stop receiving
+	 */
+	void setReceiver(IPermissionInvalidationReceiver receiver);
+
+}
@@ -30,4 +30,17 @@ public interface ISentinelService {
 	 */
 	boolean checkAccess(Permission permission);
 
+	/**
+	 * Checks a number of permissions at once for the currently logged in user.
+	 * The permissions of the user are resolved only once (with at most one
+	 * call to the {@code IAuthorizationService}) for all of them.
+	 * 
+	 * @param permissions
+	 *            permissions to check for the user
+	 * @return for each permission true if the user has enough access right,
+	 *         otherwise false
+	 * @since 6.0
+	 */
+	boolean[] checkAccess(Permission[] permissions);
+
 }
@@ -63,4 +63,20 @@ public final class Sentinel {
 		return getInstance().getSentinelService().checkAccess(permission);
 	}
 
+	/**
+	 * checkAccess for a number of permissions, e.g. all items of a menu. The
+	 * permissions of the current Subject are read only once for all of them.
+	 * 
+	 * @param permissions
+	 *            permissions to be checked
+	 * @return for each permission whether it is allowed for this subject
+	 * @since 6.0
+	 */
+	public static boolean[] checkAccess(final Permission[] permissions) {
+		if (SENTINEL.getInstance().getSentinelService() == null) {
+			return new boolean[permissions.length];
+		}
+		return getInstance().getSentinelService().checkAccess(permissions);
+	}
+
 }
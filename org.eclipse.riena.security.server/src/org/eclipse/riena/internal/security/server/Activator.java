@@ -14,8 +14,12 @@ import java.security.Principal;
 import java.util.Hashtable;
 
 import org.osgi.framework.BundleContext;
+import org.osgi.service.log.LogService;
 
+import org.eclipse.riena.core.Log4r;
 import org.eclipse.riena.core.RienaPlugin;
+import org.eclipse.riena.core.cache.ConcurrentObjectCache;
+import org.eclipse.riena.core.cache.ConcurrentObjectCache.EvictionPolicy;
 import org.eclipse.riena.core.cache.GenericObjectCache;
 import org.eclipse.riena.core.cache.IGenericObjectCache;
 
@@ -27,6 +31,18 @@ public class Activator extends RienaPlugin {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "org.eclipse.riena.security.server"; //$NON-NLS-1$
 
+	/**
+	 * System property selecting the eviction policy (<code>LRU</code> or
+	 * <code>LFU</code>) of the principal cache. If it is not set the soft
+	 * reference based {@code GenericObjectCache} is used.
+	 */
+	public static final String RIENA_PRINCIPAL_CACHE_POLICY_PROPERTY = "riena.security.server.principalcache.policy"; //$NON-NLS-1$
+	/**
+	 * System property with the maximum number of entries of the principal cache
+	 * if an eviction policy is selected.
+	 */
+	public static final String RIENA_PRINCIPAL_CACHE_MAXSIZE_PROPERTY = "riena.security.server.principalcache.maxsize"; //$NON-NLS-1$
+
 	// The shared instance
 	private static Activator plugin;
 
@@ -40,13 +56,44 @@ public class Activator extends RienaPlugin {
 	public void start(final BundleContext context) throws Exception {
 		super.start(context);
 		Activator.plugin = this;
-		final GenericObjectCache<String, Principal[]> principalCache = new GenericObjectCache<String, Principal[]>();
+		final IGenericObjectCache<String, Principal[]> principalCache = createPrincipalCache();
 		principalCache.setName("principalCache"); //$NON-NLS-1$
 		final Hashtable<String, String> props = new Hashtable<String, String>();
 		props.put("cache.type", "PrincipalCache"); //$NON-NLS-1$ //$NON-NLS-2$
 		context.registerService(IGenericObjectCache.class.getName(), principalCache, props);
 	}
 
+	private IGenericObjectCache<String, Principal[]> createPrincipalCache() {
+		final String policy = System.getProperty(RIENA_PRINCIPAL_CACHE_POLICY_PROPERTY);
+		if (policy == null) {
+			return new GenericObjectCache<String, Principal[]>();
+		}
+		final EvictionPolicy evictionPolicy = getEvictionPolicy(policy.trim());
+		if (evictionPolicy == null) {
+			Log4r.getLogger(this, Activator.class).log(LogService.LOG_WARNING,
+					"Unknown principal cache policy " + policy + ", using the default principal cache"); //$NON-NLS-1$ //$NON-NLS-2$
+			return new GenericObjectCache<String, Principal[]>();
+		}
+		int maximumSize = Integer.getInteger(RIENA_PRINCIPAL_CACHE_MAXSIZE_PROPERTY,
+				ConcurrentObjectCache.DEFAULT_MAXIMUM_SIZE);
+		if (maximumSize <= 0) {
+			Log4r.getLogger(this, Activator.class).log(LogService.LOG_WARNING,
+					"Invalid principal cache maximum size " + maximumSize + ", using " //$NON-NLS-1$ //$NON-NLS-2$
+							+ ConcurrentObjectCache.DEFAULT_MAXIMUM_SIZE);
+			maximumSize = ConcurrentObjectCache.DEFAULT_MAXIMUM_SIZE;
+		}
+		return new ConcurrentObjectCache<String, Principal[]>(evictionPolicy, maximumSize);
+	}
+
+	private static EvictionPolicy getEvictionPolicy(final String name) {
+		for (final EvictionPolicy policy : EvictionPolicy.values()) {
+			if (policy.name().equalsIgnoreCase(name)) {
+				return policy;
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public void stop(final BundleContext context) throws Exception {
 		Activator.plugin = null;
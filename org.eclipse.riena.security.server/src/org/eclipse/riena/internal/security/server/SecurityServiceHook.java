@@ -12,6 +12,11 @@ package org.eclipse.riena.internal.security.server;
 
 import java.security.Principal;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.security.auth.Subject;
 import javax.servlet.http.Cookie;
@@ -31,12 +36,19 @@ import org.eclipse.riena.security.common.NotAuthorizedFailure;
 import org.eclipse.riena.security.common.session.ISessionHolder;
 import org.eclipse.riena.security.common.session.Session;
 import org.eclipse.riena.security.server.session.ISessionService;
+import org.eclipse.riena.security.server.session.ISessionVerifier;
 
 /**
  * This Service Hook deals with security issues of a web-service invocation. It
  * reads the cookies and set SessionHolder, PrincipalLocationHolder and
  * PrincipalHolder. It also sets "Set-Cookie" on return, when the session has
  * changed.
+ * <p>
+ * The principals of a session are cached. Concurrent requests of the same
+ * session that miss the cache share one lookup in the session service.
+ * <p>
+ * Stateless sessions (see {@code ISessionVerifier}) are verified locally and
+ * bypass the cache and the session service.
  */
 public class SecurityServiceHook implements IServiceHook {
 
@@ -58,8 +70,10 @@ public class SecurityServiceHook implements IServiceHook {
 	private ISessionService sessionService;
 	private ISubjectHolder subjectHolder;
 	private ISessionHolder sessionHolder;
+	private ISessionVerifier sessionVerifier;
 
 	private final boolean requiresSSOIDbyDefault = false;
+	private final ConcurrentMap<String, FutureTask<Principal[]>> principalLoads = new ConcurrentHashMap<String, FutureTask<Principal[]>>();
 
 	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), SecurityServiceHook.class);
 
@@ -116,19 +130,22 @@ public class SecurityServiceHook implements IServiceHook {
 		}
 	}
 
+	@InjectService(useRanking = true)
+	public void bind(final ISessionVerifier sessionVerifier) {
+		this.sessionVerifier = sessionVerifier;
+	}
+
+	public void unbind(final ISessionVerifier sessionVerifier) {
+		if (this.sessionVerifier == sessionVerifier) {
+			this.sessionVerifier = null;
+		}
+	}
+
 	public void beforeService(final ServiceContext callback) {
 		final boolean requiresSSOID = requiresSSOIDbyDefault;
 
-		// first extract the cookies
-		final Cookie[] cookies = callback.getCookies();
-		String ssoid = null;
-		if (cookies != null) {
-			for (final Cookie cookie : cookies) {
-				if (cookie.getName().equals(SSOID)) {
-					ssoid = cookie.getValue();
-				}
-			}
-		}
+		// first extract the ssoid cookie
+		String ssoid = callback.getCookieValue(SSOID);
 
 		if (ssoid != null && ssoid.length() == 0) {
 			ssoid = null;
@@ -148,18 +165,24 @@ public class SecurityServiceHook implements IServiceHook {
 		// check the ssoid in the session service potentially with a webservice call
 		// note: ssoid and plid are not set
 		if (ssoid != null) {
-			Principal[] principals = principalCache.get(ssoid);
-			if (principals == null) {
-				principals = sessionService.findPrincipals(new Session(ssoid));
+			final ISessionVerifier verifier = sessionVerifier;
+			final Session session = new Session(ssoid);
+			final boolean stateless = verifier != null && verifier.canVerify(session);
+			Principal[] principals = stateless ? verifier.verify(session) : principalCache.get(ssoid);
+			if (stateless) {
+				LOGGER.log(LogService.LOG_DEBUG, "verified stateless session, principal = " //$NON-NLS-1$
+						+ Arrays.toString(principals));
+				if (principals == null && requiresSSOID) {
+					throw new NotAuthorizedFailure("call to webservice with invalid or expired ssoid"); //$NON-NLS-1$
+				}
+			} else if (principals == null) {
+				principals = loadPrincipals(ssoid);
 				LOGGER.log(LogService.LOG_DEBUG, "sessionService found principal = " + Arrays.toString(principals)); //$NON-NLS-1$
 				if (principals == null && requiresSSOID) {
 					LOGGER.log(LogService.LOG_ERROR, "ssoid {" + ssoid //$NON-NLS-1$
 							+ "} found in request but SessionService could not find a Principal."); //$NON-NLS-1$
 					throw new NotAuthorizedFailure("call to webservice with invalid ssoid"); //$NON-NLS-1$
 				}
-				if (principals != null) {
-					principalCache.put(ssoid, principals);
-				}
 			} else {
 				LOGGER.log(LogService.LOG_DEBUG, "found principal in cache = " + Arrays.toString(principals)); //$NON-NLS-1$
 			}
@@ -182,6 +205,57 @@ public class SecurityServiceHook implements IServiceHook {
 
 	}
 
+	/**
+	 * Load the principals of the session from the session service and cache
+	 * them. Only one load per ssoid is in flight at a time, concurrent callers
+	 * wait for its result.
+	 */
+	private Principal[] loadPrincipals(final String ssoid) {
+		final FutureTask<Principal[]> load = new FutureTask<Principal[]>(new Callable<Principal[]>() {
+			public Principal[] call() {
+				final Session session = new Session(ssoid);
+				final Principal[] principals = sessionService.findPrincipals(session);
+				if (principals != null) {
+					principalCache.put(ssoid, principals);
+					// the session service evicts invalidated sessions from the cache, but a
+					// logout may have happened between the lookup and the put above
+					if (!sessionService.hasSession(session)) {
+						principalCache.remove(ssoid);
+					}
+				}
+				return principals;
+			}
+		});
+		final FutureTask<Principal[]> runningLoad = principalLoads.putIfAbsent(ssoid, load);
+		if (runningLoad != null) {
+			LOGGER.log(LogService.LOG_DEBUG, "waiting for the running lookup of the principals of ssoid " + ssoid); //$NON-NLS-1$
+			return getPrincipals(runningLoad);
+		}
+		try {
+			load.run();
+		} finally {
+			principalLoads.remove(ssoid, load);
+		}
+		return getPrincipals(load);
+	}
+
+	private static Principal[] getPrincipals(final FutureTask<Principal[]> load) {
+		try {
+			return load.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NotAuthorizedFailure("interrupted while waiting for the principals of the session"); //$NON-NLS-1$
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
 	public void afterService(final ServiceContext context) {
 		final Session afterSession = sessionHolder.getSession();
 		final Session beforeSession = (Session) context.getProperty("de.compeople.ssoid"); //$NON-NLS-1$
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.server.session;
+
+import java.security.Principal;
+
+import org.eclipse.riena.security.common.session.Session;
+
+/**
+ * Verifies stateless sessions, i.e. sessions whose id carries the principals
+ * itself (signed and possibly encrypted) instead of referring to an entry in
+ * a session store.
+ * <p>
+ * If a verifier is registered as OSGi service the
+ * {@code SecurityServiceHook} verifies the sessions it can verify locally,
+ * without asking the {@code ISessionService}, so the server nodes do not need
+ * a shared session store.
+ * 
+ * @since 6.0
+ */
+public interface ISessionVerifier {
+
+	/**
+	 * Checks whether the session is a stateless session of this verifier.
+	 * 
+	 * @param session
+	 *            the session
+	 * @return true if {@link #verify(Session)} decides about this session
+	 */
+	boolean canVerify(Session session);
+
+	/**
+	 * Verifies the session and returns its principals.
+	 * 
+	 * @param session
+	 *            the session
+	 * @return the principals or {@code null} if the session is not valid
+	 *         (tampered with, expired or revoked)
+	 */
+	Principal[] verify(Session session);
+
+	/**
+	 * Revokes the session, e.g. on logout. It will not be verified any longer.
+	 * 
+	 * @param session
+	 *            the session
+	 */
+	void revoke(Session session);
+
+}
@@ -23,8 +23,10 @@ import org.eclipse.riena.internal.security.sessionservice.SessionService;
 import org.eclipse.riena.security.common.authentication.IAuthenticationService;
 import org.eclipse.riena.security.common.authorization.IAuthorizationService;
 import org.eclipse.riena.security.server.session.ISessionService;
+import org.eclipse.riena.security.server.session.ISessionVerifier;
 import org.eclipse.riena.security.sessionservice.ISessionProvider;
 import org.eclipse.riena.security.sessionservice.SessionProvider;
+import org.eclipse.riena.security.sessionservice.SignedSessionProvider;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -88,8 +90,17 @@ public class Activator extends RienaActivator {
 	}
 
 	private void createSessionProvider() {
-		getContext().registerService(ISessionProvider.class.getName(), new SessionProvider(),
-				RienaConstants.newDefaultServiceProperties());
+		if (System.getProperty(SignedSessionProvider.RIENA_SESSION_SIGNING_KEY_PROPERTY) != null) {
+			// stateless sessions, verified by the SecurityServiceHook without the session service
+			final SignedSessionProvider sessionProvider = new SignedSessionProvider();
+			Wire.instance(sessionProvider).andStart();
+			getContext().registerService(
+					new String[] { ISessionProvider.class.getName(), ISessionVerifier.class.getName() },
+					sessionProvider, RienaConstants.newDefaultServiceProperties());
+		} else {
+			getContext().registerService(ISessionProvider.class.getName(), new SessionProvider(),
+					RienaConstants.newDefaultServiceProperties());
+		}
 	}
 
 	@Override
@@ -14,9 +14,11 @@ import java.security.Principal;
 
 import org.eclipse.core.runtime.Assert;
 
+import org.eclipse.riena.core.cache.IGenericObjectCache;
 import org.eclipse.riena.core.wire.InjectService;
 import org.eclipse.riena.security.common.session.Session;
 import org.eclipse.riena.security.server.session.ISessionService;
+import org.eclipse.riena.security.server.session.ISessionVerifier;
 import org.eclipse.riena.security.server.session.SessionFailure;
 import org.eclipse.riena.security.sessionservice.ISessionProvider;
 import org.eclipse.riena.security.sessionservice.ISessionStore;
@@ -30,6 +32,7 @@ public class SessionService implements ISessionService {
 
 	private ISessionStore store;
 	private ISessionProvider sessionProvider;
+	private IGenericObjectCache<String, Principal[]> principalCache;
 
 	/**
 	 * constructor
@@ -60,6 +63,22 @@ public class SessionService implements ISessionService {
 		}
 	}
 
+	/**
+	 * The principal cache of the service hook, if it runs in the same server.
+	 * Invalidated sessions are evicted from it immediately instead of living
+	 * on until their cache entry times out.
+	 */
+	@InjectService(useFilter = "(cache.type=PrincipalCache)")
+	public void bind(final IGenericObjectCache<String, Principal[]> principalCache) {
+		this.principalCache = principalCache;
+	}
+
+	public void unbind(final IGenericObjectCache<String, Principal[]> principalCache) {
+		if (this.principalCache == principalCache) {
+			this.principalCache = null;
+		}
+	}
+
 	/**
 	 * create a local session controller with a specific store
 	 * 
@@ -73,13 +92,18 @@ public class SessionService implements ISessionService {
 	}
 
 	public Session generateSession(final Principal[] principals) {
-		Assert.isNotNull(store, "store instance is null"); //$NON-NLS-1$
+		final ISessionVerifier verifier = getVerifier();
+		Assert.isTrue(verifier != null || store != null, "store instance is null"); //$NON-NLS-1$
 
 		final Session session = sessionProvider.createSession(principals);
 
 		if (session == null) {
 			throw new SessionFailure("internal error, generating a session failed"); //$NON-NLS-1$
 		}
+		if (verifier != null) {
+			// stateless, the session carries the principals
+			return session;
+		}
 		final SessionEntry entry = new SessionEntry(session, principals);
 		store.write(entry);
 		return session;
@@ -87,6 +111,10 @@ public class SessionService implements ISessionService {
 
 	public Principal[] findPrincipals(final Session session) {
 		// Assert.isNotNull( session,"session is not null");
+		final ISessionVerifier verifier = getVerifier();
+		if (verifier != null && verifier.canVerify(session)) {
+			return verifier.verify(session);
+		}
 		final SessionEntry entry = store.read(session);
 		if (entry == null) {
 			return null;
@@ -95,17 +123,43 @@ public class SessionService implements ISessionService {
 	}
 
 	public boolean isValidSession(final Session session) {
+		final ISessionVerifier verifier = getVerifier();
+		if (verifier != null && verifier.canVerify(session)) {
+			return verifier.verify(session) != null;
+		}
 		final SessionEntry entry = store.read(session);
 		return entry != null && entry.getValid();
 	}
 
 	public boolean hasSession(final Session session) {
+		final ISessionVerifier verifier = getVerifier();
+		if (verifier != null && verifier.canVerify(session)) {
+			return verifier.verify(session) != null;
+		}
 		final SessionEntry entry = store.read(session);
 		return entry != null;
 	}
 
 	public void invalidateSession(final Session session) {
-		store.delete(session);
+		final ISessionVerifier verifier = getVerifier();
+		if (verifier != null && verifier.canVerify(session)) {
+			verifier.revoke(session);
+		} else {
+			store.delete(session);
+		}
+		final IGenericObjectCache<String, Principal[]> cache = principalCache;
+		if (cache != null && session != null && session.getSessionId() != null) {
+			cache.remove(session.getSessionId());
+		}
+	}
+
+	/**
+	 * @return the session provider if it issues stateless sessions, otherwise
+	 *         {@code null}
+	 */
+	private ISessionVerifier getVerifier() {
+		final ISessionProvider provider = sessionProvider;
+		return provider instanceof ISessionVerifier ? (ISessionVerifier) provider : null;
 	}
 
 }
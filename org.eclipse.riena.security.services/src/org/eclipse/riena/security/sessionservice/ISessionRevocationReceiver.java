@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.sessionservice;
+
+/**
+ * Receives the sessions revoked on other nodes of a cluster.
+ * 
+ * @see ISessionRevocationTransport
+ * @since 6.0
+ */
+public interface ISessionRevocationReceiver {
+
+	/**
+	 * The session has been revoked on another node.
+	 * 
+	 * @param sessionId
+	 *            the id of the revoked session
+	 */
+	void received(String sessionId);
+
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.sessionservice;
+
+/**
+ * Delivers the revocations of a {@code SignedSessionProvider} to the providers
+ * of the other nodes of a cluster.
+ * <p>
+ * The provider sends the id of each session it revokes locally. The transport
+ * delivers it to the receiver of every other node; it must not deliver it
+ * back to the sending node. The receiving provider verifies the signature of
+ * the session id, so a forged revocation is ignored. How the ids are
+ * delivered (JMS, multicast, a shared database, ...) is up to the
+ * implementation, which is registered as an OSGi service.
+ * 
+ * @since 6.0
+ */
+public interface ISessionRevocationTransport {
+
+	/**
+	 * Send the id of a revoked session to the other nodes.
+	 * 
+	 * @param sessionId
+	 *            the id of the revoked session
+	 */
+	void send(String sessionId);
+
+	/**
+	 * Set the receiver for the revocations sent by the other nodes.
+	 * 
+	 * @param receiver
+	 *            the receiver or {@code null} to stop receiving
+	 */
+	void setReceiver(ISessionRevocationReceiver receiver);
+
+}
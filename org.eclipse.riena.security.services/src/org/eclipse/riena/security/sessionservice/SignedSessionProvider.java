@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.sessionservice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+
+import org.eclipse.riena.core.util.Base64;
+import org.eclipse.riena.core.wire.InjectService;
+import org.eclipse.riena.internal.security.services.Activator;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.server.session.ISessionVerifier;
+import org.eclipse.riena.security.server.session.SessionFailure;
+
+/**
+ * This Provider constructs stateless <code>Session</code> objects: the session
+ * id carries the principals, an expiry time and a random id, secured with an
+ * HMAC (and optionally encrypted with AES). Every server node configured with
+ * the same key can verify such a session without a session store.
+ * <p>
+ * The key for the HMAC and the key for the encryption are derived from the
+ * configured key, so the same key material is never used for both.
+ * <p>
+ * Revoked sessions (logouts) are kept in a revocation list until they expire.
+ * If an {@code ISessionRevocationTransport} service is available the revoked
+ * sessions are also sent to the other nodes of the cluster. Without it (or if
+ * sending fails) a revoked session stays valid on the other nodes until it
+ * expires.
+ * <p>
+ * The principals are stored with java serialization, i.e. they must be
+ * {@code Serializable}, and make the session id (the cookie) grow with their
+ * number.
+ */
+public class SignedSessionProvider implements ISessionProvider, ISessionVerifier {
+
+	/**
+	 * System property with the secret key used to sign the sessions. If it is
+	 * set stateless sessions are used.
+	 */
+	public static final String RIENA_SESSION_SIGNING_KEY_PROPERTY = "riena.security.session.signingkey"; //$NON-NLS-1$
+	/**
+	 * System property with the lifetime of a session in milliseconds (default
+	 * 8 hours). Without an {@code ISessionRevocationTransport} this is also
+	 * the time a logout on one node may remain unknown to the other nodes.
+	 */
+	public static final String RIENA_SESSION_LIFETIME_PROPERTY = "riena.security.session.lifetime"; //$NON-NLS-1$
+	/**
+	 * System property; if {@code true} the principals in the session id are
+	 * encrypted (default {@code false}).
+	 */
+	public static final String RIENA_SESSION_ENCRYPT_PROPERTY = "riena.security.session.encrypt"; //$NON-NLS-1$
+
+	private static final String PREFIX = "ssoid.s1."; //$NON-NLS-1$
+	private static final String MAC_ALGORITHM = "HmacSHA256"; //$NON-NLS-1$
+	private static final String CIPHER_ALGORITHM = "AES/CBC/PKCS5Padding"; //$NON-NLS-1$
+	private static final int IV_LENGTH = 16;
+
+	private final SecretKeySpec macKey;
+	private final SecretKeySpec encryptionKey;
+	private final long lifetime;
+	private final boolean encrypt;
+	private final SecureRandom random = new SecureRandom();
+	private final ConcurrentMap<Long, Long> revoked = new ConcurrentHashMap<Long, Long>();
+	private volatile ISessionRevocationTransport transport;
+	private final ISessionRevocationReceiver receiver = new ISessionRevocationReceiver() {
+		public void received(final String sessionId) {
+			revokeLocally(new Session(sessionId));
+		}
+	};
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), SignedSessionProvider.class);
+
+	/**
+	 * Creates a new instance configured by the system properties.
+	 */
+	public SignedSessionProvider() {
+		this(getBytes(System.getProperty(RIENA_SESSION_SIGNING_KEY_PROPERTY)), Long.getLong(
+				RIENA_SESSION_LIFETIME_PROPERTY, TimeUnit.HOURS.toMillis(8)), Boolean
+				.getBoolean(RIENA_SESSION_ENCRYPT_PROPERTY));
+	}
+
+	/**
+	 * @param key
+	 *            the secret key shared by all server nodes
+	 * @param lifetime
+	 *            lifetime of a session in milliseconds
+	 * @param encrypt
+	 *            whether to encrypt the principals
+	 */
+	public SignedSessionProvider(final byte[] key, final long lifetime, final boolean encrypt) {
+		super();
+		Assert.isLegal(key != null && key.length >= 16, "the signing key must have at least 16 bytes"); //$NON-NLS-1$
+		this.macKey = new SecretKeySpec(deriveKey(key, "mac", 32), MAC_ALGORITHM); //$NON-NLS-1$
+		this.encryptionKey = new SecretKeySpec(deriveKey(key, "enc", 16), "AES"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.lifetime = lifetime;
+		this.encrypt = encrypt;
+	}
+
+	public Session createSession(final Principal[] principals) {
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeLong(System.currentTimeMillis() + lifetime);
+			out.writeLong(random.nextLong());
+			final ObjectOutputStream oos = new ObjectOutputStream(out);
+			oos.writeObject(principals);
+			oos.close();
+			byte[] payload = bos.toByteArray();
+			if (encrypt) {
+				payload = encrypt(payload);
+			}
+			final String encodedPayload = encode(payload);
+			return new Session(PREFIX + encodedPayload + '.' + encode(sign(encodedPayload)));
+		} catch (final IOException e) {
+			throw new SessionFailure("creating a session failed, are the principals serializable?", e); //$NON-NLS-1$
+		} catch (final GeneralSecurityException e) {
+			throw new SessionFailure("creating a session failed", e); //$NON-NLS-1$
+		}
+	}
+
+	public boolean canVerify(final Session session) {
+		return session != null && session.getSessionId() != null && session.getSessionId().startsWith(PREFIX);
+	}
+
+	public Principal[] verify(final Session session) {
+		final Token token = parse(session);
+		if (token == null || token.expiry < System.currentTimeMillis() || revoked.containsKey(token.id)) {
+			return null;
+		}
+		return token.principals;
+	}
+
+	public void revoke(final Session session) {
+		if (revokeLocally(session)) {
+			send(session.getSessionId());
+		}
+	}
+
+	@InjectService(useRanking = true)
+	public void bind(final ISessionRevocationTransport transport) {
+		this.transport = transport;
+		transport.setReceiver(receiver);
+	}
+
+	public void unbind(final ISessionRevocationTransport transport) {
+		if (this.transport == transport) {
+			transport.setReceiver(null);
+			this.transport = null;
+		}
+	}
+
+	/**
+	 * @return {@code true} if the session is a valid session of this provider
+	 */
+	private boolean revokeLocally(final Session session) {
+		final Token token = parse(session);
+		if (token == null) {
+			return false;
+		}
+		final long now = System.currentTimeMillis();
+		final Iterator<Map.Entry<Long, Long>> iterator = revoked.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getValue() < now) {
+				iterator.remove();
+			}
+		}
+		if (token.expiry < now) {
+			return false;
+		}
+		revoked.put(token.id, token.expiry);
+		return true;
+	}
+
+	private void send(final String sessionId) {
+		final ISessionRevocationTransport theTransport = transport;
+		if (theTransport == null) {
+			return;
+		}
+		try {
+			theTransport.send(sessionId);
+		} catch (final RuntimeException e) {
+			// the session is revoked locally, the other nodes fall back on its expiry
+			LOGGER.log(LogService.LOG_ERROR, "Sending the revocation of a session failed", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @return the session contents or {@code null} if it is not a session of
+	 *         this provider or has been tampered with
+	 */
+	private Token parse(final Session session) {
+		if (!canVerify(session)) {
+			return null;
+		}
+		final String sessionId = session.getSessionId();
+		final int separator = sessionId.indexOf('.', PREFIX.length());
+		if (separator < 0) {
+			return null;
+		}
+		final String encodedPayload = sessionId.substring(PREFIX.length(), separator);
+		try {
+			if (!MessageDigest.isEqual(sign(encodedPayload), decode(sessionId.substring(separator + 1)))) {
+				return null;
+			}
+			byte[] payload = decode(encodedPayload);
+			if (encrypt) {
+				payload = decrypt(payload);
+			}
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+			final long expiry = in.readLong();
+			final long id = in.readLong();
+			final Principal[] principals = (Principal[]) new PrincipalInputStream(in).readObject();
+			return new Token(expiry, id, principals);
+		} catch (final Exception e) {
+			// only possible with a valid signature, i.e. a different configuration or missing principal classes
+			return null;
+		}
+	}
+
+	private byte[] sign(final String encodedPayload) throws GeneralSecurityException {
+		final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+		mac.init(macKey);
+		return mac.doFinal(getBytes(encodedPayload));
+	}
+
+	/**
+	 * @return a random IV followed by the encrypted payload
+	 */
+	private byte[] encrypt(final byte[] payload) throws GeneralSecurityException {
+		final byte[] iv = new byte[IV_LENGTH];
+		random.nextBytes(iv);
+		final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+		cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+		final byte[] encrypted = new byte[IV_LENGTH + cipher.getOutputSize(payload.length)];
+		System.arraycopy(iv, 0, encrypted, 0, IV_LENGTH);
+		final int length = IV_LENGTH + cipher.doFinal(payload, 0, payload.length, encrypted, IV_LENGTH);
+		return length == encrypted.length ? encrypted : Arrays.copyOf(encrypted, length);
+	}
+
+	private byte[] decrypt(final byte[] payload) throws GeneralSecurityException {
+		if (payload.length <= IV_LENGTH) {
+			throw new GeneralSecurityException("encrypted payload too short"); //$NON-NLS-1$
+		}
+		final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+		cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(payload, 0, IV_LENGTH));
+		return cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+	}
+
+	/**
+	 * Derive a key for the given purpose from the configured key, i.e.
+	 * HMAC(key, purpose) truncated to the given length.
+	 */
+	private static byte[] deriveKey(final byte[] key, final String purpose, final int length) {
+		try {
+			final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+			return Arrays.copyOf(mac.doFinal(getBytes(purpose)), length);
+		} catch (final GeneralSecurityException e) {
+			throw new IllegalStateException("deriving the session keys failed", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Base64 without the characters that are not allowed in a cookie value.
+	 */
+	private static String encode(final byte[] data) {
+		final String base64 = new String(Base64.encode(data));
+		int end = base64.length();
+		while (end > 0 && base64.charAt(end - 1) == '=') {
+			end--;
+		}
+		return base64.substring(0, end).replace('+', '-').replace('/', '_');
+	}
+
+	private static byte[] decode(final String data) {
+		final StringBuilder base64 = new StringBuilder(data.replace('-', '+').replace('_', '/'));
+		while (base64.length() % 4 != 0) {
+			base64.append('=');
+		}
+		return Base64.decode(getBytes(base64.toString()));
+	}
+
+	private static byte[] getBytes(final String string) {
+		if (string == null) {
+			return null;
+		}
+		try {
+			return string.getBytes("UTF-8"); //$NON-NLS-1$
+		} catch (final UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Token {
+
+		private final long expiry;
+		private final long id;
+		private final Principal[] principals;
+
+		private Token(final long expiry, final long id, final Principal[] principals) {
+			this.expiry = expiry;
+			this.id = id;
+			this.principals = principals;
+		}
+	}
+
+	/**
+	 * Resolves the principal classes with the class loader of this bundle
+	 * and, if that fails, with the context class loader.
+	 */
+	private static class PrincipalInputStream extends ObjectInputStream {
+
+		PrincipalInputStream(final InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return super.resolveClass(desc);
+			} catch (final ClassNotFoundException e) {
+				final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+				if (contextClassLoader == null) {
+					throw e;
+				}
+				return Class.forName(desc.getName(), false, contextClassLoader);
+			}
+		}
+	}
+
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.riena.internal.security.simpleservices;
 
+import java.io.File;
 import java.io.InputStream;
 
 import org.osgi.framework.BundleContext;
@@ -20,6 +21,7 @@ import org.eclipse.riena.core.RienaConstants;
 import org.eclipse.riena.security.authorizationservice.IPermissionStore;
 import org.eclipse.riena.security.sessionservice.ISessionStore;
 import org.eclipse.riena.security.simpleservices.authorizationservice.store.FilePermissionStore;
+import org.eclipse.riena.security.simpleservices.sessionservice.store.FileStore;
 import org.eclipse.riena.security.simpleservices.sessionservice.store.MemoryStore;
 
 /**
@@ -30,7 +32,8 @@ public final class Activator extends RienaActivator {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "org.eclipse.riena.security.simpleservices.simple.services"; //$NON-NLS-1$
 
-	private ServiceRegistration memoryStore;
+	private ServiceRegistration sessionStoreRegistration;
+	private ISessionStore sessionStore;
 	private ServiceRegistration filepermissionstore;
 
 	// The shared instance
@@ -52,8 +55,10 @@ public final class Activator extends RienaActivator {
 	public void start(final BundleContext context) throws Exception {
 		super.start(context);
 		Activator.plugin = this;
-		// bring up a simple in memory session store
-		memoryStore = getContext().registerService(ISessionStore.class.getName(), new MemoryStore(),
+		// bring up a simple in memory session store (or a file store surviving restarts)
+		final String sessionStoreFile = System.getProperty(FileStore.RIENA_SESSION_STORE_FILE_PROPERTY);
+		sessionStore = sessionStoreFile == null ? new MemoryStore() : new FileStore(new File(sessionStoreFile));
+		sessionStoreRegistration = getContext().registerService(ISessionStore.class.getName(), sessionStore,
 				RienaConstants.newDefaultServiceProperties());
 
 		// bring up a simple authorization store for permissions
@@ -72,7 +77,12 @@ public final class Activator extends RienaActivator {
 	 */
 	@Override
 	public void stop(final BundleContext context) throws Exception {
-		memoryStore.unregister();
+		sessionStoreRegistration.unregister();
+		if (sessionStore instanceof MemoryStore) {
+			((MemoryStore) sessionStore).dispose();
+		} else if (sessionStore instanceof FileStore) {
+			((FileStore) sessionStore).dispose();
+		}
 		filepermissionstore.unregister();
 		Activator.plugin = null;
 		super.stop(context);
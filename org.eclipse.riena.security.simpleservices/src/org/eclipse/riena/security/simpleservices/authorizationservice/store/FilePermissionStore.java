@@ -18,85 +18,226 @@ import java.lang.reflect.Constructor;
 import java.security.Permission;
 import java.security.Permissions;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.osgi.service.log.LogService;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+import org.eclipse.riena.internal.security.simpleservices.Activator;
 import org.eclipse.riena.security.authorizationservice.IPermissionStore;
 import org.eclipse.riena.security.common.SecurityFailure;
 import org.eclipse.riena.security.common.authorization.PermissionClassFactory;
 
 /**
- * 
+ * A permission store reading its permissions from an XML file.
+ * <p>
+ * The file is parsed once into an immutable index from principal (class and
+ * name) to its prebuilt permissions, so a lookup does not depend on the size
+ * of the file. The DOM is not kept.
+ * <p>
+ * If the store has been created for a {@code File} it checks the modification
+ * time of the file at most every
+ * {@value #RIENA_PERMISSION_STORE_CHECK_INTERVAL_PROPERTY} milliseconds and
+ * reloads it when it has changed. The new index replaces the old one as a
+ * whole; concurrent lookups keep using the old index until then. If the
+ * changed file can not be read the old index stays active.
  */
 public class FilePermissionStore implements IPermissionStore {
 
-	private final Document permissionTree;
+	/**
+	 * System property with the interval in milliseconds in which the
+	 * permission file is checked for changes (default 5000, 0 disables the
+	 * reload).
+	 */
+	public static final String RIENA_PERMISSION_STORE_CHECK_INTERVAL_PROPERTY = "riena.security.permissionstore.checkinterval"; //$NON-NLS-1$
+
+	private static final Permission[] NO_PERMISSIONS = new Permission[0];
+
+	private final File permissionFile;
+	private final long checkInterval;
+	private final AtomicBoolean checking = new AtomicBoolean();
+	private volatile Map<String, PrincipalEntry> index;
+	private volatile long lastModified;
+	private volatile long nextCheck;
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), FilePermissionStore.class);
 
 	public FilePermissionStore(final File permissionFile) throws SAXException, IOException,
 			ParserConfigurationException {
-		this(new FileInputStream(permissionFile));
+		super();
+		this.permissionFile = permissionFile;
+		this.checkInterval = Long.getLong(RIENA_PERMISSION_STORE_CHECK_INTERVAL_PROPERTY, 5000);
+		this.lastModified = permissionFile.lastModified();
+		this.index = parse(new FileInputStream(permissionFile));
+		this.nextCheck = System.currentTimeMillis() + checkInterval;
 	}
 
 	public FilePermissionStore(final InputStream inputStream) throws ParserConfigurationException, SAXException,
 			IOException {
 		super();
-		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		final DocumentBuilder db = dbf.newDocumentBuilder();
-		permissionTree = db.parse(new InputSource(inputStream));
+		this.permissionFile = null;
+		this.checkInterval = 0;
+		this.index = parse(inputStream);
 	}
 
 	public Permissions loadPermissions(final Principal principal) {
+		checkForChange();
 		final Permissions allPerms = new Permissions();
+		final PrincipalEntry entry = index.get(key(principal.getClass().getName(), principal.getName()));
+		if (entry != null) {
+			if (entry.failure != null) {
+				throw entry.failure;
+			}
+			for (final Permission permission : entry.permissions) {
+				allPerms.add(permission);
+			}
+		}
+		return allPerms;
+	}
+
+	/**
+	 * Reload the permission file (if the store has been created for a
+	 * {@code File}).
+	 *
+	 * @throws SAXException
+	 * @throws IOException
+	 * @throws ParserConfigurationException
+	 */
+	public void reload() throws SAXException, IOException, ParserConfigurationException {
+		if (permissionFile == null) {
+			return;
+		}
+		final long modified = permissionFile.lastModified();
+		index = parse(new FileInputStream(permissionFile));
+		lastModified = modified;
+		LOGGER.log(LogService.LOG_INFO, "Reloaded permissions from " + permissionFile); //$NON-NLS-1$
+	}
+
+	/**
+	 * Only one caller checks the file, all others continue with the current
+	 * index.
+	 */
+	private void checkForChange() {
+		if (checkInterval <= 0 || System.currentTimeMillis() < nextCheck || !checking.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			if (permissionFile.lastModified() != lastModified) {
+				reload();
+			}
+		} catch (final Exception e) {
+			LOGGER.log(LogService.LOG_ERROR, "Reloading permissions from " + permissionFile //$NON-NLS-1$
+					+ " failed, keeping the previous permissions", e); //$NON-NLS-1$
+			// do not retry before the file changes again
+			lastModified = permissionFile.lastModified();
+		} finally {
+			nextCheck = System.currentTimeMillis() + checkInterval;
+			checking.set(false);
+		}
+	}
+
+	private static Map<String, PrincipalEntry> parse(final InputStream inputStream) throws SAXException, IOException,
+			ParserConfigurationException {
+		final Document permissionTree;
+		try {
+			final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			final DocumentBuilder db = dbf.newDocumentBuilder();
+			permissionTree = db.parse(new InputSource(inputStream));
+		} finally {
+			inputStream.close();
+		}
+
+		final Map<String, List<Permission>> permissionsByPrincipal = new HashMap<String, List<Permission>>();
+		final Map<String, SecurityFailure> failures = new HashMap<String, SecurityFailure>();
+		final Map<String, Class<?>> permissionClasses = new HashMap<String, Class<?>>();
 		final NodeList nl = permissionTree.getDocumentElement().getElementsByTagName("principal"); //$NON-NLS-1$
 		for (int i = 0; i < nl.getLength(); i++) {
 			final Element el = (Element) nl.item(i);
-			final String principalClazz = el.getAttribute("class"); //$NON-NLS-1$
-			final String principalName = el.getAttribute("name"); //$NON-NLS-1$
-			if (!principalClazz.equals(principal.getClass().getName()) || !principalName.equals(principal.getName())) {
-				continue;
+			final String key = key(el.getAttribute("class"), el.getAttribute("name")); //$NON-NLS-1$ //$NON-NLS-2$
+			List<Permission> permissions = permissionsByPrincipal.get(key);
+			if (permissions == null) {
+				permissions = new ArrayList<Permission>();
+				permissionsByPrincipal.put(key, permissions);
 			}
-			if (principal.getClass().getName().equals(el.getAttribute("class"))) { //$NON-NLS-1$
-				final NodeList nlPerms = el.getElementsByTagName("permission"); //$NON-NLS-1$
-				for (int x = 0; x < nlPerms.getLength(); x++) {
-					final Element ePerm = (Element) nlPerms.item(x);
-					final String clazz = ePerm.getAttribute("class"); //$NON-NLS-1$
-					final String name = ePerm.getAttribute("name"); //$NON-NLS-1$
-					final String action = ePerm.getAttribute("action"); //$NON-NLS-1$
-					try {
-						// its not good to use Class.forName so we use a specific factory
-						final Class<?> permClass = PermissionClassFactory.retrieveClass(clazz);
-						Constructor<?> constr;
-						Permission perm;
-						if (action != null && action.length() > 0) {
-							try {
-								final int actInt = Integer.parseInt(action);
-								constr = permClass.getConstructor(String.class, int.class);
-								perm = (Permission) constr.newInstance(name, actInt);
-							} catch (final NumberFormatException e) {
-								constr = permClass.getConstructor(String.class, String.class);
-								perm = (Permission) constr.newInstance(name, action);
-							}
-						} else {
-							constr = permClass.getConstructor(String.class);
-							perm = (Permission) constr.newInstance(name);
-						}
-						if (perm != null) {
-							allPerms.add(perm);
-						}
-					} catch (final Exception e) {
-						throw new SecurityFailure("Creating permission '" + clazz + "' failed", e); //$NON-NLS-1$ //$NON-NLS-2$
-					}
+			final NodeList nlPerms = el.getElementsByTagName("permission"); //$NON-NLS-1$
+			for (int x = 0; x < nlPerms.getLength() && !failures.containsKey(key); x++) {
+				final Element ePerm = (Element) nlPerms.item(x);
+				try {
+					permissions.add(createPermission(ePerm, permissionClasses));
+				} catch (final SecurityFailure e) {
+					// as before, the lookup of this principal fails, all others work
+					failures.put(key, e);
 				}
 			}
 		}
-		return allPerms;
+
+		final Map<String, PrincipalEntry> result = new HashMap<String, PrincipalEntry>(permissionsByPrincipal.size());
+		for (final Map.Entry<String, List<Permission>> entry : permissionsByPrincipal.entrySet()) {
+			final SecurityFailure failure = failures.get(entry.getKey());
+			result.put(entry.getKey(), new PrincipalEntry(failure == null ? entry.getValue().toArray(NO_PERMISSIONS)
+					: NO_PERMISSIONS, failure));
+		}
+		return Collections.unmodifiableMap(result);
 	}
+
+	private static Permission createPermission(final Element ePerm, final Map<String, Class<?>> permissionClasses) {
+		final String clazz = ePerm.getAttribute("class"); //$NON-NLS-1$
+		final String name = ePerm.getAttribute("name"); //$NON-NLS-1$
+		final String action = ePerm.getAttribute("action"); //$NON-NLS-1$
+		try {
+			Class<?> permClass = permissionClasses.get(clazz);
+			if (permClass == null) {
+				// its not good to use Class.forName so we use a specific factory
+				permClass = PermissionClassFactory.retrieveClass(clazz);
+				permissionClasses.put(clazz, permClass);
+			}
+			Constructor<?> constr;
+			if (action != null && action.length() > 0) {
+				try {
+					final int actInt = Integer.parseInt(action);
+					constr = permClass.getConstructor(String.class, int.class);
+					return (Permission) constr.newInstance(name, actInt);
+				} catch (final NumberFormatException e) {
+					constr = permClass.getConstructor(String.class, String.class);
+					return (Permission) constr.newInstance(name, action);
+				}
+			}
+			constr = permClass.getConstructor(String.class);
+			return (Permission) constr.newInstance(name);
+		} catch (final Exception e) {
+			throw new SecurityFailure("Creating permission '" + clazz + "' failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static String key(final String principalClass, final String principalName) {
+		return principalClass + '#' + principalName;
+	}
+
+	private static final class PrincipalEntry {
+
+		private final Permission[] permissions;
+		private final SecurityFailure failure;
+
+		private PrincipalEntry(final Permission[] permissions, final SecurityFailure failure) {
+			this.permissions = permissions;
+			this.failure = failure;
+		}
+	}
+
 }
@@ -0,0 +1,578 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.simpleservices.sessionservice.store;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.Logger;
+
+import org.eclipse.riena.core.Log4r;
+import org.eclipse.riena.internal.security.simpleservices.Activator;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.sessionservice.ISessionStore;
+import org.eclipse.riena.security.sessionservice.SessionEntry;
+
+/**
+ * Store for sessions that survives a restart of the server.
+ * <p>
+ * All sessions are held in memory, so {@code read()} does not touch the disk.
+ * Every {@code write()} and {@code delete()} is appended to a log file before
+ * it becomes visible. When the store is created the log is replayed; a
+ * record that has been cut off by a crash is detected by its checksum and
+ * the log is truncated behind the last complete record.
+ * <p>
+ * The log only grows, so it is compacted (rewritten with the live sessions
+ * only) in the background when it contains more outdated than live records.
+ * <p>
+ * Sessions expire after the same idle and/or absolute timeout as in the
+ * {@link MemoryStore}. The time of the last access is written to the log at
+ * most twice per idle timeout, so an expired session is dropped when the log
+ * is replayed or compacted.
+ * <p>
+ * The principals of a session are stored with java serialization, i.e. they
+ * must be {@code Serializable}.
+ */
+public class FileStore implements ISessionStore {
+
+	/**
+	 * System property with the log file of the {@code FileStore}. If it is set
+	 * the {@code FileStore} is used as the session store instead of the
+	 * {@code MemoryStore}.
+	 */
+	public static final String RIENA_SESSION_STORE_FILE_PROPERTY = "riena.security.sessionstore.file"; //$NON-NLS-1$
+	/**
+	 * System property; if {@code true} every change is forced to the disk
+	 * before it returns (default {@code false}, i.e. a change survives a crash
+	 * of the VM but not necessarily of the operating system).
+	 */
+	public static final String RIENA_SESSION_STORE_FILE_SYNC_PROPERTY = "riena.security.sessionstore.file.sync"; //$NON-NLS-1$
+	/**
+	 * System property with the interval in milliseconds in which the log is
+	 * checked whether it should be compacted and expired sessions are removed
+	 * (default 60 seconds, 0 disables the compaction).
+	 */
+	public static final String RIENA_SESSION_STORE_COMPACT_INTERVAL_PROPERTY = "riena.security.sessionstore.file.compactinterval"; //$NON-NLS-1$
+
+	private static final byte OP_WRITE = 1;
+	private static final byte OP_DELETE = 2;
+	private static final byte OP_TOUCH = 3;
+	private static final int MIN_RECORDS_TO_COMPACT = 1000;
+	private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+	private final ConcurrentMap<String, StoredSession> sessionTable = new ConcurrentHashMap<String, StoredSession>();
+	private final File logFile;
+	private final boolean sync;
+	private final long idleTimeout;
+	private final long absoluteTimeout;
+	private final ScheduledExecutorService compactor;
+	private final Object writeLock = new Object();
+	private FileChannel channel;
+	private int records;
+
+	private static final Logger LOGGER = Log4r.getLogger(Activator.getDefault(), FileStore.class);
+
+	/**
+	 * Create a store configured by the system properties. The timeouts are
+	 * configured by the same system properties as for the {@link MemoryStore}.
+	 *
+	 * @param logFile
+	 *            the log file
+	 * @throws IOException
+	 */
+	public FileStore(final File logFile) throws IOException {
+		this(logFile, Boolean.getBoolean(RIENA_SESSION_STORE_FILE_SYNC_PROPERTY), Long.getLong(
+				RIENA_SESSION_STORE_COMPACT_INTERVAL_PROPERTY, TimeUnit.SECONDS.toMillis(60)), Long.getLong(
+				MemoryStore.RIENA_SESSION_IDLE_TIMEOUT_PROPERTY, TimeUnit.MINUTES.toMillis(30)), Long.getLong(
+				MemoryStore.RIENA_SESSION_ABSOLUTE_TIMEOUT_PROPERTY, 0));
+	}
+
+	/**
+	 * Create a store whose sessions do not expire.
+	 *
+	 * @param logFile
+	 *            the log file; it is created if it does not exist
+	 * @param sync
+	 *            force every change to the disk
+	 * @param compactInterval
+	 *            milliseconds between the checks whether to compact the log;
+	 *            0 disables the compaction
+	 * @throws IOException
+	 */
+	public FileStore(final File logFile, final boolean sync, final long compactInterval) throws IOException {
+		this(logFile, sync, compactInterval, 0, 0);
+	}
+
+	/**
+	 * @param logFile
+	 *            the log file; it is created if it does not exist
+	 * @param sync
+	 *            force every change to the disk
+	 * @param compactInterval
+	 *            milliseconds between the checks whether to compact the log
+	 *            and the removals of expired sessions; 0 disables both
+	 * @param idleTimeout
+	 *            milliseconds after the last read a session expires; 0 for
+	 *            none
+	 * @param absoluteTimeout
+	 *            milliseconds after its creation a session expires; 0 for none
+	 * @throws IOException
+	 */
+	public FileStore(final File logFile, final boolean sync, final long compactInterval, final long idleTimeout,
+			final long absoluteTimeout) throws IOException {
+		this.logFile = logFile;
+		this.sync = sync;
+		this.idleTimeout = idleTimeout;
+		this.absoluteTimeout = absoluteTimeout;
+		recover();
+		channel = openForAppend(logFile);
+		if (compactInterval > 0) {
+			compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Riena-SessionStoreCompactor"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			compactor.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						reap();
+						if (needsCompaction()) {
+							compact();
+						}
+					} catch (final IOException e) {
+						LOGGER.log(LogService.LOG_ERROR, "Compacting the session log " + logFile + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+			}, compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+		} else {
+			compactor = null;
+		}
+	}
+
+	public SessionEntry read(final Session session) {
+		final StoredSession stored = sessionTable.get(session.getSessionId());
+		if (stored == null) {
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		if (isExpired(stored, now)) {
+			// no need to log the removal, the session is expired after a restart too
+			sessionTable.remove(session.getSessionId(), stored);
+			return null;
+		}
+		stored.lastAccess = now;
+		if (idleTimeout > 0 && now - stored.loggedAccess > idleTimeout / 2) {
+			touch(session.getSessionId(), stored, now);
+		}
+		return stored.entry;
+	}
+
+	public void write(final SessionEntry entry) {
+		final long now = System.currentTimeMillis();
+		final StoredSession stored = new StoredSession(entry, now, now);
+		final byte[] record = createWriteRecord(stored);
+		synchronized (writeLock) {
+			append(record);
+			sessionTable.put(entry.getSession().getSessionId(), stored);
+		}
+	}
+
+	public void delete(final Session session) {
+		final byte[] record = createDeleteRecord(session.getSessionId());
+		synchronized (writeLock) {
+			if (sessionTable.containsKey(session.getSessionId())) {
+				append(record);
+				sessionTable.remove(session.getSessionId());
+			}
+		}
+	}
+
+	/**
+	 * Stop the compaction and close the log. The store must not be changed
+	 * afterwards.
+	 */
+	public void dispose() {
+		if (compactor != null) {
+			compactor.shutdownNow();
+		}
+		synchronized (writeLock) {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+			} catch (final IOException e) {
+				LOGGER.log(LogService.LOG_WARNING, "Closing the session log " + logFile + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/**
+	 * @return the number of sessions in the store (including expired sessions
+	 *         not yet removed)
+	 */
+	public int getSessions() {
+		return sessionTable.size();
+	}
+
+	/**
+	 * @return the number of records in the log
+	 */
+	public int getLogRecords() {
+		synchronized (writeLock) {
+			return records;
+		}
+	}
+
+	/**
+	 * Rewrite the log with the live sessions only. If the old log has already
+	 * been deleted when replacing it with the compacted log fails, the store
+	 * rejects all changes; the next start completes the replacement.
+	 *
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		synchronized (writeLock) {
+			if (channel == null) {
+				throw new IOException("The session log " + logFile + " is not available"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			reap();
+			final File compacted = getCompactedFile();
+			final FileOutputStream out = new FileOutputStream(compacted);
+			try {
+				for (final StoredSession stored : sessionTable.values()) {
+					stored.loggedAccess = stored.lastAccess;
+					out.write(createWriteRecord(stored));
+				}
+				out.getChannel().force(true);
+			} finally {
+				out.close();
+			}
+			channel.close();
+			// renameTo() does not replace an existing file on all platforms
+			if (!compacted.renameTo(logFile)) {
+				if (!logFile.delete()) {
+					// the old log is still complete, continue with it
+					compacted.delete();
+					channel = openForAppend(logFile);
+					throw new IOException("Replacing " + logFile + " with " + compacted + " failed"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+				if (!compacted.renameTo(logFile)) {
+					// the compacted log is the only copy now; recover() completes the rename on the next start
+					channel = null;
+					throw new IOException("Renaming " + compacted + " to " + logFile //$NON-NLS-1$ //$NON-NLS-2$
+							+ " failed, the session store can not be changed until it is restarted"); //$NON-NLS-1$
+				}
+			}
+			channel = openForAppend(logFile);
+			records = sessionTable.size();
+			LOGGER.log(LogService.LOG_DEBUG, "Compacted the session log " + logFile); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Remove all expired sessions.
+	 */
+	void reap() {
+		final long now = System.currentTimeMillis();
+		for (final Map.Entry<String, StoredSession> mapEntry : sessionTable.entrySet()) {
+			if (isExpired(mapEntry.getValue(), now)) {
+				sessionTable.remove(mapEntry.getKey(), mapEntry.getValue());
+			}
+		}
+	}
+
+	private boolean isExpired(final StoredSession stored, final long now) {
+		return (idleTimeout > 0 && now - stored.lastAccess > idleTimeout)
+				|| (absoluteTimeout > 0 && now - stored.created > absoluteTimeout);
+	}
+
+	/**
+	 * Log the last access so that it survives a restart.
+	 */
+	private void touch(final String sessionId, final StoredSession stored, final long now) {
+		final byte[] record = createTouchRecord(sessionId, now);
+		synchronized (writeLock) {
+			if (channel != null && sessionTable.get(sessionId) == stored && now > stored.loggedAccess) {
+				append(record);
+				stored.loggedAccess = now;
+			}
+		}
+	}
+
+	private boolean needsCompaction() {
+		synchronized (writeLock) {
+			return channel != null && records >= MIN_RECORDS_TO_COMPACT && records > 2 * sessionTable.size();
+		}
+	}
+
+	private void append(final byte[] record) {
+		if (channel == null) {
+			throw new IllegalStateException("The session log " + logFile + " is not available"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		try {
+			final ByteBuffer buffer = ByteBuffer.wrap(record);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (sync) {
+				channel.force(false);
+			}
+			records++;
+		} catch (final IOException e) {
+			throw new IllegalStateException("Writing to the session log " + logFile + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Replays the log. A compaction that has been interrupted after the old
+	 * log has been deleted is completed.
+	 */
+	private void recover() throws IOException {
+		final File compacted = getCompactedFile();
+		if (!logFile.exists() && compacted.exists() && !compacted.renameTo(logFile)) {
+			throw new IOException("Renaming " + compacted + " to " + logFile + " failed"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		compacted.delete();
+		if (!logFile.exists()) {
+			return;
+		}
+		long validLength = 0;
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+		try {
+			while (true) {
+				final byte[] payload = readRecord(in);
+				if (payload == null) {
+					break;
+				}
+				replay(payload);
+				records++;
+				validLength += 8 + payload.length;
+			}
+		} finally {
+			in.close();
+		}
+		final int sessions = sessionTable.size();
+		reap();
+		if (sessionTable.size() < sessions) {
+			LOGGER.log(LogService.LOG_INFO, "Dropped " + (sessions - sessionTable.size()) + " expired sessions from " //$NON-NLS-1$ //$NON-NLS-2$
+					+ logFile);
+		}
+		if (validLength < logFile.length()) {
+			LOGGER.log(LogService.LOG_WARNING, "Session log " + logFile + " is incomplete, truncating it from " //$NON-NLS-1$ //$NON-NLS-2$
+					+ logFile.length() + " to " + validLength + " bytes"); //$NON-NLS-1$ //$NON-NLS-2$
+			final RandomAccessFile file = new RandomAccessFile(logFile, "rw"); //$NON-NLS-1$
+			try {
+				file.setLength(validLength);
+			} finally {
+				file.close();
+			}
+		}
+		LOGGER.log(LogService.LOG_INFO, "Recovered " + sessionTable.size() + " sessions from " + logFile); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @return the payload or {@code null} at the end of the log or at a
+	 *         damaged record
+	 */
+	private static byte[] readRecord(final DataInputStream in) throws IOException {
+		try {
+			final int length = in.readInt();
+			final int checksum = in.readInt();
+			if (length <= 0 || length > MAX_RECORD_SIZE) {
+				return null;
+			}
+			final byte[] payload = new byte[length];
+			in.readFully(payload);
+			return checksum(payload) == checksum ? payload : null;
+		} catch (final EOFException e) {
+			return null;
+		}
+	}
+
+	private void replay(final byte[] payload) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		final byte op = in.readByte();
+		final String sessionId = in.readUTF();
+		if (op == OP_DELETE) {
+			sessionTable.remove(sessionId);
+			return;
+		}
+		if (op == OP_TOUCH) {
+			final StoredSession stored = sessionTable.get(sessionId);
+			if (stored != null) {
+				stored.lastAccess = in.readLong();
+				stored.loggedAccess = stored.lastAccess;
+			}
+			return;
+		}
+		final long created = in.readLong();
+		final long lastAccess = in.readLong();
+		final boolean valid = in.readBoolean();
+		final Principal[] principals;
+		try {
+			principals = (Principal[]) new PrincipalInputStream(in).readObject();
+		} catch (final ClassNotFoundException e) {
+			dropSession(sessionId, e);
+			return;
+		} catch (final IOException e) {
+			// e.g. the class of a principal has changed incompatibly
+			dropSession(sessionId, e);
+			return;
+		}
+		final SessionEntry entry = new SessionEntry(new Session(sessionId), principals);
+		entry.setValid(valid);
+		sessionTable.put(sessionId, new StoredSession(entry, created, lastAccess));
+	}
+
+	private void dropSession(final String sessionId, final Exception e) {
+		LOGGER.log(LogService.LOG_WARNING, "Dropping session " + sessionId + " from " + logFile, e); //$NON-NLS-1$ //$NON-NLS-2$
+		sessionTable.remove(sessionId);
+	}
+
+	private static byte[] createWriteRecord(final StoredSession stored) {
+		final SessionEntry entry = stored.entry;
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeByte(OP_WRITE);
+			out.writeUTF(entry.getSession().getSessionId());
+			out.writeLong(stored.created);
+			out.writeLong(stored.lastAccess);
+			out.writeBoolean(entry.getValid());
+			final ObjectOutputStream oos = new ObjectOutputStream(out);
+			oos.writeObject(entry.getPrincipals().toArray(new Principal[entry.getPrincipals().size()]));
+			oos.close();
+			return frame(bos.toByteArray());
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("Session " + entry.getSession().getSessionId() //$NON-NLS-1$
+					+ " can not be stored, are its principals serializable?", e); //$NON-NLS-1$
+		}
+	}
+
+	private static byte[] createDeleteRecord(final String sessionId) {
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeByte(OP_DELETE);
+			out.writeUTF(sessionId);
+			out.close();
+			return frame(bos.toByteArray());
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] createTouchRecord(final String sessionId, final long lastAccess) {
+		try {
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+			final DataOutputStream out = new DataOutputStream(bos);
+			out.writeByte(OP_TOUCH);
+			out.writeUTF(sessionId);
+			out.writeLong(lastAccess);
+			out.close();
+			return frame(bos.toByteArray());
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A record is its length, the checksum of the payload and the payload.
+	 */
+	private static byte[] frame(final byte[] payload) {
+		final ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+		buffer.putInt(payload.length);
+		buffer.putInt(checksum(payload));
+		buffer.put(payload);
+		return buffer.array();
+	}
+
+	private static int checksum(final byte[] payload) {
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	private File getCompactedFile() {
+		return new File(logFile.getPath() + ".compact"); //$NON-NLS-1$
+	}
+
+	private static FileChannel openForAppend(final File file) throws IOException {
+		return new FileOutputStream(file, true).getChannel();
+	}
+
+	private static final class StoredSession {
+
+		private final SessionEntry entry;
+		private final long created;
+		private volatile long lastAccess;
+		private volatile long loggedAccess;
+
+		private StoredSession(final SessionEntry entry, final long created, final long lastAccess) {
+			this.entry = entry;
+			this.created = created;
+			this.lastAccess = lastAccess;
+			this.loggedAccess = lastAccess;
+		}
+	}
+
+	/**
+	 * Resolves the principal classes with the class loader of this bundle
+	 * and, if that fails, with the context class loader.
+	 */
+	private static class PrincipalInputStream extends ObjectInputStream {
+
+		PrincipalInputStream(final InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			try {
+				return super.resolveClass(desc);
+			} catch (final ClassNotFoundException e) {
+				final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+				if (contextClassLoader == null) {
+					throw e;
+				}
+				return Class.forName(desc.getName(), false, contextClassLoader);
+			}
+		}
+	}
+}
@@ -12,58 +12,290 @@ package org.eclipse.riena.security.simpleservices.sessionservice.store;
 
 import java.security.Principal;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.riena.security.common.session.Session;
 import org.eclipse.riena.security.sessionservice.ISessionStore;
 import org.eclipse.riena.security.sessionservice.SessionEntry;
 
 /**
- * Store for sessions in the memory (<code>HashMap</code>s)
+ * Store for sessions in the memory.
+ * <p>
+ * The sessions are kept in a {@code ConcurrentHashMap}, reads do not lock.
+ * The sessions of each principal are kept in a list that is only locked for
+ * the changes of that principal. Sessions expire after an idle and/or an
+ * absolute timeout: an expired session is not returned by {@code read()} and
+ * removed by a background reaper. If a principal has more than the maximum
+ * number of sessions its oldest session is removed.
  */
 public class MemoryStore implements ISessionStore {
 
-	private final HashMap<String, SessionEntry> sessionTable = new HashMap<String, SessionEntry>();
-	private final HashMap<Principal, SessionList> userTable = new HashMap<Principal, SessionList>();
+	/**
+	 * System property with the time in milliseconds after which a session that
+	 * has not been read expires (default 30 minutes, 0 disables the idle
+	 * timeout).
+	 */
+	public static final String RIENA_SESSION_IDLE_TIMEOUT_PROPERTY = "riena.security.sessionstore.idletimeout"; //$NON-NLS-1$
+	/**
+	 * System property with the time in milliseconds after which a session
+	 * expires regardless of its use (default 0, i.e. no absolute timeout).
+	 */
+	public static final String RIENA_SESSION_ABSOLUTE_TIMEOUT_PROPERTY = "riena.security.sessionstore.absolutetimeout"; //$NON-NLS-1$
+	/**
+	 * System property with the maximum number of sessions per principal
+	 * (default 100, 0 for no limit).
+	 */
+	public static final String RIENA_SESSION_MAX_PER_PRINCIPAL_PROPERTY = "riena.security.sessionstore.maxperprincipal"; //$NON-NLS-1$
+	/**
+	 * System property with the interval in milliseconds of the reaper removing
+	 * expired sessions (default 60 seconds).
+	 */
+	public static final String RIENA_SESSION_REAPER_INTERVAL_PROPERTY = "riena.security.sessionstore.reaperinterval"; //$NON-NLS-1$
 
-	public synchronized SessionEntry read(final Session session) {
-		return sessionTable.get(session.getSessionId());
+	private final ConcurrentMap<String, StoredSession> sessionTable = new ConcurrentHashMap<String, StoredSession>();
+	private final ConcurrentMap<Principal, SessionList> userTable = new ConcurrentHashMap<Principal, SessionList>();
+	private final long idleTimeout;
+	private final long absoluteTimeout;
+	private final int maxSessionsPerPrincipal;
+	private final ScheduledExecutorService reaper;
+
+	private final AtomicLong statExpired = new AtomicLong();
+	private final AtomicLong statReaped = new AtomicLong();
+	private final AtomicLong statEvicted = new AtomicLong();
+
+	/**
+	 * Create a store configured by the system properties.
+	 */
+	public MemoryStore() {
+		this(Long.getLong(RIENA_SESSION_IDLE_TIMEOUT_PROPERTY, TimeUnit.MINUTES.toMillis(30)), Long.getLong(
+				RIENA_SESSION_ABSOLUTE_TIMEOUT_PROPERTY, 0), Integer.getInteger(
+				RIENA_SESSION_MAX_PER_PRINCIPAL_PROPERTY, 100), Long.getLong(RIENA_SESSION_REAPER_INTERVAL_PROPERTY,
+				TimeUnit.SECONDS.toMillis(60)));
 	}
 
-	public synchronized void write(final SessionEntry entry) {
-		sessionTable.put(entry.getSession().getSessionId(), entry);
-		for (final Principal p : entry.getPrincipals().toArray(new Principal[entry.getPrincipals().size()])) {
-			SessionList sl = userTable.get(p);
-			if (sl == null) {
-				sl = new SessionList();
+	/**
+	 * @param idleTimeout
+	 *            milliseconds after the last read a session expires; 0 for
+	 *            none
+	 * @param absoluteTimeout
+	 *            milliseconds after its creation a session expires; 0 for none
+	 * @param maxSessionsPerPrincipal
+	 *            maximum number of sessions per principal; 0 for no limit
+	 * @param reaperInterval
+	 *            milliseconds between the runs of the reaper; 0 disables the
+	 *            reaper
+	 */
+	public MemoryStore(final long idleTimeout, final long absoluteTimeout, final int maxSessionsPerPrincipal,
+			final long reaperInterval) {
+		this.idleTimeout = idleTimeout;
+		this.absoluteTimeout = absoluteTimeout;
+		this.maxSessionsPerPrincipal = maxSessionsPerPrincipal;
+		if (reaperInterval > 0 && (idleTimeout > 0 || absoluteTimeout > 0)) {
+			reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "Riena-SessionStoreReaper"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			reaper.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					reap();
+				}
+			}, reaperInterval, reaperInterval, TimeUnit.MILLISECONDS);
+		} else {
+			reaper = null;
+		}
+	}
+
+	public SessionEntry read(final Session session) {
+		final StoredSession stored = sessionTable.get(session.getSessionId());
+		if (stored == null) {
+			return null;
+		}
+		final long now = System.currentTimeMillis();
+		if (isExpired(stored, now)) {
+			if (remove(session.getSessionId(), stored)) {
+				statExpired.incrementAndGet();
 			}
-			sl.addEntry(entry);
-			userTable.put(p, sl);
+			return null;
+		}
+		stored.lastAccess = now;
+		return stored.entry;
+	}
 
+	public void write(final SessionEntry entry) {
+		final String sessionId = entry.getSession().getSessionId();
+		final StoredSession stored = new StoredSession(entry, System.currentTimeMillis());
+		final StoredSession previous = sessionTable.put(sessionId, stored);
+		if (previous != null) {
+			removeFromUserTable(sessionId, previous);
+		}
+		for (final Principal p : entry.getPrincipals().toArray(new Principal[entry.getPrincipals().size()])) {
+			addToUserTable(p, entry);
 		}
 	}
 
-	public synchronized void delete(final Session session) {
+	public void delete(final Session session) {
 		// Assert.isTrue(session != null,"session must not be null" );
 
-		final SessionEntry entry = sessionTable.get(session.getSessionId());
-		if (entry == null) {
-			return;
+		final StoredSession stored = sessionTable.get(session.getSessionId());
+		if (stored != null) {
+			remove(session.getSessionId(), stored);
 		}
-		sessionTable.remove(session.getSessionId());
-		for (final Principal p : entry.getPrincipals().toArray(new Principal[entry.getPrincipals().size()])) {
+	}
+
+	/**
+	 * Stop the reaper. Expired sessions are still not returned by
+	 * {@code read()}.
+	 */
+	public void dispose() {
+		if (reaper != null) {
+			reaper.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the number of sessions in the store (including expired sessions
+	 *         not yet reaped)
+	 */
+	public int getActiveSessions() {
+		return sessionTable.size();
+	}
+
+	/**
+	 * @return the number of expired sessions found by {@code read()}
+	 */
+	public long getExpiredSessions() {
+		return statExpired.get();
+	}
+
+	/**
+	 * @return the number of expired sessions removed by the reaper
+	 */
+	public long getReapedSessions() {
+		return statReaped.get();
+	}
+
+	/**
+	 * @return the number of sessions removed because their principal had too
+	 *         many sessions
+	 */
+	public long getEvictedSessions() {
+		return statEvicted.get();
+	}
+
+	public String getStatistic() {
+		return "Active / Expired / Reaped / Evicted " //$NON-NLS-1$
+				+ getActiveSessions() + " / " + statExpired.get() + " / " + statReaped.get() + " / " + statEvicted.get(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Remove all expired sessions.
+	 */
+	void reap() {
+		final long now = System.currentTimeMillis();
+		for (final Map.Entry<String, StoredSession> mapEntry : sessionTable.entrySet()) {
+			if (isExpired(mapEntry.getValue(), now) && remove(mapEntry.getKey(), mapEntry.getValue())) {
+				statReaped.incrementAndGet();
+			}
+		}
+	}
+
+	private boolean isExpired(final StoredSession stored, final long now) {
+		return (idleTimeout > 0 && now - stored.lastAccess > idleTimeout)
+				|| (absoluteTimeout > 0 && now - stored.created > absoluteTimeout);
+	}
+
+	private boolean remove(final String sessionId, final StoredSession stored) {
+		if (!sessionTable.remove(sessionId, stored)) {
+			return false;
+		}
+		removeFromUserTable(sessionId, stored);
+		return true;
+	}
+
+	private void addToUserTable(final Principal p, final SessionEntry entry) {
+		String evicted;
+		while (true) {
+			SessionList sl = userTable.get(p);
+			if (sl == null) {
+				final SessionList created = new SessionList();
+				sl = userTable.putIfAbsent(p, created);
+				if (sl == null) {
+					sl = created;
+				}
+			}
+			synchronized (sl) {
+				if (sl.detached) {
+					// removed from the user table concurrently, use a new list
+					continue;
+				}
+				sl.addEntry(entry);
+				evicted = maxSessionsPerPrincipal > 0 && sl.sessions.size() > maxSessionsPerPrincipal ? sl
+						.oldestSessionId() : null;
+			}
+			break;
+		}
+		if (evicted != null) {
+			final StoredSession stored = sessionTable.get(evicted);
+			if (stored != null && remove(evicted, stored)) {
+				statEvicted.incrementAndGet();
+			}
+		}
+	}
+
+	private void removeFromUserTable(final String sessionId, final StoredSession stored) {
+		final Collection<Principal> principals = stored.entry.getPrincipals();
+		for (final Principal p : principals.toArray(new Principal[principals.size()])) {
 			final SessionList sl = userTable.get(p);
-			sl.removeEntry(session);
+			if (sl == null) {
+				continue;
+			}
+			synchronized (sl) {
+				sl.removeEntry(sessionId, stored.entry);
+				if (sl.sessions.isEmpty()) {
+					sl.detached = true;
+					userTable.remove(p, sl);
+				}
+			}
+		}
+	}
+
+	private static final class StoredSession {
+
+		private final SessionEntry entry;
+		private final long created;
+		private volatile long lastAccess;
+
+		private StoredSession(final SessionEntry entry, final long now) {
+			this.entry = entry;
+			this.created = now;
+			this.lastAccess = now;
 		}
 	}
 
+	/**
+	 * The sessions of one principal in the order they have been written.
+	 * Access must be synchronized on the list.
+	 */
 	static class SessionList {
-		private final HashMap<String, SessionEntry> sessions = new HashMap<String, SessionEntry>();
+		private final LinkedHashMap<String, SessionEntry> sessions = new LinkedHashMap<String, SessionEntry>();
 		private final static SessionEntry[] EMPTY_SESSION_ENTRIES = new SessionEntry[0];
+		private boolean detached;
 
 		/**
 		 * adds a sesion entry
-		 * 
+		 *
 		 * @param entry
 		 *            session entry
 		 */
@@ -72,18 +304,31 @@ public class MemoryStore implements ISessionStore {
 		}
 
 		/**
-		 * removes the session entry for a session id
-		 * 
-		 * @param session
+		 * removes the session entry for a session id, if it is still the given
+		 * entry
+		 *
+		 * @param sessionId
 		 *            session id
+		 * @param entry
+		 *            session entry
+		 */
+		public void removeEntry(final String sessionId, final SessionEntry entry) {
+			if (sessions.get(sessionId) == entry) {
+				sessions.remove(sessionId);
+			}
+		}
+
+		/**
+		 * @return the id of the oldest session
 		 */
-		public void removeEntry(final Session session) {
-			sessions.remove(session.getSessionId());
+		public String oldestSessionId() {
+			final Iterator<String> iterator = sessions.keySet().iterator();
+			return iterator.hasNext() ? iterator.next() : null;
 		}
 
 		/**
 		 * returns the session entries
-		 * 
+		 *
 		 * @return array of session entries
 		 */
 		public SessionEntry[] entries() {
@@ -72,8 +72,14 @@ public class PermissionUIFilterApplier implements IUIFilterApplier {
 		if (permissionFilterMappings.size() == 0) {
 			return;
 		}
-		for (final PermissionFilterMapping mapper : permissionFilterMappings) {
-			if (!sentinel.checkAccess(mapper.getPermission())) {
+		final Permission[] permissions = new Permission[permissionFilterMappings.size()];
+		for (int i = 0; i < permissions.length; i++) {
+			permissions[i] = permissionFilterMappings.get(i).getPermission();
+		}
+		final boolean[] granted = sentinel.checkAccess(permissions);
+		for (int i = 0; i < permissions.length; i++) {
+			final PermissionFilterMapping mapper = permissionFilterMappings.get(i);
+			if (!granted[i]) {
 				final IUIFilterContainer container = mapper.getFilterContainer();
 				final IUIFilter filter = container.getFilter();
 				final Collection<String> targetNodeIds = container.getFilterTargetNodeIds();
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.batch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the class {@link RemoteServiceBatch}.
+ */
+@NonUITestCase
+public class RemoteServiceBatchTest extends RienaTestCase {
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (RemoteServiceBatch.current() != null) {
+			RemoteServiceBatch.current().end();
+		}
+		super.tearDown();
+	}
+
+	public void testBeginAndEnd() {
+		assertNull(RemoteServiceBatch.current());
+		final RemoteServiceBatch batch = RemoteServiceBatch.begin();
+		assertSame(batch, RemoteServiceBatch.current());
+		try {
+			RemoteServiceBatch.begin();
+			fail("expected IllegalStateException"); //$NON-NLS-1$
+		} catch (final IllegalStateException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+		batch.end();
+		batch.end();
+		assertNull(RemoteServiceBatch.current());
+	}
+
+	public void testExecuteGroupsByServer() throws Exception {
+		final RecordingExecutor executor = new RecordingExecutor();
+		final RemoteServiceDescription serverA1 = createDescription("http://server-a:8080/hessian/IServiceA"); //$NON-NLS-1$
+		final RemoteServiceDescription serverA2 = createDescription("http://server-a:8080/hessian/IServiceB"); //$NON-NLS-1$
+		final RemoteServiceDescription serverB = createDescription("http://server-b:8080/hessian/IServiceA"); //$NON-NLS-1$
+
+		final RemoteServiceBatch batch = RemoteServiceBatch.begin();
+		batch.add(new RemoteCall(serverA1, getMethod("echo"), new Object[] { "1" }, executor)); //$NON-NLS-1$ //$NON-NLS-2$
+		batch.add(new RemoteCall(serverB, getMethod("echo"), new Object[] { "2" }, executor)); //$NON-NLS-1$ //$NON-NLS-2$
+		batch.add(new RemoteCall(serverA2, getMethod("echo"), new Object[] { "3" }, executor)); //$NON-NLS-1$ //$NON-NLS-2$
+		batch.execute();
+
+		assertNull(RemoteServiceBatch.current());
+		assertEquals(2, executor.roundTrips.size());
+		assertEquals(2, executor.roundTrips.get(0).intValue());
+		assertEquals(1, executor.roundTrips.get(1).intValue());
+		assertEquals("1", batch.getResult(0)); //$NON-NLS-1$
+		assertEquals("2", batch.getResult(1)); //$NON-NLS-1$
+		assertEquals("3", batch.getResult(2)); //$NON-NLS-1$
+	}
+
+	public void testFailedRoundTripFailsAllItsCalls() throws Exception {
+		final IRemoteCallBatchExecutor failing = new IRemoteCallBatchExecutor() {
+			public void execute(final List<RemoteCall> calls) throws Exception {
+				throw new IOException("connection refused"); //$NON-NLS-1$
+			}
+		};
+		final RemoteServiceDescription rsd = createDescription("http://server-a:8080/hessian/IServiceA"); //$NON-NLS-1$
+		final RemoteServiceBatch batch = RemoteServiceBatch.begin();
+		batch.add(new RemoteCall(rsd, getMethod("echo"), new Object[] { "1" }, failing)); //$NON-NLS-1$ //$NON-NLS-2$
+		batch.add(new RemoteCall(rsd, getMethod("echo"), new Object[] { "2" }, failing)); //$NON-NLS-1$ //$NON-NLS-2$
+		batch.execute();
+
+		for (int i = 0; i < batch.size(); i++) {
+			try {
+				batch.getResult(i);
+				fail("expected RemoteFailure"); //$NON-NLS-1$
+			} catch (final RemoteFailure e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+	}
+
+	public void testCallResults() throws Exception {
+		final RemoteServiceDescription rsd = createDescription("http://server-a:8080/hessian/IServiceA"); //$NON-NLS-1$
+
+		final RemoteCall notExecuted = new RemoteCall(rsd, getMethod("count"), null, null); //$NON-NLS-1$
+		assertEquals(Integer.valueOf(0), notExecuted.getPlaceholderResult());
+		try {
+			notExecuted.getResult();
+			fail("expected IllegalStateException"); //$NON-NLS-1$
+		} catch (final IllegalStateException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+
+		final RemoteCall declared = new RemoteCall(rsd, getMethod("load"), null, null); //$NON-NLS-1$
+		declared.setFailure(new IOException("declared")); //$NON-NLS-1$
+		try {
+			declared.getResult();
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			assertEquals("declared", e.getMessage()); //$NON-NLS-1$
+		}
+
+		final RemoteCall undeclared = new RemoteCall(rsd, getMethod("echo"), new Object[] { "1" }, null); //$NON-NLS-1$ //$NON-NLS-2$
+		undeclared.setFailure(new IOException("undeclared")); //$NON-NLS-1$
+		try {
+			undeclared.getResult();
+			fail("expected RemoteFailure"); //$NON-NLS-1$
+		} catch (final RemoteFailure e) {
+			assertEquals("undeclared", e.getCause().getMessage()); //$NON-NLS-1$
+		}
+	}
+
+	private static RemoteServiceDescription createDescription(final String url) {
+		return new RemoteServiceDescription(IBatchService.class, url, "hessian", null); //$NON-NLS-1$
+	}
+
+	private static java.lang.reflect.Method getMethod(final String name) {
+		for (final java.lang.reflect.Method method : IBatchService.class.getMethods()) {
+			if (method.getName().equals(name)) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private interface IBatchService {
+
+		String echo(String value);
+
+		int count();
+
+		String load() throws IOException;
+	}
+
+	private static class RecordingExecutor implements IRemoteCallBatchExecutor {
+
+		private final List<Integer> roundTrips = new ArrayList<Integer>();
+
+		public void execute(final List<RemoteCall> calls) throws Exception {
+			roundTrips.add(calls.size());
+			for (final RemoteCall call : calls) {
+				call.setResult(call.getArgs()[0]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.hooks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the header and cookie access of the {@link ServiceContext}.
+ */
+@NonUITestCase
+public class ServiceContextTest extends RienaTestCase {
+
+	public void testGetCookieValue() {
+		final ServiceContext context = createContext("a=1", "x-compeople-ssoid=4711; other=2", "b=3;c=4"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertEquals("1", context.getCookieValue("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("4711", context.getCookieValue("x-compeople-ssoid")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", context.getCookieValue("other")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("4", context.getCookieValue("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(context.getCookieValue("x-compeople")); //$NON-NLS-1$
+		assertNull(context.getCookieValue("ssoid")); //$NON-NLS-1$
+		assertNull(context.getCookieValue("d")); //$NON-NLS-1$
+	}
+
+	public void testGetCookieValueLastWins() {
+		final ServiceContext context = createContext("a=1", "a=2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", context.getCookieValue("a")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testGetCookieValueEmpty() {
+		final ServiceContext context = createContext("a=", "b=2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("", context.getCookieValue("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(createContext().getCookieValue("a")); //$NON-NLS-1$
+		assertNull(new ServiceContext(null, null, null, null).getCookieValue("a")); //$NON-NLS-1$
+	}
+
+	public void testHeadersAreReadOnce() {
+		final MessageContextStub messageContext = new MessageContextStub("a=1"); //$NON-NLS-1$
+		final ServiceContext context = new ServiceContext(null, null, null, messageContext);
+
+		context.getCookieValue("a"); //$NON-NLS-1$
+		context.getCookieValue("b"); //$NON-NLS-1$
+		context.getCookies();
+		assertEquals(Arrays.asList("a=1"), context.getRequestHeaderValues("Cookie")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, messageContext.reads);
+	}
+
+	private static ServiceContext createContext(final String... cookieHeaders) {
+		return new ServiceContext(null, null, null, new MessageContextStub(cookieHeaders));
+	}
+
+	private static class MessageContextStub implements IServiceMessageContext {
+
+		private final List<String> cookieHeaders;
+		private int reads;
+
+		MessageContextStub(final String... cookieHeaders) {
+			this.cookieHeaders = Arrays.asList(cookieHeaders);
+		}
+
+		public Map<String, List<String>> listRequestHeaders() {
+			return Collections.singletonMap("Cookie", cookieHeaders); //$NON-NLS-1$
+		}
+
+		public List<String> getRequestHeaderValue(final String name) {
+			reads++;
+			return "Cookie".equals(name) ? cookieHeaders : Collections.<String> emptyList(); //$NON-NLS-1$
+		}
+
+		public void addResponseHeader(final String name, final String value) {
+		}
+
+		public HttpServletRequest getServletRequest() {
+			return null;
+		}
+	}
+
+}
@@ -32,6 +32,12 @@ import org.eclipse.riena.sample.app.common.attachment.IAttachmentService;
 @ManualTestCase
 public final class RemoteProgressMonitorITest extends RienaTestCase {
 
+	/**
+	 * Progress events are coalesced (by default every 4096 bytes), one event
+	 * covers at most the threshold plus one transferred block.
+	 */
+	private static final int MAX_BYTES_PER_EVENT = 4096 + 8192;
+
 	private IAttachmentService attachService;
 	private IRemoteServiceRegistration regAttachmentService;
 	private IRemoteProgressMonitorRegistry registry;
@@ -77,7 +83,7 @@ public final class RemoteProgressMonitorITest extends RienaTestCase {
 		final Attachment attachment = generateLargeAttachment(15000);
 		final int i = attachService.sendAttachmentAndReturnSize(attachment);
 		assertTrue(i == 15000);
-		monitor.validate(15000 / 512 + 1, 1);
+		monitor.validate(15000 / MAX_BYTES_PER_EVENT + 1, 1);
 		registry.removeAllProgressMonitors(attachService);
 	}
 
@@ -88,7 +94,7 @@ public final class RemoteProgressMonitorITest extends RienaTestCase {
 		final Attachment attachment = generateLargeAttachment(15000000);
 		final int i = attachService.sendAttachmentAndReturnSize(attachment);
 		assertTrue(i == 15000000);
-		monitor.validate(15000000 / 512 + 1, 1);
+		monitor.validate(15000000 / MAX_BYTES_PER_EVENT + 1, 1);
 		registry.removeAllProgressMonitors(attachService);
 	}
 
@@ -99,7 +105,7 @@ public final class RemoteProgressMonitorITest extends RienaTestCase {
 		final Attachment attachment = attachService.returnAttachmentForSize(15000);
 		final int i = getSize(attachment);
 		assertTrue(i == 15000);
-		monitor.validate(1, i / 512 + 1);
+		monitor.validate(1, i / MAX_BYTES_PER_EVENT + 1);
 		registry.removeAllProgressMonitors(attachService);
 	}
 
@@ -110,7 +116,7 @@ public final class RemoteProgressMonitorITest extends RienaTestCase {
 		final Attachment attachment = attachService.returnAttachmentForSize(15000000);
 		final int i = getSize(attachment);
 		assertTrue(i == 15000000);
-		monitor.validate(1, i / 512 + 1);
+		monitor.validate(1, i / MAX_BYTES_PER_EVENT + 1);
 		registry.removeAllProgressMonitors(attachService);
 	}
 
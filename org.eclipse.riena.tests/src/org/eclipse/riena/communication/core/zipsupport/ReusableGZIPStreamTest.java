@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the {@code ReusableGZIPOutputStream} and the
+ * {@code ReusableGZIPInputStream} against the JDK GZIP streams.
+ */
+@NonUITestCase
+public class ReusableGZIPStreamTest extends RienaTestCase {
+
+	public void testOutputIsReadableByGZIPInputStream() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			final byte[] data = createData(i * 5000);
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final ReusableGZIPOutputStream out = new ReusableGZIPOutputStream(bos);
+			out.write(data);
+			out.close();
+			assertTrue(Arrays.equals(data, readFully(new GZIPInputStream(new ByteArrayInputStream(bos.toByteArray())))));
+		}
+	}
+
+	public void testInputReadsGZIPOutputStream() throws IOException {
+		for (int i = 0; i < 10; i++) {
+			final byte[] data = createData(i * 5000);
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			final OutputStream out = new GZIPOutputStream(bos);
+			out.write(data);
+			out.close();
+			assertTrue(Arrays.equals(data,
+					readFully(new ReusableGZIPInputStream(new ByteArrayInputStream(bos.toByteArray())))));
+		}
+	}
+
+	public void testFinishBeforeEndOfStream() throws IOException {
+		final byte[] data = createData(20000);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ReusableGZIPOutputStream out = new ReusableGZIPOutputStream(bos);
+		out.write(data);
+		out.finish();
+		// the underlying stream stays open, the gzip stream is done
+		bos.write(42);
+		try {
+			out.write(1);
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+		final InputStream in = new ReusableGZIPInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		assertTrue(Arrays.equals(data, readFully(in)));
+	}
+
+	public void testCorruptTrailer() throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ReusableGZIPOutputStream out = new ReusableGZIPOutputStream(bos);
+		out.write(createData(1000));
+		out.close();
+		final byte[] zipped = bos.toByteArray();
+		zipped[zipped.length - 5]++;
+		try {
+			readFully(new ReusableGZIPInputStream(new ByteArrayInputStream(zipped)));
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+	}
+
+	private byte[] createData(final int size) {
+		final byte[] data = new byte[size];
+		final Random random = new Random(size);
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return data;
+	}
+
+	private byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[777];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			bos.write(buffer, 0, read);
+		}
+		in.close();
+		return bos.toByteArray();
+	}
+}
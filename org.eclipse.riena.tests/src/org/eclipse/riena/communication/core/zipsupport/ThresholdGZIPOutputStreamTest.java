@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.communication.core.zipsupport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the {@code ThresholdGZIPOutputStream}.
+ */
+@NonUITestCase
+public class ThresholdGZIPOutputStreamTest extends RienaTestCase {
+
+	public void testSmallMessageIsNotCompressed() throws IOException {
+		final CompressionStatistics statistics = new CompressionStatistics();
+		final byte[] data = createData(100);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final RecordingStream out = new RecordingStream(bos, 512, statistics);
+		out.write(data, 0, 60);
+		out.write(data, 60, 40);
+		out.flush();
+		assertEquals(0, bos.size());
+		out.close();
+
+		assertFalse(out.isCompressed());
+		assertEquals(0, out.beforeCompressionCalls);
+		assertTrue(Arrays.equals(data, bos.toByteArray()));
+		assertEquals(1, statistics.getUncompressedMessages());
+		assertEquals(100, statistics.getUncompressedBytes());
+		assertEquals(0, statistics.getCompressedMessages());
+	}
+
+	public void testLargeMessageIsCompressed() throws IOException {
+		final CompressionStatistics statistics = new CompressionStatistics();
+		final byte[] data = createData(50000);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final RecordingStream out = new RecordingStream(bos, 512, statistics);
+		out.write(data, 0, 300);
+		for (int i = 300; i < data.length; i++) {
+			out.write(data[i]);
+		}
+		out.close();
+
+		assertTrue(out.isCompressed());
+		assertEquals(1, out.beforeCompressionCalls);
+		assertTrue(Arrays.equals(data, readFully(new GZIPInputStream(new ByteArrayInputStream(bos.toByteArray())))));
+		assertEquals(1, statistics.getCompressedMessages());
+		assertEquals(data.length, statistics.getRawBytes());
+		assertEquals(bos.size(), statistics.getCompressedBytes());
+		assertTrue(statistics.getCompressionRatio() < 0.5);
+	}
+
+	public void testCompressionLevel() throws IOException {
+		final byte[] data = createData(50000);
+		final ByteArrayOutputStream fast = new ByteArrayOutputStream();
+		final ThresholdGZIPOutputStream fastOut = new ThresholdGZIPOutputStream(fast, 0, Deflater.BEST_SPEED, null);
+		fastOut.write(data);
+		fastOut.close();
+		final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+		final ThresholdGZIPOutputStream storedOut = new ThresholdGZIPOutputStream(stored, 0,
+				Deflater.NO_COMPRESSION, null);
+		storedOut.write(data);
+		storedOut.close();
+
+		assertTrue(stored.size() > data.length);
+		assertTrue(fast.size() < data.length);
+		assertTrue(Arrays.equals(data, readFully(new ReusableGZIPInputStream(new ByteArrayInputStream(stored
+				.toByteArray())))));
+		assertTrue(Arrays.equals(data,
+				readFully(new ReusableGZIPInputStream(new ByteArrayInputStream(fast.toByteArray())))));
+	}
+
+	public void testFinishKeepsStreamOpen() throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ThresholdGZIPOutputStream out = new ThresholdGZIPOutputStream(bos, 512, Deflater.DEFAULT_COMPRESSION,
+				null);
+		out.write(createData(10));
+		out.finish();
+		out.finish();
+		bos.write(42);
+		assertEquals(11, bos.size());
+		try {
+			out.write(1);
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+	}
+
+	private byte[] createData(final int size) {
+		final byte[] data = new byte[size];
+		final Random random = new Random(size);
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return data;
+	}
+
+	private byte[] readFully(final InputStream in) throws IOException {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[777];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			bos.write(buffer, 0, read);
+		}
+		in.close();
+		return bos.toByteArray();
+	}
+
+	private static class RecordingStream extends ThresholdGZIPOutputStream {
+
+		private int beforeCompressionCalls;
+
+		RecordingStream(final ByteArrayOutputStream out, final int threshold, final CompressionStatistics statistics) {
+			super(out, threshold, Deflater.DEFAULT_COMPRESSION, statistics);
+		}
+
+		@Override
+		protected void beforeCompression() {
+			beforeCompressionCalls++;
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.core.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.riena.core.cache.ConcurrentObjectCache.EvictionPolicy;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the ConcurrentObjectCache class.
+ */
+@NonUITestCase
+public class ConcurrentObjectCacheTest extends RienaTestCase {
+
+	public void testPutGetRemove() {
+		final IGenericObjectCache<String, Integer> cache = new ConcurrentObjectCache<String, Integer>();
+		cache.put("test", Integer.valueOf(2));
+		assertEquals(Integer.valueOf(2), cache.get("test"));
+		assertEquals(1, cache.size());
+		cache.remove("test");
+		assertNull(cache.get("test"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testTimeout() throws Exception {
+		final IGenericObjectCache<String, Integer> cache = new ConcurrentObjectCache<String, Integer>();
+		cache.setTimeout(200);
+		cache.put("test", Integer.valueOf(3));
+		assertNotNull(cache.get("test"));
+		Thread.sleep(400);
+		assertNull("must not find object in cache after timeout", cache.get("test"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testLRUEviction() {
+		final IGenericObjectCache<Integer, String> cache = new ConcurrentObjectCache<Integer, String>(EvictionPolicy.LRU, 10);
+		for (int i = 0; i < 10; i++) {
+			cache.put(Integer.valueOf(i), "value" + i);
+			sleepTick();
+		}
+		// make 0 the most recently used entry
+		assertNotNull(cache.get(Integer.valueOf(0)));
+		cache.put(Integer.valueOf(10), "value10");
+
+		assertTrue(cache.size() <= 10);
+		assertNotNull(cache.get(Integer.valueOf(0)));
+		assertNotNull(cache.get(Integer.valueOf(10)));
+		assertNull(cache.get(Integer.valueOf(1)));
+	}
+
+	public void testLFUEviction() {
+		final IGenericObjectCache<Integer, String> cache = new ConcurrentObjectCache<Integer, String>(EvictionPolicy.LFU, 10);
+		for (int i = 0; i < 10; i++) {
+			cache.put(Integer.valueOf(i), "value" + i);
+		}
+		for (int i = 0; i < 10; i++) {
+			if (i != 5) {
+				cache.get(Integer.valueOf(i));
+			}
+		}
+		cache.put(Integer.valueOf(10), "value10");
+		cache.get(Integer.valueOf(10));
+
+		assertTrue(cache.size() <= 10);
+		assertNull(cache.get(Integer.valueOf(5)));
+	}
+
+	public void testConcurrentAccess() throws Exception {
+		final ConcurrentObjectCache<Integer, Integer> cache = new ConcurrentObjectCache<Integer, Integer>(EvictionPolicy.LRU, 100);
+		final int threads = 8;
+		final CountDownLatch done = new CountDownLatch(threads);
+		final AtomicInteger failures = new AtomicInteger();
+		for (int t = 0; t < threads; t++) {
+			final int offset = t * 1000;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 1000; i++) {
+							final Integer key = Integer.valueOf(offset + i);
+							cache.put(key, key);
+							final Integer value = cache.get(key);
+							if (value != null && !value.equals(key)) {
+								failures.incrementAndGet();
+							}
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		done.await();
+		assertEquals(0, failures.get());
+		// the eviction of a single thread is skipped while another one evicts, the next put catches up
+		cache.put(Integer.valueOf(-1), Integer.valueOf(-1));
+		assertTrue("cache exceeds its maximum size: " + cache.size(), cache.size() <= 100);
+	}
+
+	private void sleepTick() {
+		try {
+			Thread.sleep(2);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.core.factory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.osgi.framework.ServiceRegistration;
+
+import org.eclipse.riena.communication.core.async.ICallContextPropagator;
+import org.eclipse.riena.communication.core.factory.RemoteServiceFactory;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.core.util.Companion;
+
+/**
+ * Tests the class {@link AsyncCallProxy}.
+ */
+@NonUITestCase
+public class AsyncCallProxyTest extends RienaTestCase {
+
+	private static final ThreadLocal<String> USER = new ThreadLocal<String>();
+
+	public void testCallsRunOnOtherThread() throws Exception {
+		final IEchoServiceAsync async = createAsync();
+		final Future<String> first = async.echo("1"); //$NON-NLS-1$
+		final Future<String> second = async.echo("2"); //$NON-NLS-1$
+		assertTrue(first.get(5, TimeUnit.SECONDS).startsWith("1@Riena-AsyncRemoteCall-")); //$NON-NLS-1$
+		assertTrue(second.get(5, TimeUnit.SECONDS).startsWith("2@Riena-AsyncRemoteCall-")); //$NON-NLS-1$
+	}
+
+	public void testExceptionOfCall() throws Exception {
+		final IEchoServiceAsync async = createAsync();
+		try {
+			async.load().get(5, TimeUnit.SECONDS);
+			fail("expected ExecutionException"); //$NON-NLS-1$
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	public void testPropagator() throws Exception {
+		final AsyncCallProxy handler = new AsyncCallProxy(IEchoServiceAsync.class, IEchoService.class,
+				new EchoService());
+		handler.bind(new UserPropagator());
+		final IEchoServiceAsync async = (IEchoServiceAsync) handler.createProxy();
+		USER.set("scott"); //$NON-NLS-1$
+		try {
+			assertEquals("scott", async.user().get(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+		} finally {
+			USER.remove();
+		}
+	}
+
+	public void testDisposeStopsWiring() throws Exception {
+		final ServiceRegistration reg = getContext().registerService(ICallContextPropagator.class.getName(),
+				new UserPropagator(), null);
+		final RemoteServiceFactory factory = Companion.per(RemoteServiceFactory.class);
+		final IEchoServiceAsync async = factory.createAsyncProxy(IEchoServiceAsync.class, IEchoService.class,
+				new EchoService());
+		USER.set("scott"); //$NON-NLS-1$
+		try {
+			assertEquals("scott", async.user().get(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+			factory.disposeAsyncProxy(async);
+			assertNull(async.user().get(5, TimeUnit.SECONDS));
+		} finally {
+			USER.remove();
+			reg.unregister();
+		}
+	}
+
+	public void testMismatchingInterface() {
+		try {
+			new AsyncCallProxy(IBrokenAsync.class, IEchoService.class, new EchoService());
+			fail("expected RemoteFailure"); //$NON-NLS-1$
+		} catch (final RemoteFailure e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+	}
+
+	private static IEchoServiceAsync createAsync() {
+		return (IEchoServiceAsync) new AsyncCallProxy(IEchoServiceAsync.class, IEchoService.class, new EchoService())
+				.createProxy();
+	}
+
+	public interface IEchoService {
+
+		String echo(String value);
+
+		String load() throws IOException;
+
+		String user();
+	}
+
+	public interface IEchoServiceAsync {
+
+		Future<String> echo(String value);
+
+		Future<String> load();
+
+		Future<String> user();
+	}
+
+	public interface IBrokenAsync {
+
+		String echo(String value);
+	}
+
+	private static class UserPropagator implements ICallContextPropagator {
+
+		public Object capture() {
+			return USER.get();
+		}
+
+		public Object attach(final Object captured) {
+			final String previous = USER.get();
+			USER.set((String) captured);
+			return previous;
+		}
+
+		public void detach(final Object previous) {
+			USER.set((String) previous);
+		}
+	}
+
+	private static class EchoService implements IEchoService {
+
+		public String echo(final String value) {
+			return value + "@" + Thread.currentThread().getName(); //$NON-NLS-1$
+		}
+
+		public String load() throws IOException {
+			throw new IOException("not found"); //$NON-NLS-1$
+		}
+
+		public String user() {
+			return USER.get();
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.RemoteCall;
+import org.eclipse.riena.communication.core.batch.RemoteServiceBatch;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the class {@link HessianBatchCodec}.
+ */
+@NonUITestCase
+public class HessianBatchCodecTest extends RienaTestCase {
+
+	private static final String URL = "http://localhost:8080/hessian/IBatchService"; //$NON-NLS-1$
+
+	private RemoteServiceDescription rsd;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		rsd = new RemoteServiceDescription(IBatchService.class, URL, "hessian", //$NON-NLS-1$
+				org.eclipse.riena.internal.tests.Activator.getDefault().getBundle());
+	}
+
+	public void testWriteRequest() throws Exception {
+		final List<RemoteCall> calls = Arrays.asList(call("echo", "hello"), call("add", 1, 2)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final Hessian2Output out = new Hessian2Output(bos);
+		HessianBatchCodec.writeRequest(out, calls, false);
+		out.flush();
+
+		final Hessian2Input in = new Hessian2Input(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals('c', in.read());
+		assertEquals(2, in.read());
+		in.read();
+		assertEquals(RemoteServiceBatch.METHOD_NAME, in.readMethod());
+		assertEquals(2, in.readInt());
+		assertEquals("/hessian/IBatchService", in.readString()); //$NON-NLS-1$
+		assertEquals("echo", in.readString()); //$NON-NLS-1$
+		assertEquals(1, in.readInt());
+		assertEquals("hello", in.readObject()); //$NON-NLS-1$
+		assertEquals("/hessian/IBatchService", in.readString()); //$NON-NLS-1$
+		assertEquals("add", in.readString()); //$NON-NLS-1$
+		assertEquals(2, in.readInt());
+		assertEquals(1, in.readObject(int.class));
+		assertEquals(2, in.readObject(int.class));
+		in.completeCall();
+	}
+
+	public void testReadReplyWithResultsAndFailures() throws Throwable {
+		final List<RemoteCall> calls = Arrays.asList(call("echo", "hello"), call("add", 1, 2), call("fail")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertNull(calls.get(0).getPlaceholderResult());
+		assertEquals(0, calls.get(1).getPlaceholderResult());
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final Hessian2Output out = new Hessian2Output(bos);
+		out.startReply();
+		out.writeInt(3);
+		out.writeBoolean(true);
+		out.writeObject("hello"); //$NON-NLS-1$
+		out.writeBoolean(true);
+		out.writeObject(3);
+		out.writeBoolean(false);
+		out.writeObject(new IOException("failed")); //$NON-NLS-1$
+		out.completeReply();
+		out.flush();
+
+		HessianBatchCodec.readReply(new Hessian2Input(new ByteArrayInputStream(bos.toByteArray())), calls);
+
+		for (final RemoteCall call : calls) {
+			assertTrue(call.isDone());
+		}
+		assertEquals("hello", calls.get(0).getResult()); //$NON-NLS-1$
+		assertEquals(3, calls.get(1).getResult());
+		try {
+			calls.get(2).getResult();
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			assertEquals("failed", e.getMessage()); //$NON-NLS-1$
+		}
+	}
+
+	public void testReadReplyWithWrongCount() throws Throwable {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final Hessian2Output out = new Hessian2Output(bos);
+		out.startReply();
+		out.writeInt(2);
+		out.completeReply();
+		out.flush();
+
+		final List<RemoteCall> calls = new ArrayList<RemoteCall>();
+		calls.add(call("fail")); //$NON-NLS-1$
+		try {
+			HessianBatchCodec.readReply(new Hessian2Input(new ByteArrayInputStream(bos.toByteArray())), calls);
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			assertFalse(calls.get(0).isDone());
+		}
+	}
+
+	private RemoteCall call(final String methodName, final Object... args) throws Exception {
+		for (final Method method : IBatchService.class.getMethods()) {
+			if (method.getName().equals(methodName)) {
+				return new RemoteCall(rsd, method, args, null);
+			}
+		}
+		throw new NoSuchMethodException(methodName);
+	}
+
+	public interface IBatchService {
+
+		String echo(String text);
+
+		int add(int a, int b);
+
+		void fail() throws IOException;
+	}
+
+}
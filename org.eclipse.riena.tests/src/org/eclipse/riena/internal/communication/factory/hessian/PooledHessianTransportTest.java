@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the class {@link PooledHessianTransport}.
+ */
+@NonUITestCase
+public class PooledHessianTransportTest extends RienaTestCase {
+
+	public void testCapPerHost() throws Exception {
+		final PooledHessianTransport transport = new PooledHessianTransport(2, 10000);
+		final URL url = new URL("http://localhost:8080/hessian/ITestService"); //$NON-NLS-1$
+		final URLConnection first = transport.openConnection(url);
+		final URLConnection second = transport.openConnection(url);
+		// another host is not affected
+		transport.releaseConnection(transport.openConnection(new URL("http://otherhost:8080/hessian/ITestService")), //$NON-NLS-1$
+				true);
+
+		final CountDownLatch opened = new CountDownLatch(1);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					transport.releaseConnection(transport.openConnection(url), true);
+					opened.countDown();
+				} catch (final Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}.start();
+		assertFalse("third connection must wait", opened.await(200, TimeUnit.MILLISECONDS)); //$NON-NLS-1$
+		transport.releaseConnection(first, true);
+		assertTrue("third connection must be opened after a release", opened.await(5, TimeUnit.SECONDS)); //$NON-NLS-1$
+		transport.releaseConnection(second, false);
+	}
+
+	public void testFailAfterWaitTimeout() throws Exception {
+		final PooledHessianTransport transport = new PooledHessianTransport(1, 100);
+		final URL url = new URL("http://localhost:8080/hessian/ITestService"); //$NON-NLS-1$
+		final URLConnection first = transport.openConnection(url);
+		try {
+			transport.openConnection(url);
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+		transport.releaseConnection(first, true);
+		// the failed attempt did not take a permit
+		transport.releaseConnection(transport.openConnection(url), true);
+	}
+
+	public void testUnlimitedByDefault() throws Exception {
+		final PooledHessianTransport transport = new PooledHessianTransport();
+		final URL url = new URL("http://localhost:8080/hessian/ITestService"); //$NON-NLS-1$
+		final List<URLConnection> connections = new ArrayList<URLConnection>();
+		for (int i = 0; i < 50; i++) {
+			connections.add(transport.openConnection(url));
+		}
+		for (final URLConnection connection : connections) {
+			transport.releaseConnection(connection, true);
+		}
+	}
+
+	public void testInvalidMaxConnections() {
+		try {
+			new PooledHessianTransport(-1, 100);
+			fail("expected IllegalArgumentException"); //$NON-NLS-1$
+		} catch (final IllegalArgumentException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+	}
+
+}
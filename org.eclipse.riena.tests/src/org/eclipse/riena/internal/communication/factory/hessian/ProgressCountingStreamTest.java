@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the classes {@link ProgressCountingInputStream} and
+ * {@link ProgressCountingOutputStream}.
+ */
+@NonUITestCase
+public class ProgressCountingStreamTest extends RienaTestCase {
+
+	private int bytesRead;
+	private int bytesWritten;
+	private int events;
+	private ICallMessageContext messageContext;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		messageContext = (ICallMessageContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ICallMessageContext.class }, new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if ("fireReadEvent".equals(method.getName())) { //$NON-NLS-1$
+							bytesRead += (Integer) args[0];
+							events++;
+						} else if ("fireWriteEvent".equals(method.getName())) { //$NON-NLS-1$
+							bytesWritten += (Integer) args[0];
+							events++;
+						}
+						return null;
+					}
+				});
+	}
+
+	public void testInputStreamCountsSingleBytesArraysAndSkips() throws Exception {
+		final InputStream in = new ProgressCountingInputStream(new ByteArrayInputStream(new byte[1000]), messageContext);
+
+		assertEquals(0, in.read());
+		assertEquals(1, bytesRead);
+		assertEquals(100, in.read(new byte[100]));
+		assertEquals(101, bytesRead);
+		assertEquals(2, events);
+		assertEquals(399, in.skip(399));
+		assertEquals(500, bytesRead);
+		assertEquals(500, in.read(new byte[600], 0, 600));
+		assertEquals(1000, bytesRead);
+
+		// the end of the stream is not counted
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(new byte[10]));
+		assertEquals(0, in.skip(10));
+		assertEquals(1000, bytesRead);
+		assertEquals(4, events);
+		assertFalse(in.markSupported());
+	}
+
+	public void testOutputStreamCountsSingleBytesAndArrays() throws Exception {
+		final ByteArrayOutputStream target = new ByteArrayOutputStream();
+		final OutputStream out = new ProgressCountingOutputStream(target, messageContext);
+
+		out.write(1);
+		assertEquals(1, bytesWritten);
+		out.write(new byte[100]);
+		assertEquals(101, bytesWritten);
+		out.write(new byte[100], 10, 50);
+		assertEquals(151, bytesWritten);
+		// an empty block is not reported
+		out.write(new byte[10], 0, 0);
+		assertEquals(3, events);
+		assertEquals(151, target.size());
+	}
+
+}
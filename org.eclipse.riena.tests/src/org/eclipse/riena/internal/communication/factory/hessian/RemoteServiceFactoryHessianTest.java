@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.factory.hessian;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+import org.eclipse.riena.communication.core.progressmonitor.IRemoteProgressMonitor;
+import org.eclipse.riena.communication.core.progressmonitor.IRemoteProgressMonitorList;
+import org.eclipse.riena.communication.core.progressmonitor.IRemoteProgressMonitorRegistry;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the coalescing of the progress events in the message context of the
+ * {@link RemoteServiceFactoryHessian}.
+ */
+@NonUITestCase
+public class RemoteServiceFactoryHessianTest extends RienaTestCase {
+
+	private RecordingProgressMonitorList progressMonitors;
+	private ICallMessageContext messageContext;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		progressMonitors = new RecordingProgressMonitorList();
+		final RemoteServiceFactoryHessian factory = new RemoteServiceFactoryHessian();
+		factory.bind(new IRemoteProgressMonitorRegistry() {
+			public IRemoteProgressMonitorList getProgressMonitors(final Object callProxy) {
+				return progressMonitors;
+			}
+
+			public void addProgressMonitor(final Object callProxy, final IRemoteProgressMonitor monitor,
+					final RemovalPolicy removalPolicy) {
+			}
+
+			public void removeProgressMonitor(final IRemoteProgressMonitor monitor) {
+			}
+
+			public void removeAllProgressMonitors(final Object callProxy) {
+			}
+		});
+		messageContext = factory.getMessageContextAccessor().createMessageContext(this, "test", null); //$NON-NLS-1$
+	}
+
+	public void testCoalescesSmallBlocksAndReportsCompleteTotals() {
+		// the first event is due as soon as BYTE_COUNT_INCR bytes are pending
+		for (int i = 0; i < 6; i++) {
+			messageContext.fireWriteEvent(100);
+		}
+		assertEquals(1, progressMonitors.starts);
+		assertEquals(1, progressMonitors.writeTotals.size());
+		assertEquals(512, (int) progressMonitors.writeTotals.get(0));
+
+		// then only after PROGRESS_BYTES (4096) pending bytes within the interval
+		for (int i = 0; i < 40; i++) {
+			messageContext.fireWriteEvent(100);
+		}
+		assertEquals(1, progressMonitors.writeTotals.size());
+		messageContext.fireWriteEvent(100);
+		assertEquals(2, progressMonitors.writeTotals.size());
+		assertEquals(512 + 4096, (int) progressMonitors.writeTotals.get(1));
+
+		// the first read completes the write totals
+		messageContext.fireReadEvent(10);
+		assertEquals(3, progressMonitors.writeTotals.size());
+		assertEquals(4700, (int) progressMonitors.writeTotals.get(2));
+		assertTrue(progressMonitors.readTotals.isEmpty());
+
+		messageContext.fireReadEvent(300);
+		messageContext.fireEndCall();
+		assertEquals(1, progressMonitors.readTotals.size());
+		assertEquals(310, (int) progressMonitors.readTotals.get(0));
+		assertEquals(4700 + 310, progressMonitors.endTotal);
+		assertEquals(1, progressMonitors.starts);
+	}
+
+	public void testLocalCallFiresNoEvents() {
+		messageContext.fireEndCall();
+		assertEquals(0, progressMonitors.starts);
+		assertEquals(-1, progressMonitors.endTotal);
+	}
+
+	private static class RecordingProgressMonitorList implements IRemoteProgressMonitorList {
+
+		private int starts;
+		private int endTotal = -1;
+		private final List<Integer> writeTotals = new ArrayList<Integer>();
+		private final List<Integer> readTotals = new ArrayList<Integer>();
+
+		public void fireStartEvent() {
+			starts++;
+		}
+
+		public void fireEndEvent(final int totalBytes) {
+			endTotal = totalBytes;
+		}
+
+		public void fireWriteEvent(final int totalBytes, final int bytesSent) {
+			writeTotals.add(bytesSent);
+		}
+
+		public void fireReadEvent(final int totalBytes, final int bytesRead) {
+			readTotals.add(bytesRead);
+		}
+	}
+
+}
@@ -15,7 +15,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.util.Map;
 
 import com.caucho.hessian.io.AbstractHessianInput;
 import com.caucho.hessian.io.AbstractHessianOutput;
@@ -55,11 +55,11 @@ public abstract class AbstractSerializerFactoryTestCase extends RienaTestCase {
 	 * RienaSerializerFactory.prepareHessianSerializerFactory()}
 	 */
 	private void removeUnwantedSerializerFactories() {
-		final HashMap<?, ?> staticDeSerMap = ReflectionUtils.getHidden(SerializerFactory.class,
+		final Map<?, ?> staticDeSerMap = ReflectionUtils.getHidden(SerializerFactory.class,
 				"_staticDeserializerMap"); //$NON-NLS-1$
 		staticDeSerMap.remove(java.io.InputStream.class);
 		staticDeSerMap.remove(StackTraceElement.class);
-		final HashMap<?, ?> staticSerMap = ReflectionUtils.getHidden(SerializerFactory.class, "_staticSerializerMap"); //$NON-NLS-1$
+		final Map<?, ?> staticSerMap = ReflectionUtils.getHidden(SerializerFactory.class, "_staticSerializerMap"); //$NON-NLS-1$
 		staticSerMap.remove(java.io.InputStream.class);
 	}
 
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.hessian;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.server.HessianSkeleton;
+
+import org.eclipse.riena.core.test.collect.ManualTestCase;
+
+/**
+ * Compares the per call dispatch cost of creating a {@code HessianSkeleton}
+ * for each call (as the dispatcher servlet did before) with reusing one cached
+ * skeleton per published service.
+ */
+@ManualTestCase
+public class HessianSkeletonDispatchBenchmarkTest extends TestCase {
+
+	private static final int WARMUP = 20000;
+	private static final int CALLS = 200000;
+
+	private byte[] request;
+	private IWideService service;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		service = new WideService();
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final Hessian2Output out = new Hessian2Output(bos);
+		out.call("add", new Object[] { Integer.valueOf(1), Integer.valueOf(2) }); //$NON-NLS-1$
+		out.close();
+		request = bos.toByteArray();
+	}
+
+	public void testDispatchWithNewSkeletonPerCall() throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			dispatch(new HessianSkeleton(service, IWideService.class));
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < CALLS; i++) {
+			dispatch(new HessianSkeleton(service, IWideService.class));
+		}
+		report("new skeleton per call", System.nanoTime() - start); //$NON-NLS-1$
+	}
+
+	public void testDispatchWithCachedSkeleton() throws Exception {
+		final HessianSkeleton skeleton = new HessianSkeleton(service, IWideService.class);
+		for (int i = 0; i < WARMUP; i++) {
+			dispatch(skeleton);
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < CALLS; i++) {
+			dispatch(skeleton);
+		}
+		report("cached skeleton", System.nanoTime() - start); //$NON-NLS-1$
+	}
+
+	private void dispatch(final HessianSkeleton skeleton) throws Exception {
+		final Hessian2Input in = new Hessian2Input(new ByteArrayInputStream(request));
+		// the dispatcher servlet consumes the call header before invoking the skeleton
+		in.read();
+		in.read();
+		in.read();
+		final Hessian2Output out = new Hessian2Output(new ByteArrayOutputStream());
+		skeleton.invoke(in, out);
+		in.close();
+		out.close();
+	}
+
+	private void report(final String name, final long nanos) {
+		System.out.println(getClass().getSimpleName() + " - " + name + ": " + (nanos / CALLS) + " ns/call"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * A service interface with a realistic number of methods, so that building
+	 * the skeleton's method map has a noticeable cost.
+	 */
+	public interface IWideService {
+		int add(int a, int b);
+
+		int sub(int a, int b);
+
+		int mul(int a, int b);
+
+		int div(int a, int b);
+
+		String echo(String value);
+
+		String concat(String a, String b);
+
+		long now();
+
+		boolean isTrue(boolean value);
+
+		int[] array(int size);
+
+		Object identity(Object value);
+
+		void nop();
+
+		String toUpper(String value);
+	}
+
+	private static class WideService implements IWideService {
+
+		public int add(final int a, final int b) {
+			return a + b;
+		}
+
+		public int sub(final int a, final int b) {
+			return a - b;
+		}
+
+		public int mul(final int a, final int b) {
+			return a * b;
+		}
+
+		public int div(final int a, final int b) {
+			return a / b;
+		}
+
+		public String echo(final String value) {
+			return value;
+		}
+
+		public String concat(final String a, final String b) {
+			return a + b;
+		}
+
+		public long now() {
+			return System.currentTimeMillis();
+		}
+
+		public boolean isTrue(final boolean value) {
+			return value;
+		}
+
+		public int[] array(final int size) {
+			return new int[size];
+		}
+
+		public Object identity(final Object value) {
+			return value;
+		}
+
+		public void nop() {
+		}
+
+		public String toUpper(final String value) {
+			return value.toUpperCase();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.hessian;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.caucho.hessian.io.Deserializer;
+import com.caucho.hessian.io.Serializer;
+import com.caucho.hessian.io.SerializerFactory;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests that the caches of the hessian {@code SerializerFactory} hand out one
+ * (de)serializer per class to concurrent threads.
+ */
+@NonUITestCase
+public class SerializerFactoryConcurrencyTest extends RienaTestCase {
+
+	private static final int THREADS = 8;
+
+	public void testConcurrentLookupsShareInstances() throws Exception {
+		final SerializerFactory factory = new SerializerFactory();
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Future<Object[]>> results = new ArrayList<Future<Object[]>>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(new Callable<Object[]>() {
+					public Object[] call() throws Exception {
+						start.await();
+						return new Object[] { factory.getSerializer(Bean.class), factory.getDeserializer(Bean.class),
+								factory.getDeserializer(Bean.class.getName()) };
+					}
+				}));
+			}
+			start.countDown();
+
+			final Object[] first = results.get(0).get();
+			assertTrue(first[0] instanceof Serializer);
+			assertTrue(first[1] instanceof Deserializer);
+			for (final Future<Object[]> result : results) {
+				final Object[] lookups = result.get();
+				assertSame(first[0], lookups[0]);
+				assertSame(first[1], lookups[1]);
+				assertSame(first[1], lookups[2]);
+			}
+			assertSame(first[0], factory.getSerializer(Bean.class));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class Bean implements Serializable {
+		private String name;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.hessian;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.caucho.hessian.io.UnsafeDeserializer;
+import com.caucho.hessian.io.UnsafeSerializer;
+
+import org.eclipse.riena.internal.communication.factory.hessian.serializer.UnsafeFieldSerializerFactory;
+
+/**
+ * Test the {@code UnsafeFieldSerializerFactory} class.
+ */
+public class UnsafeFieldSerializerFactoryTest extends AbstractSerializerFactoryTestCase {
+
+	private UnsafeFieldSerializerFactory factory;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		System.setProperty(UnsafeFieldSerializerFactory.RIENA_HESSIAN_UNSAFE_FIELD_ACCESS_PROPERTY,
+				Boolean.TRUE.toString());
+		factory = new UnsafeFieldSerializerFactory();
+		System.clearProperty(UnsafeFieldSerializerFactory.RIENA_HESSIAN_UNSAFE_FIELD_ACCESS_PROPERTY);
+	}
+
+	public void testDisabledByDefault() throws Exception {
+		final UnsafeFieldSerializerFactory disabled = new UnsafeFieldSerializerFactory();
+		assertNull(disabled.getSerializer(Bean.class));
+		assertNull(disabled.getDeserializer(Bean.class));
+	}
+
+	public void testHandledTypes() throws Exception {
+		if (!UnsafeSerializer.isEnabled()) {
+			return;
+		}
+		assertTrue(factory.getSerializer(Bean.class) instanceof UnsafeSerializer);
+		assertTrue(factory.getDeserializer(Bean.class) instanceof UnsafeDeserializer);
+		assertNull(factory.getSerializer(ArrayList.class));
+		assertNull(factory.getSerializer(Date.class));
+		assertNull(factory.getSerializer(IOException.class));
+		assertNull(factory.getSerializer(Kind.class));
+		assertNull(factory.getSerializer(Bean[].class));
+		assertNull(factory.getDeserializer(List.class));
+	}
+
+	public void testBackAndForth() throws Exception {
+		if (!UnsafeSerializer.isEnabled()) {
+			return;
+		}
+		final Bean bean = new Bean();
+		bean.b = -7;
+		bean.s = 1234;
+		bean.i = Integer.MIN_VALUE;
+		bean.l = Long.MAX_VALUE;
+		bean.f = 1.5f;
+		bean.d = Math.PI;
+		bean.z = true;
+		bean.c = 'x';
+		bean.text = "text"; //$NON-NLS-1$
+		bean.date = new Date(4711);
+		bean.timestamp = new Timestamp(817);
+		bean.kind = Kind.SECOND;
+		bean.numbers = new ArrayList<Integer>();
+		bean.numbers.add(42);
+		bean.child = new Bean();
+		bean.child.text = "child"; //$NON-NLS-1$
+		bean.volatileValue = 99;
+
+		for (final HessianSerializerVersion version : HessianSerializerVersion.values()) {
+			final Bean copy = (Bean) inAndOut(bean, version, Bean.class, factory);
+			assertEquals(bean, copy);
+			assertEquals(0, copy.transientValue);
+		}
+	}
+
+	private enum Kind {
+		FIRST, SECOND
+	}
+
+	private static class Bean {
+		private byte b;
+		private short s;
+		private int i;
+		private long l;
+		private float f;
+		private double d;
+		private boolean z;
+		private char c;
+		private String text;
+		private Date date;
+		private Timestamp timestamp;
+		private Kind kind;
+		private List<Integer> numbers;
+		private Bean child;
+		private volatile int volatileValue;
+		private transient int transientValue = 0;
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Bean)) {
+				return false;
+			}
+			final Bean other = (Bean) obj;
+			return b == other.b && s == other.s && i == other.i && l == other.l && f == other.f && d == other.d
+					&& z == other.z && c == other.c && equal(text, other.text) && equal(date, other.date)
+					&& equal(timestamp, other.timestamp) && kind == other.kind && equal(numbers, other.numbers)
+					&& equal(child, other.child) && volatileValue == other.volatileValue;
+		}
+
+		@Override
+		public int hashCode() {
+			return i;
+		}
+
+		private static boolean equal(final Object o1, final Object o2) {
+			return o1 == null ? o2 == null : o1.equals(o2);
+		}
+	}
+
+}
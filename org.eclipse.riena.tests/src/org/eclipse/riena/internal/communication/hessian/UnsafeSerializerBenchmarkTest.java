@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.hessian;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.caucho.hessian.io.AbstractSerializerFactory;
+import com.caucho.hessian.io.Deserializer;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.HessianProtocolException;
+import com.caucho.hessian.io.JavaDeserializer;
+import com.caucho.hessian.io.JavaSerializer;
+import com.caucho.hessian.io.Serializer;
+import com.caucho.hessian.io.SerializerFactory;
+import com.caucho.hessian.io.UnsafeDeserializer;
+import com.caucho.hessian.io.UnsafeSerializer;
+
+import org.eclipse.riena.core.test.collect.ManualTestCase;
+import org.eclipse.riena.sample.app.common.model.Address;
+import org.eclipse.riena.sample.app.common.model.BankData;
+import org.eclipse.riena.sample.app.common.model.Birth;
+import org.eclipse.riena.sample.app.common.model.Customer;
+
+/**
+ * Compares the round trip (serialization and deserialization) cost of a
+ * {@code Customer} with its {@code Address}, {@code Birth} and
+ * {@code BankData} for the reflective {@code JavaSerializer} and the
+ * {@code UnsafeSerializer}.
+ */
+@ManualTestCase
+public class UnsafeSerializerBenchmarkTest extends TestCase {
+
+	private static final int WARMUP = 20000;
+	private static final int ROUND_TRIPS = 200000;
+
+	private Customer customer;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		customer = new Customer();
+		customer.setCustomerNumber(4711);
+		customer.setFirstName("Josef"); //$NON-NLS-1$
+		customer.setLastName("Mueller-Luedenscheidt"); //$NON-NLS-1$
+		customer.setTitle("Dr."); //$NON-NLS-1$
+		customer.setEmail("josef@example.org"); //$NON-NLS-1$
+		customer.setPhonePrivate("+49 69 123456"); //$NON-NLS-1$
+		customer.setAddress(new Address("DE", "60311", "Frankfurt", "Zeil 1")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		customer.setBirth(new Birth(new Date(0), "Bonn")); //$NON-NLS-1$
+		final List<BankData> bankData = new ArrayList<BankData>();
+		for (int i = 0; i < 3; i++) {
+			bankData.add(new BankData("12345678" + i, "Bank " + i, "5001020" + i)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		customer.setBankData(bankData);
+	}
+
+	public void testReflectiveSerializer() throws Exception {
+		run("reflective JavaSerializer", createFactory(false)); //$NON-NLS-1$
+	}
+
+	public void testUnsafeSerializer() throws Exception {
+		if (!UnsafeSerializer.isEnabled()) {
+			System.out.println(getClass().getSimpleName() + " - sun.misc.Unsafe is not available"); //$NON-NLS-1$
+			return;
+		}
+		run("UnsafeSerializer", createFactory(true)); //$NON-NLS-1$
+	}
+
+	private void run(final String name, final SerializerFactory factory) throws Exception {
+		for (int i = 0; i < WARMUP; i++) {
+			roundTrip(factory);
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < ROUND_TRIPS; i++) {
+			roundTrip(factory);
+		}
+		report(name, System.nanoTime() - start);
+		assertEquals(customer, roundTrip(factory));
+	}
+
+	private Object roundTrip(final SerializerFactory factory) throws Exception {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+		final Hessian2Output out = new Hessian2Output(bos);
+		out.setSerializerFactory(factory);
+		out.writeObject(customer);
+		out.close();
+		final Hessian2Input in = new Hessian2Input(new ByteArrayInputStream(bos.toByteArray()));
+		in.setSerializerFactory(factory);
+		final Object result = in.readObject(Customer.class);
+		in.close();
+		return result;
+	}
+
+	private static SerializerFactory createFactory(final boolean unsafe) {
+		final SerializerFactory factory = new SerializerFactory();
+		factory.setAllowNonSerializable(true);
+		factory.addFactory(new AbstractSerializerFactory() {
+			@Override
+			public Serializer getSerializer(final Class cl) throws HessianProtocolException {
+				if (!isModelClass(cl)) {
+					return null;
+				}
+				return unsafe ? new UnsafeSerializer(cl) : new JavaSerializer(cl);
+			}
+
+			@Override
+			public Deserializer getDeserializer(final Class cl) throws HessianProtocolException {
+				if (!isModelClass(cl)) {
+					return null;
+				}
+				return unsafe ? new UnsafeDeserializer(cl) : new JavaDeserializer(cl);
+			}
+		});
+		return factory;
+	}
+
+	private static boolean isModelClass(final Class<?> cl) {
+		return cl == Customer.class || cl == Address.class || cl == Birth.class || cl == BankData.class;
+	}
+
+	private void report(final String name, final long nanos) {
+		System.out.println(getClass().getSimpleName() + " - " + name + ": " + (nanos / ROUND_TRIPS) + " ns/round trip"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.publisher.hessian;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+
+import org.eclipse.riena.communication.core.RemoteFailure;
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.batch.RemoteCall;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.internal.communication.factory.hessian.HessianBatchCodec;
+
+/**
+ * Tests the class {@link HessianBatchDispatcher} with batches encoded by the
+ * client side {@code HessianBatchCodec}.
+ */
+@NonUITestCase
+public class HessianBatchDispatcherTest extends RienaTestCase {
+
+	private static final String CONTEXT_PATH = "/app"; //$NON-NLS-1$
+	private static final String SERVICE_PATH = "/hessian/IBatchService"; //$NON-NLS-1$
+
+	private RemoteServiceDescription clientRsd;
+	private RemoteServiceDescription unknownRsd;
+	private HessianBatchDispatcher dispatcher;
+	private BatchService service;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		clientRsd = createDescription("http://localhost:8080" + CONTEXT_PATH + SERVICE_PATH); //$NON-NLS-1$
+		unknownRsd = createDescription("http://localhost:8080" + CONTEXT_PATH + "/hessian/IUnknown"); //$NON-NLS-1$ //$NON-NLS-2$
+		service = new BatchService();
+		final RemoteServiceDescription serverRsd = createDescription("http://localhost:8080" + SERVICE_PATH); //$NON-NLS-1$
+		serverRsd.setService(service);
+		dispatcher = new HessianBatchDispatcher(new HessianRemoteServicePublisher() {
+			@Override
+			public synchronized RemoteServiceDescription findService(final String requestURI) {
+				return SERVICE_PATH.equals(requestURI) ? serverRsd : null;
+			}
+		}, CONTEXT_PATH);
+	}
+
+	public void testInvokesAllCallsInOrder() throws Throwable {
+		final List<RemoteCall> calls = new ArrayList<RemoteCall>();
+		calls.add(call(clientRsd, "echo", "hello")); //$NON-NLS-1$ //$NON-NLS-2$
+		calls.add(call(clientRsd, "add", 1, 2)); //$NON-NLS-1$
+		calls.add(call(clientRsd, "echo", "world")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(calls.get(0).getPlaceholderResult());
+		assertEquals(0, calls.get(1).getPlaceholderResult());
+
+		roundTrip(calls);
+
+		assertEquals("[echo hello, add 1 2, echo world]", service.invocations.toString()); //$NON-NLS-1$
+		assertEquals("hello", calls.get(0).getResult()); //$NON-NLS-1$
+		assertEquals(3, calls.get(1).getResult());
+		assertEquals("world", calls.get(2).getResult()); //$NON-NLS-1$
+	}
+
+	public void testFailuresDoNotAffectOtherCalls() throws Throwable {
+		final List<RemoteCall> calls = new ArrayList<RemoteCall>();
+		calls.add(call(clientRsd, "fail")); //$NON-NLS-1$
+		calls.add(call(unknownRsd, "echo", "lost")); //$NON-NLS-1$ //$NON-NLS-2$
+		calls.add(call(clientRsd, "echo", "hello")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		roundTrip(calls);
+
+		assertEquals("[fail, echo hello]", service.invocations.toString()); //$NON-NLS-1$
+		try {
+			calls.get(0).getResult();
+			fail("expected IOException"); //$NON-NLS-1$
+		} catch (final IOException e) {
+			assertEquals("failed", e.getMessage()); //$NON-NLS-1$
+		}
+		try {
+			calls.get(1).getResult();
+			fail("expected RemoteFailure"); //$NON-NLS-1$
+		} catch (final RemoteFailure e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+		assertEquals("hello", calls.get(2).getResult()); //$NON-NLS-1$
+	}
+
+	private void roundTrip(final List<RemoteCall> calls) throws Throwable {
+		final ByteArrayOutputStream request = new ByteArrayOutputStream();
+		final Hessian2Output requestOutput = new Hessian2Output(request);
+		HessianBatchCodec.writeRequest(requestOutput, calls, false);
+		requestOutput.flush();
+
+		// the servlet reads the call header before it dispatches
+		final Hessian2Input in = new Hessian2Input(new ByteArrayInputStream(request.toByteArray()));
+		assertEquals('c', in.read());
+		assertEquals(2, in.read());
+		in.read();
+		final ByteArrayOutputStream reply = new ByteArrayOutputStream();
+		final Hessian2Output out = new Hessian2Output(reply);
+		dispatcher.invoke(in, out);
+		out.flush();
+
+		HessianBatchCodec.readReply(new Hessian2Input(new ByteArrayInputStream(reply.toByteArray())), calls);
+		for (final RemoteCall call : calls) {
+			assertTrue(call.isDone());
+		}
+	}
+
+	private static RemoteServiceDescription createDescription(final String url) {
+		return new RemoteServiceDescription(IBatchService.class, url, "hessian", //$NON-NLS-1$
+				org.eclipse.riena.internal.tests.Activator.getDefault().getBundle());
+	}
+
+	private static RemoteCall call(final RemoteServiceDescription rsd, final String methodName, final Object... args)
+			throws Exception {
+		for (final Method method : IBatchService.class.getMethods()) {
+			if (method.getName().equals(methodName)) {
+				return new RemoteCall(rsd, method, args, null);
+			}
+		}
+		throw new NoSuchMethodException(methodName);
+	}
+
+	public interface IBatchService {
+
+		String echo(String text);
+
+		int add(int a, int b);
+
+		void fail() throws IOException;
+	}
+
+	private static class BatchService implements IBatchService {
+
+		private final List<String> invocations = new ArrayList<String>();
+
+		public String echo(final String text) {
+			invocations.add("echo " + text); //$NON-NLS-1$
+			return text;
+		}
+
+		public int add(final int a, final int b) {
+			invocations.add("add " + a + " " + b); //$NON-NLS-1$ //$NON-NLS-2$
+			return a + b;
+		}
+
+		public void fail() throws IOException {
+			invocations.add("fail"); //$NON-NLS-1$
+			throw new IOException("failed"); //$NON-NLS-1$
+		}
+	}
+
+}
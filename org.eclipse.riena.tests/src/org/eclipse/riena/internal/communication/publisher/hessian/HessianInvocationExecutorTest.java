@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.publisher.hessian;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.communication.core.zipsupport.ThresholdGZIPOutputStream;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.core.util.ReflectionUtils;
+
+/**
+ * Tests the {@link HessianInvocationExecutor}.
+ */
+@NonUITestCase
+public class HessianInvocationExecutorTest extends RienaTestCase {
+
+	private HessianInvocationExecutor executor;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (executor != null) {
+			executor.shutdown();
+		}
+		MessageContextHolder.setMessageContext(null);
+		super.tearDown();
+	}
+
+	public void testInvocationSeesItsMessageContext() throws Exception {
+		executor = new HessianInvocationExecutor(4, 0);
+		final MessageContext messageContext = new MessageContext(null, null);
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread caller = Thread.currentThread();
+		final Thread[] worker = new Thread[1];
+		final MessageContext[] seen = new MessageContext[1];
+		executor.execute(messageContext, new Runnable() {
+			public void run() {
+				worker[0] = Thread.currentThread();
+				seen[0] = MessageContextHolder.getMessageContext();
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertSame(messageContext, seen[0]);
+		assertNotSame(caller, worker[0]);
+		assertNull(MessageContextHolder.getMessageContext());
+	}
+
+	public void testRunsInlineIfNoWorkerIsAvailable() throws Exception {
+		executor = new HessianInvocationExecutor(1, 0);
+		if (executor.isVirtualThreads()) {
+			return;
+		}
+		final CountDownLatch blocking = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		executor.execute(new MessageContext(null, null), new Runnable() {
+			public void run() {
+				blocking.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(blocking.await(5, TimeUnit.SECONDS));
+		final MessageContext callerContext = new MessageContext(null, null);
+		MessageContextHolder.setMessageContext(callerContext);
+		final MessageContext inlineContext = new MessageContext(null, null);
+		final Thread[] worker = new Thread[1];
+		final MessageContext[] seen = new MessageContext[1];
+		executor.execute(inlineContext, new Runnable() {
+			public void run() {
+				worker[0] = Thread.currentThread();
+				seen[0] = MessageContextHolder.getMessageContext();
+			}
+		});
+		release.countDown();
+
+		assertSame(Thread.currentThread(), worker[0]);
+		assertSame(inlineContext, seen[0]);
+		assertSame(callerContext, MessageContextHolder.getMessageContext());
+		assertTrue(executor.getStatistic().endsWith("/ 1")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Many concurrent blocking invocations, each must only see its own
+	 * message context.
+	 */
+	public void testConcurrentInvocationsUnderLoad() throws Exception {
+		executor = new HessianInvocationExecutor(50, 0);
+		final int callers = 16;
+		final int invocationsPerCaller = 200;
+		final AtomicInteger mismatches = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(callers * invocationsPerCaller);
+		final ExecutorService container = Executors.newFixedThreadPool(callers);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int c = 0; c < callers; c++) {
+				futures.add(container.submit(new Runnable() {
+					public void run() {
+						for (int i = 0; i < invocationsPerCaller; i++) {
+							final MessageContext messageContext = new MessageContext(null, null);
+							executor.execute(messageContext, new Runnable() {
+								public void run() {
+									try {
+										Thread.sleep(1);
+									} catch (final InterruptedException e) {
+										Thread.currentThread().interrupt();
+									}
+									if (MessageContextHolder.getMessageContext() != messageContext) {
+										mismatches.incrementAndGet();
+									}
+									done.countDown();
+								}
+							});
+						}
+					}
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+		} finally {
+			container.shutdown();
+		}
+		assertEquals(0, mismatches.get());
+	}
+
+	/**
+	 * More invocations than container threads run at the same time, each
+	 * compressing its reply. The deflaters are pooled per worker thread or -
+	 * on virtual threads - in one shared pool, i.e. a second round of
+	 * invocations on virtual threads creates none.
+	 */
+	public void testMoreInvocationsThanContainerThreadsWithBoundedResources() throws Exception {
+		executor = new HessianInvocationExecutor(64, 0);
+		final int containerThreads = 2;
+		final int invocations = 32;
+		final Set<Thread> workers = Collections.synchronizedSet(new HashSet<Thread>());
+		final long before = getCreatedDeflaters();
+
+		runCompressingInvocations(containerThreads, invocations, workers);
+		final long firstRound = getCreatedDeflaters() - before;
+		runCompressingInvocations(containerThreads, invocations, workers);
+		final long bothRounds = getCreatedDeflaters() - before;
+
+		if (executor.isVirtualThreads()) {
+			assertTrue(firstRound <= invocations);
+			assertEquals(firstRound, bothRounds);
+		} else {
+			assertTrue(bothRounds <= workers.size());
+		}
+	}
+
+	private void runCompressingInvocations(final int containerThreads, final int invocations,
+			final Set<Thread> workers) throws Exception {
+		final CountDownLatch allRunning = new CountDownLatch(invocations);
+		final CountDownLatch done = new CountDownLatch(invocations);
+		final AtomicInteger failures = new AtomicInteger();
+		final ExecutorService container = Executors.newFixedThreadPool(containerThreads);
+		try {
+			for (int i = 0; i < invocations; i++) {
+				container.execute(new Runnable() {
+					public void run() {
+						executor.execute(new MessageContext(null, null), new Runnable() {
+							public void run() {
+								workers.add(Thread.currentThread());
+								try {
+									final ThresholdGZIPOutputStream out = new ThresholdGZIPOutputStream(
+											new ByteArrayOutputStream(), 0, Deflater.BEST_SPEED, null);
+									out.write(new byte[16 * 1024]);
+									allRunning.countDown();
+									// every invocation holds its deflater until all of them run
+									if (!allRunning.await(10, TimeUnit.SECONDS)) {
+										failures.incrementAndGet();
+									}
+									out.close();
+								} catch (final IOException e) {
+									failures.incrementAndGet();
+								} catch (final InterruptedException e) {
+									Thread.currentThread().interrupt();
+									failures.incrementAndGet();
+								} finally {
+									done.countDown();
+								}
+							}
+						});
+					}
+				});
+			}
+			assertTrue(done.await(30, TimeUnit.SECONDS));
+		} finally {
+			container.shutdown();
+		}
+		assertEquals(0, failures.get());
+	}
+
+	private static long getCreatedDeflaters() throws ClassNotFoundException {
+		final AtomicLong created = ReflectionUtils.getHidden(
+				Class.forName("org.eclipse.riena.communication.core.zipsupport.BufferEntryManager"), //$NON-NLS-1$
+				"CREATED_DEFLATERS"); //$NON-NLS-1$
+		return created.get();
+	}
+
+}
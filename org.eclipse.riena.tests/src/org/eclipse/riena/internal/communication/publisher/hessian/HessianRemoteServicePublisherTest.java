@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.communication.publisher.hessian;
+
+import java.util.Map;
+
+import com.caucho.hessian.server.HessianSkeleton;
+
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.core.util.ReflectionUtils;
+
+/**
+ * Tests the skeleton cache of the {@link HessianRemoteServicePublisher}.
+ */
+@NonUITestCase
+public class HessianRemoteServicePublisherTest extends RienaTestCase {
+
+	private HessianRemoteServicePublisher publisher;
+	private RemoteServiceDescription rsd;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		publisher = new HessianRemoteServicePublisher();
+		rsd = new RemoteServiceDescription(IEchoService.class, "http://localhost:8080/hessian/IEchoService", //$NON-NLS-1$
+				"hessian", org.eclipse.riena.internal.tests.Activator.getDefault().getBundle()); //$NON-NLS-1$
+		rsd.setService(new IEchoService() {
+			public String echo(final String text) {
+				return text;
+			}
+		});
+	}
+
+	public void testSkeletonIsReusedWhilePublished() {
+		publisher.publishService(rsd);
+
+		final HessianSkeleton skeleton = publisher.getSkeleton(rsd);
+		assertSame(skeleton, publisher.getSkeleton(rsd));
+		assertEquals(1, getSkeletons().size());
+
+		publisher.unpublishService(rsd);
+		assertTrue(getSkeletons().isEmpty());
+	}
+
+	public void testRequestInFlightDuringUnpublishKeepsNoSkeleton() {
+		publisher.publishService(rsd);
+		// a request has found the service before it got unpublished and asks for its skeleton afterwards
+		publisher.unpublishService(rsd);
+
+		assertNotNull(publisher.getSkeleton(rsd));
+		assertTrue(getSkeletons().isEmpty());
+
+		publisher.publishService(rsd);
+		publisher.getSkeleton(rsd);
+		assertEquals(1, getSkeletons().size());
+	}
+
+	private Map<RemoteServiceDescription, HessianSkeleton> getSkeletons() {
+		return ReflectionUtils.getHidden(publisher, "skeletons"); //$NON-NLS-1$
+	}
+
+	public interface IEchoService {
+
+		String echo(String text);
+	}
+
+}
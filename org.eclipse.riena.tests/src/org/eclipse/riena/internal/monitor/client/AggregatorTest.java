@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.monitor.client;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.internal.monitor.client.Aggregator.OverflowPolicy;
+import org.eclipse.riena.monitor.client.Category;
+import org.eclipse.riena.monitor.client.IAggregator;
+import org.eclipse.riena.monitor.client.IClientInfoProvider;
+import org.eclipse.riena.monitor.client.ICollector;
+import org.eclipse.riena.monitor.client.ISender;
+import org.eclipse.riena.monitor.client.IStore;
+import org.eclipse.riena.monitor.common.Collectible;
+
+/**
+ * Tests the ring buffer ingestion of the {@link Aggregator}.
+ */
+@NonUITestCase
+public class AggregatorTest extends RienaTestCase {
+
+	private static final String CATEGORY = "test"; //$NON-NLS-1$
+
+	private Aggregator aggregator;
+	private BlockingStore store;
+	private RecordingSender sender;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (store != null) {
+			store.release.countDown();
+		}
+		if (aggregator != null) {
+			aggregator.stop();
+		}
+		super.tearDown();
+	}
+
+	public void testCollectiblesAndTriggersReachStoreAndSender() throws Exception {
+		start(16, OverflowPolicy.BLOCK);
+		store.release.countDown();
+		for (int i = 0; i < 100; i++) {
+			aggregator.collect(collectible(i));
+		}
+		aggregator.triggerTransfer(CATEGORY);
+
+		assertTrue(sender.triggered.await(5, TimeUnit.SECONDS));
+		assertEquals(100, store.collected.size());
+		assertEquals("payload 99", store.collected.get(99).getPayload()); //$NON-NLS-1$
+		assertEquals(100, aggregator.getAcceptedCollectibles(CATEGORY));
+		assertEquals(0, aggregator.getDroppedCollectibles(CATEGORY));
+	}
+
+	public void testDropNewest() throws Exception {
+		start(4, OverflowPolicy.DROP_NEWEST);
+		fillWhileStoreIsBlocked();
+		store.release.countDown();
+		waitForStore(5);
+
+		assertEquals(5, aggregator.getAcceptedCollectibles(CATEGORY));
+		assertEquals(5, aggregator.getDroppedCollectibles(CATEGORY));
+		assertEquals("payload 4", store.collected.get(4).getPayload()); //$NON-NLS-1$
+	}
+
+	public void testDropOldest() throws Exception {
+		start(4, OverflowPolicy.DROP_OLDEST);
+		fillWhileStoreIsBlocked();
+		store.release.countDown();
+		waitForStore(5);
+
+		assertEquals(10, aggregator.getAcceptedCollectibles(CATEGORY));
+		assertEquals(5, aggregator.getDroppedCollectibles(CATEGORY));
+		assertEquals("payload 0", store.collected.get(0).getPayload()); //$NON-NLS-1$
+		assertEquals("payload 9", store.collected.get(4).getPayload()); //$NON-NLS-1$
+	}
+
+	public void testBlockWaitsForRoom() throws Exception {
+		start(4, OverflowPolicy.BLOCK);
+		aggregator.collect(collectible(0));
+		assertTrue(store.blocked.await(5, TimeUnit.SECONDS));
+		final Thread producer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 1; i < 10; i++) {
+					aggregator.collect(collectible(i));
+				}
+			}
+		};
+		producer.start();
+		producer.join(200);
+		assertTrue(producer.isAlive());
+
+		store.release.countDown();
+		producer.join(5000);
+		assertFalse(producer.isAlive());
+		waitForStore(10);
+		assertEquals(0, aggregator.getDroppedCollectibles(CATEGORY));
+	}
+
+	public void testTriggerIsServedWhileProducersKeepCollecting() throws Exception {
+		start(64, OverflowPolicy.BLOCK);
+		// the store is slower than the producer, i.e. the ring buffer never becomes empty
+		store.collectDelay = 1;
+		store.release.countDown();
+		final AtomicBoolean producing = new AtomicBoolean(true);
+		final Thread producer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; producing.get(); i++) {
+					aggregator.collect(collectible(i));
+				}
+			}
+		};
+		producer.start();
+		try {
+			waitForStore(100, false);
+			aggregator.triggerTransfer(CATEGORY);
+
+			assertTrue(sender.triggered.await(5, TimeUnit.SECONDS));
+			assertTrue(producer.isAlive());
+		} finally {
+			producing.set(false);
+			producer.join(5000);
+		}
+	}
+
+	public void testRestartCreatesANewWorker() throws Exception {
+		start(16, OverflowPolicy.DROP_OLDEST);
+		store.release.countDown();
+		aggregator.collect(collectible(0));
+		waitForStore(1);
+
+		aggregator.stop();
+		// stopping releases the store and the sender
+		updateStoreAndSender();
+		aggregator.start();
+		for (int i = 1; i < 10; i++) {
+			aggregator.collect(collectible(i));
+		}
+		waitForStore(10);
+		assertEquals(0, aggregator.getDroppedCollectibles(CATEGORY));
+	}
+
+	/**
+	 * The first collectible blocks the worker in the store, the next four fill
+	 * the ring buffer and five more overflow.
+	 */
+	private void fillWhileStoreIsBlocked() throws InterruptedException {
+		aggregator.collect(collectible(0));
+		assertTrue(store.blocked.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < 10; i++) {
+			aggregator.collect(collectible(i));
+		}
+	}
+
+	private void waitForStore(final int expected) throws InterruptedException {
+		waitForStore(expected, true);
+	}
+
+	private void waitForStore(final int expected, final boolean exactly) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (store.collected.size() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		if (exactly) {
+			Thread.sleep(50);
+			assertEquals(expected, store.collected.size());
+		} else {
+			assertTrue(store.collected.size() >= expected);
+		}
+	}
+
+	private void start(final int capacity, final OverflowPolicy overflowPolicy) {
+		aggregator = new Aggregator(capacity, overflowPolicy);
+		store = new BlockingStore();
+		sender = new RecordingSender();
+		aggregator.update(new ICollectorExtension[] { new ICollectorExtension() {
+			public String getCategory() {
+				return CATEGORY;
+			}
+
+			public ICollector createCollector() {
+				return new NopCollector();
+			}
+
+			public int getMaxItems() {
+				return 1000;
+			}
+		} });
+		updateStoreAndSender();
+		aggregator.start();
+	}
+
+	private void updateStoreAndSender() {
+		aggregator.update(new IStoreExtension() {
+			public String getName() {
+				return "store"; //$NON-NLS-1$
+			}
+
+			public IStore createStore() {
+				return store;
+			}
+		});
+		aggregator.update(new ISenderExtension() {
+			public String getName() {
+				return "sender"; //$NON-NLS-1$
+			}
+
+			public ISender createSender() {
+				return sender;
+			}
+		});
+	}
+
+	private static Collectible<String> collectible(final int i) {
+		return new Collectible<String>("unit-test", CATEGORY, "payload " + i); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static class BlockingStore implements IStore {
+
+		private final List<Collectible<?>> collected = new CopyOnWriteArrayList<Collectible<?>>();
+		private final CountDownLatch blocked = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile long collectDelay;
+
+		public void open(final Map<String, Category> categories) {
+		}
+
+		public void close() {
+		}
+
+		public void flush() {
+		}
+
+		public boolean collect(final Collectible<?> collectible) {
+			blocked.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+				if (collectDelay > 0) {
+					Thread.sleep(collectDelay);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return collected.add(collectible);
+		}
+
+		public void prepareTransferables(final String category) {
+		}
+
+		public List<Collectible<?>> retrieveTransferables(final String category) {
+			return collected;
+		}
+
+		public void commitTransferred(final List<Collectible<?>> collectibles) {
+		}
+	}
+
+	private static class RecordingSender implements ISender {
+
+		private final CountDownLatch triggered = new CountDownLatch(1);
+
+		public void start(final IStore store, final Collection<Category> categories) {
+		}
+
+		public void stop() {
+		}
+
+		public void triggerTransfer(final String category) {
+			triggered.countDown();
+		}
+	}
+
+	private static class NopCollector implements ICollector {
+
+		private Category category;
+
+		public void start(final IAggregator aggregator, final Category category,
+				final IClientInfoProvider clientInfoProvider) {
+			this.category = category;
+		}
+
+		public void stop() {
+		}
+
+		public Category getCategory() {
+			return category;
+		}
+	}
+}
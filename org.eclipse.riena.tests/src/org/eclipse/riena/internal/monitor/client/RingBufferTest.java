@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.monitor.client;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+
+/**
+ * Tests the {@link RingBuffer}.
+ */
+@NonUITestCase
+public class RingBufferTest extends RienaTestCase {
+
+	public void testCapacityIsRoundedUpToPowerOfTwo() {
+		assertEquals(1, new RingBuffer<String>(1).capacity());
+		assertEquals(8, new RingBuffer<String>(5).capacity());
+		assertEquals(8, new RingBuffer<String>(8).capacity());
+	}
+
+	public void testFifoAndFull() {
+		final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4);
+		assertNull(ringBuffer.poll());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ringBuffer.offer(i));
+		}
+		assertFalse(ringBuffer.offer(4));
+		assertEquals(4, ringBuffer.size());
+		assertEquals(Integer.valueOf(0), ringBuffer.poll());
+		assertTrue(ringBuffer.offer(4));
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(Integer.valueOf(i), ringBuffer.poll());
+		}
+		assertNull(ringBuffer.poll());
+		assertTrue(ringBuffer.isEmpty());
+	}
+
+	public void testConcurrentProducersLoseNothing() throws Exception {
+		final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(64);
+		final int producers = 4;
+		final int perProducer = 10000;
+		final ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < producers; p++) {
+				final int base = p * perProducer;
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						for (int i = 0; i < perProducer; i++) {
+							while (!ringBuffer.offer(base + i)) {
+								Thread.yield();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			final BitSet seen = new BitSet(producers * perProducer);
+			int count = 0;
+			final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+			while (count < producers * perProducer && System.currentTimeMillis() < deadline) {
+				final Integer value = ringBuffer.poll();
+				if (value != null) {
+					assertFalse(seen.get(value));
+					seen.set(value);
+					count++;
+				}
+			}
+			for (final Future<?> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+			assertEquals(producers * perProducer, count);
+			assertTrue(ringBuffer.isEmpty());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
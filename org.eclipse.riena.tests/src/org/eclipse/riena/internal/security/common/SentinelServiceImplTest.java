@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.security.common;
+
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Principal;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PropertyPermission;
+
+import javax.security.auth.Subject;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.authorization.IAuthorizationService;
+import org.eclipse.riena.security.common.authorization.IPermissionCache;
+
+/**
+ * Tests the {@link SentinelServiceImpl}.
+ */
+@NonUITestCase
+public class SentinelServiceImplTest extends RienaTestCase {
+
+	private static final PropertyPermission READ = new PropertyPermission("user.home", "read"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final PropertyPermission WRITE = new PropertyPermission("user.home", "write"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private PermissionCacheStub permCache;
+	private AuthorizationServiceStub authService;
+	private SimpleThreadedSubjectHolder subjectHolder;
+	private SentinelServiceImpl sentinel;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		permCache = new PermissionCacheStub();
+		authService = new AuthorizationServiceStub();
+		subjectHolder = new SimpleThreadedSubjectHolder();
+		sentinel = new SentinelServiceImpl();
+		sentinel.bind(permCache);
+		sentinel.bind(authService);
+		sentinel.bind(subjectHolder);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		sentinel.unbind(subjectHolder);
+		subjectHolder.setSubject(null);
+		super.tearDown();
+	}
+
+	public void testNoSubject() {
+		assertFalse(sentinel.checkAccess(READ));
+	}
+
+	public void testPermissionsOfAllPrincipalsAreMerged() {
+		authService.grant("scott", READ); //$NON-NLS-1$
+		authService.grant("admin", WRITE); //$NON-NLS-1$
+		subjectHolder.setSubject(createSubject("scott", "admin")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertTrue(sentinel.checkAccess(READ));
+		assertTrue(sentinel.checkAccess(WRITE));
+		assertFalse(sentinel.checkAccess(new PropertyPermission("user.dir", "read"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, authService.calls);
+	}
+
+	public void testRepeatedChecksDoNotReload() {
+		authService.grant("scott", READ); //$NON-NLS-1$
+		subjectHolder.setSubject(createSubject("scott")); //$NON-NLS-1$
+		for (int i = 0; i < 100; i++) {
+			assertTrue(sentinel.checkAccess(READ));
+			assertFalse(sentinel.checkAccess(WRITE));
+		}
+		assertEquals(1, authService.calls);
+	}
+
+	public void testPurgedPermissionsAreReloaded() {
+		authService.grant("scott", READ); //$NON-NLS-1$
+		subjectHolder.setSubject(createSubject("scott")); //$NON-NLS-1$
+		assertFalse(sentinel.checkAccess(WRITE));
+
+		authService.grant("scott", WRITE); //$NON-NLS-1$
+		permCache.purgePermissions(new SimplePrincipal("scott")); //$NON-NLS-1$
+
+		assertTrue(sentinel.checkAccess(WRITE));
+		assertEquals(2, authService.calls);
+	}
+
+	public void testSubjectChangeDropsMergedPermissions() {
+		authService.grant("scott", READ); //$NON-NLS-1$
+		subjectHolder.setSubject(createSubject("scott")); //$NON-NLS-1$
+		assertFalse(sentinel.checkAccess(WRITE));
+
+		// changed in place, only noticed after the subject changed
+		permCache.getPermissions(new SimplePrincipal("scott")).add(WRITE); //$NON-NLS-1$
+		assertFalse(sentinel.checkAccess(WRITE));
+		subjectHolder.setSubject(createSubject("scott")); //$NON-NLS-1$
+
+		assertTrue(sentinel.checkAccess(WRITE));
+		assertEquals(1, authService.calls);
+	}
+
+	public void testBulkCheckAccess() {
+		authService.grant("scott", READ); //$NON-NLS-1$
+		authService.grant("admin", WRITE); //$NON-NLS-1$
+		subjectHolder.setSubject(createSubject("scott", "admin", "guest")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		final Permission[] permissions = new Permission[200];
+		for (int i = 0; i < permissions.length; i++) {
+			permissions[i] = new PropertyPermission("item" + i, "read"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		permissions[17] = READ;
+		permissions[42] = WRITE;
+
+		final boolean[] granted = sentinel.checkAccess(permissions);
+
+		assertEquals(permissions.length, granted.length);
+		for (int i = 0; i < granted.length; i++) {
+			assertEquals(i == 17 || i == 42, granted[i]);
+		}
+		assertEquals(1, authService.calls);
+	}
+
+	public void testBulkCheckAccessWithoutSubject() {
+		final boolean[] granted = sentinel.checkAccess(new Permission[] { READ, WRITE });
+		assertEquals(2, granted.length);
+		assertFalse(granted[0]);
+		assertFalse(granted[1]);
+	}
+
+	public void testNoAuthorizationService() {
+		sentinel.unbind(authService);
+		subjectHolder.setSubject(createSubject("scott")); //$NON-NLS-1$
+		assertFalse(sentinel.checkAccess(READ));
+
+		authService.grant("scott", READ); //$NON-NLS-1$
+		sentinel.bind(authService);
+		assertTrue(sentinel.checkAccess(READ));
+	}
+
+	private static Subject createSubject(final String... names) {
+		final Subject subject = new Subject();
+		for (final String name : names) {
+			subject.getPrincipals().add(new SimplePrincipal(name));
+		}
+		return subject;
+	}
+
+	private static class PermissionCacheStub implements IPermissionCache {
+
+		private final Map<String, Permissions> permissions = new HashMap<String, Permissions>();
+
+		public Permissions getPermissions(final Principal principal) {
+			return permissions.get(principal.getName());
+		}
+
+		public void putPermissions(final Principal principal, final Permissions permissions) {
+			this.permissions.put(principal.getName(), permissions);
+		}
+
+		public void purgePermissions(final Principal principal) {
+			permissions.remove(principal.getName());
+		}
+
+		public void purgePermissions(final Subject subject) {
+			for (final Principal principal : subject.getPrincipals()) {
+				purgePermissions(principal);
+			}
+		}
+	}
+
+	private static class AuthorizationServiceStub implements IAuthorizationService {
+
+		private final Map<String, Permissions> granted = new HashMap<String, Permissions>();
+		private int calls;
+
+		void grant(final String name, final PropertyPermission permission) {
+			Permissions permissions = granted.get(name);
+			if (permissions == null) {
+				permissions = new Permissions();
+				granted.put(name, permissions);
+			}
+			permissions.add(permission);
+		}
+
+		public Permissions[] getPermissions(final Principal[] principals) {
+			calls++;
+			final Permissions[] result = new Permissions[principals.length];
+			for (int i = 0; i < principals.length; i++) {
+				// a copy, as it would be after a remote call
+				result[i] = new Permissions();
+				final Permissions permissions = granted.get(principals[i].getName());
+				if (permissions != null) {
+					final Enumeration<Permission> elements = permissions.elements();
+					while (elements.hasMoreElements()) {
+						result[i].add(elements.nextElement());
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+}
@@ -10,11 +10,20 @@
  *******************************************************************************/
 package org.eclipse.riena.internal.security.common.authorization;
 
+import java.security.Permissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.security.auth.Subject;
+
 import org.eclipse.riena.core.cache.GenericObjectCache;
 import org.eclipse.riena.core.test.RienaTestCase;
 import org.eclipse.riena.core.test.collect.NonUITestCase;
 import org.eclipse.riena.core.util.ContainerModel;
 import org.eclipse.riena.core.util.ReflectionUtils;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.authorization.IPermissionInvalidationReceiver;
+import org.eclipse.riena.security.common.authorization.IPermissionInvalidationTransport;
 
 /**
  * Test the {@code PermissionCache}.
@@ -84,6 +93,82 @@ public class PermissionCacheTest extends RienaTestCase {
 		assertEquals(360, getCache(cache).getTimeout());
 	}
 
+	public void testPurgePrincipal() {
+		final PermissionCache cache = new PermissionCache();
+		cache.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+		cache.putPermissions(new SimplePrincipal("tiger"), new Permissions()); //$NON-NLS-1$
+
+		cache.purgePermissions(new SimplePrincipal("scott")); //$NON-NLS-1$
+
+		assertNull(cache.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+		assertNotNull(cache.getPermissions(new SimplePrincipal("tiger"))); //$NON-NLS-1$
+	}
+
+	public void testPurgeSubject() {
+		final PermissionCache cache = new PermissionCache();
+		cache.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+		cache.putPermissions(new SimplePrincipal("admin"), new Permissions()); //$NON-NLS-1$
+		cache.putPermissions(new SimplePrincipal("tiger"), new Permissions()); //$NON-NLS-1$
+		final Subject subject = new Subject();
+		subject.getPrincipals().add(new SimplePrincipal("scott")); //$NON-NLS-1$
+		subject.getPrincipals().add(new SimplePrincipal("admin")); //$NON-NLS-1$
+
+		cache.purgePermissions(subject);
+
+		assertNull(cache.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+		assertNull(cache.getPermissions(new SimplePrincipal("admin"))); //$NON-NLS-1$
+		assertNotNull(cache.getPermissions(new SimplePrincipal("tiger"))); //$NON-NLS-1$
+	}
+
+	public void testPurgeIsSentToOtherNodes() {
+		final Cluster cluster = new Cluster();
+		final PermissionCache node1 = new PermissionCache();
+		node1.bind(cluster.join());
+		final PermissionCache node2 = new PermissionCache();
+		node2.bind(cluster.join());
+		node1.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+		node2.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+
+		node1.purgePermissions(new SimplePrincipal("scott")); //$NON-NLS-1$
+
+		assertNull(node1.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+		assertNull(node2.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+		// a received purge is not sent again
+		assertEquals(1, cluster.messages);
+	}
+
+	public void testUnboundTransportNoLongerReceives() {
+		final Cluster cluster = new Cluster();
+		final PermissionCache node1 = new PermissionCache();
+		node1.bind(cluster.join());
+		final PermissionCache node2 = new PermissionCache();
+		final Cluster.Node transport2 = cluster.join();
+		node2.bind(transport2);
+		node2.unbind(transport2);
+		node2.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+
+		node1.purgePermissions(new SimplePrincipal("scott")); //$NON-NLS-1$
+
+		assertNotNull(node2.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+	}
+
+	public void testFailingTransportDoesNotPreventLocalPurge() {
+		final PermissionCache cache = new PermissionCache();
+		cache.bind(new IPermissionInvalidationTransport() {
+			public void send(final String[] principalNames) {
+				throw new IllegalStateException("cluster down"); //$NON-NLS-1$
+			}
+
+			public void setReceiver(final IPermissionInvalidationReceiver receiver) {
+			}
+		});
+		cache.putPermissions(new SimplePrincipal("scott"), new Permissions()); //$NON-NLS-1$
+
+		cache.purgePermissions(new SimplePrincipal("scott")); //$NON-NLS-1$
+
+		assertNull(cache.getPermissions(new SimplePrincipal("scott"))); //$NON-NLS-1$
+	}
+
 	private enum ContainerType {
 		SERVER, CLIENT
 	};
@@ -98,6 +183,39 @@ public class PermissionCacheTest extends RienaTestCase {
 		return ReflectionUtils.getHidden(permissionCache, "permCache");
 	}
 
+	/**
+	 * Delivers the purges synchronously to all other nodes.
+	 */
+	private static class Cluster {
+
+		private final List<Node> nodes = new ArrayList<Node>();
+		private int messages;
+
+		Node join() {
+			final Node node = new Node();
+			nodes.add(node);
+			return node;
+		}
+
+		private class Node implements IPermissionInvalidationTransport {
+
+			private IPermissionInvalidationReceiver receiver;
+
+			public void send(final String[] principalNames) {
+				messages++;
+				for (final Node node : nodes) {
+					if (node != this && node.receiver != null) {
+						node.receiver.received(principalNames);
+					}
+				}
+			}
+
+			public void setReceiver(final IPermissionInvalidationReceiver receiver) {
+				this.receiver = receiver;
+			}
+		}
+	}
+
 	private static class PermissionCacheExtension implements IPermissionCacheExtension {
 
 		private final int minimumSize;
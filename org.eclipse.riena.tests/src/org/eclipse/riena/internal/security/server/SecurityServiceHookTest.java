@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.internal.security.server;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.security.auth.Subject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.riena.communication.core.hooks.IServiceMessageContext;
+import org.eclipse.riena.communication.core.hooks.ServiceContext;
+import org.eclipse.riena.core.cache.ConcurrentObjectCache;
+import org.eclipse.riena.core.cache.IGenericObjectCache;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.internal.security.common.SimpleThreadedSubjectHolder;
+import org.eclipse.riena.internal.security.common.session.SimpleThreadedSessionHolder;
+import org.eclipse.riena.internal.security.sessionservice.SessionService;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.server.session.ISessionService;
+import org.eclipse.riena.security.sessionservice.ISessionProvider;
+import org.eclipse.riena.security.sessionservice.ISessionStore;
+import org.eclipse.riena.security.sessionservice.SessionEntry;
+import org.eclipse.riena.security.sessionservice.SignedSessionProvider;
+
+/**
+ * Tests the principal lookup of the {@link SecurityServiceHook}.
+ */
+@NonUITestCase
+public class SecurityServiceHookTest extends RienaTestCase {
+
+	private static final String SSOID = "4711"; //$NON-NLS-1$
+
+	private IGenericObjectCache<String, Principal[]> principalCache;
+	private SessionServiceStub sessionService;
+	private SecurityServiceHook hook;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		principalCache = new ConcurrentObjectCache<String, Principal[]>();
+		sessionService = new SessionServiceStub();
+		hook = new SecurityServiceHook();
+		hook.bind(principalCache);
+		hook.bind(sessionService);
+		hook.bind(new SimpleThreadedSubjectHolder());
+		hook.bind(new SimpleThreadedSessionHolder());
+	}
+
+	public void testConcurrentMissesShareOneLookup() throws Exception {
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> calls = new ArrayList<Future<?>>();
+			for (int i = 0; i < threads; i++) {
+				calls.add(executor.submit(new Runnable() {
+					public void run() {
+						final ServiceContext context = createContext(SSOID);
+						hook.beforeService(context);
+						assertNotNull(context.getProperty("riena.subject")); //$NON-NLS-1$
+					}
+				}));
+			}
+			assertTrue(sessionService.lookupStarted.await(5, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			sessionService.releaseLookup.countDown();
+			for (final Future<?> call : calls) {
+				call.get(5, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, sessionService.lookups.get());
+		assertNotNull(principalCache.get(SSOID));
+	}
+
+	public void testLogoutDuringLookupIsNotCached() {
+		sessionService.releaseLookup.countDown();
+		sessionService.invalidateDuringLookup = true;
+		final ServiceContext context = createContext(SSOID);
+		hook.beforeService(context);
+
+		assertNotNull(context.getProperty("riena.subject")); //$NON-NLS-1$
+		assertNull(principalCache.get(SSOID));
+	}
+
+	public void testInvalidateSessionEvictsCachedPrincipals() {
+		final Map<String, SessionEntry> entries = new HashMap<String, SessionEntry>();
+		final SessionService service = new SessionService(new ISessionStore() {
+			public SessionEntry read(final Session session) {
+				return entries.get(session.getSessionId());
+			}
+
+			public void write(final SessionEntry entry) {
+				entries.put(entry.getSession().getSessionId(), entry);
+			}
+
+			public void delete(final Session session) {
+				entries.remove(session.getSessionId());
+			}
+		}, new ISessionProvider() {
+			public Session createSession(final Principal[] principals) {
+				return new Session(SSOID);
+			}
+		});
+		service.bind(principalCache);
+		final Session session = service.generateSession(new Principal[] { new SimplePrincipal("scott") }); //$NON-NLS-1$
+		principalCache.put(SSOID, service.findPrincipals(session));
+
+		service.invalidateSession(session);
+
+		assertNull(principalCache.get(SSOID));
+		assertNull(service.findPrincipals(session));
+	}
+
+	public void testStatelessSessionIsVerifiedWithoutSessionService() {
+		final SignedSessionProvider provider = new SignedSessionProvider(
+				"0123456789abcdef0123456789abcdef".getBytes(), 60000, false); //$NON-NLS-1$
+		hook.bind(provider);
+		final Session session = provider.createSession(new Principal[] { new SimplePrincipal("scott") }); //$NON-NLS-1$
+		final ServiceContext context = createContext(session.getSessionId());
+		hook.beforeService(context);
+
+		final Subject subject = (Subject) context.getProperty("riena.subject"); //$NON-NLS-1$
+		assertEquals("scott", subject.getPrincipals().iterator().next().getName()); //$NON-NLS-1$
+		assertEquals(0, sessionService.lookups.get());
+		assertNull(principalCache.get(session.getSessionId()));
+
+		provider.revoke(session);
+		final ServiceContext revokedContext = createContext(session.getSessionId());
+		hook.beforeService(revokedContext);
+		assertNull(revokedContext.getProperty("riena.subject")); //$NON-NLS-1$
+		assertEquals(0, sessionService.lookups.get());
+	}
+
+	private static ServiceContext createContext(final String ssoid) {
+		return new ServiceContext(null, null, null, new IServiceMessageContext() {
+			public Map<String, List<String>> listRequestHeaders() {
+				return null;
+			}
+
+			public List<String> getRequestHeaderValue(final String name) {
+				return Collections.singletonList(SecurityServiceHook.SSOID + "=" + ssoid); //$NON-NLS-1$
+			}
+
+			public void addResponseHeader(final String name, final String value) {
+			}
+
+			public HttpServletRequest getServletRequest() {
+				return null;
+			}
+		});
+	}
+
+	private static class SessionServiceStub implements ISessionService {
+
+		private final AtomicInteger lookups = new AtomicInteger();
+		private final CountDownLatch lookupStarted = new CountDownLatch(1);
+		private final CountDownLatch releaseLookup = new CountDownLatch(1);
+		private volatile boolean invalidated;
+		private volatile boolean invalidateDuringLookup;
+
+		public Principal[] findPrincipals(final Session session) {
+			lookups.incrementAndGet();
+			lookupStarted.countDown();
+			try {
+				releaseLookup.await(5, TimeUnit.SECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (invalidateDuringLookup) {
+				invalidated = true;
+			}
+			return new Principal[] { new SimplePrincipal("scott") }; //$NON-NLS-1$
+		}
+
+		public boolean hasSession(final Session session) {
+			return !invalidated;
+		}
+
+		public Session generateSession(final Principal[] principals) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean isValidSession(final Session session) {
+			return !invalidated;
+		}
+
+		public void invalidateSession(final Session session) {
+			invalidated = true;
+		}
+	}
+
+}
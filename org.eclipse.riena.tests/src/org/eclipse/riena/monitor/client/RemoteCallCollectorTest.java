@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.caucho.hessian.io.AbstractHessianInput;
+import com.caucho.hessian.io.AbstractHessianOutput;
+import com.caucho.hessian.io.Hessian2Output;
+
+import org.eclipse.riena.communication.core.RemoteServiceDescription;
+import org.eclipse.riena.communication.core.hooks.CallContext;
+import org.eclipse.riena.communication.core.hooks.ICallMessageContext;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.internal.communication.factory.hessian.RemoteServiceFactoryHessian;
+import org.eclipse.riena.internal.communication.factory.hessian.RienaHessianProxyFactory;
+import org.eclipse.riena.monitor.common.Collectible;
+import org.eclipse.riena.monitor.common.IReceiver;
+import org.eclipse.riena.monitor.common.RemoteCallMetrics;
+
+/**
+ * Tests the {@code RemoteCallCollector}.
+ */
+@NonUITestCase
+public class RemoteCallCollectorTest extends RienaTestCase {
+
+	private static final String CATEGORY = "RemoteCallCollector"; //$NON-NLS-1$
+
+	private RemoteCallCollector collector;
+	private RecordingAggregator aggregator;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		collector = new RemoteCallCollector();
+		collector.setInitializationData(null, null, "interval=1 h"); //$NON-NLS-1$
+		aggregator = new RecordingAggregator();
+		collector.start(aggregator, new Category(CATEGORY, 1000), null);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		collector.stop();
+		super.tearDown();
+	}
+
+	public void testCollectsMetricsPerMethod() throws Exception {
+		call(Runnable.class, "run", 100, 2000, false); //$NON-NLS-1$
+		call(Runnable.class, "run", 300, 1000, true); //$NON-NLS-1$
+		call(Comparable.class, "compareTo", 50, 50, false); //$NON-NLS-1$
+
+		collector.snapshot();
+
+		assertEquals(2, aggregator.collectibles.size());
+		assertEquals(1, aggregator.triggers);
+		final RemoteCallMetrics run = getMetrics("run"); //$NON-NLS-1$
+		assertEquals(Runnable.class.getName(), run.getServiceName());
+		assertEquals(2, run.getCalls());
+		assertEquals(1, run.getFailures());
+		assertEquals(0.5, run.getFailureRate(), 0.0);
+		assertEquals(400, run.getBytesSent());
+		assertEquals(3000, run.getBytesReceived());
+		long histogramCalls = 0;
+		for (final long bucket : run.getLatencyHistogram()) {
+			histogramCalls += bucket;
+		}
+		assertEquals(2, histogramCalls);
+		assertEquals(1, getMetrics("compareTo").getCalls()); //$NON-NLS-1$
+		for (final Collectible<?> collectible : aggregator.collectibles) {
+			assertEquals(CATEGORY, collectible.getCategory());
+		}
+	}
+
+	public void testSnapshotResetsAndSkipsIdleMethods() throws Exception {
+		call(Runnable.class, "run", 100, 100, false); //$NON-NLS-1$
+		collector.snapshot();
+		aggregator.collectibles.clear();
+
+		collector.snapshot();
+		assertTrue(aggregator.collectibles.isEmpty());
+		assertEquals(1, aggregator.triggers);
+
+		call(Runnable.class, "run", 100, 100, false); //$NON-NLS-1$
+		collector.snapshot();
+		assertEquals(1, getMetrics("run").getCalls()); //$NON-NLS-1$
+	}
+
+	public void testIgnoresLocalCallsAndTheTransfer() throws Exception {
+		call(Runnable.class, "hashCode", 0, 0, false); //$NON-NLS-1$
+		call(Runnable.class, "toString", 0, 0, false); //$NON-NLS-1$
+		call(IReceiver.class, "take", 100, 100, false); //$NON-NLS-1$
+
+		collector.snapshot();
+		assertTrue(aggregator.collectibles.isEmpty());
+	}
+
+	public void testCollectsServiceMethodsNamedLikeMethodsOfObject() throws Exception {
+		call(IFormatter.class, IFormatter.class.getMethod("toString", int.class), 100, 100); //$NON-NLS-1$
+		call(IFormatter.class, IFormatter.class.getMethod("wait", String.class), 100, 100); //$NON-NLS-1$
+		call(IFormatter.class, Object.class.getMethod("toString"), 0, 0); //$NON-NLS-1$
+		call(IFormatter.class, Object.class.getMethod("hashCode"), 0, 0); //$NON-NLS-1$
+
+		collector.snapshot();
+		assertEquals(2, aggregator.collectibles.size());
+		assertEquals(1, getMetrics("toString").getCalls()); //$NON-NLS-1$
+		assertEquals(1, getMetrics("wait").getCalls()); //$NON-NLS-1$
+	}
+
+	public void testCountsTheBytesWithoutProgressMonitors() throws Throwable {
+		// no progress monitor registry is bound, so the message context has no progress monitors
+		final RemoteServiceFactoryHessian factory = new RemoteServiceFactoryHessian();
+		final RienaHessianProxyFactory proxyFactory = new RienaHessianProxyFactory();
+		proxyFactory.setCallMessageContextAccessor(factory.getMessageContextAccessor());
+		final ICallMessageContext messageContext = factory.getMessageContextAccessor().createMessageContext(this,
+				"run", null); //$NON-NLS-1$
+		assertNull(messageContext.getProgressMonitorList());
+		final CallContext context = new CallContext(new RemoteServiceDescription(Runnable.class,
+				"http://localhost/test", "hessian", null), "run", messageContext); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		collector.beforeCall(context);
+
+		final ByteArrayOutputStream request = new ByteArrayOutputStream();
+		final AbstractHessianOutput out = proxyFactory.getHessianOutput(request);
+		out.call("run", new Object[] { "request" }); //$NON-NLS-1$ //$NON-NLS-2$
+
+		final ByteArrayOutputStream reply = new ByteArrayOutputStream();
+		final Hessian2Output replyOut = new Hessian2Output(reply);
+		replyOut.startReply();
+		replyOut.writeObject("reply"); //$NON-NLS-1$
+		replyOut.completeReply();
+		replyOut.flush();
+		final AbstractHessianInput in = proxyFactory.getHessianInput(new ByteArrayInputStream(reply.toByteArray()));
+		assertEquals("reply", in.readReply(String.class)); //$NON-NLS-1$
+
+		messageContext.fireEndCall();
+		collector.afterCall(context);
+		collector.snapshot();
+
+		final RemoteCallMetrics run = getMetrics("run"); //$NON-NLS-1$
+		assertEquals(1, run.getCalls());
+		assertTrue(request.size() > 0);
+		assertEquals(request.size(), run.getBytesSent());
+		assertEquals(reply.size(), run.getBytesReceived());
+	}
+
+	public void testLatencyBuckets() {
+		assertEquals(0, RemoteCallMetrics.getLatencyBucket(0));
+		assertEquals(0, RemoteCallMetrics.getLatencyBucket(1));
+		assertEquals(1, RemoteCallMetrics.getLatencyBucket(2));
+		assertEquals(RemoteCallMetrics.getLatencyBucketCount() - 1, RemoteCallMetrics.getLatencyBucket(Long.MAX_VALUE));
+	}
+
+	private void call(final Class<?> serviceInterface, final Method method, final int bytesWritten,
+			final int bytesRead) {
+		final CallContext context = new CallContext(new RemoteServiceDescription(serviceInterface,
+				"http://localhost/test", "hessian", null), method, createMessageContext(bytesWritten, bytesRead)); //$NON-NLS-1$ //$NON-NLS-2$
+		collector.beforeCall(context);
+		collector.afterCall(context);
+	}
+
+	private void call(final Class<?> serviceInterface, final String methodName, final int bytesWritten,
+			final int bytesRead, final boolean failure) {
+		final CallContext context = new CallContext(new RemoteServiceDescription(serviceInterface,
+				"http://localhost/test", "hessian", null), methodName, createMessageContext(bytesWritten, bytesRead)); //$NON-NLS-1$ //$NON-NLS-2$
+		collector.beforeCall(context);
+		context.setRemoteFailure(failure);
+		collector.afterCall(context);
+	}
+
+	private ICallMessageContext createMessageContext(final int bytesWritten, final int bytesRead) {
+		final ICallMessageContext messageContext = (ICallMessageContext) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { ICallMessageContext.class }, new InvocationHandler() {
+			public Object invoke(final Object proxy, final Method method, final Object[] args) {
+				if ("getBytesWritten".equals(method.getName())) { //$NON-NLS-1$
+					return bytesWritten;
+				}
+				if ("getBytesRead".equals(method.getName())) { //$NON-NLS-1$
+					return bytesRead;
+				}
+				return null;
+			}
+		});
+		return messageContext;
+	}
+
+	private RemoteCallMetrics getMetrics(final String methodName) {
+		for (final Collectible<?> collectible : aggregator.collectibles) {
+			final RemoteCallMetrics metrics = (RemoteCallMetrics) collectible.getPayload();
+			if (metrics.getMethodName().equals(methodName)) {
+				return metrics;
+			}
+		}
+		fail("no metrics for " + methodName); //$NON-NLS-1$
+		return null;
+	}
+
+	private interface IFormatter {
+
+		String toString(int radix);
+
+		void wait(String reason);
+	}
+
+	private static class RecordingAggregator implements IAggregator {
+
+		private final List<Collectible<?>> collectibles = new ArrayList<Collectible<?>>();
+		private int triggers;
+
+		public void start() {
+		}
+
+		public void stop() {
+		}
+
+		public void triggerTransfer(final String category) {
+			triggers++;
+		}
+
+		public void collect(final Collectible<?> collectible) {
+			collectibles.add(collectible);
+		}
+	}
+
+}
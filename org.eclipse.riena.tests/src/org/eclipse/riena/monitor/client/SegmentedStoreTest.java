@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.riena.core.RienaStatus;
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.monitor.common.Collectible;
+
+/**
+ * Test the {@code SegmentedStore}.
+ */
+@NonUITestCase
+public class SegmentedStoreTest extends RienaTestCase {
+
+	private static final String CATEGORY = "test";
+	private static final String CLIENT_INFO = "unit-test";
+
+	private File storeFolder;
+	private String development;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		development = System.setProperty(RienaStatus.RIENA_DEVELOPMENT_SYSTEM_PROPERTY, Boolean.FALSE.toString());
+		storeFolder = File.createTempFile("SegmentedStore", ".test");
+		storeFolder.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (development == null) {
+			System.clearProperty(RienaStatus.RIENA_DEVELOPMENT_SYSTEM_PROPERTY);
+		} else {
+			System.setProperty(RienaStatus.RIENA_DEVELOPMENT_SYSTEM_PROPERTY, development);
+		}
+		final File[] files = storeFolder.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		storeFolder.delete();
+		super.tearDown();
+	}
+
+	public void testCollectPrepareRetrieveCommit() throws CoreException {
+		final SegmentedStore store = createStore(1000);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "payload " + i)));
+		}
+		store.prepareTransferables(CATEGORY);
+		final List<Collectible<?>> transferables = store.retrieveTransferables(CATEGORY);
+		assertEquals(100, transferables.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("payload " + i, transferables.get(i).getPayload());
+			assertEquals(CLIENT_INFO, transferables.get(i).getClientInfo());
+		}
+		assertTrue(store.retrieveTransferables("other").isEmpty());
+		assertTrue(storeFolder.list().length < 10);
+
+		store.commitTransferred(transferables);
+		assertEquals(0, storeFolder.list().length);
+		assertTrue(store.retrieveTransferables(CATEGORY).isEmpty());
+	}
+
+	public void testUncommittedSegmentsAreRetrievedAgain() throws CoreException {
+		final SegmentedStore store = createStore(1000);
+		for (int i = 0; i < 10; i++) {
+			store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "payload " + i));
+		}
+		store.prepareTransferables(CATEGORY);
+		assertEquals(10, store.retrieveTransferables(CATEGORY).size());
+		store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "not prepared"));
+
+		final List<Collectible<?>> transferables = store.retrieveTransferables(CATEGORY);
+		assertEquals(10, transferables.size());
+		store.commitTransferred(transferables);
+		store.prepareTransferables(CATEGORY);
+		assertEquals("not prepared", store.retrieveTransferables(CATEGORY).get(0).getPayload());
+	}
+
+	public void testPartiallyCommittedSegmentOnlyRetrievesUncommitted() throws CoreException {
+		final SegmentedStore store = createStore(1000);
+		for (int i = 0; i < 10; i++) {
+			store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "payload " + i));
+		}
+		store.prepareTransferables(CATEGORY);
+		final List<Collectible<?>> transferables = store.retrieveTransferables(CATEGORY);
+		assertEquals(10, transferables.size());
+		store.commitTransferred(transferables.subList(0, 6));
+
+		final List<Collectible<?>> retried = store.retrieveTransferables(CATEGORY);
+		assertEquals(4, retried.size());
+		assertEquals("payload 6", retried.get(0).getPayload());
+		store.commitTransferred(retried);
+		assertEquals(0, storeFolder.list().length);
+		assertTrue(store.retrieveTransferables(CATEGORY).isEmpty());
+	}
+
+	public void testMaxItemsDropsOldestSegments() throws CoreException {
+		final SegmentedStore store = createStore(20);
+		for (int i = 0; i < 200; i++) {
+			store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "payload " + i));
+		}
+		store.prepareTransferables(CATEGORY);
+		final List<Collectible<?>> transferables = store.retrieveTransferables(CATEGORY);
+		assertTrue(transferables.size() <= 20);
+		assertTrue(transferables.size() >= 15);
+		assertEquals("payload 199", transferables.get(transferables.size() - 1).getPayload());
+	}
+
+	public void testReopenKeepsCollectiblesAndDropsIncompleteRecord() throws CoreException, IOException {
+		final SegmentedStore store = createStore(1000);
+		for (int i = 0; i < 5; i++) {
+			store.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "payload " + i));
+		}
+		store.close();
+		final File[] segments = storeFolder.listFiles();
+		assertEquals(1, segments.length);
+		// simulate a crash while appending the next record
+		final FileOutputStream out = new FileOutputStream(segments[0], true);
+		out.write(new byte[] { 0, 0, 1, 0, 0, 0, 0, 7, 1, 2, 3 });
+		out.close();
+
+		final SegmentedStore reopened = createStore(1000);
+		reopened.collect(new Collectible<String>(CLIENT_INFO, CATEGORY, "after reopen"));
+		reopened.prepareTransferables(CATEGORY);
+		final List<Collectible<?>> transferables = reopened.retrieveTransferables(CATEGORY);
+		assertEquals(6, transferables.size());
+		assertEquals("payload 0", transferables.get(0).getPayload());
+		assertEquals("after reopen", transferables.get(5).getPayload());
+	}
+
+	private SegmentedStore createStore(final int maxItems) throws CoreException {
+		final SegmentedStore store = new SegmentedStore();
+		store.setInitializationData(null, null, "storePath=" + storeFolder.getAbsolutePath()
+				+ "; segmentSize=2048; blockSize=512");
+		final Map<String, Category> categories = new HashMap<String, Category>();
+		categories.put(CATEGORY, new Category(CATEGORY, maxItems));
+		store.open(categories);
+		return store;
+	}
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.client;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.monitor.common.Collectible;
+import org.eclipse.riena.monitor.common.IReceiver;
+
+/**
+ * Test the batched transfer of the {@code SimpleSender}.
+ */
+@NonUITestCase
+public class SimpleSenderTest extends RienaTestCase {
+
+	private static final String CATEGORY = "test";
+
+	private SimpleSender sender;
+	private ListStore store;
+	private BatchReceiver receiver;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		store = new ListStore();
+		receiver = new BatchReceiver();
+		sender = new SimpleSender();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		sender.stop();
+		super.tearDown();
+	}
+
+	public void testSendsBoundedBatchesAndCommitsEach() throws Exception {
+		start("batchSize=10");
+		store.add(25);
+
+		assertTrue(sender.transfer(CATEGORY));
+
+		assertEquals(3, receiver.batches.size());
+		assertEquals(10, receiver.batches.get(0).size());
+		assertEquals(5, receiver.batches.get(2).size());
+		assertEquals(3, store.commits);
+		assertTrue(store.collectibles.isEmpty());
+		assertEquals(25, sender.getSentCollectibles());
+		assertEquals(3, sender.getSentBatches());
+		assertEquals(0, sender.getBacklog());
+	}
+
+	public void testBatchBytesLimit() throws Exception {
+		start("batchSize=100; batchBytes=2000");
+		store.add(20);
+
+		assertTrue(sender.transfer(CATEGORY));
+
+		assertTrue(receiver.batches.size() > 1);
+		for (final List<Collectible<?>> batch : receiver.batches) {
+			assertTrue(batch.size() < 20);
+		}
+		assertEquals(20, sender.getSentCollectibles());
+	}
+
+	public void testFailedBatchKeepsRemainingBacklog() throws Exception {
+		start("batchSize=10");
+		store.add(25);
+		receiver.acceptBatches = 1;
+
+		assertFalse(sender.transfer(CATEGORY));
+
+		assertEquals(15, store.collectibles.size());
+		assertEquals(15, sender.getBacklog());
+		assertEquals(1, sender.getFailedBatches());
+
+		receiver.acceptBatches = Integer.MAX_VALUE;
+		assertTrue(sender.transfer(CATEGORY));
+		assertEquals(0, sender.getBacklog());
+		assertEquals(25, sender.getSentCollectibles());
+	}
+
+	public void testRetrySendsOnlyTheFailedAndRemainingBatches() throws Exception {
+		start("batchSize=10");
+		store.add(30);
+		receiver.acceptBatches = 1;
+
+		assertFalse(sender.transfer(CATEGORY));
+		assertEquals(1, receiver.batches.size());
+		assertEquals(20, store.collectibles.size());
+
+		receiver.acceptBatches = Integer.MAX_VALUE;
+		assertTrue(sender.transfer(CATEGORY));
+
+		assertEquals(3, receiver.batches.size());
+		assertEquals("payload 0", receiver.batches.get(0).get(0).getPayload()); //$NON-NLS-1$
+		assertEquals("payload 10", receiver.batches.get(1).get(0).getPayload()); //$NON-NLS-1$
+		assertEquals("payload 20", receiver.batches.get(2).get(0).getPayload()); //$NON-NLS-1$
+		for (final List<Collectible<?>> batch : receiver.batches) {
+			assertEquals(10, batch.size());
+		}
+		assertEquals(30, sender.getSentCollectibles());
+		assertTrue(store.collectibles.isEmpty());
+	}
+
+	public void testEachCollectibleIsSerializedOnceForTheBatchBytes() throws Exception {
+		start("batchSize=100; batchBytes=2000");
+		for (int i = 0; i < 20; i++) {
+			store.collect(new Collectible<CountingPayload>("unit-test", CATEGORY, new CountingPayload())); //$NON-NLS-1$
+		}
+		CountingPayload.serializations = 0;
+
+		assertTrue(sender.transfer(CATEGORY));
+
+		assertTrue(receiver.batches.size() > 1);
+		assertEquals(20, CountingPayload.serializations);
+	}
+
+	public void testExponentialBackoffWithJitter() throws Exception {
+		start("initialRetryTime=1 s; retryTime=1 m");
+		for (int i = 0; i < 20; i++) {
+			final long first = sender.getRetryDelay(1);
+			assertTrue(first >= 500 && first <= 1000);
+			final long third = sender.getRetryDelay(3);
+			assertTrue(third >= 2000 && third <= 4000);
+			final long capped = sender.getRetryDelay(30);
+			assertTrue(capped >= 30000 && capped <= 60000);
+		}
+	}
+
+	private void start(final String configuration) throws Exception {
+		sender.setInitializationData(null, null, configuration);
+		sender.bind(receiver);
+		sender.start(store, Collections.singletonList(new Category(CATEGORY, 1000)));
+	}
+
+	@SuppressWarnings("serial")
+	private static class CountingPayload implements Serializable {
+
+		private static int serializations;
+		// gives each payload a size of its own
+		private final byte[] data = new byte[200];
+
+		private void writeObject(final ObjectOutputStream out) throws IOException {
+			serializations++;
+			out.defaultWriteObject();
+		}
+	}
+
+	private static class BatchReceiver implements IReceiver {
+
+		private final List<List<Collectible<?>>> batches = new ArrayList<List<Collectible<?>>>();
+		private int acceptBatches = Integer.MAX_VALUE;
+
+		public boolean take(final long senderTime, final List<Collectible<?>> collectibles) {
+			if (acceptBatches-- <= 0) {
+				return false;
+			}
+			batches.add(collectibles);
+			return true;
+		}
+	}
+
+	private static class ListStore implements IStore {
+
+		private final List<Collectible<?>> collectibles = new ArrayList<Collectible<?>>();
+		private int commits;
+
+		private void add(final int count) {
+			for (int i = 0; i < count; i++) {
+				collectibles.add(new Collectible<String>("unit-test", CATEGORY, "payload " + i)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+
+		public void open(final Map<String, Category> categories) {
+		}
+
+		public void close() {
+		}
+
+		public void flush() {
+		}
+
+		public boolean collect(final Collectible<?> collectible) {
+			return collectibles.add(collectible);
+		}
+
+		public void prepareTransferables(final String category) {
+		}
+
+		public List<Collectible<?>> retrieveTransferables(final String category) {
+			return new ArrayList<Collectible<?>>(collectibles);
+		}
+
+		public void commitTransferred(final List<Collectible<?>> transferred) {
+			commits++;
+			collectibles.removeAll(transferred);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.monitor.common.receiver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.osgi.service.log.LogService;
+
+import org.eclipse.equinox.log.ExtendedLogEntry;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.core.util.ReflectionUtils;
+import org.eclipse.riena.monitor.common.Collectible;
+import org.eclipse.riena.monitor.common.LogEntryTransferObject;
+
+/**
+ * Tests the {@link PartitionedFileReceiver}.
+ */
+@NonUITestCase
+public class PartitionedFileReceiverTest extends RienaTestCase {
+
+	private static final long HOUR = PartitionedFileReceiver.DEFAULT_PARTITION_LENGTH;
+	private static final String LOG = "LogCollectible"; //$NON-NLS-1$
+	private static final String USAGE = "UsageCollectible"; //$NON-NLS-1$
+
+	private File folder;
+	private PartitionedFileReceiver receiver;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		folder = File.createTempFile("receiver", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		folder.delete();
+		receiver = new PartitionedFileReceiver(folder);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		receiver.close();
+		for (final File file : folder.listFiles()) {
+			file.delete();
+		}
+		folder.delete();
+		super.tearDown();
+	}
+
+	public void testQueryByTimeClientCategoryAndLevel() {
+		assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(//
+				log("client1", 10, LogService.LOG_ERROR), //$NON-NLS-1$
+				log("client1", HOUR + 10, LogService.LOG_DEBUG), //$NON-NLS-1$
+				log("client2", HOUR + 20, LogService.LOG_WARNING), //$NON-NLS-1$
+				usage("client1", 2 * HOUR + 10)))); //$NON-NLS-1$
+
+		assertEquals(4, count(new CollectibleQuery()));
+		assertEquals(2, count(new CollectibleQuery().from(HOUR).to(2 * HOUR)));
+		assertEquals(3, count(new CollectibleQuery().clientInfo("client1"))); //$NON-NLS-1$
+		assertEquals(1, count(new CollectibleQuery().category(USAGE)));
+		assertEquals(2, count(new CollectibleQuery().maxLevel(LogService.LOG_WARNING)));
+		assertEquals(1, count(new CollectibleQuery().clientInfo("client1").maxLevel(LogService.LOG_WARNING))); //$NON-NLS-1$
+		assertEquals(0, count(new CollectibleQuery().clientInfo("client3"))); //$NON-NLS-1$
+
+		final Iterator<Collectible<?>> result = receiver.query(new CollectibleQuery().from(HOUR + 20).category(LOG));
+		final Collectible<?> collectible = result.next();
+		assertEquals("client2", collectible.getClientInfo()); //$NON-NLS-1$
+		assertEquals(LogService.LOG_WARNING, ((LogEntryTransferObject) collectible.getPayload()).getLevel());
+		assertFalse(result.hasNext());
+	}
+
+	public void testRetriedBatchIsStoredOnce() {
+		final List<Collectible<?>> batch = Arrays.<Collectible<?>> asList(usage("client1", 10), usage("client1", 20)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(receiver.take(0, batch));
+		assertTrue(receiver.take(0, batch));
+
+		assertEquals(2, receiver.getStoredCollectibles());
+		assertEquals(2, count(new CollectibleQuery()));
+	}
+
+	public void testConcurrentBatches() throws Exception {
+		final int senders = 4;
+		final int batches = 25;
+		final ExecutorService executor = Executors.newFixedThreadPool(senders);
+		try {
+			final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < senders * batches; i++) {
+				final String clientInfo = "client" + i % senders; //$NON-NLS-1$
+				final long time = i % 3 * HOUR + i;
+				results.add(executor.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						return receiver.take(0, Arrays.<Collectible<?>> asList(usage(clientInfo, time),
+								log(clientInfo, time, LogService.LOG_INFO)));
+					}
+				}));
+			}
+			for (final Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(2 * senders * batches, count(new CollectibleQuery()));
+		assertEquals(2 * batches, count(new CollectibleQuery().clientInfo("client1"))); //$NON-NLS-1$
+	}
+
+	public void testReopenDropsIncompleteIndexEntries() throws IOException {
+		assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(usage("client1", 10), usage("client1", 20)))); //$NON-NLS-1$ //$NON-NLS-2$
+		receiver.close();
+		final File indexFile = new File(folder, Partition.getFileName(0, PartitionedFileReceiver.INDEX_FILE_EXTENSION));
+		final RandomAccessFile index = new RandomAccessFile(indexFile, "rw"); //$NON-NLS-1$
+		index.setLength(index.length() - 3);
+		index.close();
+
+		receiver = new PartitionedFileReceiver(folder);
+		assertEquals(1, count(new CollectibleQuery()));
+		assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(usage("client1", 30)))); //$NON-NLS-1$
+		assertEquals(2, count(new CollectibleQuery()));
+	}
+
+	public void testReopenDropsDamagedIndexRecords() throws IOException {
+		final byte[] garbage = new byte[40];
+		Arrays.fill(garbage, (byte) 0xFF);
+		final int[] recordLengths = { 0, Integer.MAX_VALUE, garbage.length };
+		for (int i = 0; i < recordLengths.length; i++) {
+			assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(usage("client1", i)))); //$NON-NLS-1$
+			receiver.close();
+			final File indexFile = new File(folder, Partition.getFileName(0,
+					PartitionedFileReceiver.INDEX_FILE_EXTENSION));
+			final RandomAccessFile index = new RandomAccessFile(indexFile, "rw"); //$NON-NLS-1$
+			index.seek(index.length());
+			index.writeInt(recordLengths[i]);
+			index.write(garbage);
+			index.close();
+
+			receiver = new PartitionedFileReceiver(folder);
+			assertEquals(i + 1, count(new CollectibleQuery()));
+		}
+		assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(usage("client1", 10)))); //$NON-NLS-1$
+		receiver.close();
+		receiver = new PartitionedFileReceiver(folder);
+		assertEquals(recordLengths.length + 1, count(new CollectibleQuery()));
+	}
+
+	public void testLoadedPartitionsAreLimited() {
+		receiver = new PartitionedFileReceiver(folder, HOUR, 2);
+		final List<Collectible<?>> first = Arrays.<Collectible<?>> asList(usage("client1", 10)); //$NON-NLS-1$
+		assertTrue(receiver.take(0, first));
+		for (int i = 1; i < 5; i++) {
+			assertTrue(receiver.take(0, Arrays.<Collectible<?>> asList(usage("client1", i * HOUR + 10)))); //$NON-NLS-1$
+			assertTrue(receiver.getLoadedPartitions() <= 2);
+		}
+
+		assertEquals(5, count(new CollectibleQuery()));
+		assertTrue(receiver.getLoadedPartitions() <= 2);
+		// the unloaded partition still knows the stored collectible
+		assertTrue(receiver.take(0, first));
+		assertEquals(5, receiver.getStoredCollectibles());
+		assertEquals(5, count(new CollectibleQuery()));
+	}
+
+	private int count(final CollectibleQuery query) {
+		int count = 0;
+		final Iterator<Collectible<?>> result = receiver.query(query);
+		while (result.hasNext()) {
+			assertNotNull(result.next());
+			count++;
+		}
+		return count;
+	}
+
+	private static Collectible<?> usage(final String clientInfo, final long time) {
+		return withTime(new Collectible<String>(clientInfo, USAGE, "usage"), time); //$NON-NLS-1$
+	}
+
+	private static Collectible<?> log(final String clientInfo, final long time, final int level) {
+		final ExtendedLogEntry logEntry = (ExtendedLogEntry) Proxy.newProxyInstance(
+				PartitionedFileReceiverTest.class.getClassLoader(), new Class<?>[] { ExtendedLogEntry.class },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if ("getLevel".equals(method.getName())) { //$NON-NLS-1$
+							return level;
+						}
+						if ("getTime".equals(method.getName())) { //$NON-NLS-1$
+							return time;
+						}
+						if ("getMessage".equals(method.getName())) { //$NON-NLS-1$
+							return "message"; //$NON-NLS-1$
+						}
+						return null;
+					}
+				});
+		return withTime(new Collectible<LogEntryTransferObject>(clientInfo, LOG, new LogEntryTransferObject(
+				logEntry)), time);
+	}
+
+	private static Collectible<?> withTime(final Collectible<?> collectible, final long time) {
+		ReflectionUtils.setHidden(collectible, "collectionTime", time); //$NON-NLS-1$
+		return collectible;
+	}
+
+}
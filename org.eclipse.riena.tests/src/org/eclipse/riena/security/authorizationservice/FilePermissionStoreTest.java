@@ -10,9 +10,12 @@
  *******************************************************************************/
 package org.eclipse.riena.security.authorizationservice;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilePermission;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.Permission;
 import java.security.Permissions;
 import java.util.Enumeration;
@@ -57,4 +60,53 @@ public class FilePermissionStoreTest extends TestCase {
 		}
 		assertTrue(count == 2);
 	}
+
+	public void testUnknownPrincipal() throws SAXException, IOException, ParserConfigurationException {
+		final InputStream inputStream = this.getClass().getResourceAsStream("policy-def-test.xml");
+		final FilePermissionStore permStore = new FilePermissionStore(inputStream);
+		assertFalse(permStore.loadPermissions(new SimplePrincipal("nobody")).elements().hasMoreElements());
+	}
+
+	public void testReloadOnChange() throws Exception {
+		final File file = File.createTempFile("policy", ".xml");
+		try {
+			writePolicy(file, "christian");
+			System.setProperty(FilePermissionStore.RIENA_PERMISSION_STORE_CHECK_INTERVAL_PROPERTY, "1");
+			final FilePermissionStore permStore;
+			try {
+				permStore = new FilePermissionStore(file);
+			} finally {
+				System.clearProperty(FilePermissionStore.RIENA_PERMISSION_STORE_CHECK_INTERVAL_PROPERTY);
+			}
+			assertTrue(permStore.loadPermissions(new SimplePrincipal("christian")).implies(new TestcasePermission("testPerm")));
+			assertFalse(permStore.loadPermissions(new SimplePrincipal("testuser")).implies(new TestcasePermission("testPerm")));
+
+			writePolicy(file, "testuser");
+			file.setLastModified(file.lastModified() + 10000);
+			Thread.sleep(10);
+			assertTrue(permStore.loadPermissions(new SimplePrincipal("testuser")).implies(new TestcasePermission("testPerm")));
+			assertFalse(permStore.loadPermissions(new SimplePrincipal("christian")).implies(new TestcasePermission("testPerm")));
+
+			// a broken file keeps the previous permissions
+			final OutputStream out = new FileOutputStream(file);
+			out.write("<policy>".getBytes("UTF-8"));
+			out.close();
+			file.setLastModified(file.lastModified() + 20000);
+			Thread.sleep(10);
+			assertTrue(permStore.loadPermissions(new SimplePrincipal("testuser")).implies(new TestcasePermission("testPerm")));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private void writePolicy(final File file, final String principalName) throws IOException {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(("<policy><principal class=\"" + SimplePrincipal.class.getName() + "\" name=\"" + principalName
+					+ "\"><permission class=\"" + TestcasePermission.class.getName() + "\" name=\"testPerm\" />"
+					+ "</principal></policy>").getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
 }
\ No newline at end of file
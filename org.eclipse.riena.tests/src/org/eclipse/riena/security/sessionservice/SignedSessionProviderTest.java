@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.sessionservice;
+
+import java.security.Principal;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.internal.security.sessionservice.SessionService;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.session.Session;
+
+/**
+ * Tests the {@link SignedSessionProvider}.
+ */
+@NonUITestCase
+public class SignedSessionProviderTest extends RienaTestCase {
+
+	private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(); //$NON-NLS-1$
+	private static final Principal[] PRINCIPALS = new Principal[] { new SimplePrincipal("scott"), //$NON-NLS-1$
+			new SimplePrincipal("admin") }; //$NON-NLS-1$
+
+	public void testVerify() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		final Session session = provider.createSession(PRINCIPALS);
+
+		assertTrue(provider.canVerify(session));
+		assertTrue(session.getSessionId().matches("[A-Za-z0-9._-]+")); //$NON-NLS-1$
+		final Principal[] principals = provider.verify(session);
+		assertEquals(2, principals.length);
+		assertEquals("scott", principals[0].getName()); //$NON-NLS-1$
+		assertEquals("admin", principals[1].getName()); //$NON-NLS-1$
+		// another node with the same key
+		assertNotNull(new SignedSessionProvider(KEY, 60000, false).verify(session));
+	}
+
+	public void testEncrypted() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, true);
+		final Session session = provider.createSession(PRINCIPALS);
+
+		assertEquals(2, provider.verify(session).length);
+		assertNull(new SignedSessionProvider(KEY, 60000, false).verify(session));
+		// another node with the same key
+		assertEquals(2, new SignedSessionProvider(KEY, 60000, true).verify(session).length);
+	}
+
+	public void testEncryptedWithRandomIV() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, true);
+		final String first = provider.createSession(PRINCIPALS).getSessionId();
+		final String second = provider.createSession(PRINCIPALS).getSessionId();
+
+		// the payloads differ from the first block on although only the random id differs
+		assertFalse(first.substring(0, 40).equals(second.substring(0, 40)));
+	}
+
+	public void testSessionsAreUnique() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		assertFalse(provider.createSession(PRINCIPALS).equals(provider.createSession(PRINCIPALS)));
+	}
+
+	public void testTamperedSession() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		final String sessionId = provider.createSession(PRINCIPALS).getSessionId();
+		final int index = sessionId.length() / 2;
+		final char replacement = sessionId.charAt(index) == 'A' ? 'B' : 'A';
+		final Session tampered = new Session(sessionId.substring(0, index) + replacement
+				+ sessionId.substring(index + 1));
+
+		assertNull(provider.verify(tampered));
+		assertNull(new SignedSessionProvider("fedcba9876543210fedcba9876543210".getBytes(), 60000, false) //$NON-NLS-1$
+				.verify(new Session(sessionId)));
+		assertNull(provider.verify(new Session(sessionId.substring(0, sessionId.lastIndexOf('.')))));
+	}
+
+	public void testExpired() throws InterruptedException {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 50, false);
+		final Session session = provider.createSession(PRINCIPALS);
+		assertNotNull(provider.verify(session));
+		Thread.sleep(100);
+
+		assertNull(provider.verify(session));
+	}
+
+	public void testRevoke() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		final Session session = provider.createSession(PRINCIPALS);
+		final Session other = provider.createSession(PRINCIPALS);
+
+		provider.revoke(session);
+
+		assertNull(provider.verify(session));
+		assertNotNull(provider.verify(other));
+	}
+
+	public void testRevocationIsSentToTheOtherNodes() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		final SignedSessionProvider otherNode = new SignedSessionProvider(KEY, 60000, false);
+		final LoopbackTransport transport = new LoopbackTransport();
+		final LoopbackTransport otherTransport = new LoopbackTransport();
+		transport.other = otherTransport;
+		otherTransport.other = transport;
+		provider.bind(transport);
+		otherNode.bind(otherTransport);
+		final Session session = provider.createSession(PRINCIPALS);
+		final Session other = provider.createSession(PRINCIPALS);
+		assertNotNull(otherNode.verify(session));
+
+		provider.revoke(session);
+
+		assertNull(provider.verify(session));
+		assertNull(otherNode.verify(session));
+		assertNotNull(otherNode.verify(other));
+		assertEquals(1, transport.sent);
+		// a received revocation is not sent again
+		assertEquals(0, otherTransport.sent);
+
+		// a forged session id is ignored
+		otherTransport.receiver.received(other.getSessionId() + "x"); //$NON-NLS-1$
+		assertNotNull(otherNode.verify(other));
+
+		otherNode.unbind(otherTransport);
+		assertNull(otherTransport.receiver);
+		provider.revoke(other);
+		assertNotNull(otherNode.verify(other));
+	}
+
+	public void testOtherSessionsAreNotVerified() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		assertFalse(provider.canVerify(new SessionProvider().createSession(PRINCIPALS)));
+		assertFalse(provider.canVerify(new Session(null)));
+	}
+
+	public void testStatelessSessionService() {
+		final SignedSessionProvider provider = new SignedSessionProvider(KEY, 60000, false);
+		final SessionService sessionService = new SessionService(null, provider);
+		final Session session = sessionService.generateSession(PRINCIPALS);
+
+		assertEquals(2, sessionService.findPrincipals(session).length);
+		assertTrue(sessionService.isValidSession(session));
+		assertTrue(sessionService.hasSession(session));
+
+		sessionService.invalidateSession(session);
+
+		assertNull(sessionService.findPrincipals(session));
+		assertFalse(sessionService.hasSession(session));
+	}
+
+	public void testShortKey() {
+		try {
+			new SignedSessionProvider("secret".getBytes(), 60000, false); //$NON-NLS-1$
+			fail();
+		} catch (final IllegalArgumentException e) {
+			ok("expected"); //$NON-NLS-1$
+		}
+	}
+
+	private static class LoopbackTransport implements ISessionRevocationTransport {
+
+		private LoopbackTransport other;
+		private ISessionRevocationReceiver receiver;
+		private int sent;
+
+		public void send(final String sessionId) {
+			sent++;
+			if (other.receiver != null) {
+				other.receiver.received(sessionId);
+			}
+		}
+
+		public void setReceiver(final ISessionRevocationReceiver receiver) {
+			this.receiver = receiver;
+		}
+	}
+
+}
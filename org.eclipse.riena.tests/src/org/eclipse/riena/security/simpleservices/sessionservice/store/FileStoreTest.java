@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.simpleservices.sessionservice.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.Principal;
+import java.util.zip.CRC32;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.sessionservice.SessionEntry;
+
+/**
+ * Tests the {@link FileStore}.
+ */
+@NonUITestCase
+public class FileStoreTest extends RienaTestCase {
+
+	private File logFile;
+	private FileStore store;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		logFile = File.createTempFile("sessions", ".log"); //$NON-NLS-1$ //$NON-NLS-2$
+		logFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (store != null) {
+			store.dispose();
+		}
+		logFile.delete();
+		super.tearDown();
+	}
+
+	public void testWriteReadDelete() throws IOException {
+		store = new FileStore(logFile, false, 0);
+		final SessionEntry entry = createEntry("1", "scott"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(entry);
+
+		assertSame(entry, store.read(new Session("1"))); //$NON-NLS-1$
+		store.delete(new Session("1")); //$NON-NLS-1$
+		assertNull(store.read(new Session("1"))); //$NON-NLS-1$
+		store.delete(new Session("1")); //$NON-NLS-1$
+		assertEquals(2, store.getLogRecords());
+	}
+
+	public void testSessionsSurviveRestart() throws IOException {
+		store = new FileStore(logFile, true, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("2", "tiger")); //$NON-NLS-1$ //$NON-NLS-2$
+		final SessionEntry invalid = createEntry("3", "scott"); //$NON-NLS-1$ //$NON-NLS-2$
+		invalid.setValid(false);
+		store.write(invalid);
+		store.delete(new Session("2")); //$NON-NLS-1$
+		store.dispose();
+
+		store = new FileStore(logFile, false, 0);
+		assertEquals(2, store.getSessions());
+		final SessionEntry entry = store.read(new Session("1")); //$NON-NLS-1$
+		assertEquals("1", entry.getSession().getSessionId()); //$NON-NLS-1$
+		assertTrue(entry.getValid());
+		assertEquals(1, entry.getPrincipals().size());
+		assertEquals("scott", entry.getPrincipals().iterator().next().getName()); //$NON-NLS-1$
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+		assertFalse(store.read(new Session("3")).getValid()); //$NON-NLS-1$
+	}
+
+	public void testIncompleteRecordIsTruncated() throws IOException {
+		store = new FileStore(logFile, false, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("2", "tiger")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.dispose();
+		final long length = logFile.length();
+		final RandomAccessFile file = new RandomAccessFile(logFile, "rw"); //$NON-NLS-1$
+		try {
+			file.setLength(length - 5);
+		} finally {
+			file.close();
+		}
+
+		store = new FileStore(logFile, false, 0);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+		assertEquals(1, store.getLogRecords());
+
+		store.write(createEntry("3", "tiger")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.dispose();
+		store = new FileStore(logFile, false, 0);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		assertNotNull(store.read(new Session("3"))); //$NON-NLS-1$
+	}
+
+	public void testUnreadablePrincipalsDropTheSession() throws IOException {
+		store = new FileStore(logFile, false, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.dispose();
+
+		// a write record whose principals can not be deserialized
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bos);
+		out.writeByte(1);
+		out.writeUTF("2"); //$NON-NLS-1$
+		out.writeLong(System.currentTimeMillis());
+		out.writeLong(System.currentTimeMillis());
+		out.writeBoolean(true);
+		out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		out.close();
+		final byte[] payload = bos.toByteArray();
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		final RandomAccessFile file = new RandomAccessFile(logFile, "rw"); //$NON-NLS-1$
+		try {
+			file.seek(file.length());
+			file.writeInt(payload.length);
+			file.writeInt((int) crc.getValue());
+			file.write(payload);
+		} finally {
+			file.close();
+		}
+
+		store = new FileStore(logFile, false, 0);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+		assertEquals(1, store.getSessions());
+	}
+
+	public void testCompact() throws IOException {
+		store = new FileStore(logFile, false, 0);
+		for (int i = 0; i < 100; i++) {
+			store.write(createEntry(String.valueOf(i), "scott")); //$NON-NLS-1$
+			if (i % 10 != 0) {
+				store.delete(new Session(String.valueOf(i)));
+			}
+		}
+		final long length = logFile.length();
+		store.compact();
+
+		assertEquals(10, store.getLogRecords());
+		assertTrue(logFile.length() < length / 10);
+		store.write(createEntry("100", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.dispose();
+
+		store = new FileStore(logFile, false, 0);
+		assertEquals(11, store.getSessions());
+		assertNotNull(store.read(new Session("90"))); //$NON-NLS-1$
+		assertNotNull(store.read(new Session("100"))); //$NON-NLS-1$
+		assertNull(store.read(new Session("91"))); //$NON-NLS-1$
+	}
+
+	public void testIdleTimeout() throws Exception {
+		store = new FileStore(logFile, false, 0, 200, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("2", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < 4; i++) {
+			Thread.sleep(120);
+			assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		}
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+		store.dispose();
+
+		// the last access of session 1 has been logged
+		store = new FileStore(logFile, false, 0, 200, 0);
+		assertEquals(1, store.getSessions());
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		store.dispose();
+
+		Thread.sleep(250);
+		store = new FileStore(logFile, false, 0, 200, 0);
+		assertEquals(0, store.getSessions());
+	}
+
+	public void testAbsoluteTimeout() throws Exception {
+		store = new FileStore(logFile, false, 0, 0, 300);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		Thread.sleep(100);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		store.dispose();
+
+		store = new FileStore(logFile, false, 0, 0, 300);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		Thread.sleep(300);
+		assertNull(store.read(new Session("1"))); //$NON-NLS-1$
+	}
+
+	public void testCompactDropsExpiredSessions() throws Exception {
+		store = new FileStore(logFile, false, 0, 0, 200);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		Thread.sleep(250);
+		store.write(createEntry("2", "tiger")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.compact();
+
+		assertEquals(1, store.getLogRecords());
+		assertEquals(1, store.getSessions());
+		assertNotNull(store.read(new Session("2"))); //$NON-NLS-1$
+	}
+
+	private static SessionEntry createEntry(final String sessionId, final String user) {
+		return new SessionEntry(new Session(sessionId), new Principal[] { new SimplePrincipal(user) });
+	}
+
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.simpleservices.sessionservice.store;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.riena.core.test.RienaTestCase;
+import org.eclipse.riena.core.test.collect.NonUITestCase;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.sessionservice.SessionEntry;
+
+/**
+ * Tests the {@link MemoryStore}.
+ */
+@NonUITestCase
+public class MemoryStoreTest extends RienaTestCase {
+
+	private MemoryStore store;
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (store != null) {
+			store.dispose();
+		}
+		super.tearDown();
+	}
+
+	public void testWriteReadDelete() {
+		store = new MemoryStore(0, 0, 0, 0);
+		final SessionEntry entry = createEntry("1", "scott"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(entry);
+
+		assertSame(entry, store.read(new Session("1"))); //$NON-NLS-1$
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+
+		store.delete(new Session("1")); //$NON-NLS-1$
+		assertNull(store.read(new Session("1"))); //$NON-NLS-1$
+		assertEquals(0, store.getActiveSessions());
+	}
+
+	public void testIdleTimeout() throws InterruptedException {
+		store = new MemoryStore(200, 0, 0, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("2", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < 4; i++) {
+			Thread.sleep(100);
+			assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		}
+
+		assertNull(store.read(new Session("2"))); //$NON-NLS-1$
+		assertEquals(1, store.getExpiredSessions());
+		assertEquals(1, store.getActiveSessions());
+	}
+
+	public void testAbsoluteTimeout() throws InterruptedException {
+		store = new MemoryStore(0, 300, 0, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		Thread.sleep(100);
+		assertNotNull(store.read(new Session("1"))); //$NON-NLS-1$
+		Thread.sleep(300);
+
+		assertNull(store.read(new Session("1"))); //$NON-NLS-1$
+	}
+
+	public void testReaper() throws InterruptedException {
+		store = new MemoryStore(100, 0, 0, 50);
+		for (int i = 0; i < 10; i++) {
+			store.write(createEntry(String.valueOf(i), "user" + i % 3)); //$NON-NLS-1$
+		}
+		final long end = System.currentTimeMillis() + 5000;
+		while (store.getActiveSessions() > 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+
+		assertEquals(0, store.getActiveSessions());
+		assertEquals(10, store.getReapedSessions());
+		assertEquals(0, store.getExpiredSessions());
+	}
+
+	public void testOldestSessionOfPrincipalIsEvicted() {
+		store = new MemoryStore(0, 0, 2, 0);
+		store.write(createEntry("1", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("2", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("3", "tiger")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.write(createEntry("4", "scott")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertNull(store.read(new Session("1"))); //$NON-NLS-1$
+		assertNotNull(store.read(new Session("2"))); //$NON-NLS-1$
+		assertNotNull(store.read(new Session("3"))); //$NON-NLS-1$
+		assertNotNull(store.read(new Session("4"))); //$NON-NLS-1$
+		assertEquals(1, store.getEvictedSessions());
+	}
+
+	public void testConcurrentWriteAndDelete() throws Exception {
+		store = new MemoryStore(0, 0, 0, 0);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int t = 0; t < 8; t++) {
+				final int thread = t;
+				tasks.add(executor.submit(new Runnable() {
+					public void run() {
+						for (int i = 0; i < 1000; i++) {
+							final String id = thread + "-" + i; //$NON-NLS-1$
+							store.write(createEntry(id, "scott")); //$NON-NLS-1$
+							assertNotNull(store.read(new Session(id)));
+							store.delete(new Session(id));
+						}
+					}
+				}));
+			}
+			for (final Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0, store.getActiveSessions());
+	}
+
+	private static SessionEntry createEntry(final String sessionId, final String user) {
+		return new SessionEntry(new Session(sessionId), new Principal[] { new SimplePrincipal(user) });
+	}
+
+}
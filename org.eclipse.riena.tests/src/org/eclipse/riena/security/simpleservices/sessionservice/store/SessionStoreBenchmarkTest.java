@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2007, 2014 compeople AG and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    compeople AG - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.riena.security.simpleservices.sessionservice.store;
+
+import java.io.File;
+import java.security.Principal;
+
+import junit.framework.TestCase;
+
+import org.eclipse.riena.core.test.collect.ManualTestCase;
+import org.eclipse.riena.security.common.authentication.SimplePrincipal;
+import org.eclipse.riena.security.common.session.Session;
+import org.eclipse.riena.security.sessionservice.ISessionStore;
+import org.eclipse.riena.security.sessionservice.SessionEntry;
+
+/**
+ * Compares the cost of writing, reading and deleting sessions of the
+ * {@code MemoryStore} and the {@code FileStore}, and the time the
+ * {@code FileStore} needs to recover its sessions.
+ */
+@ManualTestCase
+public class SessionStoreBenchmarkTest extends TestCase {
+
+	private static final int SESSIONS = 20000;
+	private static final int READS = 2000000;
+
+	private File logFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		logFile = File.createTempFile("sessions", ".log"); //$NON-NLS-1$ //$NON-NLS-2$
+		logFile.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		logFile.delete();
+		super.tearDown();
+	}
+
+	public void testMemoryStore() {
+		final MemoryStore store = new MemoryStore(0, 0, 0, 0);
+		run("MemoryStore", store); //$NON-NLS-1$
+		store.dispose();
+	}
+
+	public void testFileStore() throws Exception {
+		final FileStore store = new FileStore(logFile, false, 0);
+		run("FileStore", store); //$NON-NLS-1$
+		store.dispose();
+
+		final long start = System.nanoTime();
+		final FileStore recovered = new FileStore(logFile, false, 0);
+		report("FileStore", "recover", System.nanoTime() - start, 1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(SESSIONS / 2, recovered.getSessions());
+		recovered.dispose();
+	}
+
+	public void testSyncedFileStore() throws Exception {
+		final FileStore store = new FileStore(logFile, true, 0);
+		run("FileStore (sync)", store); //$NON-NLS-1$
+		store.dispose();
+	}
+
+	private void run(final String name, final ISessionStore store) {
+		final Session[] sessions = new Session[SESSIONS];
+		long start = System.nanoTime();
+		for (int i = 0; i < SESSIONS; i++) {
+			sessions[i] = new Session("session-" + i); //$NON-NLS-1$
+			store.write(new SessionEntry(sessions[i], new Principal[] { new SimplePrincipal("user" + i % 100) })); //$NON-NLS-1$
+		}
+		report(name, "write", System.nanoTime() - start, SESSIONS); //$NON-NLS-1$
+
+		start = System.nanoTime();
+		for (int i = 0; i < READS; i++) {
+			assertNotNull(store.read(sessions[i % SESSIONS]));
+		}
+		report(name, "read", System.nanoTime() - start, READS); //$NON-NLS-1$
+
+		start = System.nanoTime();
+		for (int i = 0; i < SESSIONS; i += 2) {
+			store.delete(sessions[i]);
+		}
+		report(name, "delete", System.nanoTime() - start, SESSIONS / 2); //$NON-NLS-1$
+	}
+
+	private void report(final String name, final String operation, final long nanos, final int count) {
+		System.out.println(getClass().getSimpleName() + " - " + name + " " + operation + ": " + (nanos / count) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ " ns/op"); //$NON-NLS-1$
+	}
+
+}
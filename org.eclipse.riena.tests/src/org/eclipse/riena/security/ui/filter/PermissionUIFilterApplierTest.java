@@ -12,6 +12,7 @@ package org.eclipse.riena.security.ui.filter;
 
 import java.security.Permission;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -97,6 +98,12 @@ public class PermissionUIFilterApplierTest extends TestCase {
 			return valid;
 		}
 
+		public boolean[] checkAccess(final Permission[] permissions) {
+			final boolean[] result = new boolean[permissions.length];
+			Arrays.fill(result, valid);
+			return result;
+		}
+
 	}
 
 	private class TestUIFilterContainer implements IUIFilterContainer {